@@ -134,10 +134,40 @@ public interface PaxWebConfig {
 
 	/**
 	 * Option to specify number of threads for internal web element/context (un)registration event dispatching.
-	 * Defaults to {@code 1} ("3" was hardcoded before Pax Web 8).
+	 * Defaults to {@code 1} ("3" was hardcoded before Pax Web 8). This property is also checked as
+	 * {@link org.osgi.framework.BundleContext} property by WAR extender.
 	 */
 	String PID_CFG_EVENT_DISPATCHER_THREAD_COUNT = "org.ops4j.pax.web.server.eventDispatcherThreadCount";
 
+	/**
+	 * Option to specify maximal number of events queued for each web element/web application event listener.
+	 * Defaults to {@code 1024}. This property is also checked as {@link org.osgi.framework.BundleContext}
+	 * property by WAR extender.
+	 */
+	String PID_CFG_EVENT_DISPATCHER_QUEUE_SIZE = "org.ops4j.pax.web.server.eventDispatcherQueueSize";
+
+	/**
+	 * Option to specify what happens when listener's event queue is full. One of {@code coalesce} (default - queued
+	 * event for the same element/web application is replaced, otherwise the oldest one is discarded),
+	 * {@code dropOldest} (the oldest queued event is discarded) or {@code block} (sender waits for the listener).
+	 * A warning is logged when a queue overflows.
+	 * This property is also checked as {@link org.osgi.framework.BundleContext} property by WAR extender.
+	 */
+	String PID_CFG_EVENT_DISPATCHER_OVERFLOW_POLICY = "org.ops4j.pax.web.server.eventDispatcherOverflowPolicy";
+
+	/**
+	 * Option to specify time (in milliseconds) without new Whiteboard registrations after which collected
+	 * registration batches are merged and passed to the actual server. Defaults to {@code 0}, which means that
+	 * each registration is passed to the server immediately.
+	 */
+	String PID_CFG_BATCH_COALESCING_QUIET_PERIOD = "org.ops4j.pax.web.server.batchCoalescing.quietPeriod";
+
+	/**
+	 * Option to specify maximal number of Whiteboard registration batches collected before they're merged and
+	 * passed to the actual server (even if quiet period has not passed). Defaults to {@code 100}.
+	 */
+	String PID_CFG_BATCH_COALESCING_MAX_BATCHES = "org.ops4j.pax.web.server.batchCoalescing.maxBatches";
+
 	/**
 	 * {@link org.osgi.framework.BundleContext} property to configure thread count for WAR
 	 * extender. Before Pax Web 8 it was hardcoded to 3 (which is still the default value).
@@ -161,6 +191,21 @@ public interface PaxWebConfig {
 	 */
 	String BUNDLE_CONTEXT_PROPERTY_WAR_EXTENDER_JARS_TO_SCAN = "org.ops4j.pax.web.extender.war.jarsToScan";
 
+	/**
+	 * Context property to enable/disable persistent index of annotated classes and types matching SCIs'
+	 * {@link javax.servlet.annotation.HandlesTypes} found in WABs. The index is stored in the data area of
+	 * pax-web-extender-war bundle and allows to skip bytecode scanning of unchanged WABs after restart. Defaults to
+	 * {@code true}.
+	 */
+	String BUNDLE_CONTEXT_PROPERTY_WAR_EXTENDER_SCAN_INDEX = "org.ops4j.pax.web.extender.war.scanIndex";
+
+	/**
+	 * Context property to configure the number of threads used to find and parse classes of WAB's class path
+	 * entries and fragments. Defaults to number of available processors. {@code 1} means that the classes are
+	 * scanned sequentially in the thread deploying the WAB.
+	 */
+	String BUNDLE_CONTEXT_PROPERTY_WAR_EXTENDER_SCAN_THREADS = "org.ops4j.pax.web.extender.war.scanThreads";
+
 	/**
 	 * <p>Defines the type of TCCL that should be set for service methods (like {@link javax.servlet.Servlet#service}).
 	 * It can take two values:<ul>
@@ -296,6 +341,16 @@ public interface PaxWebConfig {
 	/** Returns whether to forward (false, default) to form-login error page or use redirect (true) */
 	String PID_CFG_FORMAUTH_REDIRECT = "org.ops4j.pax.web.formAuth.errorRedirect";
 
+	/**
+	 * Time (in seconds) for which successful verification of user credentials (e.g., JAAS login performed for BASIC
+	 * authentication) is cached. Defaults to {@code 0}, which means that credentials are verified for each request.
+	 * When enabled, statistics of the cache are available as {@code org.ops4j.pax.web:type=AuthenticationCache}
+	 * MXBean.
+	 */
+	String PID_CFG_AUTH_CACHE_TTL = "org.ops4j.pax.web.security.authCache.ttl";
+	/** Maximum number of cached verifications of user credentials, defaults to 1000 */
+	String PID_CFG_AUTH_CACHE_MAX_SIZE = "org.ops4j.pax.web.security.authCache.maxSize";
+
 	// --- logging configuration properties
 
 	/** Should we enable "NCSA Logger"? */
@@ -373,40 +428,29 @@ public interface PaxWebConfig {
 	String PID_CFG_DEFAULT_SERVLET_DIR_LISTING = "org.ops4j.pax.web.resource.dirListing";
 
 	/**
-	 * <p>Integer property to specify maximum number of cache entries (per single <em>resource manager</em>).</p>
-	 * <p><ul>
-	 *     <li>Jetty: {@code maxCachedFiles} integer init parameter</li>
-	 *     <li>Tomcat: no such option (but there's default 5s TTL)</li>
-	 *     <li>Undertow: separate {@code io.undertow.server.handlers.cache.LRUCache#maxEntries} for <em>metadata</em>
-	 *     and "regions" + "slices" parameters in {@code LimitedBufferSlicePool}</li>
-	 * </ul></p>
+	 * <p>Integer property to specify maximum number of entries in the resource cache shared by all the
+	 * <em>resource servlets</em> of the server (defaults to 2048).</p>
+	 * <p>Since Pax Web 9.0.2 the content of static resources is cached in the same (container-neutral)
+	 * {@code org.ops4j.pax.web.service.spi.util.ResourceCache} for Jetty, Tomcat and Undertow.</p>
 	 */
 	String PID_CFG_DEFAULT_SERVLET_CACHE_MAX_ENTRIES = "org.ops4j.pax.web.resource.cache.maxEntries";
 
 	/**
-	 * <p>Integer property to specify maximum size (kB) of single cache entry (file) (per single <em>resource manager</em>).</p>
-	 * <p><ul>
-	 *     <li>Jetty: {@code maxCachedFileSize} integer init parameter</li>
-	 *     <li>Tomcat: {@code org.apache.catalina.webresources.StandardRoot#setCacheObjectMaxSize()} (kB)</li>
-	 *     <li>Undertow: {@code io.undertow.server.handlers.resource.CachingResourceManager#maxFileSize()} (B)</li>
-	 * </ul></p>
+	 * <p>Integer property to specify maximum size (kB) of single entry (file) of the shared resource cache
+	 * (defaults to 2048kB). Larger resources are always served directly.</p>
 	 */
 	String PID_CFG_DEFAULT_SERVLET_CACHE_MAX_ENTRY_SIZE = "org.ops4j.pax.web.resource.cache.maxEntrySize";
 
 	/**
-	 * <p>Integer property to specify maximum total size (kB) of the cache (per single <em>resource manager</em>).</p>
-	 * <p><ul>
-	 *     <li>Jetty: {@code maxCacheSize} boolean init parameter</li>
-	 *     <li>Tomcat: {@code org.apache.catalina.webresources.StandardRoot#setCacheMaxSize()} (kB)</li>
-	 *     <li>Undertow: {@code new LimitedBufferSlicePool(bufferAllocator, sliceSize, sliceSize * slicesPerPage, maxMemory / (sliceSize * slicesPerPage))}</li>
-	 * </ul></p>
+	 * <p>Integer property to specify maximum total size (kB) of the shared resource cache (defaults to 32768kB).
+	 * {@code 0} disables the caching of resource content.</p>
 	 */
 	String PID_CFG_DEFAULT_SERVLET_CACHE_MAX_TOTAL_SIZE = "org.ops4j.pax.web.resource.cache.maxTotalSize";
 
 	/**
-	 * <p>Integer property to specify TTL for cache entries (ms)</p>
-	 * <p><ul>
-	 *     <li>Jetty: no such option, entries are evicted by last access time</li>
+	 * <p>Integer property to specify TTL for cache entries (ms). Cached content is anyway validated against last
+	 * modification time and length of the resource, so by default the entries don't expire.</p>
+	 * <p>The same value is used for container-specific <em>metadata</em> caches:<ul>
 	 *     <li>Tomcat: {@code org.apache.catalina.webresources.StandardRoot#setCacheTtl(long)} (ms)</li>
 	 *     <li>Undertow: {@code io.undertow.server.handlers.resource.CachingResourceManager#maxAge} and
 	 *         {@code io.undertow.server.handlers.cache.LRUCache#maxAge}</li>
@@ -414,9 +458,60 @@ public interface PaxWebConfig {
 	 */
 	String PID_CFG_DEFAULT_SERVLET_CACHE_TTL = "org.ops4j.pax.web.resource.cache.ttl";
 
+	/**
+	 * <p>Boolean property to specify whether the content of cached resources should be kept outside of the heap
+	 * (in direct {@link java.nio.ByteBuffer buffers}). Defaults to {@code true}.</p>
+	 */
+	String PID_CFG_DEFAULT_SERVLET_CACHE_OFF_HEAP = "org.ops4j.pax.web.resource.cache.offHeap";
+
+	/**
+	 * <p>Boolean property to specify whether <em>resource servlets</em> should serve pre-compressed {@code .br}
+	 * and {@code .gz} siblings of the requested resources (found in the same bundle/directory) to clients that
+	 * accept given encoding. Defaults to {@code false}.</p>
+	 */
+	String PID_CFG_DEFAULT_SERVLET_PRECOMPRESSED = "org.ops4j.pax.web.resource.precompressed";
+
+	/**
+	 * <p>Boolean property to specify whether <em>resource servlets</em> should gzip eligible resources on the fly.
+	 * Each resource is compressed once and the compressed variant is cached (keyed by resource ETag).
+	 * Defaults to {@code false}.</p>
+	 */
+	String PID_CFG_DEFAULT_SERVLET_COMPRESSION = "org.ops4j.pax.web.resource.compression";
+
+	/**
+	 * <p>Integer property to specify maximum total size (kB) of the cache of compressed resources
+	 * (defaults to 8192kB).</p>
+	 */
+	String PID_CFG_DEFAULT_SERVLET_COMPRESSION_CACHE_SIZE = "org.ops4j.pax.web.resource.compression.cacheSize";
+
+	/**
+	 * <p>Comma-separated list of mime types of resources that should be compressed on the fly. Defaults to
+	 * common textual types ({@code text/html}, {@code text/css}, {@code application/javascript}, ...).</p>
+	 */
+	String PID_CFG_DEFAULT_SERVLET_COMPRESSION_MIME_TYPES = "org.ops4j.pax.web.resource.compression.mimeTypes";
+
+	/**
+	 * <p>Integer property to specify minimal length (in bytes) of resources that should be compressed on the fly.
+	 * Smaller resources are sent uncompressed (defaults to 256 bytes).</p>
+	 */
+	String PID_CFG_DEFAULT_SERVLET_COMPRESSION_MIN_LENGTH = "org.ops4j.pax.web.resource.compression.minLength";
+
 	/** Boolean property to configure the container to show or hide stack traces in <em>error handler</em>. */
 	String PID_CFG_SHOW_STACKS = "org.ops4j.pax.web.server.showStacks";
 
+	/**
+	 * Boolean property to enable container-neutral request metrics (counters and latency histograms for each
+	 * context and servlet), exposed through JMX and {@code HttpServiceRuntime}. Defaults to {@code false}.
+	 */
+	String PID_CFG_REQUEST_METRICS = "org.ops4j.pax.web.server.requestMetrics";
+
+	/**
+	 * Integer property to enable sampling-based timing of preprocessors, security checks, filters and servlets
+	 * invoked for a request. Value {@code N} means that one of {@code N} requests is timed. Defaults to {@code 0}
+	 * (disabled).
+	 */
+	String PID_CFG_FILTER_CHAIN_TIMING_SAMPLE_RATE = "org.ops4j.pax.web.server.filterChainTimingSampleRate";
+
 	// --- session configuration properties - for all the contexts
 
 	/** Integer property that specifies timeout of sessions in minutes (defaults to 30) */
@@ -446,11 +541,43 @@ public interface PaxWebConfig {
 	/** When specified and is a valid directory location, <em>file session persistence</em> will be enabled */
 	String PID_CFG_SESSION_STORE_DIRECTORY = "org.ops4j.pax.web.session.storedirectory";
 
+	/**
+	 * Interval (in ms) between background writes of changed sessions to the session store in
+	 * {@link #PID_CFG_SESSION_STORE_DIRECTORY}. Defaults to 1000ms. With {@code 0}, sessions are written only
+	 * when the context is stopped.
+	 */
+	String PID_CFG_SESSION_STORE_FLUSH_INTERVAL = "org.ops4j.pax.web.session.storeFlushInterval";
+
+	/**
+	 * Where the attributes of live sessions are kept: {@code heap} (default) or {@code offheap}, where attributes
+	 * are kept serialized in direct memory.
+	 */
+	String PID_CFG_SESSION_ATTRIBUTE_STORAGE = "org.ops4j.pax.web.session.attributeStorage";
+
+	/** Maximum size (in MB) of direct memory used for {@code offheap} session attribute storage. Defaults to 256MB. */
+	String PID_CFG_SESSION_ATTRIBUTE_STORAGE_MAX_SIZE = "org.ops4j.pax.web.session.attributeStorage.maxSize";
+
 	// --- JSP configuration
 
 	/** Global Scratch directory for JSPs - by default it is relative to global tmp dir and depends on the context */
 	String PID_CFG_JSP_SCRATCH_DIR = "org.ops4j.pax.web.jsp.scratch.dir";
 
+	/**
+	 * Boolean property to compile all the JSPs of a context (WAB or context with registered JSP servlet) when
+	 * the JSP servlet is initialized, instead of compiling them on first request. Defaults to {@code false}.
+	 */
+	String PID_CFG_JSP_PRECOMPILE = "org.ops4j.pax.web.jsp.precompile";
+
+	/** Number of threads used to precompile the JSPs of single context. Defaults to number of processors. */
+	String PID_CFG_JSP_PRECOMPILE_THREADS = "org.ops4j.pax.web.jsp.precompile.threads";
+
+	/**
+	 * Boolean property to share compiled JSP classes between contexts. Classes are stored in a directory
+	 * relative to global tmp dir and are keyed by the hash of generated Java source and compiler options,
+	 * so identical JSPs (and tag files) in different WABs are compiled only once. Defaults to {@code false}.
+	 */
+	String PID_CFG_JSP_SHARED_CACHE = "org.ops4j.pax.web.jsp.sharedCache";
+
 	// Properties related to Jasypt encryption - both direct usage of Jasypt and via OSGi services
 
 	String PID_CFG_ENC_PROPERTY_PREFIX = "org.ops4j.pax.web.enc.";
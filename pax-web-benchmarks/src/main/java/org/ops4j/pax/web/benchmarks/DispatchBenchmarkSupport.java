@@ -0,0 +1,284 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.benchmarks;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ops4j.pax.web.service.PaxWebConfig;
+import org.ops4j.pax.web.service.WebContainerContext;
+import org.ops4j.pax.web.service.internal.ConfigurationBuilder;
+import org.ops4j.pax.web.service.internal.HttpServiceEnabled;
+import org.ops4j.pax.web.service.internal.MetaTypePropertyResolver;
+import org.ops4j.pax.web.service.jetty.internal.JettyServerControllerFactory;
+import org.ops4j.pax.web.service.spi.ServerController;
+import org.ops4j.pax.web.service.spi.ServerControllerFactory;
+import org.ops4j.pax.web.service.spi.ServerState;
+import org.ops4j.pax.web.service.spi.config.Configuration;
+import org.ops4j.pax.web.service.spi.model.OsgiContextModel;
+import org.ops4j.pax.web.service.spi.model.ServerModel;
+import org.ops4j.pax.web.service.spi.whiteboard.WhiteboardWebContainerView;
+import org.ops4j.pax.web.service.tomcat.internal.TomcatServerControllerFactory;
+import org.ops4j.pax.web.service.undertow.internal.UndertowServerControllerFactory;
+import org.ops4j.util.property.DictionaryPropertyResolver;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.framework.Version;
+import org.osgi.framework.namespace.HostNamespace;
+import org.osgi.framework.wiring.BundleRevision;
+import org.osgi.framework.wiring.BundleWiring;
+import org.xnio.nio.NioXnioProvider;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * <p>Base class for request dispatch benchmarks. Each runtime (Jetty, Tomcat, Undertow) is started in-process,
+ * without OSGi framework, the same way as it's done in {@code pax-web-itest-server}'s
+ * {@code MultiContainerTestSupport} - using {@link ServerController} created directly by
+ * {@link ServerControllerFactory} and a real {@link HttpServiceEnabled} working on mocked {@link Bundle}.</p>
+ *
+ * <p>Requests are sent over loopback using keep-alive {@link HttpConnection}, so the measured path includes
+ * the container's connector and the whole Pax Web dispatch layer ({@code PaxWebServletHandler} for Jetty,
+ * {@code PaxWebStandardWrapperValve} for Tomcat and {@code PaxWebPreprocessorsHandler} for Undertow).</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@Threads(4)
+public abstract class DispatchBenchmarkSupport {
+
+	@Param({ "JETTY", "TOMCAT", "UNDERTOW" })
+	public Runtime runtime;
+
+	protected int port;
+	protected byte[] request;
+
+	protected ServerController controller;
+	protected ServerModel serverModel;
+	protected Bundle bundle;
+	protected HttpServiceEnabled container;
+	protected WhiteboardWebContainerView whiteboard;
+	protected WebContainerContext context;
+
+	protected Path resourceDir;
+
+	@Setup(Level.Trial)
+	public void startRuntime() throws Exception {
+		try (ServerSocket serverSocket = new ServerSocket(0)) {
+			port = serverSocket.getLocalPort();
+		}
+		resourceDir = Files.createTempDirectory("pax-web-benchmarks");
+
+		controller = createServerController(port, runtime);
+		controller.configure();
+		controller.start();
+
+		// registration is done in the same thread, so there's no need for "paxweb-config" single thread pool
+		serverModel = new ServerModel(Runnable::run);
+
+		bundle = mockBundle("org.ops4j.pax.web.pax-web-benchmarks");
+		container = new HttpServiceEnabled(bundle, controller, serverModel, null, controller.getConfiguration());
+		whiteboard = container.adapt(WhiteboardWebContainerView.class);
+		context = container.createDefaultHttpContext();
+
+		register();
+
+		request = HttpConnection.request(port, requestPath());
+
+		// sanity check - we don't want to measure 404s
+		HttpConnection connection = new HttpConnection();
+		try {
+			int status = connection.send(port, request);
+			if (status != HttpServletResponse.SC_OK) {
+				throw new IllegalStateException("Unexpected status " + status + " for " + requestPath()
+						+ " in " + runtime);
+			}
+		} finally {
+			connection.close();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void stopRuntime() throws Exception {
+		if (container != null) {
+			container.stop();
+		}
+		if (controller != null && controller.getState() == ServerState.STARTED) {
+			controller.stop();
+		}
+		if (resourceDir != null) {
+			try (Stream<Path> paths = Files.walk(resourceDir)) {
+				paths.sorted(Collections.reverseOrder()).forEach(p -> p.toFile().delete());
+			}
+		}
+	}
+
+	/**
+	 * Registers the web elements needed by given benchmark.
+	 * @throws Exception
+	 */
+	protected abstract void register() throws Exception;
+
+	/**
+	 * Path of the request sent by the benchmark.
+	 * @return
+	 */
+	protected abstract String requestPath();
+
+	/**
+	 * Returns the {@link OsgiContextModel} created for the benchmark's {@link WebContainerContext}, so it can
+	 * be used as the target of "Whiteboard" registrations (filters and preprocessors).
+	 * @return
+	 */
+	protected OsgiContextModel contextModel() {
+		return serverModel.getBundleContextModel(context);
+	}
+
+	protected static ServerController createServerController(int port, Runtime runtime) {
+		Hashtable<Object, Object> properties = new Hashtable<>(System.getProperties());
+		properties.put(PaxWebConfig.PID_CFG_TEMP_DIR, "target/tmp");
+		properties.put(PaxWebConfig.PID_CFG_HTTP_PORT, Integer.toString(port));
+
+		// it wouldn't work in OSGi because MetaTypePropertyResolver's package is not exported
+		MetaTypePropertyResolver metatypeResolver = new MetaTypePropertyResolver();
+		DictionaryPropertyResolver resolver = new DictionaryPropertyResolver(properties, metatypeResolver);
+		Configuration config = ConfigurationBuilder.getConfiguration(resolver,
+				org.ops4j.pax.web.service.spi.util.Utils.toMap(properties));
+
+		ClassLoader classLoader = DispatchBenchmarkSupport.class.getClassLoader();
+		ServerControllerFactory factory;
+		switch (runtime) {
+			case JETTY:
+				factory = new JettyServerControllerFactory(null, classLoader);
+				break;
+			case TOMCAT:
+				factory = new TomcatServerControllerFactory(null, classLoader);
+				break;
+			case UNDERTOW:
+				factory = new UndertowServerControllerFactory(null, classLoader, new NioXnioProvider());
+				break;
+			default:
+				throw new IllegalArgumentException("Not supported: " + runtime);
+		}
+		return factory.createServerController(config);
+	}
+
+	/**
+	 * Helper method to create mock {@link Bundle} with associated mock {@link BundleContext}. Resources of the
+	 * bundle are taken from {@link #resourceDir}.
+	 * @param symbolicName
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	protected Bundle mockBundle(String symbolicName) {
+		Bundle bundle = mock(Bundle.class);
+		BundleContext bundleContext = mock(BundleContext.class);
+		when(bundle.getSymbolicName()).thenReturn(symbolicName);
+		when(bundle.getVersion()).thenReturn(Version.parseVersion("1.0.0"));
+		when(bundle.getState()).thenReturn(Bundle.ACTIVE);
+		when(bundle.toString()).thenReturn("Bundle \"" + symbolicName + "\"");
+		when(bundle.getBundleContext()).thenReturn(bundleContext);
+		when(bundleContext.getBundle()).thenReturn(bundle);
+		when(bundleContext.getBundles()).thenReturn(new Bundle[] { bundle });
+
+		BundleWiring wiring = mock(BundleWiring.class);
+		when(bundle.adapt(BundleWiring.class)).thenReturn(wiring);
+		when(wiring.getClassLoader()).thenReturn(getClass().getClassLoader());
+
+		BundleRevision revision = mock(BundleRevision.class);
+		when(bundle.adapt(BundleRevision.class)).thenReturn(revision);
+		when(revision.getWiring()).thenReturn(wiring);
+		when(revision.getBundle()).thenReturn(bundle);
+
+		when(wiring.getProvidedWires(HostNamespace.HOST_NAMESPACE)).thenReturn(new LinkedList<>());
+		when(wiring.getRequiredWires(null)).thenReturn(new LinkedList<>());
+		when(wiring.getBundle()).thenReturn(bundle);
+
+		when(bundleContext.registerService(eq(ServletContext.class), any(ServletContext.class), any(Dictionary.class)))
+				.thenReturn(mock(ServiceRegistration.class));
+
+		when(bundle.getResource(anyString())).thenAnswer(i -> {
+			Path path = resourceDir.resolve(i.getArgument(0, String.class));
+			return Files.isRegularFile(path) ? toURL(path) : null;
+		});
+		try {
+			when(bundle.getResources("META-INF/services/javax.servlet.ServletContainerInitializer"))
+					.thenReturn(Collections.emptyEnumeration());
+		} catch (IOException ignored) {
+		}
+
+		return bundle;
+	}
+
+	private static URL toURL(Path path) {
+		try {
+			return path.toUri().toURL();
+		} catch (MalformedURLException e) {
+			throw new IllegalArgumentException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Trivial servlet - with constant response of known length.
+	 */
+	public static class TrivialServlet extends HttpServlet {
+
+		private static final byte[] RESPONSE = "OK".getBytes();
+
+		@Override
+		protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+			resp.setContentType("text/plain");
+			resp.setContentLength(RESPONSE.length);
+			resp.getOutputStream().write(RESPONSE);
+		}
+	}
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.benchmarks;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * <p>Minimal, per-thread, HTTP/1.1 keep-alive client. We don't use any full blown HTTP client library, because
+ * we want the measured time to be spent in the server (and Pax Web dispatch layer) and not in the client.</p>
+ *
+ * <p>Only what's needed to consume responses from the benchmarked servlets is supported: {@code Content-Length}
+ * and {@code chunked} bodies and {@code Connection: close} responses.</p>
+ */
+@State(Scope.Thread)
+public class HttpConnection {
+
+	private Socket socket;
+	private InputStream in;
+	private OutputStream out;
+
+	private final StringBuilder line = new StringBuilder(128);
+
+	/**
+	 * Sends prepared request and consumes entire response returning its status code.
+	 * @param port
+	 * @param request
+	 * @return
+	 * @throws IOException
+	 */
+	public int send(int port, byte[] request) throws IOException {
+		if (socket == null) {
+			socket = new Socket();
+			socket.setTcpNoDelay(true);
+			socket.connect(new InetSocketAddress("127.0.0.1", port));
+			in = new BufferedInputStream(socket.getInputStream(), 8192);
+			out = socket.getOutputStream();
+		}
+
+		out.write(request);
+		out.flush();
+
+		String statusLine = readLine();
+		if (statusLine == null) {
+			close();
+			throw new IOException("Connection closed by server");
+		}
+		int status = Integer.parseInt(statusLine.substring(9, 12));
+
+		long contentLength = -1;
+		boolean chunked = false;
+		boolean keepAlive = true;
+		String header = readLine();
+		for (; header != null && !header.isEmpty(); header = readLine()) {
+			int colon = header.indexOf(':');
+			if (colon <= 0) {
+				continue;
+			}
+			String name = header.substring(0, colon).trim();
+			String value = header.substring(colon + 1).trim();
+			if ("Content-Length".equalsIgnoreCase(name)) {
+				contentLength = Long.parseLong(value);
+			} else if ("Transfer-Encoding".equalsIgnoreCase(name)) {
+				chunked = "chunked".equalsIgnoreCase(value);
+			} else if ("Connection".equalsIgnoreCase(name)) {
+				keepAlive = !"close".equalsIgnoreCase(value);
+			}
+		}
+
+		if (chunked) {
+			long size = chunkSize();
+			while (size > 0) {
+				skip(size);
+				readLine();
+				size = chunkSize();
+			}
+			// trailers
+			header = readLine();
+			while (header != null && !header.isEmpty()) {
+				header = readLine();
+			}
+		} else if (contentLength > 0) {
+			skip(contentLength);
+		}
+
+		if (!keepAlive) {
+			close();
+		}
+
+		return status;
+	}
+
+	@TearDown(Level.Trial)
+	public void close() throws IOException {
+		if (socket != null) {
+			socket.close();
+			socket = null;
+			in = null;
+			out = null;
+		}
+	}
+
+	private long chunkSize() throws IOException {
+		return Long.parseLong(readLine().trim().split(";")[0], 16);
+	}
+
+	private String readLine() throws IOException {
+		line.setLength(0);
+		for (int c = in.read(); c != -1; c = in.read()) {
+			if (c == '\n') {
+				int len = line.length();
+				if (len > 0 && line.charAt(len - 1) == '\r') {
+					line.setLength(len - 1);
+				}
+				return line.toString();
+			}
+			line.append((char) c);
+		}
+		return line.length() == 0 ? null : line.toString();
+	}
+
+	private void skip(long count) throws IOException {
+		while (count > 0) {
+			long skipped = in.skip(count);
+			if (skipped <= 0) {
+				if (in.read() == -1) {
+					throw new IOException("Unexpected end of response body");
+				}
+				skipped = 1;
+			}
+			count -= skipped;
+		}
+	}
+
+	/**
+	 * Prepares raw bytes of a {@code GET} request, so they're not created during measurement.
+	 * @param port
+	 * @param path
+	 * @return
+	 */
+	public static byte[] request(int port, String path) {
+		return ("GET " + path + " HTTP/1.1\r\n"
+				+ "Host: 127.0.0.1:" + port + "\r\n"
+				+ "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+	}
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.benchmarks;
+
+import java.io.IOException;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.ops4j.pax.web.service.spi.model.OsgiContextModel;
+import org.ops4j.pax.web.service.spi.model.elements.FilterModel;
+import org.osgi.service.http.whiteboard.Preprocessor;
+
+/**
+ * Dispatch of a request to trivial servlet through a chain of Whiteboard {@link Preprocessor preprocessors}.
+ * Preprocessors are registered the way pax-web-extender-whiteboard's {@code FilterTracker} does it.
+ */
+public class PreprocessorDispatchBenchmark extends DispatchBenchmarkSupport {
+
+	@Param({ "1", "5" })
+	public int preprocessors;
+
+	@Override
+	protected void register() throws Exception {
+		container.registerServlet(new TrivialServlet(), "trivial", new String[] { "/servlet/*" }, null, context);
+
+		OsgiContextModel ocm = contextModel();
+		for (int i = 0; i < preprocessors; i++) {
+			whiteboard.registerFilter(new FilterModel.Builder()
+					.withFilterName("preprocessor-" + i)
+					.withUrlPatterns(new String[] { "/*" })
+					.withFilter(new PassThroughPreprocessor())
+					.withAsyncSupported(true)
+					.isPreprocessor(true)
+					.withOsgiContextModel(ocm)
+					.withRegisteringBundle(bundle)
+					.withServiceRankAndId(0, 2000L + i)
+					.build());
+		}
+	}
+
+	@Override
+	protected String requestPath() {
+		return "/servlet/hello";
+	}
+
+	@Benchmark
+	public int preprocessorChain(HttpConnection connection) throws IOException {
+		return connection.send(port, request);
+	}
+
+	/**
+	 * {@link Preprocessor} that does nothing except passing the request further.
+	 */
+	public static class PassThroughPreprocessor implements Preprocessor {
+
+		@Override
+		public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+				throws IOException, ServletException {
+			chain.doFilter(request, response);
+		}
+	}
+
+}
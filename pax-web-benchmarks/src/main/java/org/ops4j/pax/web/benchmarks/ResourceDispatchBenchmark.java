@@ -0,0 +1,51 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * Dispatch of a request to a static resource served by runtime-specific <em>resource servlet</em> from the
+ * resources of (mocked) bundle.
+ */
+public class ResourceDispatchBenchmark extends DispatchBenchmarkSupport {
+
+	@Override
+	protected void register() throws Exception {
+		Path dir = Files.createDirectories(resourceDir.resolve("static"));
+		byte[] content = new byte[1024];
+		Arrays.fill(content, (byte) 'x');
+		Files.write(dir.resolve("hello.txt"), content);
+
+		container.registerResources("/static", "/static", context);
+	}
+
+	@Override
+	protected String requestPath() {
+		return "/static/hello.txt";
+	}
+
+	@Benchmark
+	public int staticResource(HttpConnection connection) throws IOException {
+		return connection.send(port, request);
+	}
+
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.benchmarks;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * Dispatch of a request to trivial servlet without any filters. This is the baseline for other benchmarks.
+ */
+public class ServletDispatchBenchmark extends DispatchBenchmarkSupport {
+
+	@Override
+	protected void register() throws Exception {
+		container.registerServlet(new TrivialServlet(), "trivial", new String[] { "/servlet/*" }, null, context);
+	}
+
+	@Override
+	protected String requestPath() {
+		return "/servlet/hello";
+	}
+
+	@Benchmark
+	public int servlet(HttpConnection connection) throws IOException {
+		return connection.send(port, request);
+	}
+
+}
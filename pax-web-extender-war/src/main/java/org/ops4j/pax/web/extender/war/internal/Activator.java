@@ -142,6 +142,12 @@ public class Activator extends AbstractExtender {
 
 	@Override
 	public void bundleChanged(BundleEvent event) {
+		WarExtenderContext context = warExtenderContext;
+		if (context != null) {
+			// persistent data related to uninstalled/updated bundles has to be cleared even if they were not tracked
+			context.bundleChanged(event);
+		}
+
 		// prevent confusing "Starting destruction process" for bundles that were never tracked
 		Bundle bundle = event.getBundle();
 		if (bundle.getState() != Bundle.ACTIVE && bundle.getState() != Bundle.STARTING) {
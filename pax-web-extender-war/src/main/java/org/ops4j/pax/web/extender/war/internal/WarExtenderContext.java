@@ -15,7 +15,9 @@
  */
 package org.ops4j.pax.web.extender.war.internal;
 
+import java.io.File;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -31,15 +33,20 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import org.apache.felix.utils.extender.Extension;
 import org.apache.tomcat.util.descriptor.web.ServletDef;
 import org.apache.tomcat.util.descriptor.web.WebXml;
 import org.apache.tomcat.util.descriptor.web.WebXmlParser;
 import org.apache.tomcat.util.file.Matcher;
+import org.ops4j.pax.web.extender.war.internal.model.AnnotationScanIndex;
 import org.ops4j.pax.web.extender.war.internal.model.BundleWebApplication;
 import org.ops4j.pax.web.service.PaxWebConfig;
 import org.ops4j.pax.web.service.PaxWebConstants;
@@ -50,11 +57,13 @@ import org.ops4j.pax.web.service.spi.model.events.WebApplicationEvent;
 import org.ops4j.pax.web.service.spi.model.events.WebApplicationEventListener;
 import org.ops4j.pax.web.service.spi.model.views.ReportViewPlugin;
 import org.ops4j.pax.web.service.spi.model.views.WebAppWebContainerView;
+import org.ops4j.pax.web.service.spi.util.EventDispatcherMXBean;
 import org.ops4j.pax.web.service.spi.util.Utils;
 import org.ops4j.pax.web.service.spi.util.WebContainerListener;
 import org.ops4j.pax.web.service.spi.util.WebContainerManager;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
 import org.osgi.framework.ServiceReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -116,6 +125,9 @@ public class WarExtenderContext implements WebContainerListener, ReportViewPlugi
 	/** Used to send events related to entire Web Applications being installed/uninstalled. */
 	private final WebApplicationEventDispatcher webApplicationEventDispatcher;
 
+	/** Name of registered {@link EventDispatcherMXBean} for {@link #webApplicationEventDispatcher} */
+	private ObjectName webApplicationEventDispatcherName;
+
 	/** Default, common foundation of all WABs - includes default (override'able) servlet and some welcome files */
 	private final WebXml defaultWebXml;
 
@@ -124,6 +136,15 @@ public class WarExtenderContext implements WebContainerListener, ReportViewPlugi
 	private final List<String> jarsToSkip = new CopyOnWriteArrayList<>();
 	private final List<String> jarsToScan = new CopyOnWriteArrayList<>();
 
+	/** Persistent index of annotation scanning results. {@code null} if disabled or not available. */
+	private final AnnotationScanIndex scanIndex;
+
+	/** Number of threads scanning WAB classes concurrently */
+	private final int scanThreads;
+
+	/** Pool used to scan WAB classes concurrently. {@code null} if the classes are scanned sequentially. */
+	private final ForkJoinPool scanPool;
+
 	static {
 		// this list is used by default or if "org.ops4j.pax.web.extender.war.jarsToSkip" PID property
 		// is equal to "default" (no quotes). "default" can be used in custom configuration as well
@@ -254,6 +275,7 @@ public class WarExtenderContext implements WebContainerListener, ReportViewPlugi
 
 		// dispatcher of events related to WAB lifecycle (128.5 Events)
 		webApplicationEventDispatcher = new WebApplicationEventDispatcher(bundleContext);
+		registerMBean();
 
 		defaultWebXml = findDefaultWebXml();
 
@@ -267,15 +289,38 @@ public class WarExtenderContext implements WebContainerListener, ReportViewPlugi
 		jarsToScan.addAll(scannedJarsList);
 
 		wabConflictListener = new WabConflictListener();
-		webApplicationEventDispatcher.getListeners().add(wabConflictListener);
+		webApplicationEventDispatcher.addInternalListener(wabConflictListener);
+
+		String useScanIndex = bundleContext.getProperty(PaxWebConfig.BUNDLE_CONTEXT_PROPERTY_WAR_EXTENDER_SCAN_INDEX);
+		File scanIndexDir = useScanIndex == null || Boolean.parseBoolean(useScanIndex)
+				? bundleContext.getDataFile("scan-index") : null;
+		scanIndex = scanIndexDir == null ? null : new AnnotationScanIndex(scanIndexDir);
+
+		String threads = bundleContext.getProperty(PaxWebConfig.BUNDLE_CONTEXT_PROPERTY_WAR_EXTENDER_SCAN_THREADS);
+		int scanThreadCount = Runtime.getRuntime().availableProcessors();
+		if (threads != null) {
+			try {
+				scanThreadCount = Integer.parseInt(threads.trim());
+			} catch (NumberFormatException e) {
+				LOG.warn("Invalid value of {}: {}. Using {} threads.",
+						PaxWebConfig.BUNDLE_CONTEXT_PROPERTY_WAR_EXTENDER_SCAN_THREADS, threads, scanThreadCount);
+			}
+		}
+		scanThreads = Math.max(1, scanThreadCount);
+		scanPool = scanThreads == 1 ? null : new ForkJoinPool(scanThreads, pool -> {
+			ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+			t.setName("paxweb-wab-scanner-" + t.getPoolIndex());
+			return t;
+		}, null, false);
 	}
 
 	/**
 	 * Cleans up everything related to pax-web-extender-war
 	 */
 	public void shutdown() {
+		unregisterMBean();
 		if (webApplicationEventDispatcher != null) {
-			webApplicationEventDispatcher.getListeners().remove(wabConflictListener);
+			webApplicationEventDispatcher.removeInternalListener(wabConflictListener);
 			webApplicationEventDispatcher.destroy();
 //			webApplicationEventDispatcher = null;
 		}
@@ -291,6 +336,44 @@ public class WarExtenderContext implements WebContainerListener, ReportViewPlugi
 		}
 
 		webContainerManager.shutdown();
+
+		if (scanPool != null) {
+			scanPool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Registers {@link EventDispatcherMXBean} for WAB events in platform {@link MBeanServer}. Failure to do so
+	 * is not fatal.
+	 */
+	private void registerMBean() {
+		try {
+			ObjectName name = new ObjectName(EventDispatcherMXBean.WEB_APPLICATIONS_OBJECT_NAME);
+			MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+			if (mBeanServer.isRegistered(name)) {
+				mBeanServer.unregisterMBean(name);
+			}
+			mBeanServer.registerMBean(webApplicationEventDispatcher, name);
+			webApplicationEventDispatcherName = name;
+		} catch (Exception e) {
+			LOG.warn("Can't register MBean {}: {}", EventDispatcherMXBean.WEB_APPLICATIONS_OBJECT_NAME,
+					e.getMessage(), e);
+		}
+	}
+
+	private void unregisterMBean() {
+		if (webApplicationEventDispatcherName == null) {
+			return;
+		}
+		try {
+			MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+			if (mBeanServer.isRegistered(webApplicationEventDispatcherName)) {
+				mBeanServer.unregisterMBean(webApplicationEventDispatcherName);
+			}
+		} catch (Exception e) {
+			LOG.warn("Problem unregistering {}: {}", webApplicationEventDispatcherName, e.getMessage());
+		}
+		webApplicationEventDispatcherName = null;
 	}
 
 	public ExecutorService getPool() {
@@ -309,6 +392,37 @@ public class WarExtenderContext implements WebContainerListener, ReportViewPlugi
 		return jarsToScan;
 	}
 
+	/**
+	 * Returns persistent index of annotated classes found in WABs or {@code null} if the index is not used.
+	 * @return
+	 */
+	public AnnotationScanIndex getScanIndex() {
+		return scanIndex;
+	}
+
+	/**
+	 * Reacts to changes of any bundle (not only WABs being tracked).
+	 * @param event
+	 */
+	public void bundleChanged(BundleEvent event) {
+		if (scanIndex != null) {
+			scanIndex.bundleChanged(event);
+		}
+	}
+
+	/**
+	 * Returns a pool used to find and parse WAB classes concurrently or {@code null} if the classes should be
+	 * scanned sequentially.
+	 * @return
+	 */
+	public ExecutorService getScanPool() {
+		return scanPool;
+	}
+
+	public int getScanThreads() {
+		return scanThreads;
+	}
+
 	/**
 	 * Send a {@link BundleWebApplication} related event.
 	 * @param event
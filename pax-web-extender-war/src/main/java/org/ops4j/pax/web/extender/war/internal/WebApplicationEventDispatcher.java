@@ -17,20 +17,18 @@
  */
 package org.ops4j.pax.web.extender.war.internal;
 
-import java.util.Collections;
-import java.util.Set;
-import java.util.concurrent.Callable;
-import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.concurrent.ExecutionException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 
+import org.ops4j.pax.web.service.PaxWebConfig;
 import org.ops4j.pax.web.service.spi.model.events.WebApplicationEvent;
 import org.ops4j.pax.web.service.spi.model.events.WebApplicationEventListener;
 import org.ops4j.pax.web.service.spi.model.events.WebElementEventListener;
+import org.ops4j.pax.web.service.spi.util.BoundedEventDispatcher;
+import org.ops4j.pax.web.service.spi.util.EventDispatcherMXBean;
 import org.ops4j.pax.web.service.spi.util.NamedThreadFactory;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.BundleEvent;
@@ -50,24 +48,47 @@ import org.slf4j.LoggerFactory;
  *
  * <p>It's activated using a method from {@link WebApplicationEventListener} that called to <em>send</em> the event
  * and the event is passed to other registered {@link WebApplicationEventListener}s.</p>
+ *
+ * <p>Each listener has own bounded queue of events (see {@link BoundedEventDispatcher}). Number of threads, queue
+ * size and overflow policy are configured using {@link PaxWebConfig#PID_CFG_EVENT_DISPATCHER_THREAD_COUNT},
+ * {@link PaxWebConfig#PID_CFG_EVENT_DISPATCHER_QUEUE_SIZE} and
+ * {@link PaxWebConfig#PID_CFG_EVENT_DISPATCHER_OVERFLOW_POLICY} bundle context properties. Internal listeners
+ * (for WAB conflict management) have own thread, so they're never delayed by external listeners.</p>
  */
 public class WebApplicationEventDispatcher implements WebApplicationEventListener,
-		ServiceTrackerCustomizer<WebApplicationEventListener, WebApplicationEventListener>, BundleListener {
+		ServiceTrackerCustomizer<WebApplicationEventListener, WebApplicationEventListener>, BundleListener,
+		EventDispatcherMXBean {
 
 	private static final Logger LOG = LoggerFactory.getLogger(WebApplicationEventDispatcher.class);
 
 	private final BundleContext bundleContext;
 	private final ExecutorService executor;
+	private final ExecutorService internalExecutor;
 
 	/** {@link ServiceTracker} for {@link WebApplicationEventListener web app listeners} */
 	private final ServiceTracker<WebApplicationEventListener, WebApplicationEventListener> webApplicationListenerTracker;
 
-	/** All tracked {@link WebApplicationEventListener web app listeners} */
-	private final Set<WebApplicationEventListener> listeners = new CopyOnWriteArraySet<>();
+	/** All tracked {@link WebApplicationEventListener web app listeners} with their queues of events */
+	private final BoundedEventDispatcher<WebApplicationEventListener, WebApplicationEvent> dispatcher;
+
+	/** Internal {@link WebApplicationEventListener listeners}, which never lose the events */
+	private final BoundedEventDispatcher<WebApplicationEventListener, WebApplicationEvent> internalDispatcher;
 
 	public WebApplicationEventDispatcher(final BundleContext bundleContext) {
 		this.bundleContext = bundleContext;
-		this.executor = Executors.newFixedThreadPool(1, new NamedThreadFactory("wab-events"));
+		int threadCount = Math.max(1, intProperty(PaxWebConfig.PID_CFG_EVENT_DISPATCHER_THREAD_COUNT, 1));
+		this.executor = Executors.newFixedThreadPool(threadCount, new NamedThreadFactory("wab-events"));
+		this.internalExecutor = Executors.newSingleThreadExecutor(new NamedThreadFactory("wab-events-internal"));
+
+		int queueSize = intProperty(PaxWebConfig.PID_CFG_EVENT_DISPATCHER_QUEUE_SIZE,
+				BoundedEventDispatcher.DEFAULT_QUEUE_SIZE);
+		BoundedEventDispatcher.OverflowPolicy policy = BoundedEventDispatcher.OverflowPolicy
+				.parse(bundleContext.getProperty(PaxWebConfig.PID_CFG_EVENT_DISPATCHER_OVERFLOW_POLICY));
+		// events for the same WAB may be coalesced
+		this.dispatcher = new BoundedEventDispatcher<>("web application", executor, queueSize, policy,
+				WebApplicationEvent::getBundleId, WebApplicationEventDispatcher::deliver);
+		this.internalDispatcher = new BoundedEventDispatcher<>("internal web application", internalExecutor,
+				queueSize, BoundedEventDispatcher.OverflowPolicy.BLOCK, null, WebApplicationEventDispatcher::deliver);
 
 		this.webApplicationListenerTracker = new ServiceTracker<>(bundleContext, WebApplicationEventListener.class.getName(), this);
 		this.webApplicationListenerTracker.open();
@@ -84,9 +105,7 @@ public class WebApplicationEventDispatcher implements WebApplicationEventListene
 		WebApplicationEventListener listener = bundleContext.getService(reference);
 		if (listener != null) {
 			LOG.debug("New WebApplicationEventListener added: {}", listener.getClass().getName());
-			synchronized (listeners) {
-				listeners.add(listener);
-			}
+			dispatcher.addListener(listener);
 		}
 		return listener;
 	}
@@ -97,7 +116,7 @@ public class WebApplicationEventDispatcher implements WebApplicationEventListene
 
 	@Override
 	public void removedService(ServiceReference<WebApplicationEventListener> reference, WebApplicationEventListener service) {
-		listeners.remove(service);
+		dispatcher.removeListener(service);
 		bundleContext.ungetService(reference);
 		LOG.debug("WebApplicationEventListener is removed: {}", service.getClass().getName());
 	}
@@ -107,56 +126,64 @@ public class WebApplicationEventDispatcher implements WebApplicationEventListene
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("Sending web event " + event + " for bundle " + event.getBundleName());
 		}
-		synchronized (listeners) {
-			callListeners(event);
-		}
+		internalDispatcher.dispatch(event);
+		dispatcher.dispatch(event);
+	}
+
+	/**
+	 * Returns delivery statistics for each {@link WebApplicationEventListener}
+	 * @return
+	 */
+	@Override
+	public List<BoundedEventDispatcher.ListenerStatistics> getStatistics() {
+		List<BoundedEventDispatcher.ListenerStatistics> result = new ArrayList<>(internalDispatcher.getStatistics());
+		result.addAll(dispatcher.getStatistics());
+		return result;
 	}
 
 	void destroy() {
 		bundleContext.removeBundleListener(this);
+		// deliver already queued events before the listeners are untracked
+		internalDispatcher.stop(60, TimeUnit.SECONDS);
+		dispatcher.stop(60, TimeUnit.SECONDS);
 		webApplicationListenerTracker.close();
+		internalExecutor.shutdown();
 		executor.shutdown();
-		// wait for the queued tasks to execute
 		try {
+			internalExecutor.awaitTermination(60, TimeUnit.SECONDS);
 			executor.awaitTermination(60, TimeUnit.SECONDS);
 		} catch (InterruptedException ignored) {
 		}
 	}
 
 	/**
-	 * Package-private method to register the main listener for WAB conflict management.
-	 * @return
+	 * Package-private method to register internal listener (for WAB conflict management), which never loses
+	 * the events and is notified in own thread, not shared with external listeners.
+	 * @param listener
 	 */
-	Set<WebApplicationEventListener> getListeners() {
-		return listeners;
+	void addInternalListener(WebApplicationEventListener listener) {
+		internalDispatcher.addListener(listener);
 	}
 
-	private void callListeners(WebApplicationEvent event) {
-		for (WebApplicationEventListener listener : listeners) {
+	void removeInternalListener(WebApplicationEventListener listener) {
+		internalDispatcher.removeListener(listener);
+	}
+
+	private int intProperty(String name, int defaultValue) {
+		String value = bundleContext.getProperty(name);
+		if (value != null) {
 			try {
-				callListener(listener, event);
-			} catch (RejectedExecutionException ree) {
-				LOG.warn("Executor shut down", ree);
-				break;
+				return Integer.parseInt(value.trim());
+			} catch (NumberFormatException e) {
+				LOG.warn("Invalid value of {}: {}. Using {}.", name, value, defaultValue);
 			}
 		}
+		return defaultValue;
 	}
 
-	private void callListener(final WebApplicationEventListener listener, final WebApplicationEvent event) {
-		try {
-			executor.invokeAny(Collections.<Callable<Void>>singleton(() -> {
-				listener.webEvent(event);
-				return null;
-			}), 60L, TimeUnit.SECONDS);
-		} catch (InterruptedException ie) {
-			LOG.warn("Thread interrupted", ie);
-			Thread.currentThread().interrupt();
-		} catch (TimeoutException te) {
-			LOG.warn("Listener timed out, will be ignored", te);
-			listeners.remove(listener);
-		} catch (ExecutionException ee) {
-			LOG.warn("Listener caused an exception, will be ignored", ee);
-			listeners.remove(listener);
+	private static void deliver(WebApplicationEventListener listener, List<WebApplicationEvent> events) {
+		for (WebApplicationEvent event : events) {
+			listener.webEvent(event);
 		}
 	}
 
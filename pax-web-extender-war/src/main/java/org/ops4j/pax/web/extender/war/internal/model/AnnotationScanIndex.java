@@ -0,0 +1,230 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.extender.war.internal.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.osgi.framework.BundleEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Persistent (file based) index of the results of annotation scanning performed by
+ * {@link BundleWebApplicationClassSpace#scanClasses}. For each WAB (by bundle ID) we remember:<ul>
+ *     <li>the locations of classes annotated with {@link javax.servlet.annotation.WebServlet},
+ *     {@link javax.servlet.annotation.WebFilter} or {@link javax.servlet.annotation.WebListener} - as a key of
+ *     a scanned root (WAB's directory entry or ordered fragment's jar name) and a path relative to this root</li>
+ *     <li>names of classes (and IDs of bundles that loaded them) that are passed to each SCI's
+ *     {@link javax.servlet.ServletContainerInitializer#onStartup} because of SCI's
+ *     {@link javax.servlet.annotation.HandlesTypes}</li>
+ * </ul></p>
+ *
+ * <p>Each entry is stored together with a key calculated from all the inputs of the scanning (WAB's and fragment
+ * bundles' last modification times, set of SCIs, ...). Entry with different key is simply ignored (and later
+ * overwritten).</p>
+ */
+public class AnnotationScanIndex {
+
+	public static final Logger LOG = LoggerFactory.getLogger(AnnotationScanIndex.class);
+
+	/** Changed when the format (or meaning) of stored data changes */
+	private static final String FORMAT = "1";
+
+	private static final String KEY = "key";
+	private static final String WEB_PREFIX = "web.";
+	private static final String SCI_PREFIX = "sci.";
+
+	private final File directory;
+
+	/**
+	 * Creates an index stored in given directory
+	 * @param directory
+	 */
+	public AnnotationScanIndex(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Returns stored scan result for given bundle if it was stored with the same key.
+	 * @param bundleId
+	 * @param key
+	 * @return
+	 */
+	public Entry load(long bundleId, String key) {
+		File file = file(bundleId);
+		if (!file.isFile()) {
+			return null;
+		}
+
+		Properties props = new Properties();
+		try (InputStream is = Files.newInputStream(file.toPath())) {
+			props.load(is);
+		} catch (IOException e) {
+			LOG.warn("Can't read annotation scan index {}: {}", file, e.getMessage());
+			return null;
+		}
+
+		if (!(FORMAT + ";" + key).equals(props.getProperty(KEY))) {
+			LOG.debug("Annotation scan index for bundle {} is outdated", bundleId);
+			return null;
+		}
+
+		Entry entry = new Entry();
+		for (int i = 0; ; i++) {
+			String location = props.getProperty(WEB_PREFIX + i);
+			if (location == null) {
+				break;
+			}
+			int idx = location.indexOf('|');
+			if (idx < 0) {
+				return null;
+			}
+			entry.addAnnotatedClass(location.substring(0, idx), location.substring(idx + 1));
+		}
+		for (String name : props.stringPropertyNames()) {
+			if (name.startsWith(SCI_PREFIX)) {
+				String sci = name.substring(SCI_PREFIX.length());
+				List<String> types = entry.handlesTypes.computeIfAbsent(sci, s -> new ArrayList<>());
+				for (String type : props.getProperty(name).split(",")) {
+					if (!"".equals(type)) {
+						types.add(type);
+					}
+				}
+			}
+		}
+
+		return entry;
+	}
+
+	/**
+	 * Stores scan result for given bundle.
+	 * @param bundleId
+	 * @param key
+	 * @param entry
+	 */
+	public void store(long bundleId, String key, Entry entry) {
+		Properties props = new Properties();
+		props.setProperty(KEY, FORMAT + ";" + key);
+		int i = 0;
+		for (String[] location : entry.annotatedClasses) {
+			props.setProperty(WEB_PREFIX + i++, location[0] + "|" + location[1]);
+		}
+		entry.handlesTypes.forEach((sci, types) -> props.setProperty(SCI_PREFIX + sci, String.join(",", types)));
+
+		File file = file(bundleId);
+		try {
+			Files.createDirectories(directory.toPath());
+			// write to temporary file first - concurrent readers should never see partially written index
+			File tmp = new File(directory, file.getName() + ".tmp");
+			try (OutputStream os = Files.newOutputStream(tmp.toPath())) {
+				props.store(os, null);
+			}
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			LOG.warn("Can't write annotation scan index {}: {}", file, e.getMessage());
+		}
+	}
+
+	/**
+	 * Removes stored scan result for given bundle.
+	 * @param bundleId
+	 */
+	public void invalidate(long bundleId) {
+		File file = file(bundleId);
+		if (file.isFile() && !file.delete()) {
+			LOG.debug("Can't delete annotation scan index {}", file);
+		}
+	}
+
+	/**
+	 * Removes stored scan result of a bundle that was uninstalled (its ID is never used again) or updated (its
+	 * content has changed).
+	 * @param event
+	 */
+	public void bundleChanged(BundleEvent event) {
+		if (event.getType() == BundleEvent.UNINSTALLED || event.getType() == BundleEvent.UPDATED) {
+			invalidate(event.getBundle().getBundleId());
+		}
+	}
+
+	private File file(long bundleId) {
+		return new File(directory, bundleId + ".properties");
+	}
+
+	/**
+	 * Scan result of single WAB.
+	 */
+	public static class Entry {
+
+		private final List<String[]> annotatedClasses = new ArrayList<>();
+		private final Map<String, List<String>> handlesTypes = new LinkedHashMap<>();
+
+		/**
+		 * Records location of a class annotated with one of web annotations.
+		 * @param root a key of scanned root
+		 * @param path a path of the class relative to the root
+		 */
+		public void addAnnotatedClass(String root, String path) {
+			annotatedClasses.add(new String[] { root, path });
+		}
+
+		/**
+		 * Records a type that should be passed to an SCI
+		 * @param sciClassName
+		 * @param bundleId an ID of the bundle that should load the class
+		 * @param className
+		 */
+		public void addHandlesType(String sciClassName, long bundleId, String className) {
+			handlesTypes.computeIfAbsent(sciClassName, s -> new ArrayList<>()).add(bundleId + ":" + className);
+		}
+
+		/**
+		 * Registers an SCI without any matching types
+		 * @param sciClassName
+		 */
+		public void addSci(String sciClassName) {
+			handlesTypes.computeIfAbsent(sciClassName, s -> new ArrayList<>());
+		}
+
+		/**
+		 * Returns pairs of scanned root key and relative path of annotated classes (in scanning order).
+		 * @return
+		 */
+		public List<String[]> getAnnotatedClasses() {
+			return Collections.unmodifiableList(annotatedClasses);
+		}
+
+		/**
+		 * Returns a mapping of SCI class names to {@code <bundleId>:<className>} of types to pass to the SCI.
+		 * @return
+		 */
+		public Map<String, List<String>> getHandlesTypes() {
+			return Collections.unmodifiableMap(handlesTypes);
+		}
+	}
+
+}
@@ -16,10 +16,13 @@
 package org.ops4j.pax.web.extender.war.internal.model;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.lang.reflect.InvocationTargetException;
+import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -34,6 +37,10 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import javax.servlet.ServletContainerInitializer;
 import javax.servlet.ServletContext;
 import javax.servlet.annotation.MultipartConfig;
@@ -54,15 +61,18 @@ import org.apache.tomcat.util.descriptor.web.ServletDef;
 import org.apache.tomcat.util.descriptor.web.WebXml;
 import org.ops4j.pax.web.extender.war.internal.WarExtenderContext;
 import org.ops4j.pax.web.service.spi.servlet.OsgiServletContextClassLoader;
+import org.ops4j.pax.web.service.spi.util.DescriptorCache;
 import org.ops4j.pax.web.service.spi.util.Utils;
 import org.ops4j.pax.web.utils.ClassPathUtil;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.Constants;
+import org.osgi.framework.FrameworkUtil;
 import org.osgi.framework.namespace.HostNamespace;
 import org.osgi.framework.wiring.BundleWire;
 import org.osgi.framework.wiring.BundleWiring;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xml.sax.InputSource;
 
 /**
  * <p>A wrapper class to give access to different classpath-related aspects of the WAB.</p>
@@ -92,6 +102,9 @@ public class BundleWebApplicationClassSpace {
 
 	private static final Set<ServletContainerInitializer> NO_SCIS = new HashSet<>();
 
+	/** Prefix of {@link AnnotationScanIndex} root keys for directory entries of WAB's {@code Bundle-ClassPath} */
+	private static final String WAB_ROOT_PREFIX = "/wab:";
+
 	private final Bundle wabBundle;
 	private OsgiServletContextClassLoader wabClassLoader;
 
@@ -365,6 +378,9 @@ public class BundleWebApplicationClassSpace {
 			bundles.add(undertowWebSocketBundle);
 		}
 
+		// reachable bundles are collected first and then processed (possibly concurrently) - fragments are added
+		// in the order of traversal
+		List<Bundle> bundlesToProcess = new ArrayList<>();
 		Set<Bundle> reached = new HashSet<>();
 		while (bundles.size() > 0) {
 			// org.apache.tomcat.util.scan.StandardJarScanner.processURLs() - Tomcat traverses CL hierarchy
@@ -390,10 +406,23 @@ public class BundleWebApplicationClassSpace {
 				continue;
 			}
 
+			bundlesToProcess.add(scannedBundle);
+			processedBundles.add(scannedBundle);
+		}
+
+		ExecutorService scanPool = extenderContext.getScanPool();
+		List<Future<List<WebXml>>> processedFragments = new ArrayList<>(bundlesToProcess.size());
+		for (Bundle scannedBundle : bundlesToProcess) {
+			if (scanPool != null) {
+				processedFragments.add(scanPool.submit(() -> process(scannedBundle, parseRequired)));
+			}
+		}
+		for (int i = 0; i < bundlesToProcess.size(); i++) {
+			Bundle scannedBundle = bundlesToProcess.get(i);
 			LOG.trace("  Checking wired bundle {}", scannedBundle);
 			try {
-				extenderContext.skipBundleScanning(scannedBundle);
-				List<WebXml> fragmentList = process(scannedBundle, parseRequired);
+				List<WebXml> fragmentList = scanPool == null ? process(scannedBundle, parseRequired)
+						: processedFragments.get(i).get();
 				for (WebXml fragment : fragmentList) {
 					addFragment(fragment);
 					if (!fragment.getWebappJar()) {
@@ -402,9 +431,12 @@ public class BundleWebApplicationClassSpace {
 						applicationFragmentBundles.put(fragment.getJarName(), scannedBundle);
 					}
 				}
-				processedBundles.add(scannedBundle);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				LOG.warn("  Interrupted scanning wired bundle {}", scannedBundle);
 			} catch (Exception e) {
-				LOG.warn("  Problem scanning wired bundle {}: {}", scannedBundle, e.getMessage(), e);
+				Throwable t = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+				LOG.warn("  Problem scanning wired bundle {}: {}", scannedBundle, t.getMessage(), t);
 			}
 		}
 
@@ -522,12 +554,13 @@ public class BundleWebApplicationClassSpace {
 		// Tomcat doesn't load META-INF/web-fragment.xml files from libraries in common classloader - even
 		// if it exists.
 
+		// searching and reading of the descriptors is done once for all the WABs (parsed WebXml is modified
+		// by each WAB, so it has to be parsed from the cached content every time)
+		List<FragmentDescriptor> descriptors = parseRequired
+				? DescriptorCache.getInstance().computeIfAbsent(bundle, "web-fragment.xml", () -> readFragmentDescriptors(bundle))
+				: Collections.emptyList();
 		List<URL> fragmentURLs = new LinkedList<>();
-		if (parseRequired) {
-			List<URL> urls = ClassPathUtil.findEntries(bundle, "META-INF", "web-fragment.xml", false, false);
-			// there may be more than one, because we access bundle fragments as well
-			fragmentURLs.addAll(urls);
-		}
+		descriptors.forEach(d -> fragmentURLs.add(d.url));
 
 		// see org.apache.tomcat.util.descriptor.web.FragmentJarScannerCallback.scan()
 		if (fragmentURLs.isEmpty()) {
@@ -547,7 +580,8 @@ public class BundleWebApplicationClassSpace {
 			return Collections.singletonList(fragment);
 		} else {
 			List<WebXml> fragments = new ArrayList<>(fragmentURLs.size());
-			for (URL fragmentURL : fragmentURLs) {
+			for (FragmentDescriptor descriptor : descriptors) {
+				URL fragmentURL = descriptor.url;
 				// this may fail, but we won't stop the parsing
 				WebXml fragment = new WebXml();
 				// mark as "application fragment", so it can be affected by the ordering mechanism because we're
@@ -561,7 +595,9 @@ public class BundleWebApplicationClassSpace {
 				fragment.setURL(new URL(String.format("%s://%s:%d/",
 						fragmentURL.getProtocol(), fragmentURL.getHost(), fragmentURL.getPort())));
 				fragment.setJarName(extractJarFileName(fragmentURL.toString()));
-				boolean ok = extenderContext.getParser().parseWebXml(fragmentURL, fragment, true);
+				InputSource source = new InputSource(fragmentURL.toExternalForm());
+				source.setByteStream(new ByteArrayInputStream(descriptor.content));
+				boolean ok = extenderContext.getParser().parseWebXml(source, fragment, true);
 				if (fragment.getName() == null) {
 					fragment.setName(fragment.getJarName());
 				}
@@ -572,13 +608,34 @@ public class BundleWebApplicationClassSpace {
 					LOG.trace("    Found web fragment with invalid descriptor, name: {}, url: {}, jarName: {}",
 							fragment.getName(), fragment.getURL(), fragment.getJarName());
 				}
-				fragmentParsingOK &= ok;
+				if (!ok) {
+					// this method may be called concurrently, but the flag may only be cleared
+					fragmentParsingOK = false;
+				}
 				fragments.add(fragment);
 			}
 			return fragments;
 		}
 	}
 
+	/**
+	 * Finds and reads {@code META-INF/web-fragment.xml} descriptors of the bundle (and its fragments).
+	 * @param bundle
+	 * @return
+	 * @throws IOException
+	 */
+	private static List<FragmentDescriptor> readFragmentDescriptors(Bundle bundle) throws IOException {
+		// there may be more than one, because we access bundle fragments as well
+		List<URL> urls = ClassPathUtil.findEntries(bundle, "META-INF", "web-fragment.xml", false, false);
+		List<FragmentDescriptor> descriptors = new ArrayList<>(urls.size());
+		for (URL url : urls) {
+			try (InputStream is = url.openStream()) {
+				descriptors.add(new FragmentDescriptor(url, is.readAllBytes()));
+			}
+		}
+		return Collections.unmodifiableList(descriptors);
+	}
+
 	private String extractJarFileName(String uri) {
 		if (uri.startsWith("bundle://") && uri.indexOf('.') > 10) {
 			// Felix: bundle://42.0:0/META-INF/web-fragment.xml
@@ -882,6 +939,9 @@ public class BundleWebApplicationClassSpace {
 	 * </ul>
 	 * </p>
 	 *
+	 * <p>Classes of different roots (WAB directory entries and ordered fragments) are found and parsed concurrently
+	 * using {@link WarExtenderContext#getScanPool()}, but they're checked in the order of the roots.</p>
+	 *
 	 * @param htToSci populated mapping of values from {@link javax.servlet.annotation.HandlesTypes} to SCIs that
 	 *        are interested in related types
 	 * @param sciToHt newly constructed mapping of previously detected SCIs to actual types that have to be passed to
@@ -896,36 +956,32 @@ public class BundleWebApplicationClassSpace {
 			Map<ServletContainerInitializer, Set<Class<?>>> sciToHt,
 			boolean thereAreHTClasses, boolean thereAreHTAnnotations) throws IOException {
 
-		Map<String, ClassCacheEntry> javaClassCache = new HashMap<>();
-		ClassCacheEntry root = new ClassCacheEntry();
-		root.scis = NO_SCIS;
-		root.superClassName = Object.class.getName();
-		root.interfaceNames = new String[0];
-		javaClassCache.put(root.superClassName, root);
+		// 0. check if the results of previous scanning can be reused
+		AnnotationScanIndex index = extenderContext == null ? null : extenderContext.getScanIndex();
+		String indexKey = index == null ? null : scanIndexKey(sciToHt.keySet(), thereAreHTClasses, thereAreHTAnnotations);
+		if (indexKey != null) {
+			AnnotationScanIndex.Entry entry = index.load(wabBundle.getBundleId(), indexKey);
+			if (entry != null && replay(entry, htToSci, sciToHt)) {
+				LOG.debug("Annotated classes of {} taken from the annotation scan index", wabBundle);
+				return;
+			}
+		}
+		// when scanning, we'll record the results
+		AnnotationScanIndex.Entry record = indexKey == null ? null : new AnnotationScanIndex.Entry();
+
+		Map<String, ClassCacheEntry> javaClassCache = newJavaClassCache();
 
 		// 1. scan classes in non-JAR entries from WAB's Bundle-ClassPath
 		//     - always for types from @HandlesTypes
 		//     - possibly for other annotated types if metadata-complete="false" on this.mainWebXml
-		LOG.trace("Scanning classes in WAB directory entries");
-
-		URL[] urls = ClassPathUtil.getClassPathNonJars(wabBundle);
 		boolean htOnly = mainWebXml.isMetadataComplete();
-		Set<String> processedRoots = new HashSet<>();
+		boolean checkHT = thereAreHTClasses || thereAreHTAnnotations;
+		List<ScanRoot> roots = new ArrayList<>();
 
-		for (URL url : urls) {
-			LOG.trace("  Scanning embedded directory: {}", url);
-			List<URL> classes = ClassPathUtil.findEntries(wabBundle, new URL[] { url }, "/", "*.class", true);
-			for (URL u : classes) {
-				processedRoots.add(u.toExternalForm());
-				if (!u.getPath().endsWith(".class")) {
-					// skip entries like
-					// "jar:bundle://40.0:0/WEB-INF/lib/spring-core-5.3.6.jar!/org/springframework/core/type/classreading/"
-					continue;
-				}
-				LOG.trace("    Scanning {}", u);
-				processClass(u, mainWebXml, wabBundle, htOnly, htToSci, sciToHt, javaClassCache,
-						thereAreHTClasses, thereAreHTAnnotations);
-			}
+		URL[] urls = ClassPathUtil.getClassPathNonJars(wabBundle);
+		for (int i = 0; i < urls.length; i++) {
+			roots.add(new ScanRoot(WAB_ROOT_PREFIX + i, urls[i], mainWebXml, wabBundle, htOnly,
+					checkHT || !htOnly, false));
 		}
 
 		// 2. scan all ordered jars - not only those from javax.servlet.ServletContext.ORDERED_LIBS, but really
@@ -935,8 +991,6 @@ public class BundleWebApplicationClassSpace {
 		//        - this.mainWebXml's metadata-complete="true"
 		//        - fragment's metadata-complete="true"
 		//        - fragment doesn't have web-fragment.xml (or it's a "container jar" in Tomcat) -> getWebappJar() == false
-		LOG.trace("Scanning classes in ordered fragments");
-
 		Map<String, Bundle> allFragmentBundles = new LinkedHashMap<>(containerFragmentBundles);
 		allFragmentBundles.putAll(applicationFragmentBundles);
 		Map<Bundle, String> processed = new HashMap<>();
@@ -964,14 +1018,53 @@ public class BundleWebApplicationClassSpace {
 			if (bundleFragment) {
 				processed.put(fragmentBundle, jarName);
 			}
-			LOG.trace("  Scanning ordered fragment {}, {} ({})", jarName, fragment.getURL(),
-					fragment.getWebappJar() ? "WAB" : "container");
-
-			List<URL> classes = ClassPathUtil.findEntries(fragmentBundle,
-					new URL[] { fragment.getURL() }, "/", "*.class", true);
 			boolean fragmentHtOnly = htOnly || fragment.isMetadataComplete() || !fragment.getWebappJar();
-			for (URL u : classes) {
-				if (fragmentBundle == wabBundle && bundleFragment) {
+			roots.add(new ScanRoot(jarName, fragment.getURL(), fragment, fragmentBundle, fragmentHtOnly,
+					checkHT || !fragmentHtOnly, fragmentBundle == wabBundle && bundleFragment));
+		}
+
+		// 3. finding and parsing the classes (the most expensive part) of the roots is performed concurrently (if
+		//    possible), but the results are processed strictly in the order of the roots, so the content of
+		//    sciToHt and WebXml fragments is the same as with sequential scanning
+		ExecutorService scanPool = extenderContext == null ? null : extenderContext.getScanPool();
+		int window = scanPool == null ? 0 : 2 * extenderContext.getScanThreads();
+		List<Future<List<ScannedClass>>> futures = new ArrayList<>(roots.size());
+		for (int i = 0; i < Math.min(window, roots.size()); i++) {
+			futures.add(scanPool.submit(roots.get(i)::scan));
+		}
+
+		Set<String> processedRoots = new HashSet<>();
+		LOG.trace("Scanning classes in WAB directory entries");
+
+		for (int r = 0; r < roots.size(); r++) {
+			ScanRoot root = roots.get(r);
+			if (r == urls.length) {
+				LOG.trace("Scanning classes in ordered fragments");
+			}
+			if (r < urls.length) {
+				LOG.trace("  Scanning embedded directory: {}", root.url);
+			} else {
+				LOG.trace("  Scanning ordered fragment {}, {} ({})", root.key, root.url,
+						root.fragment.getWebappJar() ? "WAB" : "container");
+			}
+
+			List<ScannedClass> classes;
+			if (scanPool == null) {
+				classes = root.scan();
+			} else {
+				// keep limited number of roots being scanned ahead of processing
+				if (r + window < roots.size()) {
+					futures.add(scanPool.submit(roots.get(r + window)::scan));
+				}
+				classes = await(futures.get(r));
+				futures.set(r, null);
+			}
+
+			for (ScannedClass sc : classes) {
+				URL u = sc.url;
+				if (r < urls.length) {
+					processedRoots.add(u.toExternalForm());
+				} else if (root.checkProcessedRoots) {
 					// when a bundle fragment is scanned through WABs bundle, *.class resources found using
 					// org.osgi.framework.Bundle.findEntries() will check both attached bundle fragments and
 					// normal directories within the WAB - we should skip these directories that were already
@@ -989,18 +1082,222 @@ public class BundleWebApplicationClassSpace {
 						continue;
 					}
 				}
-				if (!u.getPath().endsWith(".class")) {
+				if (sc.clazz == null) {
 					// skip entries like
 					// "jar:bundle://40.0:0/WEB-INF/lib/spring-core-5.3.6.jar!/org/springframework/core/type/classreading/"
+					// and classes that couldn't be read
 					continue;
 				}
 				LOG.trace("    Scanning {}", u);
-				processClass(u, fragment, fragmentBundle, fragmentHtOnly, htToSci, sciToHt, javaClassCache,
-						thereAreHTClasses, thereAreHTAnnotations);
+				if (processClass(sc.clazz, root.fragment, root.bundle, root.htOnly, htToSci, sciToHt, javaClassCache,
+						thereAreHTClasses, thereAreHTAnnotations) && record != null) {
+					record = record(record, root.key, root.url, u);
+				}
 			}
 		}
 
 		javaClassCache.clear();
+
+		if (record != null) {
+			for (Map.Entry<ServletContainerInitializer, Set<Class<?>>> e : sciToHt.entrySet()) {
+				String sciClassName = e.getKey().getClass().getName();
+				record.addSci(sciClassName);
+				for (Class<?> c : e.getValue()) {
+					Bundle b = FrameworkUtil.getBundle(c);
+					if (b == null) {
+						// can't be reloaded from the index
+						return;
+					}
+					record.addHandlesType(sciClassName, b.getBundleId(), c.getName());
+				}
+			}
+			index.store(wabBundle.getBundleId(), indexKey, record);
+		}
+	}
+
+	private Map<String, ClassCacheEntry> newJavaClassCache() {
+		Map<String, ClassCacheEntry> javaClassCache = new HashMap<>();
+		ClassCacheEntry root = new ClassCacheEntry();
+		root.scis = NO_SCIS;
+		root.superClassName = Object.class.getName();
+		root.interfaceNames = new String[0];
+		javaClassCache.put(root.superClassName, root);
+		return javaClassCache;
+	}
+
+	/**
+	 * Records annotated class in the index entry. If the location of the class can't be expressed relative to
+	 * the scanned root, {@code null} is returned and the results of this scanning won't be stored.
+	 * @param record
+	 * @param rootKey
+	 * @param root
+	 * @param url
+	 * @return
+	 */
+	private AnnotationScanIndex.Entry record(AnnotationScanIndex.Entry record, String rootKey, URL root, URL url) {
+		String r = root == null ? null : root.toExternalForm();
+		String u = url.toExternalForm();
+		if (r == null || !r.endsWith("/") || !u.startsWith(r)) {
+			LOG.debug("Can't index the location of {} relative to {}", url, root);
+			return null;
+		}
+		record.addAnnotatedClass(rootKey, u.substring(r.length()));
+		return record;
+	}
+
+	/**
+	 * <p>Calculates a key for {@link AnnotationScanIndex} from everything that affects the results of
+	 * {@link #scanClasses}. Bundle IDs are never reused, so bundle ID + last modification time identifies the
+	 * content of a bundle.</p>
+	 *
+	 * <p>Returns {@code null} if the results can't be indexed (e.g., there are two SCIs of the same class).</p>
+	 *
+	 * @param scis
+	 * @param thereAreHTClasses
+	 * @param thereAreHTAnnotations
+	 * @return
+	 */
+	private String scanIndexKey(Set<ServletContainerInitializer> scis,
+			boolean thereAreHTClasses, boolean thereAreHTAnnotations) {
+		StringBuilder key = new StringBuilder();
+		key.append(wabBundle.getBundleId()).append(':').append(wabBundle.getLastModified());
+		key.append(';').append(mainWebXml.isMetadataComplete()).append(thereAreHTClasses).append(thereAreHTAnnotations);
+
+		// WAB's fragments, jars and reachable bundles (also used when checking class hierarchies)
+		Set<String> bundles = new TreeSet<>();
+		BundleWiring wiring = wabBundle.adapt(BundleWiring.class);
+		if (wiring != null) {
+			List<BundleWire> hostWires = wiring.getProvidedWires(HostNamespace.HOST_NAMESPACE);
+			if (hostWires != null) {
+				for (BundleWire wire : hostWires) {
+					Bundle b = wire.getRequirerWiring().getBundle();
+					bundles.add(b.getBundleId() + ":" + b.getLastModified());
+				}
+			}
+		}
+		if (wabClassLoader != null) {
+			for (Bundle b : wabClassLoader.getBundles()) {
+				bundles.add(b.getBundleId() + ":" + b.getLastModified());
+			}
+		}
+		for (Bundle b : containerFragmentBundles.values()) {
+			bundles.add(b.getBundleId() + ":" + b.getLastModified());
+		}
+		for (Bundle b : applicationFragmentBundles.values()) {
+			bundles.add(b.getBundleId() + ":" + b.getLastModified());
+		}
+		key.append(';').append(String.join(",", bundles));
+
+		Set<String> jars = new TreeSet<>();
+		orderedFragments.forEach((name, fragment) -> {
+			Boolean skip = wabClassPathSkipped.get(name);
+			jars.add(name + (skip != null && skip ? "-" : "+")
+					+ (fragment.isMetadataComplete() ? "c" : "") + (fragment.getWebappJar() ? "w" : ""));
+		});
+		key.append(';').append(String.join(",", jars));
+
+		Set<String> seen = new HashSet<>();
+		Set<String> sciNames = new TreeSet<>();
+		for (ServletContainerInitializer sci : scis) {
+			String name = sci.getClass().getName();
+			if (!seen.add(name)) {
+				return null;
+			}
+			Bundle b = FrameworkUtil.getBundle(sci.getClass());
+			sciNames.add(name + (b == null ? "" : "@" + b.getBundleId() + ":" + b.getLastModified()));
+		}
+		key.append(';').append(String.join(",", sciNames));
+
+		return key.toString();
+	}
+
+	/**
+	 * Applies the results of previous scanning without scanning all the classes. Only the classes with
+	 * web annotations are parsed again (to update proper {@link WebXml} fragments) and types for SCIs are
+	 * loaded by name.
+	 * @param entry
+	 * @param htToSci
+	 * @param sciToHt
+	 * @return {@code false} if the entry can't be used (nothing is changed then)
+	 */
+	private boolean replay(AnnotationScanIndex.Entry entry, Map<Class<?>, Set<ServletContainerInitializer>> htToSci,
+			Map<ServletContainerInitializer, Set<Class<?>>> sciToHt) {
+		Map<Long, Bundle> bundles = new HashMap<>();
+		bundles.put(wabBundle.getBundleId(), wabBundle);
+		if (wabClassLoader != null) {
+			wabClassLoader.getBundles().forEach(b -> bundles.putIfAbsent(b.getBundleId(), b));
+		}
+		containerFragmentBundles.values().forEach(b -> bundles.putIfAbsent(b.getBundleId(), b));
+		applicationFragmentBundles.values().forEach(b -> bundles.putIfAbsent(b.getBundleId(), b));
+
+		// 1. resolve everything first
+		Map<String, ServletContainerInitializer> scis = new HashMap<>();
+		sciToHt.keySet().forEach(sci -> scis.put(sci.getClass().getName(), sci));
+		Map<ServletContainerInitializer, Set<Class<?>>> types = new HashMap<>();
+		for (Map.Entry<String, List<String>> e : entry.getHandlesTypes().entrySet()) {
+			ServletContainerInitializer sci = scis.get(e.getKey());
+			if (sci == null) {
+				return false;
+			}
+			Set<Class<?>> classes = types.computeIfAbsent(sci, s -> new HashSet<>());
+			for (String type : e.getValue()) {
+				int idx = type.indexOf(':');
+				Bundle b = idx < 0 ? null : bundles.get(Long.parseLong(type.substring(0, idx)));
+				if (b == null) {
+					return false;
+				}
+				try {
+					classes.add(b.loadClass(type.substring(idx + 1)));
+				} catch (Throwable t) {
+					LOG.debug("Can't load {} from {}: {}", type.substring(idx + 1), b, t.getMessage());
+					return false;
+				}
+			}
+		}
+
+		URL[] wabRoots = ClassPathUtil.getClassPathNonJars(wabBundle);
+		Map<String, Bundle> allFragmentBundles = new LinkedHashMap<>(containerFragmentBundles);
+		allFragmentBundles.putAll(applicationFragmentBundles);
+		List<Object[]> annotated = new ArrayList<>();
+		for (String[] location : entry.getAnnotatedClasses()) {
+			String rootKey = location[0];
+			URL root;
+			WebXml fragment;
+			Bundle bundle;
+			if (rootKey.startsWith(WAB_ROOT_PREFIX)) {
+				int i = Integer.parseInt(rootKey.substring(WAB_ROOT_PREFIX.length()));
+				if (i >= wabRoots.length) {
+					return false;
+				}
+				root = wabRoots[i];
+				fragment = mainWebXml;
+				bundle = wabBundle;
+			} else {
+				fragment = orderedFragments.get(rootKey);
+				if (fragment == null || fragment.getURL() == null) {
+					return false;
+				}
+				root = fragment.getURL();
+				bundle = allFragmentBundles.getOrDefault(rootKey, wabBundle);
+			}
+			try {
+				annotated.add(new Object[] { new URL(root, location[1]), fragment, bundle });
+			} catch (MalformedURLException e) {
+				return false;
+			}
+		}
+
+		// 2. apply
+		types.forEach((sci, classes) -> sciToHt.computeIfAbsent(sci, s -> new HashSet<>()).addAll(classes));
+		Map<String, ClassCacheEntry> javaClassCache = newJavaClassCache();
+		for (Object[] a : annotated) {
+			LOG.trace("    Processing indexed {}", a[0]);
+			processClass((URL) a[0], (WebXml) a[1], (Bundle) a[2], false, htToSci, sciToHt, javaClassCache,
+					false, false);
+		}
+		javaClassCache.clear();
+
+		return true;
 	}
 
 	/**
@@ -1018,31 +1315,75 @@ public class BundleWebApplicationClassSpace {
 	 *        {@link javax.servlet.annotation.HandlesTypes}
 	 * @param thereAreHTAnnotations {@code true} if any of the SCIs has any annotation types among values of
 	 *        {@link javax.servlet.annotation.HandlesTypes}
+	 * @return {@code true} if the class was processed as annotated servlet, filter or listener
 	 */
-	private void processClass(URL url, WebXml fragment, Bundle bundle, boolean fragmentHtOnly,
+	private boolean processClass(URL url, WebXml fragment, Bundle bundle, boolean fragmentHtOnly,
 			Map<Class<?>, Set<ServletContainerInitializer>> htToSci,
 			Map<ServletContainerInitializer, Set<Class<?>>> sciToHt, Map<String, ClassCacheEntry> javaClassCache,
 			boolean thereAreHTClasses, boolean thereAreHTAnnotations) {
-		try (InputStream is = url.openStream()) {
-			ClassParser parser = new ClassParser(is);
-			JavaClass clazz = parser.parse();
-			if (thereAreHTClasses || thereAreHTAnnotations) {
-				if ((clazz.getAccessFlags() & org.apache.tomcat.util.bcel.Const.ACC_ANNOTATION) == 0) {
-					// check only a non-annotation *.class, whether it:
-					// - is annotated with any annotation from @HandlesTypes
-					// - implements an interface from @HandlesTypes
-					// - extends a class from from @HandlesTypes
-					checkHandlesTypes(clazz, bundle, htToSci, sciToHt, javaClassCache,
-							thereAreHTClasses, thereAreHTAnnotations);
-				}
-			}
+		JavaClass clazz = parseClass(url);
+		return clazz != null && processClass(clazz, fragment, bundle, fragmentHtOnly, htToSci, sciToHt,
+				javaClassCache, thereAreHTClasses, thereAreHTAnnotations);
+	}
 
-			if (!fragmentHtOnly) {
-				// do not check if the class should be scanned for annotations like @WebServlet, @WebFilter, ...
-				checkClass(fragment, bundle, htToSci, clazz, javaClassCache);
+	/**
+	 * Check already parsed {@link JavaClass} - see {@link #processClass(URL, WebXml, Bundle, boolean, Map, Map, Map, boolean, boolean)}.
+	 */
+	private boolean processClass(JavaClass clazz, WebXml fragment, Bundle bundle, boolean fragmentHtOnly,
+			Map<Class<?>, Set<ServletContainerInitializer>> htToSci,
+			Map<ServletContainerInitializer, Set<Class<?>>> sciToHt, Map<String, ClassCacheEntry> javaClassCache,
+			boolean thereAreHTClasses, boolean thereAreHTAnnotations) {
+		if (thereAreHTClasses || thereAreHTAnnotations) {
+			if ((clazz.getAccessFlags() & org.apache.tomcat.util.bcel.Const.ACC_ANNOTATION) == 0) {
+				// check only a non-annotation *.class, whether it:
+				// - is annotated with any annotation from @HandlesTypes
+				// - implements an interface from @HandlesTypes
+				// - extends a class from from @HandlesTypes
+				checkHandlesTypes(clazz, bundle, htToSci, sciToHt, javaClassCache,
+						thereAreHTClasses, thereAreHTAnnotations);
 			}
+		}
+
+		if (!fragmentHtOnly) {
+			// do not check if the class should be scanned for annotations like @WebServlet, @WebFilter, ...
+			return checkClass(fragment, bundle, htToSci, clazz, javaClassCache);
+		}
+		return false;
+	}
+
+	/**
+	 * Parses {@code *.class} resource using BCEL. May be called concurrently.
+	 * @param url
+	 * @return parsed class or {@code null} if it can't be read
+	 */
+	private static JavaClass parseClass(URL url) {
+		try (InputStream is = url.openStream()) {
+			ClassParser parser = new ClassParser(is);
+			return parser.parse();
 		} catch (IOException e) {
 			LOG.warn("Can't read {}: {}", url, e.getMessage(), e);
+			return null;
+		}
+	}
+
+	private static List<ScannedClass> await(Future<List<ScannedClass>> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while scanning classes", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof UncheckedIOException) {
+				throw ((UncheckedIOException) cause).getCause();
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException(cause.getMessage(), cause);
 		}
 	}
 
@@ -1174,11 +1515,12 @@ public class BundleWebApplicationClassSpace {
 	 * @param htToSci
 	 * @param clazz
 	 * @param javaClassCache
+	 * @return {@code true} if the class is annotated with one of the checked annotations
 	 */
-	private void checkClass(WebXml fragment, Bundle bundle, Map<Class<?>, Set<ServletContainerInitializer>> htToSci, JavaClass clazz, Map<String, ClassCacheEntry> javaClassCache) {
+	private boolean checkClass(WebXml fragment, Bundle bundle, Map<Class<?>, Set<ServletContainerInitializer>> htToSci, JavaClass clazz, Map<String, ClassCacheEntry> javaClassCache) {
 		AnnotationEntry[] ae = clazz.getAnnotationEntries();
 		if (ae == null) {
-			return;
+			return false;
 		}
 
 		String webElementClassName = clazz.getClassName();
@@ -1189,18 +1531,19 @@ public class BundleWebApplicationClassSpace {
 				case "javax.servlet.annotation.WebServlet":
 					LOG.trace("      Processing annotated servlet {}", webElementClassName);
 					processAnnotatedServletClass(webElementClassName, fragment, bundle, ann, clazz, javaClassCache);
-					return;
+					return true;
 				case "javax.servlet.annotation.WebFilter":
 					LOG.trace("      Processing annotated filter {}", webElementClassName);
 					processAnnotatedFilterClass(webElementClassName, fragment, bundle, ann, clazz);
-					return;
+					return true;
 				case "javax.servlet.annotation.WebListener":
 					LOG.trace("      Processing annotated listener {}", webElementClassName);
 					fragment.addListener(webElementClassName);
-					return;
+					return true;
 				default:
 			}
 		}
+		return false;
 	}
 
 	private void processAnnotatedServletClass(String className, WebXml fragment, Bundle bundle, AnnotationEntry ann, JavaClass clazz, Map<String, ClassCacheEntry> javaClassCache) {
@@ -1678,6 +2021,77 @@ public class BundleWebApplicationClassSpace {
 		return null;
 	}
 
+	/**
+	 * Location and content of {@code META-INF/web-fragment.xml} found in a bundle.
+	 */
+	private static final class FragmentDescriptor {
+		final URL url;
+		final byte[] content;
+
+		FragmentDescriptor(URL url, byte[] content) {
+			this.url = url;
+			this.content = content;
+		}
+	}
+
+	/**
+	 * A root of classes to scan - directory entry of WAB's {@code Bundle-ClassPath} or an ordered fragment.
+	 */
+	private static final class ScanRoot {
+		/** Key of the root in {@link AnnotationScanIndex} */
+		final String key;
+		final URL url;
+		final WebXml fragment;
+		final Bundle bundle;
+		final boolean htOnly;
+		/** Whether the classes should be parsed at all - if not, only the entries are collected. */
+		final boolean parse;
+		/** Whether the entries should be checked against already processed WAB directory entries */
+		final boolean checkProcessedRoots;
+
+		ScanRoot(String key, URL url, WebXml fragment, Bundle bundle, boolean htOnly, boolean parse,
+				boolean checkProcessedRoots) {
+			this.key = key;
+			this.url = url;
+			this.fragment = fragment;
+			this.bundle = bundle;
+			this.htOnly = htOnly;
+			this.parse = parse;
+			this.checkProcessedRoots = checkProcessedRoots;
+		}
+
+		/**
+		 * Finds and parses all the classes of this root. This method doesn't touch any state of the class space,
+		 * so it can be called concurrently (Tomcat's {@code parallelAnnotationScanning} uses the same BCEL parser
+		 * concurrently too).
+		 * @return
+		 */
+		List<ScannedClass> scan() {
+			List<URL> entries;
+			try {
+				entries = ClassPathUtil.findEntries(bundle, new URL[] { url }, "/", "*.class", true);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			List<ScannedClass> result = new ArrayList<>(entries.size());
+			for (URL u : entries) {
+				JavaClass clazz = parse && u.getPath().endsWith(".class") ? parseClass(u) : null;
+				result.add(new ScannedClass(u, clazz));
+			}
+			return result;
+		}
+	}
+
+	private static final class ScannedClass {
+		final URL url;
+		final JavaClass clazz;
+
+		ScannedClass(URL url, JavaClass clazz) {
+			this.url = url;
+			this.clazz = clazz;
+		}
+	}
+
 	/**
 	 * See {@code org.apache.catalina.startup.ContextConfig.JavaClassCacheEntry}
 	 */
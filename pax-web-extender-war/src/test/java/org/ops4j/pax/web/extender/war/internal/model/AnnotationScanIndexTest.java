@@ -0,0 +1,100 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.extender.war.internal.model;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AnnotationScanIndexTest {
+
+	@Rule
+	public TemporaryFolder dir = new TemporaryFolder();
+
+	@Test
+	public void storedEntryIsLoadedOnlyWithTheSameKey() throws Exception {
+		AnnotationScanIndex index = new AnnotationScanIndex(dir.newFolder("index"));
+
+		AnnotationScanIndex.Entry entry = new AnnotationScanIndex.Entry();
+		entry.addAnnotatedClass("/wab:0", "org/example/MyServlet.class");
+		entry.addAnnotatedClass("lib.jar", "org/example/MyFilter.class");
+		entry.addHandlesType("org.example.MySCI", 42L, "org.example.Impl1");
+		entry.addHandlesType("org.example.MySCI", 43L, "org.example.Impl2");
+		entry.addSci("org.example.OtherSCI");
+		index.store(42L, "42:1000;sci", entry);
+
+		assertNull(index.load(42L, "42:1001;sci"));
+		assertNull(index.load(43L, "42:1000;sci"));
+
+		AnnotationScanIndex.Entry loaded = index.load(42L, "42:1000;sci");
+		assertEquals(2, loaded.getAnnotatedClasses().size());
+		assertArrayEquals(new String[] { "/wab:0", "org/example/MyServlet.class" }, loaded.getAnnotatedClasses().get(0));
+		assertArrayEquals(new String[] { "lib.jar", "org/example/MyFilter.class" }, loaded.getAnnotatedClasses().get(1));
+		assertEquals(Arrays.asList("42:org.example.Impl1", "43:org.example.Impl2"),
+				loaded.getHandlesTypes().get("org.example.MySCI"));
+		assertEquals(Collections.emptyList(), loaded.getHandlesTypes().get("org.example.OtherSCI"));
+
+		index.invalidate(42L);
+		assertNull(index.load(42L, "42:1000;sci"));
+	}
+
+	@Test
+	public void entriesOfUninstalledAndUpdatedBundlesAreRemoved() throws Exception {
+		BundleContext context = mock(BundleContext.class);
+		when(context.getDataFile("scan-index")).thenReturn(new File(dir.getRoot(), "scan-index"));
+		AnnotationScanIndex index = new AnnotationScanIndex(context.getDataFile("scan-index"));
+
+		index.store(42L, "42:1000;sci", new AnnotationScanIndex.Entry());
+		index.store(43L, "43:1000;sci", new AnnotationScanIndex.Entry());
+		File file42 = new File(context.getDataFile("scan-index"), "42.properties");
+		File file43 = new File(context.getDataFile("scan-index"), "43.properties");
+		assertTrue(file42.isFile());
+		assertTrue(file43.isFile());
+
+		// stopped WAB may be started again with the same scan results
+		index.bundleChanged(new BundleEvent(BundleEvent.STOPPED, bundle(42L)));
+		assertTrue(file42.isFile());
+
+		index.bundleChanged(new BundleEvent(BundleEvent.UPDATED, bundle(42L)));
+		assertFalse(file42.isFile());
+		assertTrue(file43.isFile());
+
+		index.bundleChanged(new BundleEvent(BundleEvent.UNINSTALLED, bundle(43L)));
+		assertFalse(file43.isFile());
+	}
+
+	private Bundle bundle(long id) {
+		Bundle bundle = mock(Bundle.class);
+		when(bundle.getBundleId()).thenReturn(id);
+		return bundle;
+	}
+
+}
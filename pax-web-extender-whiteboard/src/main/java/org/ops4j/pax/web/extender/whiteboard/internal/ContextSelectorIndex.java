@@ -0,0 +1,245 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.extender.whiteboard.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.ops4j.pax.web.service.spi.model.OsgiContextModel;
+import org.ops4j.pax.web.service.spi.model.elements.ElementModel;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.Filter;
+import org.osgi.service.http.whiteboard.HttpWhiteboardConstants;
+
+/**
+ * <p>Index of {@code osgi.http.whiteboard.context.select} selectors of Whiteboard elements, used by
+ * {@link WhiteboardExtenderContext}.</p>
+ *
+ * <p>Elements are grouped by normalized selector ({@link Filter#toString()}) and each group remembers the
+ * Whiteboard {@link OsgiContextModel contexts} matching its selector, so the LDAP filter is evaluated once per
+ * distinct selector and context - not for every element and every context. When a context is added, only the
+ * groups which may match it are checked: selectors in the form of single equality assertion (like
+ * {@code (osgi.http.whiteboard.context.name=x)}) are indexed by attribute name and value and only the remaining
+ * (complex) selectors are evaluated against the registration properties of the context.</p>
+ *
+ * <p>This class is not thread safe - it's always accessed within {@link WhiteboardExtenderContext}'s lock.</p>
+ */
+class ContextSelectorIndex {
+
+	/** Selector in the form of {@code (attribute=value)} without wildcards and escapes */
+	private static final Pattern EQUALITY = Pattern.compile("^\\(([^=()&|!~<>*\\\\\\s]+)=([^()*\\\\\\s](?:[^()*\\\\]*[^()*\\\\\\s])?)\\)$");
+
+	/** Group for elements without selector - they always use highest ranked "default" context */
+	private final SelectorGroup defaultGroup = new SelectorGroup(null, null, null);
+
+	/** Groups by normalized selector */
+	private final Map<String, SelectorGroup> groups = new HashMap<>();
+
+	/** Groups with equality selectors by attribute name and value */
+	private final Map<String, Map<String, Set<SelectorGroup>>> equalityIndex = new HashMap<>();
+
+	/** Groups with other selectors, which have to be evaluated for each new context */
+	private final Set<SelectorGroup> complex = new LinkedHashSet<>();
+
+	/**
+	 * Returns already matched Whiteboard contexts for given selector.
+	 * @param selector
+	 * @return {@code null} if there's no element with given selector yet
+	 */
+	public Collection<OsgiContextModel> matchingContexts(Filter selector) {
+		SelectorGroup group = groups.get(selector.toString());
+		return group == null ? null : Collections.unmodifiableCollection(group.matching);
+	}
+
+	/**
+	 * Adds a web element to the group of its selector. If it's first element with given selector, the selector
+	 * is evaluated against all given contexts.
+	 * @param bundle {@link Bundle} of {@link BundleWhiteboardApplication} of the element
+	 * @param element
+	 * @param contexts all the Whiteboard contexts known so far
+	 */
+	public void addElement(Bundle bundle, ElementModel<?, ?> element, Collection<OsgiContextModel> contexts) {
+		Filter selector = element.getContextFilter();
+		if (selector == null) {
+			defaultGroup.elements.put(element, bundle);
+			return;
+		}
+		String key = selector.toString();
+		SelectorGroup group = groups.get(key);
+		if (group == null) {
+			Matcher m = EQUALITY.matcher(key);
+			group = m.matches() ? new SelectorGroup(selector, m.group(1), m.group(2))
+					: new SelectorGroup(selector, null, null);
+			for (OsgiContextModel context : contexts) {
+				if (selector.matchCase(context.getContextRegistrationProperties())) {
+					group.matching.add(context);
+				}
+			}
+			groups.put(key, group);
+			if (group.attribute != null) {
+				equalityIndex.computeIfAbsent(group.attribute, a -> new HashMap<>())
+						.computeIfAbsent(group.value, v -> new LinkedHashSet<>()).add(group);
+			} else {
+				complex.add(group);
+			}
+		}
+		group.elements.put(element, bundle);
+	}
+
+	/**
+	 * Removes a web element from the group of its selector. Groups without elements are removed.
+	 * @param element
+	 */
+	public void removeElement(ElementModel<?, ?> element) {
+		Filter selector = element.getContextFilter();
+		if (selector == null) {
+			defaultGroup.elements.remove(element);
+			return;
+		}
+		String key = selector.toString();
+		SelectorGroup group = groups.get(key);
+		if (group == null) {
+			return;
+		}
+		group.elements.remove(element);
+		if (group.elements.isEmpty()) {
+			groups.remove(key);
+			if (group.attribute != null) {
+				Map<String, Set<SelectorGroup>> values = equalityIndex.get(group.attribute);
+				Set<SelectorGroup> byValue = values == null ? null : values.get(group.value);
+				if (byValue != null) {
+					byValue.remove(group);
+					if (byValue.isEmpty()) {
+						values.remove(group.value);
+						if (values.isEmpty()) {
+							equalityIndex.remove(group.attribute);
+						}
+					}
+				}
+			} else {
+				complex.remove(group);
+			}
+		}
+	}
+
+	/**
+	 * Adds new Whiteboard context to the groups with matching selectors.
+	 * @param context
+	 * @return elements (with bundles of their {@link BundleWhiteboardApplication}) which may resolve to different
+	 *         contexts now
+	 */
+	public Map<ElementModel<?, ?>, Bundle> contextAdded(OsgiContextModel context) {
+		Map<String, Object> properties = context.getContextRegistrationProperties();
+		Set<SelectorGroup> candidates = new LinkedHashSet<>();
+		for (Map.Entry<String, Map<String, Set<SelectorGroup>>> e : equalityIndex.entrySet()) {
+			Object value = properties.get(e.getKey());
+			if (value == null) {
+				continue;
+			}
+			if (value instanceof String) {
+				addCandidates(candidates, e.getValue(), (String) value);
+			} else if (value instanceof String[]) {
+				for (String v : (String[]) value) {
+					addCandidates(candidates, e.getValue(), v);
+				}
+			} else {
+				// non-String values are compared by the filter after conversion
+				e.getValue().values().forEach(candidates::addAll);
+			}
+		}
+		candidates.addAll(complex);
+
+		Map<ElementModel<?, ?>, Bundle> affected = new LinkedHashMap<>();
+		for (SelectorGroup group : candidates) {
+			if (group.selector.matchCase(context.getContextRegistrationProperties())) {
+				group.matching.add(context);
+				affected.putAll(group.elements);
+			}
+		}
+		if (isDefault(context)) {
+			affected.putAll(defaultGroup.elements);
+		}
+		return affected;
+	}
+
+	/**
+	 * Removes a Whiteboard context from all the groups.
+	 * @param context
+	 * @return elements (with bundles of their {@link BundleWhiteboardApplication}) which may resolve to different
+	 *         contexts now
+	 */
+	public Map<ElementModel<?, ?>, Bundle> contextRemoved(OsgiContextModel context) {
+		Map<ElementModel<?, ?>, Bundle> affected = new LinkedHashMap<>();
+		for (SelectorGroup group : groups.values()) {
+			if (group.matching.remove(context)) {
+				affected.putAll(group.elements);
+			}
+		}
+		if (isDefault(context)) {
+			affected.putAll(defaultGroup.elements);
+		}
+		return affected;
+	}
+
+	/**
+	 * Returns all the groups - for tests and diagnostics.
+	 * @return
+	 */
+	List<String> selectors() {
+		return new ArrayList<>(groups.keySet());
+	}
+
+	private void addCandidates(Set<SelectorGroup> candidates, Map<String, Set<SelectorGroup>> byValue, String value) {
+		Set<SelectorGroup> groups = byValue.get(value);
+		if (groups != null) {
+			candidates.addAll(groups);
+		}
+	}
+
+	private boolean isDefault(OsgiContextModel context) {
+		return HttpWhiteboardConstants.HTTP_WHITEBOARD_DEFAULT_CONTEXT_NAME.equals(context.getName());
+	}
+
+	/**
+	 * Elements sharing the same selector together with Whiteboard contexts matching this selector.
+	 */
+	private static class SelectorGroup {
+
+		private final Filter selector;
+		/** Attribute name if the selector is a single equality assertion */
+		private final String attribute;
+		private final String value;
+
+		private final Set<OsgiContextModel> matching = new LinkedHashSet<>();
+		private final Map<ElementModel<?, ?>, Bundle> elements = new LinkedHashMap<>();
+
+		SelectorGroup(Filter selector, String attribute, String value) {
+			this.selector = selector;
+			this.attribute = attribute;
+			this.value = value;
+		}
+	}
+
+}
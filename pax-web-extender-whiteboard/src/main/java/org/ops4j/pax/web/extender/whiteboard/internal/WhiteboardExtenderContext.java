@@ -16,6 +16,7 @@
 package org.ops4j.pax.web.extender.whiteboard.internal;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -127,6 +128,12 @@ public class WhiteboardExtenderContext implements WebContainerListener, WebConte
 	 */
 	private final List<OsgiContextModel> osgiContextsList = new ArrayList<>();
 
+	/**
+	 * Index of web element selectors, so adding/removing a context re-registers only the elements whose
+	 * selectors match (or matched) the context and {@link Filter} matching is done once per distinct selector.
+	 */
+	private final ContextSelectorIndex selectorIndex = new ContextSelectorIndex();
+
 	public WhiteboardExtenderContext(BundleContext bundleContext) {
 		this(bundleContext, false);
 	}
@@ -172,6 +179,9 @@ public class WhiteboardExtenderContext implements WebContainerListener, WebConte
 		lock.lock();
 		try {
 			application = bundleApplications.remove(bundle);
+			if (application != null) {
+				application.getWebElements().forEach(selectorIndex::removeElement);
+			}
 		} finally {
 			lock.unlock();
 		}
@@ -256,8 +266,10 @@ public class WhiteboardExtenderContext implements WebContainerListener, WebConte
 			// will be determined at registration time
 			List<OsgiContextModel> targetContexts = new ArrayList<>();
 
-			// check _contexts_ managed at pax-web-extender-whiteboard level
-			for (OsgiContextModel model : osgiContextsList) {
+			// check _contexts_ managed at pax-web-extender-whiteboard level. If there are already elements with
+			// the same selector, we know which contexts match it
+			Collection<OsgiContextModel> matching = selectorIndex.matchingContexts(selector);
+			for (OsgiContextModel model : matching != null ? matching : osgiContextsList) {
 				// one line "140.3 Common Whiteboard Properties" implementation of LDAP filter matching
 				BundleWhiteboardApplication app = getBundleApplication(model.getOwnerBundle());
 				if (!OsgiContextModel.DEFAULT_CONTEXT_MODEL.equals(model)
@@ -277,7 +289,7 @@ public class WhiteboardExtenderContext implements WebContainerListener, WebConte
 					// that's why we have to skip the OsgiContextModels that are not really registered yet
 					continue;
 				}
-				if (selector.matchCase(model.getContextRegistrationProperties())) {
+				if (matching != null || selector.matchCase(model.getContextRegistrationProperties())) {
 					targetContexts.add(model);
 				}
 			}
@@ -409,7 +421,7 @@ public class WhiteboardExtenderContext implements WebContainerListener, WebConte
 
 			getBundleApplication(bundle).addWebContext(model);
 
-			reRegisterWebElements();
+			reRegisterWebElements(selectorIndex.contextAdded(model));
 		} finally {
 			lock.unlock();
 		}
@@ -421,7 +433,7 @@ public class WhiteboardExtenderContext implements WebContainerListener, WebConte
 			osgiContexts.get(model.getName()).remove(model);
 			osgiContextsList.remove(model);
 
-			reRegisterWebElements();
+			reRegisterWebElements(selectorIndex.contextRemoved(model));
 
 			getBundleApplication(bundle).removeWebContext(model);
 
@@ -454,72 +466,96 @@ public class WhiteboardExtenderContext implements WebContainerListener, WebConte
 		for (BundleWhiteboardApplication app : apps) {
 			WhiteboardWebContainerView view = app.getWhiteboardContainer();
 			for (ElementModel<?, ?> webElement : app.getWebElements()) {
-				boolean isAsync = webElement.isAsynchronusRegistration();
-				try {
-					// re-registration has to be synchronous, because otherwise we'd change the osgi context models
-					// of the element when it's being unregistered for example
-					webElement.setAsynchronusRegistration(false);
-					Filter filter = webElement.getContextFilter();
-					List<OsgiContextModel> newMatching = resolveContexts(webElement.getRegisteringBundle(), filter);
-					List<OsgiContextModel> oldMatching = webElement.getContextModels();
-
-					// 0.
-					if (newMatching.size() == oldMatching.size() && newMatching.containsAll(oldMatching)) {
-						continue;
-					}
-
-					// 1. unregistration because of no matching contexts
-					if (newMatching.size() == 0) {
-						LOG.debug("Unregistering {} because its context selection filter doesn't match any context", webElement);
-						if (view != null) {
-							// first unregister
-							webElement.unregister(view);
-						}
-						// then change
-						webElement.changeContextModels(newMatching);
-						webElement.setDtoFailureCode(DTOConstants.FAILURE_REASON_NO_SERVLET_CONTEXT_MATCHING);
-						continue;
-					}
-
-					// 2. easy registration after some models matched
-					if (oldMatching.size() == 0) {
-						// first change
-						webElement.changeContextModels(newMatching);
-						LOG.debug("Registering {} because its context selection filter started matching existing contexts", webElement);
-						if (view != null) {
-							// then register
-							webElement.setDtoFailureCode(-1);
-							webElement.register(view);
-						}
-						continue;
-					}
-
-					// 3. generic case - unregistration from removed models, registration to new models
-
-					// now the tricky part - initially I wanted to optimize - remove the model only from "removed"
-					// contexts and add it only to "added" ones. First difficulty (actually easy to workaround) occurred
-					// when I saw ServletModel disappearing from the ServerModel, but the more important problem which
-					// turned out to be solution was: when additional context is added that matches a selector of
-					// existing ServletModel, then in simple scenario indeed - existing servlet should be registered
-					// in new context. But if there's different ServletModel, with conflicting name or URL patterns
-					// which is now disabled/waiting because its selector only matches the new context, the first servlet
-					// should eventually be disabled in ALL contexts, because it'll be disabled in the new context!
-					//
-					// so it's really easier - FULLY unregister the element from all current contexts and then
-					// register to all the new contexts
-					if (view != null) {
-						LOG.debug("Unregistering {} because its context selection filter matched new set of contexts", webElement);
-						webElement.unregister(view);
-					}
-					webElement.changeContextModels(newMatching);
-					if (view != null) {
-						LOG.debug("Registering {} again after its context selection filter matched new set of contexts", webElement);
-						webElement.register(view);
-					}
-				} finally {
-					webElement.setAsynchronusRegistration(isAsync);
+				reRegisterWebElement(view, webElement);
+			}
+		}
+	}
+
+	/**
+	 * Variant of {@link #reRegisterWebElements()} called when Whiteboard context is added or removed - only
+	 * the elements whose selectors match (or matched) given context are checked.
+	 * @param elements elements with the bundles of their {@link BundleWhiteboardApplication}
+	 */
+	private void reRegisterWebElements(Map<ElementModel<?, ?>, Bundle> elements) {
+		// remember - we're operating within ExtenderContext.lock
+
+		if (elements.isEmpty()) {
+			return;
+		}
+		LOG.debug("Checking {} web elements with selectors affected by context change", elements.size());
+		for (Map.Entry<ElementModel<?, ?>, Bundle> e : elements.entrySet()) {
+			BundleWhiteboardApplication app = bundleApplications.get(e.getValue());
+			if (app != null) {
+				reRegisterWebElement(app.getWhiteboardContainer(), e.getKey());
+			}
+		}
+	}
+
+	private void reRegisterWebElement(WhiteboardWebContainerView view, ElementModel<?, ?> webElement) {
+		boolean isAsync = webElement.isAsynchronusRegistration();
+		try {
+			// re-registration has to be synchronous, because otherwise we'd change the osgi context models
+			// of the element when it's being unregistered for example
+			webElement.setAsynchronusRegistration(false);
+			Filter filter = webElement.getContextFilter();
+			List<OsgiContextModel> newMatching = resolveContexts(webElement.getRegisteringBundle(), filter);
+			List<OsgiContextModel> oldMatching = webElement.getContextModels();
+
+			// 0.
+			if (newMatching.size() == oldMatching.size() && newMatching.containsAll(oldMatching)) {
+				return;
+			}
+
+			// 1. unregistration because of no matching contexts
+			if (newMatching.size() == 0) {
+				LOG.debug("Unregistering {} because its context selection filter doesn't match any context", webElement);
+				if (view != null) {
+					// first unregister
+					webElement.unregister(view);
+				}
+				// then change
+				webElement.changeContextModels(newMatching);
+				webElement.setDtoFailureCode(DTOConstants.FAILURE_REASON_NO_SERVLET_CONTEXT_MATCHING);
+				return;
+			}
+
+			// 2. easy registration after some models matched
+			if (oldMatching.size() == 0) {
+				// first change
+				webElement.changeContextModels(newMatching);
+				LOG.debug("Registering {} because its context selection filter started matching existing contexts", webElement);
+				if (view != null) {
+					// then register
+					webElement.setDtoFailureCode(-1);
+					webElement.register(view);
 				}
+				return;
 			}
+
+			// 3. generic case - unregistration from removed models, registration to new models
+
+			// now the tricky part - initially I wanted to optimize - remove the model only from "removed"
+			// contexts and add it only to "added" ones. First difficulty (actually easy to workaround) occurred
+			// when I saw ServletModel disappearing from the ServerModel, but the more important problem which
+			// turned out to be solution was: when additional context is added that matches a selector of
+			// existing ServletModel, then in simple scenario indeed - existing servlet should be registered
+			// in new context. But if there's different ServletModel, with conflicting name or URL patterns
+			// which is now disabled/waiting because its selector only matches the new context, the first servlet
+			// should eventually be disabled in ALL contexts, because it'll be disabled in the new context!
+			//
+			// so it's really easier - FULLY unregister the element from all current contexts and then
+			// register to all the new contexts
+			if (view != null) {
+				LOG.debug("Unregistering {} because its context selection filter matched new set of contexts", webElement);
+				webElement.unregister(view);
+			}
+			webElement.changeContextModels(newMatching);
+			if (view != null) {
+				LOG.debug("Registering {} again after its context selection filter matched new set of contexts", webElement);
+				webElement.register(view);
+			}
+		} finally {
+			webElement.setAsynchronusRegistration(isAsync);
 		}
 	}
 
@@ -527,6 +563,7 @@ public class WhiteboardExtenderContext implements WebContainerListener, WebConte
 		lock.lock();
 		try {
 			getBundleApplication(bundle).addWebElement(webElement);
+			selectorIndex.addElement(bundle, webElement, osgiContextsList);
 		} finally {
 			lock.unlock();
 		}
@@ -540,6 +577,7 @@ public class WhiteboardExtenderContext implements WebContainerListener, WebConte
 				webElement.setAsynchronusRegistration(false);
 			}
 			getBundleApplication(bundle).removeWebElement(webElement);
+			selectorIndex.removeElement(webElement);
 
 			WhiteboardWebContainerView view = webContainerManager.whiteboardView(bundle, currentWebContainerReference);
 			if (view != null) {
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.extender.whiteboard.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.ops4j.pax.web.service.spi.model.OsgiContextModel;
+import org.ops4j.pax.web.service.spi.model.elements.ElementModel;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.Filter;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.service.http.whiteboard.HttpWhiteboardConstants;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ContextSelectorIndexTest {
+
+	@Test
+	public void onlyMatchingElementsAreAffected() throws Exception {
+		ContextSelectorIndex index = new ContextSelectorIndex();
+		Bundle bundle = mock(Bundle.class);
+
+		OsgiContextModel c1 = context(1L, "c1");
+		List<OsgiContextModel> contexts = new ArrayList<>(Collections.singletonList(c1));
+
+		ElementModel<?, ?> e1 = element("(osgi.http.whiteboard.context.name=c1)");
+		ElementModel<?, ?> e2 = element("(osgi.http.whiteboard.context.name=c2)");
+		ElementModel<?, ?> e3 = element("(|(osgi.http.whiteboard.context.name=c2)(osgi.http.whiteboard.context.name=c3))");
+		ElementModel<?, ?> e4 = element(null);
+		ElementModel<?, ?> e5 = element("(osgi.http.whiteboard.context.name=c1)");
+		for (ElementModel<?, ?> e : new ElementModel<?, ?>[] { e1, e2, e3, e4, e5 }) {
+			index.addElement(bundle, e, contexts);
+		}
+		assertThat(index.selectors().size(), equalTo(3));
+		assertThat(index.matchingContexts(e1.getContextFilter()).size(), equalTo(1));
+		assertThat(index.matchingContexts(e2.getContextFilter()).size(), equalTo(0));
+		assertThat(index.matchingContexts(FrameworkUtil.createFilter("(a=b)")), nullValue());
+
+		OsgiContextModel c2 = context(2L, "c2");
+		Map<ElementModel<?, ?>, Bundle> affected = index.contextAdded(c2);
+		assertThat(affected.size(), equalTo(2));
+		assertTrue(affected.containsKey(e2));
+		assertTrue(affected.containsKey(e3));
+		assertThat(index.matchingContexts(e3.getContextFilter()).size(), equalTo(1));
+
+		OsgiContextModel def = context(3L, HttpWhiteboardConstants.HTTP_WHITEBOARD_DEFAULT_CONTEXT_NAME);
+		affected = index.contextAdded(def);
+		assertThat(affected.size(), equalTo(1));
+		assertTrue(affected.containsKey(e4));
+
+		affected = index.contextRemoved(c1);
+		assertThat(affected.size(), equalTo(2));
+		assertTrue(affected.containsKey(e1));
+		assertTrue(affected.containsKey(e5));
+
+		index.removeElement(e1);
+		index.removeElement(e5);
+		assertThat(index.selectors().size(), equalTo(2));
+		assertThat(index.contextAdded(c1).size(), equalTo(0));
+	}
+
+	private OsgiContextModel context(long id, String name) {
+		OsgiContextModel model = new OsgiContextModel(null, 0, id, true);
+		model.setName(name);
+		model.getContextRegistrationProperties().put(HttpWhiteboardConstants.HTTP_WHITEBOARD_CONTEXT_NAME, name);
+		return model;
+	}
+
+	private ElementModel<?, ?> element(String selector) throws Exception {
+		ElementModel<?, ?> element = mock(ElementModel.class);
+		Filter filter = selector == null ? null : FrameworkUtil.createFilter(selector);
+		when(element.getContextFilter()).thenReturn(filter);
+		return element;
+	}
+
+}
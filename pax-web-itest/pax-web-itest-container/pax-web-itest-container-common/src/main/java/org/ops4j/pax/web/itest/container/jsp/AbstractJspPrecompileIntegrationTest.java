@@ -0,0 +1,66 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.itest.container.jsp;
+
+import java.io.File;
+import java.util.UUID;
+
+import org.junit.Test;
+import org.ops4j.pax.exam.Option;
+import org.ops4j.pax.web.service.PaxWebConfig;
+
+import static org.junit.Assert.assertTrue;
+import static org.ops4j.pax.exam.CoreOptions.systemProperty;
+
+/**
+ * {@link AbstractJspIntegrationTest} with {@link PaxWebConfig#PID_CFG_JSP_PRECOMPILE} enabled. The JSPs have to be
+ * compiled into global scratch directory without any request and served as usual.
+ */
+public abstract class AbstractJspPrecompileIntegrationTest extends AbstractJspIntegrationTest {
+
+	/**
+	 * Options enabling JSP precompilation with separate global scratch directory, so classes compiled in
+	 * earlier tests can't be found.
+	 * @return
+	 */
+	protected Option[] precompileOptions() {
+		File scratchDir = new File("target/jsp-precompile/" + UUID.randomUUID());
+		scratchDir.mkdirs();
+		return new Option[] {
+				systemProperty(PaxWebConfig.PID_CFG_JSP_PRECOMPILE).value("true"),
+				systemProperty(PaxWebConfig.PID_CFG_JSP_PRECOMPILE_THREADS).value("2"),
+				systemProperty(PaxWebConfig.PID_CFG_JSP_SCRATCH_DIR).value(scratchDir.getAbsolutePath())
+		};
+	}
+
+	@Test
+	public void testJspsArePrecompiled() throws Exception {
+		File scratchDir = new File(System.getProperty(PaxWebConfig.PID_CFG_JSP_SCRATCH_DIR));
+		File simple = new File(scratchDir, "org/apache/jsp/helloworld/jsp/simple_jsp.class");
+		File usingTld = new File(scratchDir, "org/apache/jsp/helloworld/jsp/using_002dtld_jsp.class");
+
+		// JSP servlet may be initialized after the resources awaited in setup()
+		for (int i = 0; i < 50 && !(simple.isFile() && usingTld.isFile()); i++) {
+			Thread.sleep(100);
+		}
+		assertTrue("simple.jsp should be precompiled", simple.isFile());
+		assertTrue("using-tld.jsp should be precompiled", usingTld.isFile());
+
+		testSimpleJsp();
+		testTldJsp();
+	}
+
+}
@@ -246,6 +246,9 @@ public class MultiContainerTestSupport {
 				props.put(PaxWebConfig.PID_CFG_SESSION_STORE_DIRECTORY, location);
 			}
 			props.put(PaxWebConfig.PID_CFG_SHOW_STACKS, "true");
+			if (enableRequestMetrics()) {
+				props.put(PaxWebConfig.PID_CFG_REQUEST_METRICS, "true");
+			}
 		}, port, runtime, getClass().getClassLoader());
 
 		if (enableJSP()) {
@@ -391,6 +394,10 @@ public class MultiContainerTestSupport {
 		return false;
 	}
 
+	protected boolean enableRequestMetrics() {
+		return false;
+	}
+
 	protected void stopWhiteboardService() {
 		containerRef = null;
 		containers.values().forEach(HttpServiceEnabled::stop);
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.itest.server.whiteboard;
+
+import java.io.IOException;
+import java.util.Map;
+import javax.servlet.Servlet;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.ops4j.pax.web.itest.server.MultiContainerTestSupport;
+import org.ops4j.pax.web.itest.server.support.Utils;
+import org.ops4j.pax.web.service.spi.metrics.RequestMetrics;
+import org.ops4j.pax.web.service.spi.metrics.RequestStatisticsSnapshot;
+import org.ops4j.pax.web.service.spi.model.elements.ServletModel;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.ServiceReference;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.endsWith;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertFalse;
+import static org.ops4j.pax.web.itest.server.support.Utils.httpGET;
+
+@RunWith(Parameterized.class)
+public class WhiteboardRequestMetricsTest extends MultiContainerTestSupport {
+
+	@Override
+	protected boolean enableRequestMetrics() {
+		return true;
+	}
+
+	@Test
+	public void statisticsOfUnregisteredServletAreRemoved() throws Exception {
+		RequestMetrics metrics = controller.getRequestMetrics();
+		assertThat(metrics, notNullValue());
+
+		Bundle sample1 = mockBundle("sample1");
+		ServiceReference<Servlet> servletRef = mockServletReference(sample1, "metered",
+				() -> new Utils.MyIdServlet("1"), 0L, 0, "/m");
+		ServletModel model = getServletCustomizer().addingService(servletRef);
+		assertThat(httpGET(port, "/m"), endsWith("S(1)"));
+		assertThat(httpGET(port, "/m"), endsWith("S(1)"));
+
+		RequestStatisticsSnapshot stats = servletStatistics(metrics.getServletStatistics(), "/metered");
+		assertThat(stats, notNullValue());
+		assertThat(stats.getRequests(), equalTo(2L));
+
+		getServletCustomizer().removedService(servletRef, model);
+		assertFalse(metrics.getServletStatistics().keySet().stream().anyMatch(k -> k.endsWith("/metered")));
+	}
+
+	@Test
+	public void exceptionAfterCommittedResponseIsCountedAsError() throws Exception {
+		RequestMetrics metrics = controller.getRequestMetrics();
+
+		Bundle sample1 = mockBundle("sample1");
+		ServiceReference<Servlet> servletRef = mockServletReference(sample1, "failing", () -> new HttpServlet() {
+			@Override
+			protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+				resp.getWriter().print("partial");
+				// the status can't be changed to 500 anymore
+				resp.flushBuffer();
+				throw new ServletException("expected failure");
+			}
+		}, 0L, 0, "/f");
+		ServletModel model = getServletCustomizer().addingService(servletRef);
+		assertThat(httpGET(port, "/f"), containsString("partial"));
+
+		// the request may end after the response is received
+		RequestStatisticsSnapshot stats = null;
+		for (int i = 0; i < 50; i++) {
+			stats = servletStatistics(metrics.getServletStatistics(), "/failing");
+			if (stats != null && stats.getRequests() == 1L) {
+				break;
+			}
+			Thread.sleep(100);
+		}
+		assertThat(stats, notNullValue());
+		assertThat(stats.getRequests(), equalTo(1L));
+		assertThat(stats.getErrors(), equalTo(1L));
+
+		getServletCustomizer().removedService(servletRef, model);
+	}
+
+	private RequestStatisticsSnapshot servletStatistics(Map<String, RequestStatisticsSnapshot> statistics, String suffix) {
+		return statistics.entrySet().stream().filter(e -> e.getKey().endsWith(suffix))
+				.map(Map.Entry::getValue).findFirst().orElse(null);
+	}
+
+}
@@ -16,6 +16,9 @@
 package org.ops4j.pax.web.itest.server.whiteboard;
 
 import javax.servlet.Servlet;
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -27,8 +30,14 @@ import org.ops4j.pax.web.service.spi.model.elements.ServletModel;
 import org.ops4j.pax.web.service.whiteboard.ServletMapping;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.ServiceReference;
+import org.osgi.service.http.runtime.dto.DTOConstants;
+import org.osgi.service.http.runtime.dto.RuntimeDTO;
+import org.osgi.service.http.runtime.dto.ServletContextDTO;
+import org.osgi.service.http.runtime.dto.ServletDTO;
 
 import static org.hamcrest.CoreMatchers.endsWith;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.startsWith;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertTrue;
@@ -73,4 +82,37 @@ public class WhiteboardServletsTest extends MultiContainerTestSupport {
 		assertTrue(serviceModelInternals.isEmpty());
 	}
 
+	@Test
+	public void failedInitIsVisibleInRuntimeDTO() throws Exception {
+		Bundle sample1 = mockBundle("sample1");
+
+		ServiceReference<Servlet> servletRef = mockServletReference(sample1, "failing",
+				() -> new HttpServlet() {
+					@Override
+					public void init(ServletConfig config) throws ServletException {
+						throw new ServletException("Can't init");
+					}
+				}, 0L, 0, "/f");
+		ServletModel model = getServletCustomizer().addingService(servletRef);
+
+		RuntimeDTO dto = serverModel.getRuntimeDTO();
+		assertThat(dto.failedServletDTOs.length, equalTo(0));
+
+		assertThat(httpGET(port, "/f"), not(startsWith("HTTP/1.1 200")));
+
+		// init() failed in container thread - without any change to the model
+		dto = serverModel.getRuntimeDTO();
+		assertThat(dto.failedServletDTOs.length, equalTo(1));
+		assertThat(dto.failedServletDTOs[0].name, equalTo("failing"));
+		assertThat(dto.failedServletDTOs[0].failureReason, equalTo(DTOConstants.FAILURE_REASON_EXCEPTION_ON_INIT));
+		for (ServletContextDTO scDTO : dto.servletContextDTOs) {
+			for (ServletDTO sDTO : scDTO.servletDTOs) {
+				assertThat(sDTO.name, not(equalTo("failing")));
+			}
+		}
+
+		getServletCustomizer().removedService(servletRef, model);
+		assertThat(serverModel.getRuntimeDTO().failedServletDTOs.length, equalTo(0));
+	}
+
 }
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.jetty.internal;
+
+import javax.servlet.ServletRequest;
+
+import org.eclipse.jetty.security.IdentityService;
+import org.eclipse.jetty.security.LoginService;
+import org.eclipse.jetty.server.UserIdentity;
+import org.ops4j.pax.web.service.spi.util.AuthenticationCache;
+
+/**
+ * {@link LoginService} that caches successful logins with user name and password (BASIC and FORM authentication)
+ * performed by a {@link LoginService} configured in {@code jetty*.xml} (like
+ * {@link org.eclipse.jetty.jaas.JAASLoginService}).
+ */
+class CachingLoginService implements LoginService {
+
+	private final LoginService delegate;
+	private final AuthenticationCache<UserIdentity> cache;
+
+	CachingLoginService(LoginService delegate, AuthenticationCache<UserIdentity> cache) {
+		this.delegate = delegate;
+		this.cache = cache;
+	}
+
+	@Override
+	public String getName() {
+		return delegate.getName();
+	}
+
+	@Override
+	public UserIdentity login(String username, Object credentials, ServletRequest request) {
+		if (credentials instanceof String) {
+			return cache.verify(delegate.getName(), username, (String) credentials,
+					() -> delegate.login(username, credentials, request));
+		}
+		return delegate.login(username, credentials, request);
+	}
+
+	@Override
+	public boolean validate(UserIdentity user) {
+		return delegate.validate(user);
+	}
+
+	@Override
+	public IdentityService getIdentityService() {
+		return delegate.getIdentityService();
+	}
+
+	@Override
+	public void setIdentityService(IdentityService service) {
+		delegate.setIdentityService(service);
+	}
+
+	@Override
+	public void logout(UserIdentity user) {
+		if (user != null && user.getUserPrincipal() != null) {
+			// the identity may be no longer usable (e.g., JAAS subject is logged out)
+			cache.invalidate(delegate.getName(), user.getUserPrincipal().getName());
+		}
+		delegate.logout(user);
+	}
+
+}
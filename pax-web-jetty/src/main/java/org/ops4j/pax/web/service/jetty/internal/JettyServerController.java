@@ -30,9 +30,15 @@ import org.ops4j.pax.web.service.jetty.internal.web.JettyResourceServlet;
 import org.ops4j.pax.web.service.spi.ServerController;
 import org.ops4j.pax.web.service.spi.ServerState;
 import org.ops4j.pax.web.service.spi.config.Configuration;
+import org.ops4j.pax.web.service.spi.metrics.FilterChainTiming;
+import org.ops4j.pax.web.service.spi.metrics.RequestMetrics;
 import org.ops4j.pax.web.service.spi.model.events.ServerEvent;
 import org.ops4j.pax.web.service.spi.model.events.ServerListener;
 import org.ops4j.pax.web.service.spi.task.Batch;
+import org.ops4j.pax.web.service.spi.util.AuthenticationCache;
+import org.ops4j.pax.web.service.spi.util.CompressedContentCache;
+import org.ops4j.pax.web.service.spi.util.LruResourceCache;
+import org.ops4j.pax.web.service.spi.util.ResourceCache;
 import org.osgi.framework.Bundle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -63,6 +69,12 @@ class JettyServerController implements ServerController {
 	 */
 	private JettyServerWrapper jettyServerWrapper;
 
+	/** Cache of static resource content shared by all resource servlets of this server */
+	private final ResourceCache resourceCache;
+
+	/** Cache of compressed resource variants, {@code null} if on-the-fly compression is disabled */
+	private final CompressedContentCache compressedCache;
+
 	JettyServerController(Bundle paxWebJettyBundle, ClassLoader classLoader,
 			JettyFactory jettyFactory, Configuration configuration) {
 		this.paxWebJettyBundle = paxWebJettyBundle;
@@ -72,6 +84,8 @@ class JettyServerController implements ServerController {
 		this.state = ServerState.UNCONFIGURED;
 
 		this.listeners = Collections.synchronizedSet(new LinkedHashSet<>());
+		this.resourceCache = LruResourceCache.create(configuration.resources());
+		this.compressedCache = CompressedContentCache.create(configuration.resources());
 
 		jettyServerWrapper = new JettyServerWrapper(configuration, jettyFactory, paxWebJettyBundle, classLoader);
 	}
@@ -121,6 +135,10 @@ class JettyServerController implements ServerController {
 		}
 
 		jettyServerWrapper.stop();
+		resourceCache.close();
+		if (compressedCache != null) {
+			compressedCache.clear();
+		}
 
 		state = ServerState.STOPPED;
 		notifyListeners(new ServerEvent(ServerEvent.State.STOPPED, null));
@@ -131,6 +149,21 @@ class JettyServerController implements ServerController {
 		return configuration;
 	}
 
+	@Override
+	public RequestMetrics getRequestMetrics() {
+		return jettyServerWrapper.getRequestMetrics();
+	}
+
+	@Override
+	public FilterChainTiming getFilterChainTiming() {
+		return jettyServerWrapper.getFilterChainTiming();
+	}
+
+	@Override
+	public AuthenticationCache<?> getAuthenticationCache() {
+		return jettyServerWrapper.getAuthenticationCache();
+	}
+
 	// --- listener related methods
 
 	@Override
@@ -178,7 +211,8 @@ class JettyServerController implements ServerController {
 		}
 		String chroot = baseUrlResource == null ? base : null;
 
-		return new JettyResourceServlet(baseUrlResource, chroot);
+		return new JettyResourceServlet(baseUrlResource, chroot, resourceCache, compressedCache,
+				configuration.resources().precompressed());
 	}
 
 	@Override
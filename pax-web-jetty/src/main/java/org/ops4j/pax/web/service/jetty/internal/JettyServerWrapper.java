@@ -54,6 +54,7 @@ import org.eclipse.jetty.security.Authenticator;
 import org.eclipse.jetty.security.ConstraintAware;
 import org.eclipse.jetty.security.ConstraintMapping;
 import org.eclipse.jetty.security.ConstraintSecurityHandler;
+import org.eclipse.jetty.security.LoginService;
 import org.eclipse.jetty.security.authentication.BasicAuthenticator;
 import org.eclipse.jetty.security.authentication.ClientCertAuthenticator;
 import org.eclipse.jetty.security.authentication.ConfigurableSpnegoAuthenticator;
@@ -70,6 +71,7 @@ import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.ServerConnector;
 import org.eclipse.jetty.server.SessionIdManager;
 import org.eclipse.jetty.server.SslConnectionFactory;
+import org.eclipse.jetty.server.UserIdentity;
 import org.eclipse.jetty.server.handler.ContextHandlerCollection;
 import org.eclipse.jetty.server.handler.ErrorHandler;
 import org.eclipse.jetty.server.session.DefaultSessionIdManager;
@@ -93,6 +95,8 @@ import org.ops4j.pax.web.service.jetty.internal.web.JettyResourceServlet;
 import org.ops4j.pax.web.service.spi.config.Configuration;
 import org.ops4j.pax.web.service.spi.config.LogConfiguration;
 import org.ops4j.pax.web.service.spi.config.SessionConfiguration;
+import org.ops4j.pax.web.service.spi.metrics.FilterChainTiming;
+import org.ops4j.pax.web.service.spi.metrics.RequestMetrics;
 import org.ops4j.pax.web.service.spi.model.ContextMetadataModel;
 import org.ops4j.pax.web.service.spi.model.OsgiContextModel;
 import org.ops4j.pax.web.service.spi.model.ServletContextModel;
@@ -117,8 +121,10 @@ import org.ops4j.pax.web.service.spi.servlet.OsgiServletContext;
 import org.ops4j.pax.web.service.spi.servlet.OsgiServletContextClassLoader;
 import org.ops4j.pax.web.service.spi.servlet.OsgiSessionAttributeListener;
 import org.ops4j.pax.web.service.spi.servlet.PreprocessorFilterConfig;
+import org.ops4j.pax.web.service.spi.servlet.RegexFilterMatcher;
 import org.ops4j.pax.web.service.spi.servlet.RegisteringContainerInitializer;
 import org.ops4j.pax.web.service.spi.servlet.SCIWrapper;
+import org.ops4j.pax.web.service.spi.session.OffHeapSessionAttributeStorage;
 import org.ops4j.pax.web.service.spi.task.BatchVisitor;
 import org.ops4j.pax.web.service.spi.task.ClearDynamicRegistrationsChange;
 import org.ops4j.pax.web.service.spi.task.ContainerInitializerModelChange;
@@ -140,6 +146,7 @@ import org.ops4j.pax.web.service.spi.task.ServletModelChange;
 import org.ops4j.pax.web.service.spi.task.TransactionStateChange;
 import org.ops4j.pax.web.service.spi.task.WebSocketModelChange;
 import org.ops4j.pax.web.service.spi.task.WelcomeFileModelChange;
+import org.ops4j.pax.web.service.spi.util.AuthenticationCache;
 import org.ops4j.pax.web.service.spi.util.Utils;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.FrameworkUtil;
@@ -236,11 +243,20 @@ class JettyServerWrapper implements BatchVisitor {
 
 	private SessionCookieConfig defaultSessionCookieConfig;
 
+	/** Cache of successful logins shared by all the contexts - if enabled */
+	private AuthenticationCache<UserIdentity> authenticationCache;
+
 	/**
-	 * All {@link EventListenerModel} instances for {@link HttpSessionAttributeListener} listeners. They'll be
-	 * reviewed in order to propagate session attribute events per {@link OsgiContextModel}.
+	 * Bridge keeping {@link EventListenerModel} instances for {@link HttpSessionAttributeListener} listeners to
+	 * propagate session attribute events per {@link OsgiContextModel}. Shared by all the contexts.
 	 */
-	private final List<EventListenerModel> sessionListenerModels = new ArrayList<>();
+	private final OsgiSessionAttributeListener osgiSessionsBridge = new OsgiSessionAttributeListener();
+
+	/** Request metrics shared by all the contexts - if enabled */
+	private final RequestMetrics requestMetrics;
+
+	/** Timing of filter chain elements shared by all the contexts - if enabled */
+	private final FilterChainTiming filterChainTiming;
 
 	private final Set<PriorityValue<HttpConfiguration.Customizer>> registeredCustomizers = new TreeSet<>(JettyServerControllerFactory.priorityComparator);
 
@@ -254,6 +270,8 @@ class JettyServerWrapper implements BatchVisitor {
 		this.classLoader = classLoader;
 
 		this.mainHandler = new PrioritizedHandlerCollection();
+		this.requestMetrics = RequestMetrics.create(config.server());
+		this.filterChainTiming = FilterChainTiming.create(config.server());
 	}
 
 	// --- lifecycle and configuration methods
@@ -296,9 +314,16 @@ class JettyServerWrapper implements BatchVisitor {
 		// default session configuration is prepared, but not set in the server instance. It can be set
 		// only after first context is created
 		this.defaultSessionCookieConfig = configuration.session().getDefaultSessionCookieConfig();
+		this.authenticationCache = AuthenticationCache.create(configuration.security());
 
-		// global session persistence configuration
-		if (configuration.session().getSessionStoreDirectory() != null) {
+		// global session persistence and attribute storage configuration
+		OffHeapSessionAttributeStorage attributeStorage = OffHeapSessionAttributeStorage.create(configuration.session());
+		if (attributeStorage != null) {
+			PaxWebSessionDataStoreFactory dsFactory = new PaxWebSessionDataStoreFactory(attributeStorage);
+			dsFactory.setDeleteUnrestorableFiles(true);
+			dsFactory.setStoreDir(configuration.session().getSessionStoreDirectory());
+			server.addBean(dsFactory);
+		} else if (configuration.session().getSessionStoreDirectory() != null) {
 			FileSessionDataStoreFactory dsFactory = new FileSessionDataStoreFactory();
 			dsFactory.setDeleteUnrestorableFiles(true);
 			dsFactory.setStoreDir(configuration.session().getSessionStoreDirectory());
@@ -668,6 +693,30 @@ class JettyServerWrapper implements BatchVisitor {
 		osgiServletContexts.values().forEach(OsgiServletContext::unregister);
 	}
 
+	/**
+	 * Returns request metrics recorded by all the contexts of this server
+	 * @return {@code null} if request metrics are not enabled
+	 */
+	public RequestMetrics getRequestMetrics() {
+		return requestMetrics;
+	}
+
+	/**
+	 * Returns timing of filter chain elements invoked in all the contexts of this server
+	 * @return {@code null} if filter chain timing is not enabled
+	 */
+	public FilterChainTiming getFilterChainTiming() {
+		return filterChainTiming;
+	}
+
+	/**
+	 * Returns the cache of successful authentications used in front of the realms of this server
+	 * @return {@code null} if authentication results are not cached
+	 */
+	public AuthenticationCache<?> getAuthenticationCache() {
+		return authenticationCache;
+	}
+
 	/**
 	 * If state allows, this methods returns currently configured/started addresses of the listeners.
 	 * @param useLocalPort
@@ -760,7 +809,9 @@ class JettyServerWrapper implements BatchVisitor {
 
 			PaxWebServletContextHandler sch = new PaxWebServletContextHandler(null, contextPath, configuration);
 			// special, OSGi-aware org.eclipse.jetty.servlet.ServletHandler
-			sch.setServletHandler(new PaxWebServletHandler(default404Servlet, new OsgiSessionAttributeListener(sessionListenerModels)));
+			PaxWebServletHandler servletHandler = new PaxWebServletHandler(default404Servlet, osgiSessionsBridge, requestMetrics);
+			servletHandler.setFilterChainTiming(filterChainTiming);
+			sch.setServletHandler(servletHandler);
 			// setting "false" here will trigger 302 redirect when browsing to context without trailing "/"
 			sch.setAllowNullPathInfo(false);
 			// welcome files will be handled at default/resource servlet level and OsgiServletContext
@@ -778,19 +829,9 @@ class JettyServerWrapper implements BatchVisitor {
 			// needed to comply with Servlets specification
 			sch.setInitParameter(DefaultServlet.CONTEXT_INIT + "welcomeServlets", "true");
 
-			// cache properties for default servlet (see org.eclipse.jetty.server.CachedContentFactory) passed
-			// through context init params
-			Integer totalCacheSize = configuration.resources().maxTotalCacheSize(); // kB
-			Integer maxEntrySize = configuration.resources().maxCacheEntrySize(); // kB
-			Integer maxEntries = configuration.resources().maxCacheEntries();
-			// the defaults in Jetty are quite high (256MB total, 128MB max entry size), but we can have more
-			// resource servlets, so we'll divide the defaults by 64
-			sch.setInitParameter(DefaultServlet.CONTEXT_INIT + "maxCacheSize",
-					totalCacheSize != null ? Integer.toString(totalCacheSize * 1024) : Integer.toString(256 * 1024 * 1024 / 64));
-			sch.setInitParameter(DefaultServlet.CONTEXT_INIT + "maxCachedFileSize",
-					maxEntrySize != null ? Integer.toString(maxEntrySize * 1024) : Integer.toString(128 * 1024 * 1024 / 64));
-			sch.setInitParameter(DefaultServlet.CONTEXT_INIT + "maxCachedFiles",
-					maxEntries != null ? Integer.toString(maxEntries) : "2048");
+			// there are no cache properties for org.eclipse.jetty.server.CachedContentFactory - the content of
+			// resources is cached in org.ops4j.pax.web.service.spi.util.ResourceCache shared by all resource
+			// servlets (see JettyResourceServlet)
 
 			mainHandler.addHandler(sch);
 			mainHandler.mapContexts();
@@ -886,6 +927,13 @@ class JettyServerWrapper implements BatchVisitor {
 		OsgiContextModel osgiModel = change.getOsgiContextModel();
 		ServletContextModel servletContextModel = change.getServletContextModel();
 
+		if (requestMetrics != null && change.getKind() == OpCode.DELETE) {
+			requestMetrics.remove(osgiModel);
+		}
+		if (filterChainTiming != null && change.getKind() == OpCode.DELETE) {
+			filterChainTiming.remove(osgiModel);
+		}
+
 		String contextPath = osgiModel.getContextPath();
 		PaxWebServletContextHandler sch = contextHandlers.get(contextPath);
 
@@ -1103,6 +1151,13 @@ class JettyServerWrapper implements BatchVisitor {
 	public void visitServletModelChange(ServletModelChange change) {
 		Set<String> done = new HashSet<>();
 
+		if (requestMetrics != null && change.getKind() == OpCode.DELETE) {
+			change.getServletModels().keySet().forEach(requestMetrics::remove);
+		}
+		if (filterChainTiming != null && change.getKind() == OpCode.DELETE) {
+			change.getServletModels().keySet().forEach(filterChainTiming::remove);
+		}
+
 		if ((change.getKind() == OpCode.ADD && !change.isDisabled()) || change.getKind() == OpCode.ENABLE) {
 			ServletModel model = change.getServletModel();
 			if (change.getNewModelsInfo() == null) {
@@ -1325,6 +1380,10 @@ class JettyServerWrapper implements BatchVisitor {
 
 	@Override
 	public void visitFilterModelChange(FilterModelChange change) {
+		if (filterChainTiming != null && change.getKind() == OpCode.DELETE) {
+			change.getFilterModels().forEach(filterChainTiming::remove);
+		}
+
 		// only handle dynamic filter registration here - filter added only as last filter
 		FilterModel model = change.getFilterModel();
 		Set<String> done = new HashSet<>();
@@ -1405,8 +1464,8 @@ class JettyServerWrapper implements BatchVisitor {
 			// in PaxWebFilterHolders
 			List<PreprocessorFilterConfig> toInit = new LinkedList<>();
 
-			// clear to keep the order of all available preprocessors
-			((PaxWebServletHandler) sch.getServletHandler()).getPreprocessors().clear();
+			// collect new list to keep the order of all available preprocessors
+			List<PreprocessorFilterConfig> preprocessors = new LinkedList<>();
 
 			for (Iterator<FilterModel> iterator = filters.iterator(); iterator.hasNext(); ) {
 				FilterModel model = iterator.next();
@@ -1427,10 +1486,11 @@ class JettyServerWrapper implements BatchVisitor {
 							return match;
 						});
 					}
-					((PaxWebServletHandler) sch.getServletHandler()).getPreprocessors().add(filterConfig);
+					preprocessors.add(filterConfig);
 					iterator.remove();
 				}
 			}
+			((PaxWebServletHandler) sch.getServletHandler()).setPreprocessors(preprocessors);
 
 			if (sch.isStarted()) {
 				for (PreprocessorFilterConfig fc : toInit) {
@@ -1470,6 +1530,10 @@ class JettyServerWrapper implements BatchVisitor {
 			// For Pax Web purposes, we'll try to handle such scenario and all the filters in a chain without servlet
 			// will use OsgiServletContext which is "best" (wrt service ranking) for given physical context path
 
+			// RegEx filters are mapped to "/*", so single matcher of the context decides which of them are called
+			RegexFilterMatcher regexFilterMatcher = ((PaxWebServletHandler) sch.getServletHandler()).getRegexFilterMatcher();
+			regexFilterMatcher.update(filters);
+
 			// holders won't include preprocessors
 			PaxWebFilterHolder[] newFilterHolders = new PaxWebFilterHolder[filters.size()];
 
@@ -1527,6 +1591,7 @@ class JettyServerWrapper implements BatchVisitor {
 
 				PaxWebFilterHolder holder = new PaxWebFilterHolder(model, context);
 				holder.setWhiteboardTCCL("whiteboard".equalsIgnoreCase(configuration.server().getTCCLType()));
+				holder.setRegexFilterMatcher(regexFilterMatcher);
 				holder.setMapping(configureFilterMappings(model));
 
 				newFilterHolders[pos] = holder;
@@ -1625,7 +1690,7 @@ class JettyServerWrapper implements BatchVisitor {
 				}
 				if (eventListener instanceof HttpSessionAttributeListener) {
 					// we have to store it separately to propagate OsgiHttpSession specific events
-					sessionListenerModels.add(eventListenerModel);
+					osgiSessionsBridge.addSessionListenerModel(eventListenerModel);
 				}
 
 				boolean stopped = false;
@@ -1676,7 +1741,7 @@ class JettyServerWrapper implements BatchVisitor {
 						}
 					}
 					if (eventListener instanceof HttpSessionAttributeListener) {
-						sessionListenerModels.remove(eventListenerModel);
+						osgiSessionsBridge.removeSessionListenerModel(eventListenerModel);
 					}
 
 					if (pendingTransaction(contextPath)) {
@@ -2268,6 +2333,16 @@ class JettyServerWrapper implements BatchVisitor {
 						}
 				}
 
+				if (authenticationCache != null) {
+					// the same login service that ConstraintSecurityHandler would find itself, but with cached results
+					for (LoginService loginService : server.getBeans(LoginService.class)) {
+						if (securityHandler.getRealmName().equals(loginService.getName())) {
+							securityHandler.setLoginService(new CachingLoginService(loginService, authenticationCache));
+							break;
+						}
+					}
+				}
+
 				// roles and constraints are not taken only from the highest ranked OsgiContextModel - they're
 				// taken from all the OCMs for given context path - on order of OCM rank
 				// it's up to user to take care of the conflicts, because simple rank-ordering will add higher-ranked
@@ -30,6 +30,7 @@ import org.ops4j.pax.web.service.spi.model.elements.FilterModel;
 import org.ops4j.pax.web.service.spi.servlet.OsgiInitializedFilter;
 import org.ops4j.pax.web.service.spi.servlet.OsgiScopedServletContext;
 import org.ops4j.pax.web.service.spi.servlet.OsgiServletContext;
+import org.ops4j.pax.web.service.spi.servlet.RegexFilterMatcher;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceObjects;
 import org.osgi.framework.ServiceReference;
@@ -61,6 +62,8 @@ public class PaxWebFilterHolder extends FilterHolder {
 
 	private boolean whiteboardTCCL;
 
+	private RegexFilterMatcher regexFilterMatcher;
+
 	/**
 	 * Initialize {@link PaxWebFilterHolder} with {@link FilterModel}. All its
 	 * {@link FilterModel#getContextModels() OSGi contexts} will determinie when the filter will be used during
@@ -176,9 +179,13 @@ public class PaxWebFilterHolder extends FilterHolder {
 			instance = new PaxWebWebSocketUpgradeFilter(instance);
 		}
 
-		return instance == null ? null
-				: new OsgiInitializedFilter(instance, filterModel, servletContext == null ? osgiServletContext : servletContext,
-				whiteboardTCCL);
+		if (instance == null) {
+			return null;
+		}
+		OsgiInitializedFilter filter = new OsgiInitializedFilter(instance, filterModel,
+				servletContext == null ? osgiServletContext : servletContext, whiteboardTCCL);
+		filter.setRegexFilterMatcher(regexFilterMatcher);
+		return filter;
 	}
 
 	@Override
@@ -233,4 +240,8 @@ public class PaxWebFilterHolder extends FilterHolder {
 		this.whiteboardTCCL = whiteboardTCCL;
 	}
 
+	public void setRegexFilterMatcher(RegexFilterMatcher regexFilterMatcher) {
+		this.regexFilterMatcher = regexFilterMatcher;
+	}
+
 }
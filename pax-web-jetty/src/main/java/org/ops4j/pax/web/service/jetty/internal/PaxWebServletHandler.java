@@ -19,9 +19,7 @@ package org.ops4j.pax.web.service.jetty.internal;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.EnumSet;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.stream.Collectors;
 import javax.servlet.DispatcherType;
 import javax.servlet.FilterChain;
 import javax.servlet.Servlet;
@@ -43,12 +41,15 @@ import org.eclipse.jetty.servlet.ServletHolder;
 import org.eclipse.jetty.servlet.ServletMapping;
 import org.eclipse.jetty.util.ArrayUtil;
 import org.ops4j.pax.web.service.WebContainerContext;
+import org.ops4j.pax.web.service.spi.metrics.FilterChainTiming;
+import org.ops4j.pax.web.service.spi.metrics.RequestMetrics;
 import org.ops4j.pax.web.service.spi.model.OsgiContextModel;
 import org.ops4j.pax.web.service.spi.model.elements.ServletModel;
-import org.ops4j.pax.web.service.spi.servlet.OsgiFilterChain;
+import org.ops4j.pax.web.service.spi.servlet.OsgiFilterChainTemplate;
 import org.ops4j.pax.web.service.spi.servlet.OsgiServletContext;
 import org.ops4j.pax.web.service.spi.servlet.OsgiSessionAttributeListener;
 import org.ops4j.pax.web.service.spi.servlet.PreprocessorFilterConfig;
+import org.ops4j.pax.web.service.spi.servlet.RegexFilterMatcher;
 import org.osgi.service.http.whiteboard.Preprocessor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -69,9 +70,9 @@ public class PaxWebServletHandler extends ServletHandler {
 	/**
 	 * {@link Preprocessor} instances are always registered to all contexts and are always mapped to all servlet
 	 * chains, so handling them is easy. We keep only the configs, because we have to manage the lifecycle
-	 * of OSGi services for {@link Preprocessor} instances.
+	 * of OSGi services for {@link Preprocessor} instances. The configs are kept in shared chain template.
 	 */
-	private final List<PreprocessorFilterConfig> preprocessors = new LinkedList<>();
+	private final OsgiFilterChainTemplate chainTemplate = new OsgiFilterChainTemplate();
 
 	/** Default {@link ServletContext} to use for chains without target servlet (e.g., filters only) */
 	private OsgiServletContext defaultServletContext;
@@ -82,6 +83,9 @@ public class PaxWebServletHandler extends ServletHandler {
 
 	private final OsgiSessionAttributeListener osgiSessionsBridge;
 
+	/** Request metrics shared by all the contexts - if enabled */
+	private final RequestMetrics requestMetrics;
+
 	/**
 	 * Default servlet to be used when there's nothing mapped under "/" - this is to ensure that filter-only
 	 * chains will work without problems.
@@ -90,11 +94,17 @@ public class PaxWebServletHandler extends ServletHandler {
 
 	private final ThreadLocal<PaxWebServletHolder> currentServletHolder = new ThreadLocal<>();
 
+	/** Matcher for RegEx filters of this context, which are mapped to {@code /*} */
+	private final RegexFilterMatcher regexFilterMatcher = new RegexFilterMatcher();
+
 	/**
 	 * Create new {@link ServletHandler} for given {@link org.eclipse.jetty.servlet.ServletContextHandler}
 	 * @param default404Servlet this servlet will be used when there's no mapped servlet
+	 * @param osgiSessionsBridge
+	 * @param requestMetrics may be {@code null}
 	 */
-	PaxWebServletHandler(Servlet default404Servlet, OsgiSessionAttributeListener osgiSessionsBridge) {
+	PaxWebServletHandler(Servlet default404Servlet, OsgiSessionAttributeListener osgiSessionsBridge,
+			RequestMetrics requestMetrics) {
 		// we need default servlet for these reasons:
 		// 1. there HAS TO be something that'll send 404 if nothing is found within given ServletContextHandler
 		// 2. without mapped servlet, even 404 one, no filter chain will be created, so we won't be able
@@ -114,6 +124,19 @@ public class PaxWebServletHandler extends ServletHandler {
 
 		this.default404Servlet = default404Servlet;
 		this.osgiSessionsBridge = osgiSessionsBridge;
+		this.requestMetrics = requestMetrics;
+	}
+
+	/**
+	 * Sets {@link FilterChainTiming} used by OSGi filter chains of this handler
+	 * @param filterChainTiming may be {@code null}
+	 */
+	public void setFilterChainTiming(FilterChainTiming filterChainTiming) {
+		chainTemplate.setTiming(filterChainTiming);
+	}
+
+	public RegexFilterMatcher getRegexFilterMatcher() {
+		return regexFilterMatcher;
 	}
 
 	public void setDefaultServletContext(OsgiServletContext defaultServletContext) {
@@ -147,7 +170,7 @@ public class PaxWebServletHandler extends ServletHandler {
 	@Override
 	public void initialize() throws Exception {
 		// initialize preprocessors
-		for (PreprocessorFilterConfig fc : preprocessors) {
+		for (PreprocessorFilterConfig fc : chainTemplate.getPreprocessors()) {
 			fc.getInstance().init(fc);
 		}
 
@@ -176,7 +199,7 @@ public class PaxWebServletHandler extends ServletHandler {
 		setFilterMappings(newFilterMappings.toArray(new PaxWebFilterMapping[0]));
 
 		// destroy the preprocessors
-		for (PreprocessorFilterConfig fc : preprocessors) {
+		for (PreprocessorFilterConfig fc : chainTemplate.getPreprocessors()) {
 			fc.destroy();
 		}
 
@@ -317,6 +340,20 @@ public class PaxWebServletHandler extends ServletHandler {
 		// this should never be null because of ServletHandler.setEnsureDefaultServlet(true)
 		PaxWebServletHolder servletHolder = (PaxWebServletHolder)baseRequest.getUserIdentityScope();
 
+		// metrics are recorded only for initial dispatch - async dispatches are part of the same request
+		RequestMetrics metrics = requestMetrics != null && servletHolder != null
+				&& baseRequest.getDispatcherType() == DispatcherType.REQUEST ? requestMetrics : null;
+		OsgiContextModel metricsContext = null;
+		ServletModel metricsServlet = null;
+		long start = 0L;
+		boolean failed = true;
+		if (metrics != null) {
+			metricsContext = servletHolder.getOsgiContextModel() == null
+					? defaultOsgiContextModel : servletHolder.getOsgiContextModel();
+			metricsServlet = servletHolder.getServletModel();
+			start = metrics.begin(metricsContext, metricsServlet);
+		}
+
 		try {
 			// we always create the chain, because we have to call handleSecurity()/finishSecurity()
 			FilterChain chain = getOsgiFilterChain(baseRequest, target, servletHolder);
@@ -340,10 +377,14 @@ public class PaxWebServletHandler extends ServletHandler {
 			} else {
 				servletHolder.handle(baseRequest, req, res);
 			}
+			failed = false;
 		} finally {
 			if (servletHolder != null) {
 				baseRequest.setHandled(true);
 			}
+			if (metrics != null) {
+				metrics.end(request, response, metricsContext, metricsServlet, start, failed);
+			}
 		}
 	}
 
@@ -383,12 +424,11 @@ public class PaxWebServletHandler extends ServletHandler {
 			// 3b. if the holder is for known 404 servlet, we still need a chain that calls 404 servlet
 			chain = (request, response) -> holder.handle(baseRequest, request, response);
 		}
-		List<Preprocessor> preprocessorInstances = preprocessors.stream().map(PreprocessorFilterConfig::getInstance).collect(Collectors.toList());
 		if (!holder.is404()) {
-			return new OsgiFilterChain(new ArrayList<>(preprocessorInstances), holder.getOsgiServletContext(),
+			return chainTemplate.createChain(holder.getOsgiServletContext(),
 					holder.getWebContainerContext(), chain, osgiSessionsBridge);
 		} else {
-			return new OsgiFilterChain(new ArrayList<>(preprocessorInstances), defaultServletContext,
+			return chainTemplate.createChain(defaultServletContext,
 					defaultWebContainerContext, chain, osgiSessionsBridge);
 		}
 	}
@@ -467,7 +507,16 @@ public class PaxWebServletHandler extends ServletHandler {
 	}
 
 	public List<PreprocessorFilterConfig> getPreprocessors() {
-		return preprocessors;
+		return chainTemplate.getPreprocessors();
+	}
+
+	/**
+	 * Replaces all the preprocessors of this handler - chains created after this call will use new set of
+	 * preprocessors.
+	 * @param preprocessors
+	 */
+	public void setPreprocessors(List<PreprocessorFilterConfig> preprocessors) {
+		chainTemplate.setPreprocessors(preprocessors);
 	}
 
 }
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.jetty.internal;
+
+import org.eclipse.jetty.server.session.SessionData;
+import org.ops4j.pax.web.service.spi.session.SessionAttributeStorage;
+import org.ops4j.pax.web.service.spi.session.SessionAttributes;
+
+/**
+ * {@link SessionData} which keeps session attributes in {@link SessionAttributes} obtained from
+ * {@link SessionAttributeStorage} instead of heap-resident map.
+ */
+public class PaxWebSessionData extends SessionData {
+
+	private static final long serialVersionUID = 1L;
+
+	public PaxWebSessionData(String id, String cpath, String vhost, long created, long accessed, long lastAccessed,
+			long maxInactiveMs, SessionAttributeStorage storage) {
+		super(id, cpath, vhost, created, accessed, lastAccessed, maxInactiveMs);
+		_attributes = storage.createAttributes();
+	}
+
+	public SessionAttributes getSessionAttributes() {
+		return (SessionAttributes) _attributes;
+	}
+
+}
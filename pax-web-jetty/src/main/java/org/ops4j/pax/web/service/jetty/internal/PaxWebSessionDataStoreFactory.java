@@ -0,0 +1,66 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.jetty.internal;
+
+import org.eclipse.jetty.server.session.FileSessionDataStore;
+import org.eclipse.jetty.server.session.FileSessionDataStoreFactory;
+import org.eclipse.jetty.server.session.NullSessionDataStore;
+import org.eclipse.jetty.server.session.SessionData;
+import org.eclipse.jetty.server.session.SessionDataStore;
+import org.eclipse.jetty.server.session.SessionHandler;
+import org.ops4j.pax.web.service.spi.session.SessionAttributeStorage;
+
+/**
+ * {@link org.eclipse.jetty.server.session.SessionDataStoreFactory} creating stores which create
+ * {@link PaxWebSessionData} backed by {@link SessionAttributeStorage}. If store directory is configured, sessions
+ * are persisted as with {@link FileSessionDataStoreFactory}, otherwise they're not persisted (as with default
+ * {@link NullSessionDataStore}).
+ */
+public class PaxWebSessionDataStoreFactory extends FileSessionDataStoreFactory {
+
+	private final SessionAttributeStorage storage;
+
+	public PaxWebSessionDataStoreFactory(SessionAttributeStorage storage) {
+		this.storage = storage;
+	}
+
+	@Override
+	public SessionDataStore getSessionDataStore(SessionHandler handler) {
+		if (getStoreDir() == null) {
+			return new NullSessionDataStore() {
+				@Override
+				public SessionData newSessionData(String id, long created, long accessed, long lastAccessed, long maxInactiveMs) {
+					return new PaxWebSessionData(id, _context.getCanonicalContextPath(), _context.getVhost(),
+							created, accessed, lastAccessed, maxInactiveMs, storage);
+				}
+			};
+		}
+
+		FileSessionDataStore store = new FileSessionDataStore() {
+			@Override
+			public SessionData newSessionData(String id, long created, long accessed, long lastAccessed, long maxInactiveMs) {
+				return new PaxWebSessionData(id, _context.getCanonicalContextPath(), _context.getVhost(),
+						created, accessed, lastAccessed, maxInactiveMs, storage);
+			}
+		};
+		store.setDeleteUnrestorableFiles(isDeleteUnrestorableFiles());
+		store.setStoreDir(getStoreDir());
+		store.setGracePeriodSec(getGracePeriodSec());
+		store.setSavePeriodSec(getSavePeriodSec());
+		return store;
+	}
+
+}
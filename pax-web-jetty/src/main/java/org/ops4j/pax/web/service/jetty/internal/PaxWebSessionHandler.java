@@ -15,9 +15,14 @@
  */
 package org.ops4j.pax.web.service.jetty.internal;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSession;
 
+import org.eclipse.jetty.http.HttpCookie;
+import org.eclipse.jetty.server.session.Session;
+import org.eclipse.jetty.server.session.SessionData;
 import org.eclipse.jetty.server.session.SessionHandler;
+import org.ops4j.pax.web.service.spi.session.SessionAttributes;
 
 public class PaxWebSessionHandler extends SessionHandler {
 
@@ -55,4 +60,49 @@ public class PaxWebSessionHandler extends SessionHandler {
 		return eid.substring(0, tilde) + eid.substring(dot);
 	}
 
+	@Override
+	public HttpSession newHttpSession(HttpServletRequest request) {
+		// session created during the request is used by this request until complete() is called for it
+		HttpSession session = super.newHttpSession(request);
+		SessionAttributes attributes = attributes(session);
+		if (attributes != null) {
+			attributes.access();
+		}
+		return session;
+	}
+
+	@Override
+	public HttpCookie access(HttpSession session, boolean secure) {
+		SessionAttributes attributes = attributes(session);
+		if (attributes != null) {
+			attributes.access();
+		}
+		return super.access(session, secure);
+	}
+
+	@Override
+	public void complete(HttpSession session) {
+		// attributes used during the request are written back to the storage before the session is saved
+		SessionAttributes attributes = attributes(session);
+		if (attributes != null) {
+			attributes.release();
+		}
+		super.complete(session);
+	}
+
+	/**
+	 * Returns {@link SessionAttributes} if the session uses {@link PaxWebSessionData}
+	 * @param session
+	 * @return
+	 */
+	private static SessionAttributes attributes(HttpSession session) {
+		if (session instanceof Session) {
+			SessionData data = ((Session) session).getSessionData();
+			if (data instanceof PaxWebSessionData) {
+				return ((PaxWebSessionData) data).getSessionAttributes();
+			}
+		}
+		return null;
+	}
+
 }
@@ -0,0 +1,347 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.jetty.internal.web;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.jetty.http.CompressedContentFormat;
+import org.eclipse.jetty.http.HttpContent;
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.MimeTypes;
+import org.eclipse.jetty.http.PrecompressedHttpContent;
+import org.eclipse.jetty.util.resource.Resource;
+import org.ops4j.pax.web.service.spi.model.OsgiContextModel;
+import org.ops4j.pax.web.service.spi.util.ByteBufferInputStream;
+import org.ops4j.pax.web.service.spi.util.CompressedContentCache;
+import org.ops4j.pax.web.service.spi.util.ResourceCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>{@link HttpContent.ContentFactory} that serves the content of resources found by Jetty's
+ * {@link org.eclipse.jetty.server.ResourceContentFactory} from shared {@link ResourceCache}. It's used instead of
+ * Jetty's own {@link org.eclipse.jetty.server.CachedContentFactory}.</p>
+ *
+ * <p>When {@link CompressedContentCache} is available, gzipped variant of compressible resources is added to
+ * {@link HttpContent#getPrecompressedContents()} (unless there's already a {@code .gz} sibling), so
+ * {@link org.eclipse.jetty.server.ResourceService} handles {@code Accept-Encoding}, {@code Vary} and
+ * {@code Content-Encoding} as for real precompressed resources.</p>
+ */
+class CachingContentFactory implements HttpContent.ContentFactory {
+
+	public static final Logger LOG = LoggerFactory.getLogger(CachingContentFactory.class);
+
+	private final HttpContent.ContentFactory delegate;
+	private final ResourceCache cache;
+	private final CompressedContentCache compressedCache;
+	private final OsgiContextModel contextModel;
+	private final String servletName;
+
+	CachingContentFactory(HttpContent.ContentFactory delegate, ResourceCache cache,
+			CompressedContentCache compressedCache, OsgiContextModel contextModel, String servletName) {
+		this.delegate = delegate;
+		this.cache = cache;
+		this.compressedCache = compressedCache;
+		this.contextModel = contextModel;
+		this.servletName = servletName;
+	}
+
+	@Override
+	public HttpContent getContent(String path, int maxBuffer) throws IOException {
+		HttpContent content = delegate.getContent(path, maxBuffer);
+		if (content == null) {
+			return null;
+		}
+		Resource resource = content.getResource();
+		if (resource == null || resource.isDirectory()) {
+			return content;
+		}
+		URI uri = resource.getURI();
+		if (uri == null) {
+			return content;
+		}
+
+		ByteBuffer buffer = null;
+		if (cache != null) {
+			try {
+				buffer = cache.getContent(contextModel, servletName, uri.toASCIIString(), resource.lastModified(),
+						resource.length(), resource::getInputStream);
+			} catch (IOException e) {
+				LOG.debug("Can't cache content of {}: {}", resource, e.getMessage());
+			}
+		}
+
+		Map<CompressedContentFormat, ? extends HttpContent> variants = content.getPrecompressedContents();
+		if (compressedCache != null && (variants == null || !variants.containsKey(CompressedContentFormat.GZIP))
+				&& compressedCache.isCompressible(content.getContentTypeValue(), resource.length())) {
+			final ByteBuffer uncompressed = buffer;
+			try {
+				byte[] gzipped = compressedCache.getGzipped(uri.toASCIIString(), resource.getWeakETag(),
+						uncompressed != null ? () -> new ByteBufferInputStream(uncompressed.duplicate())
+								: resource::getInputStream);
+				if (gzipped != null) {
+					Map<CompressedContentFormat, HttpContent> withGzip = variants == null
+							? new HashMap<>() : new HashMap<>(variants);
+					withGzip.put(CompressedContentFormat.GZIP, new PrecompressedHttpContent(content,
+							new CompressedHttpContent(content, gzipped), CompressedContentFormat.GZIP));
+					variants = withGzip;
+				}
+			} catch (IOException e) {
+				LOG.debug("Can't compress content of {}: {}", resource, e.getMessage());
+			}
+		}
+
+		if (buffer == null && variants == content.getPrecompressedContents()) {
+			return content;
+		}
+		return new CachedHttpContent(content, buffer, variants);
+	}
+
+	/**
+	 * {@link HttpContent} with the content available in a {@link ByteBuffer} obtained from {@link ResourceCache}
+	 * and/or with on-the-fly compressed variants.
+	 */
+	private static class CachedHttpContent implements HttpContent {
+
+		private final HttpContent delegate;
+		private final ByteBuffer buffer;
+		private final Map<CompressedContentFormat, ? extends HttpContent> variants;
+
+		CachedHttpContent(HttpContent delegate, ByteBuffer buffer, Map<CompressedContentFormat, ? extends HttpContent> variants) {
+			this.delegate = delegate;
+			this.buffer = buffer;
+			this.variants = variants;
+		}
+
+		@Override
+		public HttpField getContentType() {
+			return delegate.getContentType();
+		}
+
+		@Override
+		public String getContentTypeValue() {
+			return delegate.getContentTypeValue();
+		}
+
+		@Override
+		public String getCharacterEncoding() {
+			return delegate.getCharacterEncoding();
+		}
+
+		@Override
+		public MimeTypes.Type getMimeType() {
+			return delegate.getMimeType();
+		}
+
+		@Override
+		public HttpField getContentEncoding() {
+			return delegate.getContentEncoding();
+		}
+
+		@Override
+		public String getContentEncodingValue() {
+			return delegate.getContentEncodingValue();
+		}
+
+		@Override
+		public HttpField getContentLength() {
+			return delegate.getContentLength();
+		}
+
+		@Override
+		public long getContentLengthValue() {
+			return buffer == null ? delegate.getContentLengthValue() : buffer.remaining();
+		}
+
+		@Override
+		public HttpField getLastModified() {
+			return delegate.getLastModified();
+		}
+
+		@Override
+		public String getLastModifiedValue() {
+			return delegate.getLastModifiedValue();
+		}
+
+		@Override
+		public HttpField getETag() {
+			return delegate.getETag();
+		}
+
+		@Override
+		public String getETagValue() {
+			return delegate.getETagValue();
+		}
+
+		@Override
+		public ByteBuffer getIndirectBuffer() {
+			// the same (possibly direct) buffer is returned - we want to serve cached content in all cases
+			return buffer == null ? delegate.getIndirectBuffer() : buffer.duplicate();
+		}
+
+		@Override
+		public ByteBuffer getDirectBuffer() {
+			return buffer == null ? delegate.getDirectBuffer() : buffer.duplicate();
+		}
+
+		@Override
+		public Resource getResource() {
+			return delegate.getResource();
+		}
+
+		@Override
+		public InputStream getInputStream() throws IOException {
+			return buffer == null ? delegate.getInputStream() : new ByteBufferInputStream(buffer.duplicate());
+		}
+
+		@Override
+		public ReadableByteChannel getReadableByteChannel() throws IOException {
+			return delegate.getReadableByteChannel();
+		}
+
+		@Override
+		public void release() {
+			delegate.release();
+		}
+
+		@Override
+		public Map<CompressedContentFormat, ? extends HttpContent> getPrecompressedContents() {
+			return variants;
+		}
+	}
+
+	/**
+	 * {@link HttpContent} with gzipped content of original resource. Used as <em>precompressed content</em> of
+	 * {@link PrecompressedHttpContent}, which takes the metadata (content type, last modified, ETag) from the
+	 * original content.
+	 */
+	private static class CompressedHttpContent implements HttpContent {
+
+		private final HttpContent original;
+		private final byte[] gzipped;
+		private final HttpField contentLength;
+
+		CompressedHttpContent(HttpContent original, byte[] gzipped) {
+			this.original = original;
+			this.gzipped = gzipped;
+			this.contentLength = new HttpField.LongValueHttpField(HttpHeader.CONTENT_LENGTH, gzipped.length);
+		}
+
+		@Override
+		public HttpField getContentType() {
+			return original.getContentType();
+		}
+
+		@Override
+		public String getContentTypeValue() {
+			return original.getContentTypeValue();
+		}
+
+		@Override
+		public String getCharacterEncoding() {
+			return original.getCharacterEncoding();
+		}
+
+		@Override
+		public MimeTypes.Type getMimeType() {
+			return original.getMimeType();
+		}
+
+		@Override
+		public HttpField getContentEncoding() {
+			return null;
+		}
+
+		@Override
+		public String getContentEncodingValue() {
+			return null;
+		}
+
+		@Override
+		public HttpField getContentLength() {
+			return contentLength;
+		}
+
+		@Override
+		public long getContentLengthValue() {
+			return gzipped.length;
+		}
+
+		@Override
+		public HttpField getLastModified() {
+			return original.getLastModified();
+		}
+
+		@Override
+		public String getLastModifiedValue() {
+			return original.getLastModifiedValue();
+		}
+
+		@Override
+		public HttpField getETag() {
+			return original.getETag();
+		}
+
+		@Override
+		public String getETagValue() {
+			return original.getETagValue();
+		}
+
+		@Override
+		public ByteBuffer getIndirectBuffer() {
+			return ByteBuffer.wrap(gzipped).asReadOnlyBuffer();
+		}
+
+		@Override
+		public ByteBuffer getDirectBuffer() {
+			return null;
+		}
+
+		@Override
+		public Resource getResource() {
+			return original.getResource();
+		}
+
+		@Override
+		public InputStream getInputStream() {
+			return new ByteArrayInputStream(gzipped);
+		}
+
+		@Override
+		public ReadableByteChannel getReadableByteChannel() {
+			return Channels.newChannel(getInputStream());
+		}
+
+		@Override
+		public void release() {
+		}
+
+		@Override
+		public Map<CompressedContentFormat, ? extends HttpContent> getPrecompressedContents() {
+			return null;
+		}
+	}
+
+}
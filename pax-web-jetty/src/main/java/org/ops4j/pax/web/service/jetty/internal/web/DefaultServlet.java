@@ -138,6 +138,8 @@ import org.slf4j.LoggerFactory;
  * </pre>
  *
  * <p>Pax Web 8: I had to copy this servlet from Jetty code to change some fields from private to protected.</p>
+ * <p>Pax Web 9: {@link #customizeContentFactory} is used to back the content with shared
+ * {@link org.ops4j.pax.web.service.spi.util.ResourceCache}.</p>
  */
 // CHECKSTYLE:OFF
 public class DefaultServlet extends HttpServlet implements ResourceFactory, WelcomeFactory
@@ -296,7 +298,7 @@ public class DefaultServlet extends HttpServlet implements ResourceFactory, Welc
             if (resourceCache != null)
                 _servletContext.setAttribute(resourceCache, contentFactory);
         }
-        _resourceService.setContentFactory(contentFactory);
+        _resourceService.setContentFactory(customizeContentFactory(contentFactory));
         _resourceService.setWelcomeFactory(this);
 
         List<String> gzipEquivalentFileExtensions = new ArrayList<>();
@@ -502,6 +504,16 @@ public class DefaultServlet extends HttpServlet implements ResourceFactory, Welc
         response.setHeader("Allow", "GET,HEAD,POST,OPTIONS");
     }
 
+    /**
+     * Pax Web: allows derived servlets to wrap the {@link HttpContent.ContentFactory} created in {@link #init()}
+     * @param contentFactory
+     * @return
+     */
+    protected HttpContent.ContentFactory customizeContentFactory(HttpContent.ContentFactory contentFactory)
+    {
+        return contentFactory;
+    }
+
     @Override
     public void destroy()
     {
@@ -17,15 +17,27 @@ package org.ops4j.pax.web.service.jetty.internal.web;
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.Collections;
+import java.util.Enumeration;
 import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
 import javax.servlet.UnavailableException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
 
+import org.eclipse.jetty.http.HttpContent;
+import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.server.handler.ContextHandler;
 import org.eclipse.jetty.util.resource.PathResource;
 import org.eclipse.jetty.util.resource.Resource;
 import org.ops4j.pax.web.service.jetty.internal.PaxWebServletContextHandler;
+import org.ops4j.pax.web.service.spi.model.OsgiContextModel;
 import org.ops4j.pax.web.service.spi.servlet.OsgiScopedServletContext;
+import org.ops4j.pax.web.service.spi.servlet.OsgiServletContext;
+import org.ops4j.pax.web.service.spi.util.CompressedContentCache;
 import org.ops4j.pax.web.service.spi.util.Path;
+import org.ops4j.pax.web.service.spi.util.ResourceCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -46,12 +58,29 @@ public class JettyResourceServlet extends DefaultServlet {
 	 */
 	private final String chroot;
 
+	/** Cache shared by all resource servlets of the server. If {@code null}, the content is not cached. */
+	private final ResourceCache resourceCache;
+
+	/** Cache of on-the-fly compressed variants of resources. If {@code null}, resources are not compressed. */
+	private final CompressedContentCache compressedCache;
+
+	/** Whether {@code .br}/{@code .gz} siblings of resources should be served */
+	private final boolean precompressed;
+
 	// super._welcomes can be cleared after super.init()...
 	private String[] welcomeFiles;
 
 	public JettyResourceServlet(PathResource baseUrlResource, String chroot) {
+		this(baseUrlResource, chroot, null, null, false);
+	}
+
+	public JettyResourceServlet(PathResource baseUrlResource, String chroot, ResourceCache resourceCache,
+			CompressedContentCache compressedCache, boolean precompressed) {
 		this.baseUrlResource = baseUrlResource;
 		this.chroot = chroot;
+		this.resourceCache = resourceCache;
+		this.compressedCache = compressedCache;
+		this.precompressed = precompressed;
 	}
 
 	@Override
@@ -59,24 +88,53 @@ public class JettyResourceServlet extends DefaultServlet {
 		super.init();
 		_welcomes = welcomeFiles;
 
-		String maxCacheSize = getInitParameter("maxCacheSize");
-		String maxCachedFileSize = getInitParameter("maxCachedFileSize");
-		String maxCachedFiles = getInitParameter("maxCachedFiles");
-		if (maxCacheSize == null) {
-			maxCacheSize = Integer.toString(256 * 1024 * 1024 / 64);
+		LOG.info("Initialized Jetty Resource Servlet for base=\"{}\" ({})",
+				baseUrlResource != null ? baseUrlResource.getPath() : chroot,
+				resourceCache != null ? "using shared resource cache" : _cache != null ? "using Jetty cache" : "no cache");
+	}
+
+	@Override
+	public String getInitParameter(String name) {
+		String value = super.getInitParameter(name);
+		if (value == null && "precompressed".equals(name)) {
+			// on-the-fly compressed variants are handled by ResourceService as precompressed gzip content
+			if (precompressed) {
+				return "br=.br,gzip=.gz";
+			}
+			if (compressedCache != null) {
+				return "gzip=.gz";
+			}
 		}
-		if (maxCachedFileSize == null) {
-			maxCachedFileSize = Integer.toString(128 * 1024 * 1024 / 64);
+		return value;
+	}
+
+	@Override
+	protected HttpContent.ContentFactory customizeContentFactory(HttpContent.ContentFactory contentFactory) {
+		ResourceCache cache = _cache != null ? null : resourceCache;
+		if (cache == null && compressedCache == null) {
+			return contentFactory;
 		}
-		if (maxCachedFiles == null) {
-			maxCachedFiles = "2048";
+		return new CachingContentFactory(contentFactory, cache, compressedCache, getOsgiContextModel(),
+				getServletName());
+	}
+
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		if (compressedCache != null && request.getHeader(HttpHeader.RANGE.asString()) != null) {
+			// on-the-fly compressed content is not range-aware, so ranges are always served from identity content
+			super.doGet(new IdentityEncodingRequest(request), response);
+			return;
 		}
+		super.doGet(request, response);
+	}
 
-		LOG.info("Initialized Jetty Resource Servlet for base=\"{}\" with cache maxSize={}kB, maxEntrySize={}kB, maxEntries={}",
-				baseUrlResource != null ? baseUrlResource.getPath() : chroot,
-				Integer.parseInt(maxCacheSize) / 1024,
-				Integer.parseInt(maxCachedFileSize) / 1024,
-				maxCachedFiles);
+	@Override
+	public void destroy() {
+		if (resourceCache != null) {
+			// other resource servlets of the same context still use their entries
+			resourceCache.invalidate(getOsgiContextModel(), getServletName());
+		}
+		super.destroy();
 	}
 
 	/**
@@ -105,6 +163,16 @@ public class JettyResourceServlet extends DefaultServlet {
 		return ((ContextHandler.Context)((OsgiScopedServletContext)servletContext).getContainerServletContext()).getContextHandler();
 	}
 
+	private OsgiContextModel getOsgiContextModel() {
+		ServletContext context = getServletContext();
+		if (context instanceof OsgiScopedServletContext) {
+			return ((OsgiScopedServletContext) context).getOsgiContextModel();
+		} else if (context instanceof OsgiServletContext) {
+			return ((OsgiServletContext) context).getOsgiContextModel();
+		}
+		return null;
+	}
+
 	@Override
 	public Resource getResource(String pathInContext) {
 		// our (commons-io) normalized path
@@ -140,4 +208,24 @@ public class JettyResourceServlet extends DefaultServlet {
 		}
 	}
 
+	/**
+	 * Request wrapper that hides {@code Accept-Encoding} header.
+	 */
+	private static class IdentityEncodingRequest extends HttpServletRequestWrapper {
+
+		IdentityEncodingRequest(HttpServletRequest request) {
+			super(request);
+		}
+
+		@Override
+		public String getHeader(String name) {
+			return HttpHeader.ACCEPT_ENCODING.is(name) ? null : super.getHeader(name);
+		}
+
+		@Override
+		public Enumeration<String> getHeaders(String name) {
+			return HttpHeader.ACCEPT_ENCODING.is(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+		}
+	}
+
 }
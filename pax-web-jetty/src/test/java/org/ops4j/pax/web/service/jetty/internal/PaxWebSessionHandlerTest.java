@@ -0,0 +1,183 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.jetty.internal;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.junit.Test;
+import org.ops4j.pax.web.service.spi.session.SessionAttributeStorage;
+import org.ops4j.pax.web.service.spi.session.SessionAttributes;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class PaxWebSessionHandlerTest {
+
+	@Test
+	public void sessionAttributesAreAccessedAndReleasedByEachRequest() throws Exception {
+		RecordingStorage storage = new RecordingStorage();
+
+		Server server = new Server();
+		ServerConnector connector = new ServerConnector(server, 1, 1, new HttpConnectionFactory());
+		connector.setPort(0);
+		server.setConnectors(new Connector[] { connector });
+		server.addBean(new PaxWebSessionDataStoreFactory(storage));
+
+		ServletContextHandler context = new ServletContextHandler(server, "/c", ServletContextHandler.SESSIONS);
+		context.setSessionHandler(new PaxWebSessionHandler());
+		context.addServlet(new ServletHolder("s", new HttpServlet() {
+			@Override
+			protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+				Integer counter = (Integer) req.getSession(true).getAttribute("counter");
+				counter = counter == null ? 1 : counter + 1;
+				req.getSession().setAttribute("counter", counter);
+				resp.getWriter().print("counter=" + counter);
+			}
+		}), "/s");
+
+		server.start();
+		try {
+			int port = connector.getLocalPort();
+
+			// the session is created during the request
+			String response = send(port, "/c/s");
+			assertThat(response, containsString("counter=1"));
+			assertThat(storage.attributes.size(), equalTo(1));
+			RecordingAttributes attributes = storage.attributes.get(0);
+			// session may be completed after the response is sent
+			awaitReleases(attributes, 1);
+			assertThat(attributes.accesses.get(), equalTo(1));
+			assertThat(attributes.inUse.get(), equalTo(0));
+			assertTrue(attributes.balanced);
+
+			// the session already exists when the request starts
+			Matcher m = Pattern.compile("Set-Cookie: (JSESSIONID=[^;\\r\\n]+)").matcher(response);
+			assertTrue(m.find());
+			response = send(port, "/c/s", "Cookie: " + m.group(1));
+			assertThat(response, containsString("counter=2"));
+			assertThat(storage.attributes.size(), equalTo(1));
+			// session may be completed after the response is sent
+			awaitReleases(attributes, 2);
+			assertThat(attributes.accesses.get(), equalTo(2));
+			assertThat(attributes.inUse.get(), equalTo(0));
+			assertTrue(attributes.balanced);
+		} finally {
+			server.stop();
+			server.join();
+		}
+	}
+
+	private void awaitReleases(RecordingAttributes attributes, int expected) throws InterruptedException {
+		for (int i = 0; i < 50 && attributes.releases.get() < expected; i++) {
+			Thread.sleep(100);
+		}
+		assertThat(attributes.releases.get(), equalTo(expected));
+	}
+
+	private String send(int port, String request, String ... headers) throws IOException {
+		Socket s = new Socket();
+		s.connect(new InetSocketAddress("127.0.0.1", port));
+
+		s.getOutputStream().write((
+				"GET " + request + " HTTP/1.1\r\n" +
+				"Host: 127.0.0.1:" + port + "\r\n").getBytes());
+		for (String header : headers) {
+			s.getOutputStream().write((header + "\r\n").getBytes());
+		}
+		s.getOutputStream().write(("Connection: close\r\n\r\n").getBytes());
+
+		byte[] buf = new byte[64];
+		int read = -1;
+		StringWriter sw = new StringWriter();
+		while ((read = s.getInputStream().read(buf)) > 0) {
+			sw.append(new String(buf, 0, read));
+		}
+		s.close();
+
+		return sw.toString();
+	}
+
+	private static class RecordingStorage implements SessionAttributeStorage {
+
+		private final List<RecordingAttributes> attributes = new CopyOnWriteArrayList<>();
+
+		@Override
+		public SessionAttributes createAttributes() {
+			RecordingAttributes attrs = new RecordingAttributes();
+			attributes.add(attrs);
+			return attrs;
+		}
+
+		@Override
+		public long getUsedMemory() {
+			return 0L;
+		}
+
+		@Override
+		public long getMaxMemory() {
+			return 0L;
+		}
+	}
+
+	/**
+	 * {@link SessionAttributes} which checks that {@link #release()} is never called without earlier
+	 * {@link #access()}.
+	 */
+	private static class RecordingAttributes extends ConcurrentHashMap<String, Object> implements SessionAttributes {
+
+		private static final long serialVersionUID = 1L;
+
+		private final AtomicInteger accesses = new AtomicInteger();
+		private final AtomicInteger releases = new AtomicInteger();
+		private final AtomicInteger inUse = new AtomicInteger();
+		private volatile boolean balanced = true;
+
+		@Override
+		public void access() {
+			accesses.incrementAndGet();
+			inUse.incrementAndGet();
+		}
+
+		@Override
+		public void release() {
+			releases.incrementAndGet();
+			if (inUse.decrementAndGet() < 0) {
+				balanced = false;
+			}
+		}
+	}
+
+}
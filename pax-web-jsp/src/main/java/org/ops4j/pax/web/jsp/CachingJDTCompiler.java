@@ -0,0 +1,198 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.jsp;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.jasper.EmbeddedServletOptions;
+import org.apache.jasper.compiler.JDTCompiler;
+import org.apache.jasper.compiler.JspConfig;
+import org.apache.jasper.compiler.SmapStratum;
+import org.apache.tomcat.Jar;
+import org.ops4j.pax.web.service.PaxWebConfig;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.FrameworkUtil;
+
+/**
+ * <p>{@link JDTCompiler} that reuses classes compiled for identical JSPs (and tag files) in other contexts.
+ * It is configured as Jasper's {@code compilerClassName} when {@link PaxWebConfig#PID_CFG_JSP_SHARED_CACHE}
+ * is enabled, and the directory of the {@link JspCompilationCache} is passed in an init parameter of
+ * the JSP servlet with the same name.</p>
+ *
+ * <p>Jasper still generates the Java source for each context - only the Java compiler is skipped when
+ * the cache has the classes for the same JSP. The key is not calculated from the generated source, because
+ * it contains the URLs and timestamps of the dependencies (included fragments, tag files and TLDs), which are
+ * different in each bundle. Instead, the content of the JSP and its dependencies, JSP property group
+ * and Jasper options are hashed.</p>
+ *
+ * <p>The cached classes are copied to the scratch directory of the context and loaded by its own
+ * {@link org.apache.jasper.servlet.JasperLoader}, so they're linked with the classes visible to this
+ * context only.</p>
+ */
+public class CachingJDTCompiler extends JDTCompiler {
+
+	private static final String JASPER_VERSION = version(JDTCompiler.class);
+	private static final String ECJ_VERSION = version(org.eclipse.jdt.internal.compiler.Compiler.class);
+
+	@Override
+	protected void generateClass(Map<String, SmapStratum> smaps) throws Exception {
+		String dir = null;
+		if (options instanceof EmbeddedServletOptions) {
+			dir = ((EmbeddedServletOptions) options).getProperty(PaxWebConfig.PID_CFG_JSP_SHARED_CACHE);
+		}
+		if (dir == null || "".equals(dir.trim())) {
+			super.generateClass(smaps);
+			return;
+		}
+
+		JspCompilationCache cache = JspCompilationCache.forDirectory(dir);
+		String key = key(cache);
+		if (key == null) {
+			super.generateClass(smaps);
+			return;
+		}
+
+		File outputDir = new File(ctxt.getOutputDir());
+		if (cache.restore(key, outputDir)) {
+			return;
+		}
+
+		super.generateClass(smaps);
+		if (new File(ctxt.getClassFileName()).isFile()) {
+			cache.store(key, outputDir, ctxt.getServletClassName());
+		}
+	}
+
+	/**
+	 * Calculates the key of the JSP (or tag file) being compiled.
+	 * @param cache
+	 * @return {@code null} if the content of the JSP or any of its dependencies can't be read
+	 */
+	private String key(JspCompilationCache cache) {
+		List<String> parts = new ArrayList<>();
+		parts.add(JASPER_VERSION);
+		parts.add(ECJ_VERSION);
+
+		// options affecting generated Java source and compiled bytecode
+		parts.add(options.getCompilerSourceVM());
+		parts.add(options.getCompilerTargetVM());
+		parts.add(options.getJavaEncoding());
+		parts.add(String.valueOf(options.getClassDebugInfo()));
+		parts.add(String.valueOf(options.isSmapSuppressed()));
+		parts.add(String.valueOf(options.getMappedFile()));
+		parts.add(String.valueOf(options.getTrimSpaces()));
+		parts.add(String.valueOf(options.isPoolingEnabled()));
+		parts.add(String.valueOf(options.getPoolTagsWithExtends()));
+		parts.add(String.valueOf(options.genStringAsCharArray()));
+		parts.add(String.valueOf(options.isXpoweredBy()));
+		parts.add(String.valueOf(options.getErrorOnUseBeanInvalidClassAttribute()));
+		parts.add(String.valueOf(options.getStrictQuoteEscaping()));
+		parts.add(String.valueOf(options.getQuoteAttributeEL()));
+		parts.add(String.valueOf(options.getStrictGetProperty()));
+		parts.add(String.valueOf(options.getStrictWhitespace()));
+		parts.add(String.valueOf(options.getUseInstanceManagerForTags()));
+		parts.add(options.getVariableForExpressionFactory());
+		parts.add(options.getVariableForInstanceManager());
+
+		String jspFile = ctxt.getJspFile();
+		if (!ctxt.isTagFile() && options.getJspConfig() != null) {
+			// <jsp-property-group> of the JSP
+			JspConfig.JspProperty property = options.getJspConfig().findJspProperty(jspFile);
+			parts.add(property.isXml());
+			parts.add(property.isELIgnored());
+			parts.add(property.isScriptingInvalid());
+			parts.add(property.getPageEncoding());
+			parts.add(String.valueOf(property.getIncludePrelude()));
+			parts.add(String.valueOf(property.getIncludeCoda()));
+			parts.add(property.isDeferedSyntaxAllowedAsLiteral());
+			parts.add(property.isTrimDirectiveWhitespaces());
+			parts.add(property.getDefaultContentType());
+			parts.add(property.getBuffer());
+			parts.add(property.isErrorOnUndeclaredNamespace());
+		}
+
+		try {
+			Jar jar = ctxt.isTagFile() ? ctxt.getTagFileJar() : null;
+			try (InputStream is = jar != null ? jar.getInputStream(jspFile.substring(1))
+					: ctxt.getResourceAsStream(jspFile)) {
+				if (is == null) {
+					return null;
+				}
+				parts.add(cache.digest(is));
+			}
+
+			// dependencies (included fragments, tag files and TLDs) are identified by their content only, because
+			// their URLs are different in each bundle
+			Map<String, Long> dependants = new TreeMap<>(pageInfo.getDependants());
+			List<String> digests = new ArrayList<>(dependants.size());
+			for (String dependant : dependants.keySet()) {
+				try (InputStream is = openDependant(dependant)) {
+					if (is == null) {
+						return null;
+					}
+					digests.add(cache.digest(is));
+				}
+			}
+			Collections.sort(digests);
+			parts.addAll(digests);
+
+			if (options.getDevelopment() || options.getCheckInterval() > 0) {
+				// Jasper compares the timestamps of dependencies compiled into _jspx_dependants with actual
+				// timestamps, so classes compiled in other contexts would be always out of date
+				parts.add(dependants.toString());
+			}
+		} catch (IOException e) {
+			return null;
+		}
+
+		return cache.key(ctxt.getServletPackageName() + "." + ctxt.getServletClassName(),
+				parts.toArray(new String[0]));
+	}
+
+	/**
+	 * Opens a dependency of compiled JSP the same way as Jasper does when checking whether the JSP is out of date.
+	 * @param dependant
+	 * @return
+	 * @throws IOException
+	 */
+	private InputStream openDependant(String dependant) throws IOException {
+		if (!dependant.contains(":")) {
+			return ctxt.getResourceAsStream(dependant);
+		}
+		URLConnection connection = new URL(dependant).openConnection();
+		connection.setUseCaches(false);
+		return connection.getInputStream();
+	}
+
+	private static String version(Class<?> clazz) {
+		Bundle bundle = FrameworkUtil.getBundle(clazz);
+		if (bundle != null) {
+			return bundle.getSymbolicName() + "/" + bundle.getVersion();
+		}
+		Package pkg = clazz.getPackage();
+		return pkg == null ? null : pkg.getImplementationVersion();
+	}
+
+}
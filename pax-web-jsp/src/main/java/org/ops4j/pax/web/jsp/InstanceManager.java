@@ -21,14 +21,10 @@ import java.lang.reflect.Modifier;
 import java.security.AccessController;
 import java.security.PrivilegedActionException;
 import java.security.PrivilegedExceptionAction;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-import java.util.WeakHashMap;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.naming.NamingException;
@@ -42,7 +38,20 @@ public class InstanceManager implements org.apache.tomcat.InstanceManager {
 
 	private final Properties restrictedFilters = new Properties();
 	private final Properties restrictedListeners = new Properties();
-	private final Map<Class<?>, List<AnnotationCacheEntry>> annotationCache = new WeakHashMap<>();
+
+	/**
+	 * Lifecycle methods per class. {@link ClassValue} keeps the value with the class itself, so there's no
+	 * lock when creating and destroying instances (like tag handlers) and the cache doesn't prevent the
+	 * classes from being unloaded.
+	 */
+	private final ClassValue<LifecycleMethods> lifecycleMethods = new ClassValue<LifecycleMethods>() {
+		@Override
+		protected LifecycleMethods computeValue(Class<?> type) {
+			Class<?> superClass = type.getSuperclass();
+			return LifecycleMethods.of(type, superClass == null || superClass == Object.class
+					? LifecycleMethods.NONE : get(superClass));
+		}
+	};
 
 	@Override
 	public Object newInstance(String className) throws IllegalAccessException,
@@ -106,31 +115,8 @@ public class InstanceManager implements org.apache.tomcat.InstanceManager {
 	 */
 	protected void preDestroy(Object instance, final Class<?> clazz)
 			throws IllegalAccessException, InvocationTargetException {
-		Class<?> superClass = clazz.getSuperclass();
-		if (superClass != Object.class) {
-			preDestroy(instance, superClass);
-		}
-
-		// At the end the postconstruct annotated
-		// method is invoked
-		List<AnnotationCacheEntry> annotations = null;
-		synchronized (annotationCache) {
-			annotations = annotationCache.get(clazz);
-		}
-		if (annotations == null) {
-			// instance not created through the instance manager
-			return;
-		}
-		for (AnnotationCacheEntry entry : annotations) {
-			if (entry.getType() == AnnotationCacheEntryType.PRE_DESTROY) {
-				Method preDestroy = getMethod(clazz, entry);
-				synchronized (preDestroy) {
-					boolean accessibility = preDestroy.canAccess(instance);
-					preDestroy.setAccessible(true);
-					preDestroy.invoke(instance);
-					preDestroy.setAccessible(accessibility);
-				}
-			}
+		for (Method preDestroy : lifecycleMethods.get(clazz).preDestroy) {
+			preDestroy.invoke(instance);
 		}
 	}
 
@@ -147,79 +133,7 @@ public class InstanceManager implements org.apache.tomcat.InstanceManager {
 	protected void populateAnnotationsCache(Class<?> clazz,
 											Map<String, String> injections) throws IllegalAccessException,
 			InvocationTargetException {
-
-		while (clazz != null) {
-			List<AnnotationCacheEntry> annotations = null;
-			synchronized (annotationCache) {
-				annotations = annotationCache.get(clazz);
-			}
-			if (annotations == null) {
-				annotations = new ArrayList<>();
-
-				// Initialize methods annotations
-				Method[] methods = null;
-				methods = clazz.getDeclaredMethods();
-
-				Method postConstruct = null;
-				Method preDestroy = null;
-				for (Method method : methods) {
-
-					if (method.isAnnotationPresent(PostConstruct.class)) {
-						if ((postConstruct != null)
-								|| (method.getParameterTypes().length != 0)
-								|| (Modifier.isStatic(method.getModifiers()))
-								|| (method.getExceptionTypes().length > 0)
-								|| (!method.getReturnType().getName()
-								.equals("void"))) {
-							throw new IllegalArgumentException(
-									"Invalid PostConstruct annotation");
-						}
-						postConstruct = method;
-					}
-
-					if (method.isAnnotationPresent(PreDestroy.class)) {
-						if ((preDestroy != null || method.getParameterTypes().length != 0)
-								|| (Modifier.isStatic(method.getModifiers()))
-								|| (method.getExceptionTypes().length > 0)
-								|| (!method.getReturnType().getName()
-								.equals("void"))) {
-							throw new IllegalArgumentException(
-									"Invalid PreDestroy annotation");
-						}
-						preDestroy = method;
-					}
-				}
-				if (postConstruct != null) {
-					annotations.add(new AnnotationCacheEntry(postConstruct
-							.getName(), postConstruct.getParameterTypes(),
-							null, AnnotationCacheEntryType.POST_CONSTRUCT));
-				}
-				if (preDestroy != null) {
-					annotations.add(new AnnotationCacheEntry(preDestroy
-							.getName(), preDestroy.getParameterTypes(), null,
-							AnnotationCacheEntryType.PRE_DESTROY));
-				}
-				if (annotations.size() == 0) {
-					// Use common empty list to save memory
-					annotations = Collections.emptyList();
-				}
-				synchronized (annotationCache) {
-					annotationCache.put(clazz, annotations);
-				}
-			}
-			// CHECKSTYLE:OFF
-			clazz = clazz.getSuperclass();
-			// CHECKSTYLE:ON
-		}
-	}
-
-	/**
-	 * Makes cache size available to unit tests.
-	 */
-	protected int getAnnotationCacheSize() {
-		synchronized (annotationCache) {
-			return annotationCache.size();
-		}
+		lifecycleMethods.get(clazz);
 	}
 
 	protected Class<?> loadClassMaybePrivileged(final String className,
@@ -281,51 +195,60 @@ public class InstanceManager implements org.apache.tomcat.InstanceManager {
 		return name.toString();
 	}
 
-	private static Method getMethod(final Class<?> clazz,
-									final AnnotationCacheEntry entry) {
-		Method result = null;
+	/**
+	 * Annotated lifecycle methods of a class and all its superclasses, already made accessible. Classes
+	 * without annotations (in the entire hierarchy) share single {@link #NONE} instance.
+	 */
+	private static final class LifecycleMethods {
 
-		try {
-			result = clazz.getDeclaredMethod(entry.getAccessibleObjectName(),
-					entry.getParamTypes());
-		} catch (NoSuchMethodException e) {
-			// Should never happen. On that basis don't log it.
-		}
-		return result;
-	}
+		private static final LifecycleMethods NONE = new LifecycleMethods(new Method[0]);
 
-	private static final class AnnotationCacheEntry {
-		private final String accessibleObjectName;
-		private final Class<?>[] paramTypes;
-		private final AnnotationCacheEntryType type;
-
-		AnnotationCacheEntry(String accessibleObjectName,
-									Class<?>[] paramTypes, String name,
-									AnnotationCacheEntryType type) {
-			this.accessibleObjectName = accessibleObjectName;
-			if (paramTypes != null) {
-				this.paramTypes = Arrays.copyOf(paramTypes, paramTypes.length);
-			} else {
-				this.paramTypes = null;
-			}
-			this.type = type;
-		}
+		/** {@link PreDestroy} methods - from deepest superclass to actual class */
+		private final Method[] preDestroy;
 
-		public String getAccessibleObjectName() {
-			return accessibleObjectName;
+		private LifecycleMethods(Method[] preDestroy) {
+			this.preDestroy = preDestroy;
 		}
 
-		public Class<?>[] getParamTypes() {
-			return paramTypes;
-		}
+		static LifecycleMethods of(Class<?> clazz, LifecycleMethods superMethods) {
+			Method postConstruct = null;
+			Method preDestroy = null;
+			for (Method method : clazz.getDeclaredMethods()) {
+
+				if (method.isAnnotationPresent(PostConstruct.class)) {
+					if ((postConstruct != null)
+							|| (method.getParameterTypes().length != 0)
+							|| (Modifier.isStatic(method.getModifiers()))
+							|| (method.getExceptionTypes().length > 0)
+							|| (!method.getReturnType().getName()
+							.equals("void"))) {
+						throw new IllegalArgumentException(
+								"Invalid PostConstruct annotation");
+					}
+					postConstruct = method;
+				}
 
-		public AnnotationCacheEntryType getType() {
-			return type;
-		}
-	}
+				if (method.isAnnotationPresent(PreDestroy.class)) {
+					if ((preDestroy != null || method.getParameterTypes().length != 0)
+							|| (Modifier.isStatic(method.getModifiers()))
+							|| (method.getExceptionTypes().length > 0)
+							|| (!method.getReturnType().getName()
+							.equals("void"))) {
+						throw new IllegalArgumentException(
+								"Invalid PreDestroy annotation");
+					}
+					preDestroy = method;
+				}
+			}
+			if (preDestroy == null) {
+				return superMethods;
+			}
 
-	private enum AnnotationCacheEntryType {
-		FIELD, SETTER, POST_CONSTRUCT, PRE_DESTROY
+			preDestroy.setAccessible(true);
+			Method[] methods = Arrays.copyOf(superMethods.preDestroy, superMethods.preDestroy.length + 1);
+			methods[methods.length - 1] = preDestroy;
+			return new LifecycleMethods(methods);
+		}
 	}
 
 }
@@ -0,0 +1,303 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.jsp;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Content-addressed cache of compiled JSP classes shared by all the contexts (and JSP servlets) configured
+ * with the same directory.</p>
+ *
+ * <p>The key is a SHA-256 digest of the class name and the parts calculated by {@link CachingJDTCompiler} - the
+ * content of the JSP and its dependencies and the options used to generate and compile the class. Each entry is
+ * a directory with class files of the JSP (including inner classes) which are copied to the scratch
+ * directory of a context instead of running the Java compiler again.</p>
+ *
+ * <p>The directory is cleared when the cache is first used after (re)start and the number of entries is limited.
+ * When the limit is exceeded, least recently used entries are removed.</p>
+ */
+class JspCompilationCache {
+
+	public static final Logger LOG = LoggerFactory.getLogger(JspCompilationCache.class);
+
+	/** Default maximal number of cached JSP classes (with their inner classes) */
+	static final int DEFAULT_MAX_ENTRIES = 4096;
+
+	private static final Map<String, JspCompilationCache> CACHES = new ConcurrentHashMap<>();
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final Path directory;
+	private final int maxEntries;
+
+	private final AtomicInteger entries = new AtomicInteger();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	JspCompilationCache(Path directory, int maxEntries) {
+		this.directory = directory;
+		this.maxEntries = Math.max(1, maxEntries);
+		this.entries.set(listEntries().size());
+	}
+
+	/**
+	 * Returns a cache for given directory. Entries stored before the cache is first used (for example by previous
+	 * run of the server) are removed.
+	 * @param directory
+	 * @return
+	 */
+	public static JspCompilationCache forDirectory(String directory) {
+		return CACHES.computeIfAbsent(directory, d -> {
+			Path dir = new File(d).toPath();
+			LOG.info("Clearing shared JSP cache in {}", dir);
+			deleteRecursively(dir);
+			return new JspCompilationCache(dir, DEFAULT_MAX_ENTRIES);
+		});
+	}
+
+	/**
+	 * Calculates the key of compiled JSP.
+	 * @param className fully qualified name of JSP servlet (or tag handler) class
+	 * @param parts content digests, options and versions affecting the generated bytecode
+	 * @return
+	 */
+	public String key(String className, String... parts) {
+		MessageDigest digest = sha256();
+		digest.update(className.getBytes(StandardCharsets.UTF_8));
+		for (String part : parts) {
+			digest.update((byte) 0);
+			digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+		}
+		return hex(digest.digest());
+	}
+
+	/**
+	 * Calculates a digest of the content of a JSP or its dependency.
+	 * @param content
+	 * @return
+	 * @throws IOException
+	 */
+	public String digest(InputStream content) throws IOException {
+		MessageDigest digest = sha256();
+		byte[] buffer = new byte[8192];
+		int read;
+		while ((read = content.read(buffer)) > 0) {
+			digest.update(buffer, 0, read);
+		}
+		return hex(digest.digest());
+	}
+
+	/**
+	 * Copies cached class files into the output directory of a context.
+	 * @param key
+	 * @param outputDir
+	 * @return {@code false} if there's no entry for the key
+	 */
+	public boolean restore(String key, File outputDir) {
+		Path entry = entry(key);
+		if (!Files.isDirectory(entry)) {
+			misses.incrementAndGet();
+			return false;
+		}
+		try (Stream<Path> files = Files.list(entry)) {
+			for (Path f : (Iterable<Path>) files::iterator) {
+				Files.copy(f, outputDir.toPath().resolve(f.getFileName().toString()),
+						StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException e) {
+			LOG.warn("Can't restore cached JSP classes from {}: {}", entry, e.getMessage());
+			misses.incrementAndGet();
+			return false;
+		}
+		try {
+			// recently used entries are kept when the number of entries is limited
+			Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+		} catch (IOException e) {
+			LOG.debug("Can't update last modification time of {}: {}", entry, e.getMessage());
+		}
+		LOG.debug("Using cached JSP classes from {} ({} hits, {} misses)", entry, hits.incrementAndGet(), misses.get());
+		return true;
+	}
+
+	/**
+	 * Stores class files of just compiled JSP (or tag file).
+	 * @param key
+	 * @param outputDir
+	 * @param simpleClassName name of the class without package - inner classes are stored as well
+	 */
+	public void store(String key, File outputDir, String simpleClassName) {
+		Path entry = entry(key);
+		if (Files.isDirectory(entry)) {
+			return;
+		}
+		Path tmp = directory.resolve(key + ".tmp-" + UUID.randomUUID());
+		try {
+			Files.createDirectories(tmp);
+			try (Stream<Path> files = Files.list(outputDir.toPath())) {
+				for (Path f : (Iterable<Path>) files::iterator) {
+					String name = f.getFileName().toString();
+					if (name.equals(simpleClassName + ".class")
+							|| (name.startsWith(simpleClassName + "$") && name.endsWith(".class"))) {
+						Files.copy(f, tmp.resolve(name));
+					}
+				}
+			}
+			Files.createDirectories(entry.getParent());
+			try {
+				Files.move(tmp, entry, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmp, entry);
+			}
+			if (entries.incrementAndGet() > maxEntries) {
+				evict();
+			}
+		} catch (FileAlreadyExistsException e) {
+			// stored concurrently by another context
+			delete(tmp);
+		} catch (IOException e) {
+			if (!Files.isDirectory(entry)) {
+				LOG.warn("Can't store compiled JSP classes in {}: {}", entry, e.getMessage());
+			}
+			delete(tmp);
+		}
+	}
+
+	/**
+	 * Removes least recently used entries, so the number of entries drops to 3/4 of the limit.
+	 */
+	synchronized void evict() {
+		List<Path> all = listEntries();
+		if (all.size() <= maxEntries) {
+			entries.set(all.size());
+			return;
+		}
+		int toRemove = all.size() - maxEntries * 3 / 4;
+		all.sort(Comparator.comparing(JspCompilationCache::lastModified));
+		for (Path entry : all.subList(0, toRemove)) {
+			delete(entry);
+		}
+		entries.set(all.size() - toRemove);
+		LOG.debug("Removed {} least recently used entries from shared JSP cache in {}", toRemove, directory);
+	}
+
+	int getEntryCount() {
+		return entries.get();
+	}
+
+	private Path entry(String key) {
+		return directory.resolve(key.substring(0, 2)).resolve(key);
+	}
+
+	private List<Path> listEntries() {
+		List<Path> result = new ArrayList<>();
+		if (!Files.isDirectory(directory)) {
+			return result;
+		}
+		try (Stream<Path> prefixes = Files.list(directory)) {
+			for (Path prefix : (Iterable<Path>) prefixes::iterator) {
+				if (!Files.isDirectory(prefix) || prefix.getFileName().toString().length() != 2) {
+					continue;
+				}
+				try (Stream<Path> keys = Files.list(prefix)) {
+					keys.filter(Files::isDirectory).forEach(result::add);
+				}
+			}
+		} catch (IOException e) {
+			LOG.debug("Can't list entries of {}: {}", directory, e.getMessage());
+		}
+		return result;
+	}
+
+	private static FileTime lastModified(Path path) {
+		try {
+			return Files.getLastModifiedTime(path);
+		} catch (IOException e) {
+			return FileTime.fromMillis(0L);
+		}
+	}
+
+	private static void deleteRecursively(Path dir) {
+		if (!Files.isDirectory(dir)) {
+			return;
+		}
+		try (Stream<Path> files = Files.walk(dir)) {
+			files.sorted(Comparator.reverseOrder()).filter(p -> !p.equals(dir)).forEach(p -> {
+				try {
+					Files.deleteIfExists(p);
+				} catch (IOException e) {
+					LOG.debug("Can't delete {}: {}", p, e.getMessage());
+				}
+			});
+		} catch (IOException e) {
+			LOG.warn("Can't clear shared JSP cache in {}: {}", dir, e.getMessage());
+		}
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e.getMessage(), e);
+		}
+	}
+
+	private static String hex(byte[] hash) {
+		char[] result = new char[hash.length * 2];
+		for (int i = 0; i < hash.length; i++) {
+			result[2 * i] = HEX[(hash[i] >> 4) & 0x0F];
+			result[2 * i + 1] = HEX[hash[i] & 0x0F];
+		}
+		return new String(result);
+	}
+
+	private void delete(Path dir) {
+		if (!Files.exists(dir)) {
+			return;
+		}
+		try (Stream<Path> files = Files.list(dir)) {
+			for (Path f : (Iterable<Path>) files::iterator) {
+				Files.deleteIfExists(f);
+			}
+			Files.deleteIfExists(dir);
+		} catch (IOException e) {
+			LOG.debug("Can't delete {}: {}", dir, e.getMessage());
+		}
+	}
+
+}
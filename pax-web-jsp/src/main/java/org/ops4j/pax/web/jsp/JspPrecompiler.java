@@ -0,0 +1,232 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.jsp;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+
+import org.apache.jasper.JspCompilationContext;
+import org.apache.jasper.Options;
+import org.apache.jasper.compiler.JspRuntimeContext;
+import org.apache.jasper.servlet.JspServletWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Compiles all the JSPs of a context when {@link JspServlet} is initialized, so the first requests don't have
+ * to wait for Jasper.</p>
+ *
+ * <p>JSPs are compiled in parallel into the scratch directory of the context using {@link JspServletWrapper wrappers}
+ * registered in the {@link JspRuntimeContext} of the JSP servlet, so the requests simply load the compiled classes.
+ * Jasper compiles the JSP only if its class is missing or older than the JSP (or its dependencies), so classes
+ * from previous runs are reused when the scratch directory is preserved.</p>
+ */
+class JspPrecompiler {
+
+	public static final Logger LOG = LoggerFactory.getLogger(JspPrecompiler.class);
+
+	private final ServletConfig config;
+	private final Options options;
+	private final JspRuntimeContext rctxt;
+	private final ClassLoader classLoader;
+	private final int threads;
+
+	private final AtomicInteger compiled = new AtomicInteger(0);
+	private final AtomicInteger failed = new AtomicInteger(0);
+	private int total;
+
+	JspPrecompiler(ServletConfig config, Options options, JspRuntimeContext rctxt, ClassLoader classLoader, int threads) {
+		this.config = config;
+		this.options = options;
+		this.rctxt = rctxt;
+		this.classLoader = classLoader;
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Finds all {@code *.jsp} and {@code *.jspx} files of the context and compiles them. Returns when all
+	 * the JSPs are processed. Compilation problems are only logged - Jasper will report them again when
+	 * given JSP is requested.
+	 */
+	public void precompile() {
+		ServletContext context = config.getServletContext();
+		String contextPath = "".equals(context.getContextPath()) ? "/" : context.getContextPath();
+
+		List<String> jsps = findJsps();
+		total = jsps.size();
+		if (jsps.isEmpty()) {
+			LOG.debug("No JSPs to precompile in context {}", contextPath);
+			return;
+		}
+
+		int poolSize = Math.min(threads, jsps.size());
+		LOG.info("Precompiling {} JSPs of context {} using {} threads", jsps.size(), contextPath, poolSize);
+
+		AtomicInteger threadCount = new AtomicInteger(0);
+		ExecutorService pool = Executors.newFixedThreadPool(poolSize, r -> {
+			Thread t = new Thread(r, "paxweb-jsp-precompile-" + threadCount.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+
+		AtomicInteger done = new AtomicInteger(0);
+		int step = Math.max(1, jsps.size() / 10);
+		long start = System.nanoTime();
+
+		List<Future<?>> futures = new ArrayList<>(jsps.size());
+		for (String jsp : jsps) {
+			futures.add(pool.submit(() -> {
+				Boolean result = compile(jsp);
+				if (result == null) {
+					failed.incrementAndGet();
+				} else if (result) {
+					compiled.incrementAndGet();
+				}
+				int count = done.incrementAndGet();
+				if (count % step == 0 && count < jsps.size()) {
+					LOG.info("Precompiled {}/{} JSPs of context {}", count, jsps.size(), contextPath);
+				}
+			}));
+		}
+		pool.shutdown();
+		try {
+			for (Future<?> f : futures) {
+				f.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			pool.shutdownNow();
+			LOG.warn("JSP precompilation of context {} was interrupted", contextPath);
+			return;
+		} catch (Exception e) {
+			LOG.warn("JSP precompilation of context {} failed: {}", contextPath, e.getMessage(), e);
+		}
+
+		LOG.info("Precompiled {} JSPs of context {} in {} ms ({} compiled, {} up to date, {} failed)",
+				jsps.size(), contextPath, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+				getCompiled(), getUpToDate(), getFailed());
+	}
+
+	/**
+	 * Number of JSPs found by last {@link #precompile()}.
+	 * @return
+	 */
+	int getTotal() {
+		return total;
+	}
+
+	/**
+	 * Number of JSPs compiled by last {@link #precompile()}.
+	 * @return
+	 */
+	int getCompiled() {
+		return compiled.get();
+	}
+
+	/**
+	 * Number of JSPs, which failed to compile during last {@link #precompile()}.
+	 * @return
+	 */
+	int getFailed() {
+		return failed.get();
+	}
+
+	/**
+	 * Number of JSPs, which had up to date classes during last {@link #precompile()}.
+	 * @return
+	 */
+	int getUpToDate() {
+		return total - compiled.get() - failed.get();
+	}
+
+	/**
+	 * Compiles single JSP.
+	 * @param jspUri
+	 * @return {@code true} if the JSP was compiled, {@code false} if existing class was up to date and
+	 *         {@code null} if compilation failed
+	 */
+	private Boolean compile(String jspUri) {
+		ClassLoader tccl = Thread.currentThread().getContextClassLoader();
+		long start = System.nanoTime();
+		try {
+			Thread.currentThread().setContextClassLoader(classLoader);
+
+			// each JSP is processed by one thread and there are no requests yet
+			JspServletWrapper wrapper = rctxt.getWrapper(jspUri);
+			if (wrapper == null) {
+				wrapper = new JspServletWrapper(config, options, jspUri, rctxt);
+				rctxt.addWrapper(jspUri, wrapper);
+			}
+
+			JspCompilationContext ctxt = wrapper.getJspEngineContext();
+			File classFile = new File(ctxt.getClassFileName());
+			long lastModified = classFile.lastModified();
+			ctxt.compile();
+			boolean compiled = classFile.lastModified() != lastModified;
+
+			LOG.debug("{} {} in {} ms", compiled ? "Compiled" : "Up to date:", jspUri,
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+			return compiled;
+		} catch (Exception e) {
+			LOG.warn("Problem precompiling {}: {}", jspUri, e.getMessage());
+			return null;
+		} finally {
+			Thread.currentThread().setContextClassLoader(tccl);
+		}
+	}
+
+	/**
+	 * Finds all the JSPs of the context, skipping directories with classes, libraries and tag files.
+	 * @return
+	 */
+	List<String> findJsps() {
+		List<String> jsps = new ArrayList<>();
+		findJsps(config.getServletContext(), "/", jsps, new HashSet<>());
+		return jsps;
+	}
+
+	private void findJsps(ServletContext context, String path, List<String> jsps, Set<String> visited) {
+		if (!visited.add(path)) {
+			return;
+		}
+		Set<String> paths = context.getResourcePaths(path);
+		if (paths == null) {
+			return;
+		}
+		for (String p : paths) {
+			if (p.endsWith("/")) {
+				// classes and libraries are not JSPs, tag files are compiled together with the JSPs using them
+				if (!"/META-INF/".equals(p) && !p.startsWith("/WEB-INF/classes/") && !p.startsWith("/WEB-INF/lib/")
+						&& !p.startsWith("/WEB-INF/tags/") && !p.startsWith("/OSGI-INF/")) {
+					findJsps(context, p, jsps, visited);
+				}
+			} else if (p.endsWith(".jsp") || p.endsWith(".jspx")) {
+				jsps.add(p);
+			}
+		}
+	}
+
+}
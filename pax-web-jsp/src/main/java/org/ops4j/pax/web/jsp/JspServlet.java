@@ -16,19 +16,32 @@
 package org.ops4j.pax.web.jsp;
 
 import java.io.IOException;
+import java.lang.reflect.Field;
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 
+import org.apache.jasper.Options;
+import org.apache.jasper.compiler.JspRuntimeContext;
+import org.ops4j.pax.web.service.PaxWebConfig;
 import org.ops4j.pax.web.service.spi.servlet.OsgiScopedServletContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Pax Web extension of the original {@link org.apache.jasper.servlet.JspServlet} to set proper TCCL, so Jasper
- * can correctly create {@link javax.el.ExpressionFactory}.
+ * can correctly create {@link javax.el.ExpressionFactory}. When {@link PaxWebConfig#PID_CFG_JSP_PRECOMPILE} init
+ * parameter is set, all the JSPs of the context are compiled during {@link #init(ServletConfig)}.
  */
 public class JspServlet extends org.apache.jasper.servlet.JspServlet {
 
+	public static final Logger LOG = LoggerFactory.getLogger(JspServlet.class);
+
+	/** Names of private fields of original {@link org.apache.jasper.servlet.JspServlet} used for precompilation */
+	static final String OPTIONS_FIELD = "options";
+	static final String RUNTIME_CONTEXT_FIELD = "rctxt";
+
 	private ClassLoader cl;
 
 	@Override
@@ -45,11 +58,55 @@ public class JspServlet extends org.apache.jasper.servlet.JspServlet {
 		try {
 			Thread.currentThread().setContextClassLoader(cl);
 			super.init(config);
+			// servlets with jspFile have only one JSP, which is already compiled by Jasper in init()
+			if ("true".equalsIgnoreCase(config.getInitParameter(PaxWebConfig.PID_CFG_JSP_PRECOMPILE))
+					&& config.getInitParameter("jspFile") == null) {
+				precompile(config);
+			}
 		} finally {
 			Thread.currentThread().setContextClassLoader(tccl);
 		}
 	}
 
+	private void precompile(ServletConfig config) {
+		Options options;
+		JspRuntimeContext rctxt;
+		try {
+			// Jasper doesn't expose these, but precompiled JSPs have to be known to JSP servlet's runtime context
+			options = jasperField(OPTIONS_FIELD, Options.class);
+			rctxt = jasperField(RUNTIME_CONTEXT_FIELD, JspRuntimeContext.class);
+		} catch (Exception e) {
+			LOG.warn("Can't access Jasper runtime context, JSPs won't be precompiled: {}", e.getMessage());
+			return;
+		}
+
+		int threads = Runtime.getRuntime().availableProcessors();
+		String threadsParam = config.getInitParameter(PaxWebConfig.PID_CFG_JSP_PRECOMPILE_THREADS);
+		if (threadsParam != null) {
+			try {
+				threads = Integer.parseInt(threadsParam);
+			} catch (NumberFormatException e) {
+				LOG.warn("Invalid value of {}: {}", PaxWebConfig.PID_CFG_JSP_PRECOMPILE_THREADS, threadsParam);
+			}
+		}
+
+		new JspPrecompiler(config, options, rctxt, cl, threads).precompile();
+	}
+
+	/**
+	 * Gets a value of private field of original {@link org.apache.jasper.servlet.JspServlet}.
+	 * @param name
+	 * @param type
+	 * @param <T>
+	 * @return
+	 * @throws ReflectiveOperationException
+	 */
+	<T> T jasperField(String name, Class<T> type) throws ReflectiveOperationException {
+		Field field = org.apache.jasper.servlet.JspServlet.class.getDeclaredField(name);
+		field.setAccessible(true);
+		return type.cast(field.get(this));
+	}
+
 	@Override
 	public void service(ServletRequest req, ServletResponse res) throws ServletException, IOException {
 		ClassLoader tccl = Thread.currentThread().getContextClassLoader();
@@ -25,10 +25,15 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
 import javax.servlet.ServletContext;
 
 import org.apache.jasper.servlet.TldScanner;
+import org.apache.tomcat.util.descriptor.tld.TaglibXml;
+import org.apache.tomcat.util.descriptor.tld.TldParser;
 import org.apache.tomcat.util.descriptor.tld.TldResourcePath;
+import org.ops4j.pax.web.service.spi.util.DescriptorCache;
 import org.ops4j.pax.web.service.spi.util.Utils;
 import org.ops4j.pax.web.utils.ClassPathUtil;
 import org.osgi.framework.Bundle;
@@ -38,7 +43,10 @@ import org.slf4j.LoggerFactory;
 import org.xml.sax.SAXException;
 
 /**
- * Version of {@link TldScanner} that know a bit more about OSGi.
+ * <p>Version of {@link TldScanner} that know a bit more about OSGi.</p>
+ *
+ * <p>TLDs found in bundles are parsed once and shared (through {@link DescriptorCache}) by all the contexts
+ * that can reach given bundle. TLDs missing in the cache are parsed concurrently.</p>
  */
 public class PaxWebTldScanner extends TldScanner {
 
@@ -49,6 +57,9 @@ public class PaxWebTldScanner extends TldScanner {
 
 	private final Set<URL> scanned = new HashSet<>();
 
+	/** Parser for bundle TLDs, configured in the same way as the parser of {@link TldScanner} */
+	private final TldParser tldParser = new TldParser(true, true, true);
+
 	public PaxWebTldScanner(ServletContext context, Bundle bundle) {
 		super(context, true, true, true);
 		this.bundle = bundle;
@@ -126,13 +137,11 @@ public class PaxWebTldScanner extends TldScanner {
 			}
 		}
 
+		List<BundleTld> bundleTlds = new ArrayList<>(tlds.size());
 		for (URL tld : tlds) {
-			try {
-				parseTld(new TldResourcePath(tld, null));
-			} catch (SAXException | IOException e) {
-				LOG.warn("Problem parsing TLD at {}", tld);
-			}
+			bundleTlds.add(new BundleTld(tld, paxWebJsp));
 		}
+		parseBundleTlds(bundleTlds);
 	}
 
 	/**
@@ -140,13 +149,13 @@ public class PaxWebTldScanner extends TldScanner {
 	 * @param bundle
 	 */
 	private void scanBundle(Bundle bundle) throws IOException {
-		List<URL> tldURLs = new ArrayList<>(16);
+		List<BundleTld> tldURLs = new ArrayList<>(16);
 
 		// First: entries from Bundle-ClassPath - we'll scan them separately, because we want to use Bundle.findEntries()
 		// methods, which checks the fragments, but doesn't check classpath at all
 		URL[] urls = ClassPathUtil.getClassPathURLs(bundle);
 		List<URL> jarTLDs = ClassPathUtil.findEntries(bundle, urls, "META-INF", "*.tld", true);
-		tldURLs.addAll(jarTLDs);
+		jarTLDs.forEach(u -> tldURLs.add(new BundleTld(u, bundle)));
 
 		// 2nd: scan the bundle itself and its fragments using org.osgi.framework.wiring.BundleWiring.findEntries() API.
 		// This method doesn't involve classloaders. Just as with WABs, I've decided to treat all reachable bundles
@@ -176,20 +185,91 @@ public class PaxWebTldScanner extends TldScanner {
 				}
 			}
 			List<URL> bundleTLDs = ClassPathUtil.findEntries(Collections.singletonList(b), "META-INF", "*.tld", true, false);
-			tldURLs.addAll(bundleTLDs);
+			bundleTLDs.forEach(u -> tldURLs.add(new BundleTld(u, b)));
 			processedBundles.add(b);
 		}
 
 		// and finally parse all TLDs - the ones from Bundle-ClassPath are parsed first - just as with JavaEE
-		for (URL tld : tldURLs) {
+		parseBundleTlds(tldURLs);
+	}
+
+	/**
+	 * Parses TLDs found in bundles. TLDs not yet cached in {@link DescriptorCache} are first parsed concurrently,
+	 * then all the TLDs are added to this scanner in the original order.
+	 * @param tlds
+	 */
+	private void parseBundleTlds(List<BundleTld> tlds) {
+		List<BundleTld> toParse = new ArrayList<>(tlds.size());
+		for (BundleTld tld : tlds) {
+			if (!scanned.contains(tld.url)) {
+				toParse.add(tld);
+			}
+		}
+
+		int parallelism = Math.min(ForkJoinPool.getCommonPoolParallelism(), toParse.size() / 2);
+		if (parallelism > 1) {
+			// each task uses own TldParser, because it's not thread safe. Results (and failures) are only
+			// cached here, the TLDs are added to this scanner below
+			List<CompletableFuture<Void>> tasks = new ArrayList<>(parallelism);
+			for (int i = 0; i < parallelism; i++) {
+				final int start = i;
+				tasks.add(CompletableFuture.runAsync(() -> {
+					TldParser parser = new TldParser(true, true, true);
+					for (int t = start; t < toParse.size(); t += parallelism) {
+						try {
+							parseCached(toParse.get(t), parser);
+						} catch (SAXException | IOException | RuntimeException ignored) {
+							// will be logged when parsing again in scanner's thread
+						}
+					}
+				}));
+			}
+			tasks.forEach(CompletableFuture::join);
+		}
+
+		for (BundleTld tld : toParse) {
 			try {
-				parseTld(new TldResourcePath(tld, null));
+				TaglibXml taglibXml = parseCached(tld, tldParser);
+				addTld(new TldResourcePath(tld.url, null), taglibXml);
 			} catch (SAXException | IOException e) {
-				LOG.warn("Problem parsing TLD at {}", tld);
+				LOG.warn("Problem parsing TLD at {}", tld.url);
 			}
 		}
 	}
 
+	private TaglibXml parseCached(BundleTld tld, TldParser parser) throws IOException, SAXException {
+		try {
+			return DescriptorCache.getInstance().computeIfAbsent(tld.bundle, "tld:" + tld.url.toExternalForm(), () -> {
+				LOG.info("Parsing TLD {}", tld.url);
+				return parser.parse(new TldResourcePath(tld.url, null));
+			});
+		} catch (IOException | SAXException | RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IOException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Registers parsed TLD in the same way as {@link TldScanner#parseTld(TldResourcePath)} does.
+	 * @param path
+	 * @param tld
+	 */
+	private void addTld(TldResourcePath path, TaglibXml tld) {
+		if (scanned.contains(path.getUrl()) || getTldResourcePathTaglibXmlMap().containsKey(path)) {
+			return;
+		}
+		String uri = tld.getUri();
+		if (uri != null && !getUriTldResourcePathMap().containsKey(uri)) {
+			getUriTldResourcePathMap().put(uri, path);
+		}
+		getTldResourcePathTaglibXmlMap().put(path, tld);
+		if (tld.getListeners() != null) {
+			getListeners().addAll(tld.getListeners());
+		}
+		scanned.add(path.getUrl());
+	}
+
 	@Override
 	protected void parseTld(TldResourcePath path) throws IOException, SAXException {
 		// super.parseTld() also check org.apache.jasper.servlet.TldScanner.tldResourcePathTaglibXmlMap, but
@@ -202,4 +282,17 @@ public class PaxWebTldScanner extends TldScanner {
 		scanned.add(path.getUrl());
 	}
 
+	/**
+	 * A TLD found in a {@link Bundle}
+	 */
+	private static final class BundleTld {
+		private final URL url;
+		private final Bundle bundle;
+
+		BundleTld(URL url, Bundle bundle) {
+			this.url = url;
+			this.bundle = bundle;
+		}
+	}
+
 }
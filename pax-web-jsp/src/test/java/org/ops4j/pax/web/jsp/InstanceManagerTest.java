@@ -0,0 +1,75 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.jsp;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class InstanceManagerTest {
+
+	private static final List<String> CALLS = new ArrayList<>();
+
+	@Test
+	public void preDestroyFromSuperclass() throws Exception {
+		InstanceManager manager = new InstanceManager();
+		CALLS.clear();
+
+		Object tag = manager.newInstance(Tag.class.getName(), getClass().getClassLoader());
+		manager.destroyInstance(tag);
+		manager.destroyInstance(manager.newInstance(Tag.class.getName(), getClass().getClassLoader()));
+		assertThat(CALLS.toString(), equalTo("[base, tag, base, tag]"));
+
+		CALLS.clear();
+		manager.destroyInstance(manager.newInstance(Plain.class.getName(), getClass().getClassLoader()));
+		assertThat(CALLS.size(), equalTo(0));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidPostConstruct() throws Exception {
+		new InstanceManager().newInstance(Invalid.class.getName(), getClass().getClassLoader());
+	}
+
+	public static class BaseTag {
+		@PreDestroy
+		private void release() {
+			CALLS.add("base");
+		}
+	}
+
+	public static class Tag extends BaseTag {
+		@PreDestroy
+		public void destroy() {
+			CALLS.add("tag");
+		}
+	}
+
+	public static class Plain {
+	}
+
+	public static class Invalid {
+		@PostConstruct
+		public void init(String arg) {
+		}
+	}
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.jsp;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JspCompilationCacheTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void keys() throws Exception {
+		JspCompilationCache cache = new JspCompilationCache(tmp.newFolder("cache").toPath(), 10);
+		String jsp = digest(cache, "<%= 42 %>");
+		String key = cache.key("org.apache.jsp.index_jsp", jsp, "1.8", "1.8");
+
+		assertThat(jsp.length(), equalTo(64));
+		assertThat(digest(cache, "<%= 42 %>"), equalTo(jsp));
+		assertThat(key.length(), equalTo(64));
+		assertThat(cache.key("org.apache.jsp.index_jsp", jsp, "1.8", "1.8"), equalTo(key));
+		assertThat(cache.key("org.apache.jsp.index_jsp", jsp, "11", "11"), not(equalTo(key)));
+		assertThat(cache.key("org.apache.jsp.other_jsp", jsp, "1.8", "1.8"), not(equalTo(key)));
+		assertThat(cache.key("org.apache.jsp.index_jsp", digest(cache, "<%= 43 %>"), "1.8", "1.8"),
+				not(equalTo(key)));
+	}
+
+	@Test
+	public void storeAndRestore() throws Exception {
+		JspCompilationCache cache = new JspCompilationCache(tmp.newFolder("cache").toPath(), 10);
+		File context1 = tmp.newFolder("context1");
+		File context2 = tmp.newFolder("context2");
+		write(new File(context1, "index_jsp.class"), "main");
+		write(new File(context1, "index_jsp$Helper.class"), "inner");
+		write(new File(context1, "index_jsp.java"), "source");
+		write(new File(context1, "other_jsp.class"), "other");
+
+		String key = cache.key("org.apache.jsp.index_jsp", digest(cache, "source"));
+		assertFalse(cache.restore(key, context2));
+
+		cache.store(key, context1, "index_jsp");
+		// second store of the same key is ignored
+		cache.store(key, context1, "index_jsp");
+
+		assertTrue(cache.restore(key, context2));
+		assertThat(read(new File(context2, "index_jsp.class")), equalTo("main"));
+		assertThat(read(new File(context2, "index_jsp$Helper.class")), equalTo("inner"));
+		assertFalse(new File(context2, "index_jsp.java").exists());
+		assertFalse(new File(context2, "other_jsp.class").exists());
+	}
+
+	@Test
+	public void leastRecentlyUsedEntriesAreEvicted() throws Exception {
+		JspCompilationCache cache = new JspCompilationCache(tmp.newFolder("cache").toPath(), 4);
+		File context1 = tmp.newFolder("context1");
+		File context2 = tmp.newFolder("context2");
+		write(new File(context1, "index_jsp.class"), "main");
+
+		String[] keys = new String[4];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = cache.key("org.apache.jsp.index_jsp", Integer.toString(i));
+			cache.store(keys[i], context1, "index_jsp");
+			// entries are ordered by their modification time
+			Files.setLastModifiedTime(new File(tmp.getRoot(), "cache/" + keys[i].substring(0, 2) + "/" + keys[i]).toPath(),
+					FileTime.fromMillis(1000L * (i + 1)));
+		}
+		assertThat(cache.getEntryCount(), equalTo(4));
+
+		// the first entry becomes the most recently used one
+		assertTrue(cache.restore(keys[0], context2));
+
+		// limit is exceeded, so the cache is reduced to 3 entries
+		cache.store(cache.key("org.apache.jsp.index_jsp", "4"), context1, "index_jsp");
+		assertThat(cache.getEntryCount(), equalTo(3));
+		assertTrue(cache.restore(keys[0], context2));
+		assertFalse(cache.restore(keys[1], context2));
+		assertFalse(cache.restore(keys[2], context2));
+		assertTrue(cache.restore(keys[3], context2));
+	}
+
+	@Test
+	public void cacheIsClearedWhenFirstUsed() throws Exception {
+		File dir = tmp.newFolder("shared");
+		File stale = new File(dir, "ab/abcd");
+		assertTrue(stale.mkdirs());
+		write(new File(stale, "index_jsp.class"), "stale");
+
+		JspCompilationCache cache = JspCompilationCache.forDirectory(dir.getAbsolutePath());
+		assertFalse(stale.exists());
+		assertTrue(dir.isDirectory());
+		assertThat(cache.getEntryCount(), equalTo(0));
+	}
+
+	private String digest(JspCompilationCache cache, String content) throws Exception {
+		return cache.digest(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private void write(File file, String content) throws Exception {
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private String read(File file) throws Exception {
+		return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+	}
+
+}
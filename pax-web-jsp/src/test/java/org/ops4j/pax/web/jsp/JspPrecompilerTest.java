@@ -0,0 +1,182 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.jsp;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.servlet.ServletContext;
+import javax.servlet.descriptor.JspConfigDescriptor;
+import javax.servlet.jsp.JspFactory;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.jasper.Options;
+import org.apache.jasper.compiler.JspRuntimeContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.ops4j.pax.web.service.PaxWebConfig;
+import org.ops4j.pax.web.service.PaxWebConstants;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.wiring.BundleWiring;
+import org.springframework.core.io.FileSystemResourceLoader;
+import org.springframework.mock.web.MockServletConfig;
+import org.springframework.mock.web.MockServletContext;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class JspPrecompilerTest {
+
+	private static File webDir;
+
+	private File scratchDir;
+	private ServletContext context;
+	private JspServlet jspServlet;
+
+	@BeforeClass
+	public static void initStaticDirectly() throws Exception {
+		JspFactory.setDefaultFactory(new org.apache.jasper.runtime.JspFactoryImpl());
+
+		// copy of the webapp, so timestamps of JSPs can be changed
+		webDir = new File("target", "precompile-web");
+		FileUtils.deleteDirectory(webDir);
+		FileUtils.copyDirectory(new File("src/test/resources/precompile"), webDir);
+	}
+
+	@Before
+	public void init() throws Exception {
+		scratchDir = new File("target", "jsp-precompile");
+		FileUtils.deleteDirectory(scratchDir);
+		scratchDir.mkdirs();
+
+		MockServletContext context = new MockServletContext(webDir.getPath(), new FileSystemResourceLoader()) {
+			@Override
+			public JspConfigDescriptor getJspConfigDescriptor() {
+				return null;
+			}
+		};
+
+		Bundle bundle = mock(Bundle.class);
+		BundleContext bc = mock(BundleContext.class);
+		BundleWiring bw = mock(BundleWiring.class);
+		when(bc.getBundle()).thenReturn(bundle);
+		when(bundle.getBundleContext()).thenReturn(bc);
+		when(bundle.adapt(BundleWiring.class)).thenReturn(bw);
+		context.setAttribute(PaxWebConstants.CONTEXT_PARAM_BUNDLE_CONTEXT, bc);
+
+		new JasperInitializer().onStartup(null, context);
+		this.context = context;
+	}
+
+	@After
+	public void cleanup() {
+		if (jspServlet != null) {
+			jspServlet.destroy();
+		}
+	}
+
+	@Test
+	public void jasperFieldsUsedForPrecompilationExist() throws Exception {
+		jspServlet = jspServlet(false);
+
+		// if these fail, Jasper's org.apache.jasper.servlet.JspServlet was changed and JspServlet.precompile()
+		// has to be adjusted
+		assertThat(jspServlet.jasperField(JspServlet.OPTIONS_FIELD, Options.class), notNullValue());
+		assertThat(jspServlet.jasperField(JspServlet.RUNTIME_CONTEXT_FIELD, JspRuntimeContext.class), notNullValue());
+	}
+
+	@Test
+	public void jspsAreFoundOutsideOfClassesLibrariesAndTags() throws Exception {
+		jspServlet = jspServlet(false);
+
+		Set<String> jsps = new TreeSet<>(precompiler(jspServlet).findJsps());
+		assertThat(jsps, equalTo(new TreeSet<>(Arrays.asList(
+				"/broken.jsp", "/index.jsp", "/sub/page.jspx", "/WEB-INF/jsp/hidden.jsp"))));
+	}
+
+	@Test
+	public void onlyMissingAndOutdatedClassesAreCompiled() throws Exception {
+		jspServlet = jspServlet(false);
+		JspPrecompiler precompiler = precompiler(jspServlet);
+		precompiler.precompile();
+		assertThat(precompiler.getTotal(), equalTo(4));
+		assertThat(precompiler.getCompiled(), equalTo(3));
+		assertThat(precompiler.getUpToDate(), equalTo(0));
+		assertThat(precompiler.getFailed(), equalTo(1));
+		assertTrue(new File(scratchDir, "org/apache/jsp/index_jsp.class").isFile());
+		assertTrue(new File(scratchDir, "org/apache/jsp/sub/page_jspx.class").isFile());
+		assertTrue(new File(scratchDir, "org/apache/jsp/WEB_002dINF/jsp/hidden_jsp.class").isFile());
+
+		// new servlet (with new runtime context) using the same scratch directory
+		jspServlet.destroy();
+		jspServlet = jspServlet(false);
+		precompiler = precompiler(jspServlet);
+		precompiler.precompile();
+		assertThat(precompiler.getCompiled(), equalTo(0));
+		assertThat(precompiler.getUpToDate(), equalTo(3));
+		assertThat(precompiler.getFailed(), equalTo(1));
+
+		File index = new File(webDir, "index.jsp");
+		assertTrue(index.setLastModified(index.lastModified() + 10_000L));
+
+		jspServlet.destroy();
+		jspServlet = jspServlet(false);
+		precompiler = precompiler(jspServlet);
+		precompiler.precompile();
+		assertThat(precompiler.getCompiled(), equalTo(1));
+		assertThat(precompiler.getUpToDate(), equalTo(2));
+		assertThat(precompiler.getFailed(), equalTo(1));
+	}
+
+	@Test
+	public void jspServletPrecompilesJspsWhenInitialized() throws Exception {
+		jspServlet = jspServlet(true);
+
+		JspRuntimeContext rctxt = jspServlet.jasperField(JspServlet.RUNTIME_CONTEXT_FIELD, JspRuntimeContext.class);
+		assertThat(rctxt.getJspCount(), equalTo(4));
+		assertThat(rctxt.getWrapper("/index.jsp"), notNullValue());
+		assertTrue(new File(scratchDir, "org/apache/jsp/index_jsp.class").isFile());
+	}
+
+	private JspServlet jspServlet(boolean precompile) throws Exception {
+		MockServletConfig config = new MockServletConfig(context, "jsp");
+		config.addInitParameter("development", "false");
+		config.addInitParameter("scratchdir", scratchDir.getCanonicalPath());
+		if (precompile) {
+			config.addInitParameter(PaxWebConfig.PID_CFG_JSP_PRECOMPILE, "true");
+			config.addInitParameter(PaxWebConfig.PID_CFG_JSP_PRECOMPILE_THREADS, "2");
+		}
+		JspServlet servlet = new JspServlet();
+		servlet.init(config);
+		return servlet;
+	}
+
+	private JspPrecompiler precompiler(JspServlet servlet) throws Exception {
+		return new JspPrecompiler(servlet.getServletConfig(),
+				servlet.jasperField(JspServlet.OPTIONS_FIELD, Options.class),
+				servlet.jasperField(JspServlet.RUNTIME_CONTEXT_FIELD, JspRuntimeContext.class),
+				getClass().getClassLoader(), 2);
+	}
+
+}
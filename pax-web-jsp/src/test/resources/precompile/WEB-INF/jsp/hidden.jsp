@@ -0,0 +1,2 @@
+<%@ page contentType="text/html; charset=UTF-8" %>
+<p id="p1">hidden</p>
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.karaf.commands;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import javax.management.JMX;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import org.apache.karaf.shell.api.action.Command;
+import org.apache.karaf.shell.api.action.Option;
+import org.apache.karaf.shell.api.action.lifecycle.Service;
+import org.apache.karaf.shell.support.table.Col;
+import org.apache.karaf.shell.support.table.ShellTable;
+import org.ops4j.pax.web.service.PaxWebConfig;
+import org.ops4j.pax.web.service.WebContainer;
+import org.ops4j.pax.web.service.spi.metrics.ElementTimingSnapshot;
+import org.ops4j.pax.web.service.spi.metrics.FilterChainTimingMXBean;
+
+@Command(scope = "web", name = "filter-timing", description = "Shows time spent in preprocessors, security checks, filters and servlets of sampled requests.")
+@Service
+public class FilterTimingCommand extends WebCommand {
+
+	@Option(name = "--rate", description = "Changes the sample rate (one of how many requests is timed, 0 pauses the timing).")
+	private Integer rate;
+
+	@Option(name = "--reset", description = "Clears the timing after printing it.")
+	private boolean reset = false;
+
+	@Override
+	public void doExecute(WebContainer container) {
+		FilterChainTimingMXBean timing;
+		try {
+			ObjectName name = new ObjectName(FilterChainTimingMXBean.OBJECT_NAME);
+			MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+			if (!mBeanServer.isRegistered(name)) {
+				System.err.println("Filter chain timing is not enabled. Set "
+						+ PaxWebConfig.PID_CFG_FILTER_CHAIN_TIMING_SAMPLE_RATE + " property to enable it.");
+				return;
+			}
+			timing = JMX.newMXBeanProxy(mBeanServer, name, FilterChainTimingMXBean.class);
+		} catch (MalformedObjectNameException e) {
+			System.err.println("Can't access filter chain timing: " + e.getMessage());
+			return;
+		}
+
+		final ShellTable table = new ShellTable();
+		table.column(new Col("Element"));
+		table.column(new Col("Samples"));
+		table.column(new Col("Mean (us)"));
+		table.column(new Col("p50 (us)"));
+		table.column(new Col("p99 (us)"));
+		table.column(new Col("Max (us)"));
+		table.column(new Col("Self mean (us)"));
+		table.column(new Col("Self p99 (us)"));
+
+		for (Map.Entry<String, ElementTimingSnapshot> e : timing.getStatistics().entrySet()) {
+			ElementTimingSnapshot s = e.getValue();
+			table.addRow().addContent(e.getKey(), s.getSamples(), s.getMeanTime(), s.getTime50(), s.getTime99(),
+					s.getMaxTime(), s.getMeanSelfTime(), s.getSelfTime99());
+		}
+
+		System.out.println("Sample rate: 1/" + timing.getSampleRate() + ", sampled requests: " + timing.getSampledRequests());
+		table.print(System.out, true);
+
+		if (reset) {
+			timing.reset();
+		}
+		if (rate != null) {
+			timing.setSampleRate(rate);
+			System.out.println("Sample rate changed to 1/" + timing.getSampleRate());
+		}
+	}
+
+}
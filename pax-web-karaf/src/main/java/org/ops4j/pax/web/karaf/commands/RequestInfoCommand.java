@@ -0,0 +1,80 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.karaf.commands;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.apache.karaf.shell.api.action.Argument;
+import org.apache.karaf.shell.api.action.Command;
+import org.apache.karaf.shell.api.action.lifecycle.Service;
+import org.apache.karaf.shell.support.table.Col;
+import org.apache.karaf.shell.support.table.ShellTable;
+import org.ops4j.pax.web.service.WebContainer;
+import org.osgi.service.http.runtime.dto.RequestInfoDTO;
+import org.osgi.service.http.runtime.dto.RuntimeDTO;
+import org.osgi.service.http.runtime.dto.ServletContextDTO;
+
+@Command(scope = "web", name = "request-info", description = "Shows which context, servlet and filters handle given request paths.")
+@Service
+public class RequestInfoCommand extends WebCommand {
+
+	@Argument(name = "paths", description = "Request paths (including context path) to resolve", required = true, multiValued = true)
+	private List<String> paths;
+
+	@Override
+	public void doExecute(WebContainer container) {
+		if (runtime == null) {
+			System.err.println("Can't obtain a reference to HttpServiceRuntime.");
+			return;
+		}
+
+		Map<Long, String> contextPaths = new HashMap<>();
+		RuntimeDTO runtimeDTO = runtime.getRuntimeDTO();
+		if (runtimeDTO != null) {
+			for (ServletContextDTO scDTO : runtimeDTO.servletContextDTOs) {
+				contextPaths.put(scDTO.serviceId, scDTO.name + " (" + scDTO.contextPath + ")");
+			}
+		}
+
+		final ShellTable table = new ShellTable();
+		table.column(new Col("Path"));
+		table.column(new Col("Context"));
+		table.column(new Col("Servlet"));
+		table.column(new Col("Filters"));
+
+		for (String path : paths) {
+			RequestInfoDTO info = runtime.calculateRequestInfoDTO(path);
+			String context = contextPaths.getOrDefault(info.servletContextId, "");
+			String target = "";
+			if (info.servletDTO != null) {
+				target = info.servletDTO.name;
+			} else if (info.resourceDTO != null) {
+				target = "resource " + Arrays.toString(info.resourceDTO.patterns);
+			}
+			String filters = info.filterDTOs == null ? "" : Arrays.stream(info.filterDTOs)
+					.map(f -> f.name).collect(Collectors.joining(", "));
+
+			table.addRow().addContent(path, context, target, filters);
+		}
+
+		table.print(System.out, true);
+	}
+
+}
@@ -18,6 +18,7 @@
 package org.ops4j.pax.web.service.internal;
 
 import java.io.File;
+import java.lang.management.ManagementFactory;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Dictionary;
@@ -31,6 +32,8 @@ import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import org.ops4j.pax.swissbox.property.BundleContextPropertyResolver;
 import org.ops4j.pax.web.annotations.PaxWebConfiguration;
@@ -47,11 +50,18 @@ import org.ops4j.pax.web.service.spi.config.ResourceConfiguration;
 import org.ops4j.pax.web.service.spi.config.SecurityConfiguration;
 import org.ops4j.pax.web.service.spi.config.ServerConfiguration;
 import org.ops4j.pax.web.service.spi.config.SessionConfiguration;
+import org.ops4j.pax.web.service.spi.metrics.FilterChainTiming;
+import org.ops4j.pax.web.service.spi.metrics.FilterChainTimingMXBean;
+import org.ops4j.pax.web.service.spi.metrics.RequestMetrics;
+import org.ops4j.pax.web.service.spi.metrics.RequestMetricsMXBean;
 import org.ops4j.pax.web.service.spi.model.ServerModel;
 import org.ops4j.pax.web.service.spi.model.events.ServerEvent;
 import org.ops4j.pax.web.service.spi.model.events.ServerListener;
 import org.ops4j.pax.web.service.spi.model.events.WebApplicationEventListener;
 import org.ops4j.pax.web.service.spi.model.events.WebElementEventListener;
+import org.ops4j.pax.web.service.spi.util.AuthenticationCache;
+import org.ops4j.pax.web.service.spi.util.AuthenticationCacheMXBean;
+import org.ops4j.pax.web.service.spi.util.EventDispatcherMXBean;
 import org.ops4j.pax.web.service.spi.util.NamedThreadFactory;
 import org.ops4j.pax.web.service.spi.util.Utils;
 import org.ops4j.util.property.DictionaryPropertyResolver;
@@ -106,6 +116,12 @@ public class Activator implements BundleActivator, PaxWebManagedService.Configur
 	/** Current {@link ServerController} created using {@link #serverControllerFactory} */
 	private ServerController serverController;
 
+	/**
+	 * Optional wrapper for {@link #serverController} used by {@link HttpServiceEnabled} to merge batches of
+	 * asynchronous registrations.
+	 */
+	private BatchCoalescingServerController batchCoalescingController;
+
 	/**
 	 * {@link WebElementEventDispatcher} bound to lifecycle of this pax-web-runtime bundle, not to configuration
 	 * or {@link ServerControllerFactory}.
@@ -132,6 +148,18 @@ public class Activator implements BundleActivator, PaxWebManagedService.Configur
 	 */
 	private ServiceRegistration<HttpServiceRuntime> httpServiceRuntimeReg;
 
+	/** Name of registered {@link RequestMetricsMXBean} - if request metrics are enabled */
+	private ObjectName requestMetricsName;
+
+	/** Name of registered {@link FilterChainTimingMXBean} - if filter chain timing is enabled */
+	private ObjectName filterChainTimingName;
+
+	/** Name of registered {@link AuthenticationCacheMXBean} - if authentication results are cached */
+	private ObjectName authenticationCacheName;
+
+	/** Name of registered {@link EventDispatcherMXBean} for {@link #webElementEventDispatcher} */
+	private ObjectName webElementEventDispatcherName;
+
 	/** Registration of {@code org.osgi.service.cm.ManagedService} for {@code org.ops4j.pax.web} PID. */
 	private ServiceRegistration<?> managedServiceReg;
 
@@ -216,6 +244,11 @@ public class Activator implements BundleActivator, PaxWebManagedService.Configur
 		if (serverModel != null) {
 			serverModel.setStopping();
 		}
+		if (batchCoalescingController != null) {
+			// the server is going to be released anyway
+			batchCoalescingController.close();
+			batchCoalescingController = null;
+		}
 
 		if (serverControllerFactory != null && serverController != null) {
 			serverControllerFactory.releaseServerController(serverController, serverController.getConfiguration());
@@ -243,6 +276,10 @@ public class Activator implements BundleActivator, PaxWebManagedService.Configur
 			eventServiceTracker.close();
 			eventServiceTracker = null;
 		}
+		if (webElementEventDispatcherName != null) {
+			unregisterMBean(webElementEventDispatcherName);
+			webElementEventDispatcherName = null;
+		}
 		if (webElementEventDispatcher != null) {
 			webElementEventDispatcher.destroy();
 			webElementEventDispatcher = null;
@@ -420,6 +457,11 @@ public class Activator implements BundleActivator, PaxWebManagedService.Configur
 //			managedServiceFactoryReg.unregister();
 //			managedServiceFactoryReg = null;
 //		}
+		if (batchCoalescingController != null) {
+			// pass remaining changes (for example after unregistration of HttpServices) to the server
+			batchCoalescingController.flush();
+			batchCoalescingController = null;
+		}
 		if (serverController != null) {
 			LOG.info("Stopping current server controller {}", serverController);
 			try {
@@ -536,6 +578,8 @@ public class Activator implements BundleActivator, PaxWebManagedService.Configur
 			final Configuration configuration = ConfigurationBuilder.getConfiguration(resolver, allProperties);
 
 			webElementEventDispatcher = new WebElementEventDispatcher(bundleContext, configuration);
+			webElementEventDispatcherName = registerMBean(webElementEventDispatcher,
+					EventDispatcherMXBean.WEB_ELEMENTS_OBJECT_NAME);
 
 			// global, single representation of web server state. It's used
 			//  - in all bundle-scoped instances of HttpServiceEnabled
@@ -554,10 +598,20 @@ public class Activator implements BundleActivator, PaxWebManagedService.Configur
 			LOG.info("Starting server controller {}", serverController.getClass().getName());
 			serverController.start();
 
+			// batches of asynchronous (Whiteboard) registrations may be merged before passing them to the server
+			ServerController batchController = serverController;
+			long quietPeriod = configuration.server().getBatchCoalescingQuietPeriod();
+			if (quietPeriod > 0L) {
+				LOG.info("Coalescing registration batches with {}ms quiet period", quietPeriod);
+				batchCoalescingController = new BatchCoalescingServerController(serverController, runtimeExecutor,
+						quietPeriod, configuration.server().getBatchCoalescingMaxBatches());
+				batchController = batchCoalescingController;
+			}
+
 			// this is where org.osgi.service.http.HttpService bundle-scoped service is registered in OSGi
 			// this is the most fundamental operation related to Http Service specification
 			Dictionary<String, Object> props = determineServiceProperties(configuration);
-			ServiceFactory<StoppableHttpService> factory = new StoppableHttpServiceFactory(serverController, serverModel,
+			ServiceFactory<StoppableHttpService> factory = new StoppableHttpServiceFactory(batchController, serverModel,
 					webElementEventDispatcher) {
 				@Override
 				StoppableHttpService createService(Bundle bundle, ServerController serverController,
@@ -588,6 +642,21 @@ public class Activator implements BundleActivator, PaxWebManagedService.Configur
 			// SERVICE_CHANGECOUNT is 1.9 OSGi Core addition, so use literal please
 //			props.put(Constants.SERVICE_CHANGECOUNT, 0L);
 			props.put("service.changecount", 0L);
+			RequestMetrics requestMetrics = serverController.getRequestMetrics();
+			if (requestMetrics != null) {
+				requestMetricsName = registerMBean(requestMetrics, RequestMetricsMXBean.OBJECT_NAME);
+				if (requestMetricsName != null) {
+					props.put(RequestMetrics.PROPERTY_OBJECT_NAME, requestMetricsName.toString());
+				}
+			}
+			FilterChainTiming filterChainTiming = serverController.getFilterChainTiming();
+			if (filterChainTiming != null) {
+				filterChainTimingName = registerMBean(filterChainTiming, FilterChainTimingMXBean.OBJECT_NAME);
+			}
+			AuthenticationCache<?> authenticationCache = serverController.getAuthenticationCache();
+			if (authenticationCache != null) {
+				authenticationCacheName = registerMBean(authenticationCache, AuthenticationCacheMXBean.OBJECT_NAME);
+			}
 			httpServiceRuntimeReg = bundleContext.registerService(HttpServiceRuntime.class, serverModel, props);
 
 			// "template" ServiceReferenceDTO for HttpServiceRuntime, however it has to be updated:
@@ -601,10 +670,14 @@ public class Activator implements BundleActivator, PaxWebManagedService.Configur
 			httpServiceRuntimeDTO.properties.put(HttpServiceRuntimeConstants.HTTP_SERVICE_ENDPOINT, "/");
 			httpServiceRuntimeDTO.properties.put(HttpServiceRuntimeConstants.HTTP_SERVICE_ID, Collections.singletonList(httpServiceId));
 			httpServiceRuntimeDTO.properties.put("service.changecount", 0L);
+			if (requestMetricsName != null) {
+				httpServiceRuntimeDTO.properties.put(RequestMetrics.PROPERTY_OBJECT_NAME, requestMetricsName.toString());
+			}
 			// initially "usingBundles" is empty and we'll be setting it on every
 			httpServiceRuntimeDTO.usingBundles = new long[0];
 			// we'll set the template into ServerModel, so it's available from there, when creating full RuntimeDTO
 			serverModel.setHttpServiceRuntimeInformation(httpServiceRuntimeReg, httpServiceRuntimeDTO);
+			serverModel.setRequestMetrics(requestMetrics);
 
 			// added listener is immediately called with the current state
 			serverController.addListener(new AddressConfiguration());
@@ -645,6 +718,54 @@ public class Activator implements BundleActivator, PaxWebManagedService.Configur
 			managedServiceFactoryReg.unregister();
 			managedServiceFactoryReg = null;
 		}
+		if (requestMetricsName != null) {
+			unregisterMBean(requestMetricsName);
+			requestMetricsName = null;
+		}
+		if (filterChainTimingName != null) {
+			unregisterMBean(filterChainTimingName);
+			filterChainTimingName = null;
+		}
+		if (authenticationCacheName != null) {
+			unregisterMBean(authenticationCacheName);
+			authenticationCacheName = null;
+		}
+	}
+
+	/**
+	 * Registers an MXBean ({@link RequestMetricsMXBean}, {@link FilterChainTimingMXBean},
+	 * {@link AuthenticationCacheMXBean} or {@link EventDispatcherMXBean}) in platform {@link MBeanServer}. Failure
+	 * to do so is not fatal - request metrics are still available through {@link HttpServiceRuntime}'s
+	 * {@link org.osgi.service.http.runtime.dto.RuntimeDTO}.
+	 * @param mBean
+	 * @param objectName
+	 * @return the name of registered MBean or {@code null} if it can't be registered
+	 */
+	private ObjectName registerMBean(Object mBean, String objectName) {
+		try {
+			ObjectName name = new ObjectName(objectName);
+			MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+			if (mBeanServer.isRegistered(name)) {
+				mBeanServer.unregisterMBean(name);
+			}
+			mBeanServer.registerMBean(mBean, name);
+			LOG.info("Registered MBean {}", name);
+			return name;
+		} catch (Exception e) {
+			LOG.warn("Can't register MBean {}: {}", objectName, e.getMessage(), e);
+			return null;
+		}
+	}
+
+	private void unregisterMBean(ObjectName name) {
+		try {
+			MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+			if (mBeanServer.isRegistered(name)) {
+				mBeanServer.unregisterMBean(name);
+			}
+		} catch (Exception e) {
+			LOG.warn("Problem unregistering {}: {}", name, e.getMessage());
+		}
 	}
 
 	/**
@@ -677,7 +798,13 @@ public class Activator implements BundleActivator, PaxWebManagedService.Configur
 		setProperty(properties, PaxWebConfig.PID_CFG_SERVER_MIN_THREADS, sc.getServerMinThreads());
 		setProperty(properties, PaxWebConfig.PID_CFG_SERVER_THREAD_NAME_PREFIX, sc.getServerThreadNamePrefix());
 		setProperty(properties, PaxWebConfig.PID_CFG_SHOW_STACKS, sc.isShowStacks());
+		setProperty(properties, PaxWebConfig.PID_CFG_REQUEST_METRICS, sc.isRequestMetricsEnabled());
+		setProperty(properties, PaxWebConfig.PID_CFG_FILTER_CHAIN_TIMING_SAMPLE_RATE, sc.getFilterChainTimingSampleRate());
 		setProperty(properties, PaxWebConfig.PID_CFG_EVENT_DISPATCHER_THREAD_COUNT, sc.getEventDispatcherThreadCount());
+		setProperty(properties, PaxWebConfig.PID_CFG_EVENT_DISPATCHER_QUEUE_SIZE, sc.getEventDispatcherQueueSize());
+		setProperty(properties, PaxWebConfig.PID_CFG_EVENT_DISPATCHER_OVERFLOW_POLICY, sc.getEventDispatcherOverflowPolicy());
+		setProperty(properties, PaxWebConfig.PID_CFG_BATCH_COALESCING_QUIET_PERIOD, sc.getBatchCoalescingQuietPeriod());
+		setProperty(properties, PaxWebConfig.PID_CFG_BATCH_COALESCING_MAX_BATCHES, sc.getBatchCoalescingMaxBatches());
 		setProperty(properties, PaxWebConfig.PID_CFG_HTTP_CHECK_FORWARDED_HEADERS, sc.checkForwardedHeaders());
 		setProperty(properties, PaxWebConfig.PID_CFG_TEMP_DIR, sc.getTemporaryDirectory());
 		setProperty(properties, PaxWebConfig.PID_CFG_HTTP_CHECK_FORWARDED_HEADERS, sc.checkForwardedHeaders());
@@ -707,6 +834,9 @@ public class Activator implements BundleActivator, PaxWebManagedService.Configur
 		setProperty(properties, PaxWebConfig.PID_CFG_SESSION_URL, sess.getSessionUrlPathParameter());
 		setProperty(properties, PaxWebConfig.PID_CFG_SESSION_WORKER_NAME, sess.getSessionWorkerName());
 		setProperty(properties, PaxWebConfig.PID_CFG_SESSION_STORE_DIRECTORY, sess.getSessionStoreDirectoryLocation());
+		setProperty(properties, PaxWebConfig.PID_CFG_SESSION_STORE_FLUSH_INTERVAL, sess.getSessionStoreFlushInterval());
+		setProperty(properties, PaxWebConfig.PID_CFG_SESSION_ATTRIBUTE_STORAGE, sess.getSessionAttributeStorage());
+		setProperty(properties, PaxWebConfig.PID_CFG_SESSION_ATTRIBUTE_STORAGE_MAX_SIZE, sess.getSessionAttributeStorageMaxSize());
 
 		ResourceConfiguration res = configuration.resources();
 //		setProperty(toPropagate, PaxWebConfig.PID_CFG_DEFAULT_SERVLET_ACCEPT_RANGES, res.acceptRanges());
@@ -716,9 +846,18 @@ public class Activator implements BundleActivator, PaxWebManagedService.Configur
 //		setProperty(toPropagate, PaxWebConfig.PID_CFG_DEFAULT_SERVLET_CACHE_MAX_ENTRY_SIZE, res.maxCacheEntrySize());
 //		setProperty(toPropagate, PaxWebConfig.PID_CFG_DEFAULT_SERVLET_CACHE_MAX_ENTRIES, res.maxTotalCacheSize());
 //		setProperty(toPropagate, PaxWebConfig.PID_CFG_DEFAULT_SERVLET_CACHE_TTL, res.maxCacheTTL());
+//		setProperty(toPropagate, PaxWebConfig.PID_CFG_DEFAULT_SERVLET_CACHE_OFF_HEAP, res.cacheOffHeap());
+//		setProperty(toPropagate, PaxWebConfig.PID_CFG_DEFAULT_SERVLET_PRECOMPRESSED, res.precompressed());
+//		setProperty(toPropagate, PaxWebConfig.PID_CFG_DEFAULT_SERVLET_COMPRESSION, res.compression());
+//		setProperty(toPropagate, PaxWebConfig.PID_CFG_DEFAULT_SERVLET_COMPRESSION_CACHE_SIZE, res.compressionCacheSize());
+//		setProperty(toPropagate, PaxWebConfig.PID_CFG_DEFAULT_SERVLET_COMPRESSION_MIME_TYPES, res.compressionMimeTypes());
+//		setProperty(toPropagate, PaxWebConfig.PID_CFG_DEFAULT_SERVLET_COMPRESSION_MIN_LENGTH, res.compressionMinLength());
 
 		JspConfiguration jsp = configuration.jsp();
 		setProperty(properties, PaxWebConfig.PID_CFG_JSP_SCRATCH_DIR, jsp.getGloablJspScratchDir());
+		setProperty(properties, PaxWebConfig.PID_CFG_JSP_PRECOMPILE, jsp.isJspPrecompile());
+		setProperty(properties, PaxWebConfig.PID_CFG_JSP_PRECOMPILE_THREADS, jsp.getJspPrecompileThreads());
+		setProperty(properties, PaxWebConfig.PID_CFG_JSP_SHARED_CACHE, jsp.getJspSharedCacheDir() != null);
 
 		SecurityConfiguration sec = configuration.security();
 		setProperty(properties, PaxWebConfig.PID_CFG_SSL_PROVIDER, sec.getSslProvider());
@@ -757,6 +896,8 @@ public class Activator implements BundleActivator, PaxWebManagedService.Configur
 		setProperty(properties, PaxWebConfig.PID_CFG_DIGESTAUTH_MAX_NONCE_AGE, sec.getDigestAuthMaxNonceAge());
 		setProperty(properties, PaxWebConfig.PID_CFG_DIGESTAUTH_MAX_NONCE_COUNT, sec.getDigestAuthMaxNonceCount());
 		setProperty(properties, PaxWebConfig.PID_CFG_FORMAUTH_REDIRECT, sec.getFormAuthRedirect());
+		setProperty(properties, PaxWebConfig.PID_CFG_AUTH_CACHE_TTL, sec.getAuthenticationCacheTtl());
+		setProperty(properties, PaxWebConfig.PID_CFG_AUTH_CACHE_MAX_SIZE, sec.getAuthenticationCacheMaxSize());
 
 		setProperty(properties, PaxWebConfig.PID_CFG_ENC_ENABLED, sec.isEncEnabled());
 		setProperty(properties, PaxWebConfig.PID_CFG_ENC_MASTERPASSWORD, "********"/*sec.getEncMasterPassword()*/);
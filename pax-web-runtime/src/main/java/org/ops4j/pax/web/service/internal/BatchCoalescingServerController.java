@@ -0,0 +1,438 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.internal;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.Servlet;
+
+import org.ops4j.pax.web.service.spi.ServerController;
+import org.ops4j.pax.web.service.spi.ServerState;
+import org.ops4j.pax.web.service.spi.config.Configuration;
+import org.ops4j.pax.web.service.spi.metrics.FilterChainTiming;
+import org.ops4j.pax.web.service.spi.metrics.RequestMetrics;
+import org.ops4j.pax.web.service.spi.model.OsgiContextModel;
+import org.ops4j.pax.web.service.spi.model.elements.ElementModel;
+import org.ops4j.pax.web.service.spi.model.elements.ErrorPageModel;
+import org.ops4j.pax.web.service.spi.model.elements.FilterModel;
+import org.ops4j.pax.web.service.spi.model.events.ServerListener;
+import org.ops4j.pax.web.service.spi.task.Batch;
+import org.ops4j.pax.web.service.spi.task.BatchVisitor;
+import org.ops4j.pax.web.service.spi.task.Change;
+import org.ops4j.pax.web.service.spi.task.ClearDynamicRegistrationsChange;
+import org.ops4j.pax.web.service.spi.task.ErrorPageModelChange;
+import org.ops4j.pax.web.service.spi.task.ErrorPageStateChange;
+import org.ops4j.pax.web.service.spi.task.EventListenerModelChange;
+import org.ops4j.pax.web.service.spi.task.FilterModelChange;
+import org.ops4j.pax.web.service.spi.task.FilterStateChange;
+import org.ops4j.pax.web.service.spi.task.OpCode;
+import org.ops4j.pax.web.service.spi.task.ServletModelChange;
+import org.ops4j.pax.web.service.spi.task.WelcomeFileModelChange;
+import org.osgi.service.http.runtime.dto.DTOConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>{@link ServerController} wrapper that delays and merges {@link Batch batches} related to asynchronous
+ * (Whiteboard) registrations of web elements. Each such registration creates its own {@link Batch} and for example
+ * each filter registration ends with {@link FilterStateChange} containing full set of filters for all affected
+ * contexts. Passing these batches one by one to the actual server means rebuilding the filter chains many times.</p>
+ *
+ * <p>When coalescing, such batches are kept until there are no new batches for configured <em>quiet period</em>
+ * or until configured number of batches is collected. Then the batches are merged into single {@link Batch},
+ * where only the last (full) filter/error page state for each context path is kept.</p>
+ *
+ * <p>Batches that change contexts, are related to dynamic registrations (from
+ * {@link javax.servlet.ServletContainerInitializer SCIs}) or to synchronous Http Service registrations are never
+ * delayed - pending batches are passed to the delegate before such batch, so the order of changes is
+ * always preserved.</p>
+ *
+ * <p>All the batches are sent from single configuration thread, which is also used to perform delayed flush.</p>
+ *
+ * <p>Delayed batches were already confirmed to their callers, so when the delegate fails to process them, the models
+ * added by the failed change are marked as failed (visible in {@link org.osgi.service.http.runtime.dto.RuntimeDTO})
+ * and the changes of merged batch which were not applied yet are passed to the delegate again.</p>
+ */
+public class BatchCoalescingServerController implements ServerController {
+
+	private static final Logger LOG = LoggerFactory.getLogger(BatchCoalescingServerController.class);
+
+	private final ServerController delegate;
+	private final ScheduledExecutorService executor;
+	private final long quietPeriod;
+	private final int maxBatches;
+
+	private final List<Batch> pending = new ArrayList<>();
+	private ScheduledFuture<?> scheduledFlush;
+
+	/** Whether we're currently passing a batch to the delegate - nested batches are never delayed. */
+	private boolean sending = false;
+
+	/**
+	 * Create coalescing controller
+	 *
+	 * @param delegate actual {@link ServerController}
+	 * @param executor single thread executor used for all the registrations
+	 * @param quietPeriod time in milliseconds after last collected batch after which all batches are flushed
+	 * @param maxBatches number of batches after which the pending batches are flushed immediately
+	 */
+	public BatchCoalescingServerController(ServerController delegate, ScheduledExecutorService executor,
+			long quietPeriod, int maxBatches) {
+		this.delegate = delegate;
+		this.executor = executor;
+		this.quietPeriod = quietPeriod;
+		this.maxBatches = Math.max(1, maxBatches);
+	}
+
+	@Override
+	public ServerState getState() {
+		return delegate.getState();
+	}
+
+	@Override
+	public void configure() throws Exception {
+		delegate.configure();
+	}
+
+	@Override
+	public void start() throws Exception {
+		delegate.start();
+	}
+
+	@Override
+	public void stop() throws Exception {
+		flush();
+		delegate.stop();
+	}
+
+	@Override
+	public Configuration getConfiguration() {
+		return delegate.getConfiguration();
+	}
+
+	@Override
+	public void addListener(ServerListener listener) {
+		delegate.addListener(listener);
+	}
+
+	@Override
+	public void removeListener(ServerListener listener) {
+		delegate.removeListener(listener);
+	}
+
+	@Override
+	public synchronized void sendBatch(Batch batch) {
+		if (sending || !isCoalescable(batch)) {
+			// preserve the order of changes
+			flush();
+			send(batch);
+			return;
+		}
+
+		pending.add(batch);
+		if (pending.size() >= maxBatches) {
+			flush();
+			return;
+		}
+
+		if (scheduledFlush != null) {
+			scheduledFlush.cancel(false);
+		}
+		scheduledFlush = executor.schedule(this::flush, quietPeriod, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public Servlet createResourceServlet(URL urlBase, String base) {
+		return delegate.createResourceServlet(urlBase, base);
+	}
+
+	@Override
+	public RequestMetrics getRequestMetrics() {
+		return delegate.getRequestMetrics();
+	}
+
+	@Override
+	public FilterChainTiming getFilterChainTiming() {
+		return delegate.getFilterChainTiming();
+	}
+
+	/**
+	 * Passes all pending batches as single, merged {@link Batch} to the delegate.
+	 */
+	public synchronized void flush() {
+		if (scheduledFlush != null) {
+			scheduledFlush.cancel(false);
+			scheduledFlush = null;
+		}
+		if (pending.isEmpty()) {
+			return;
+		}
+
+		if (pending.size() == 1) {
+			Batch batch = pending.remove(0);
+			try {
+				send(batch);
+			} catch (RuntimeException e) {
+				// there's no caller to pass the exception to - registration was already confirmed
+				LOG.error("Problem processing {}: {}", batch, e.getMessage(), e);
+				failed(batch.getOperations());
+			}
+			return;
+		}
+
+		MergedBatch merged = merge(pending);
+		LOG.debug("Coalesced {} batches into {}", pending.size(), merged);
+		pending.clear();
+
+		while (merged != null) {
+			try {
+				send(merged);
+				merged = null;
+			} catch (RuntimeException e) {
+				// registrations were already confirmed, so the models of the failed change are marked as failed
+				// and the changes not yet applied are passed again, as if they were not coalesced with it
+				List<Change> operations = merged.getOperations();
+				if (!merged.started || merged.applied >= operations.size()) {
+					// failure not related to particular change
+					LOG.error("Problem processing {}: {}", merged, e.getMessage(), e);
+					if (!merged.started) {
+						failed(operations);
+					}
+					return;
+				}
+				Change change = operations.get(merged.applied);
+				LOG.error("Problem processing {} of {}: {}", change, merged, e.getMessage(), e);
+				failed(Collections.singletonList(change));
+				merged = merged.applied + 1 < operations.size()
+						? merged.remaining(operations.subList(merged.applied + 1, operations.size())) : null;
+			}
+		}
+	}
+
+	/**
+	 * Drops all pending batches without passing them to the delegate - used when the delegate is about to be
+	 * released anyway.
+	 */
+	public synchronized void close() {
+		if (scheduledFlush != null) {
+			scheduledFlush.cancel(false);
+			scheduledFlush = null;
+		}
+		if (!pending.isEmpty()) {
+			LOG.debug("Dropping {} pending batches", pending.size());
+			pending.clear();
+		}
+	}
+
+	private void send(Batch batch) {
+		boolean nested = sending;
+		sending = true;
+		try {
+			delegate.sendBatch(batch);
+		} finally {
+			sending = nested;
+		}
+	}
+
+	/**
+	 * Checks whether the batch contains only changes of asynchronously registered, non-dynamic web elements.
+	 *
+	 * @param batch
+	 * @return
+	 */
+	static boolean isCoalescable(Batch batch) {
+		boolean hasElements = false;
+		for (Change change : batch.getOperations()) {
+			if (change instanceof FilterStateChange) {
+				if (((FilterStateChange) change).isDynamic()) {
+					return false;
+				}
+			} else if (change instanceof ErrorPageStateChange || change instanceof ClearDynamicRegistrationsChange) {
+				// snapshots/markers without own elements
+				continue;
+			} else if (change instanceof FilterModelChange) {
+				FilterModelChange fmc = (FilterModelChange) change;
+				if (fmc.isDynamic() || !asynchronous(fmc.getFilterModels())) {
+					return false;
+				}
+				hasElements = true;
+			} else if (change instanceof ServletModelChange) {
+				ServletModelChange smc = (ServletModelChange) change;
+				if (smc.isDynamic() || !asynchronous(smc.getServletModels().keySet())) {
+					return false;
+				}
+				hasElements = true;
+			} else if (change instanceof EventListenerModelChange) {
+				EventListenerModelChange elmc = (EventListenerModelChange) change;
+				if (elmc.isDynamic() || !asynchronous(elmc.getEventListenerModels())) {
+					return false;
+				}
+				hasElements = true;
+			} else if (change instanceof ErrorPageModelChange) {
+				if (!asynchronous(((ErrorPageModelChange) change).getErrorPageModels())) {
+					return false;
+				}
+				hasElements = true;
+			} else if (change instanceof WelcomeFileModelChange) {
+				if (!((WelcomeFileModelChange) change).getWelcomeFileModel().isAsynchronusRegistration()) {
+					return false;
+				}
+				hasElements = true;
+			} else {
+				// contexts, SCIs, web sockets, security, ... - these have to be processed immediately
+				return false;
+			}
+		}
+		return hasElements;
+	}
+
+	private static boolean asynchronous(Collection<? extends ElementModel<?, ?>> models) {
+		for (ElementModel<?, ?> model : models) {
+			if (model != null && !model.isAsynchronusRegistration()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Merges the batches into single one, keeping only the last {@link FilterStateChange} and
+	 * {@link ErrorPageStateChange} for each context path. Other changes are kept in original order.
+	 *
+	 * @param batches
+	 * @return
+	 */
+	static MergedBatch merge(List<Batch> batches) {
+		MergedBatch merged = new MergedBatch("Coalesced " + batches.size() + " batches");
+		merged.setShortDescription("coalesced " + batches.size() + " batches");
+		List<Change> operations = merged.getOperations();
+		for (Batch batch : batches) {
+			operations.addAll(batch.getOperations());
+		}
+
+		// each state change contains full list of filters/error pages for given context path, so going from the
+		// end we can remove context paths already handled by later state changes
+		Set<String> filterContexts = new HashSet<>();
+		Set<String> errorPageContexts = new HashSet<>();
+		for (ListIterator<Change> it = operations.listIterator(operations.size()); it.hasPrevious(); ) {
+			Change change = it.previous();
+			if (change instanceof FilterStateChange) {
+				Map<String, TreeMap<FilterModel, List<OsgiContextModel>>> filters
+						= ((FilterStateChange) change).getContextFilters();
+				Map<String, TreeMap<FilterModel, List<OsgiContextModel>>> remaining = new HashMap<>(filters);
+				remaining.keySet().removeAll(filterContexts);
+				filterContexts.addAll(filters.keySet());
+				if (remaining.isEmpty()) {
+					it.remove();
+				} else if (remaining.size() < filters.size()) {
+					it.set(new FilterStateChange(remaining, false));
+				}
+			} else if (change instanceof ErrorPageStateChange) {
+				Map<String, TreeMap<ErrorPageModel, List<OsgiContextModel>>> errorPages
+						= ((ErrorPageStateChange) change).getContextErrorPages();
+				Map<String, TreeMap<ErrorPageModel, List<OsgiContextModel>>> remaining = new HashMap<>(errorPages);
+				remaining.keySet().removeAll(errorPageContexts);
+				errorPageContexts.addAll(errorPages.keySet());
+				if (remaining.isEmpty()) {
+					it.remove();
+				} else if (remaining.size() < errorPages.size()) {
+					it.set(new ErrorPageStateChange(remaining));
+				}
+			}
+		}
+
+		return merged;
+	}
+
+	/**
+	 * Marks the models added by the changes that failed to be processed by the delegate as failed, so the failure
+	 * is visible in {@link org.osgi.service.http.runtime.dto.RuntimeDTO}.
+	 *
+	 * @param changes
+	 */
+	private static void failed(List<Change> changes) {
+		for (Change change : changes) {
+			if (change.getKind() != OpCode.ADD) {
+				continue;
+			}
+			Collection<? extends ElementModel<?, ?>> models = Collections.emptyList();
+			if (change instanceof FilterModelChange) {
+				models = ((FilterModelChange) change).getFilterModels();
+			} else if (change instanceof ServletModelChange) {
+				models = ((ServletModelChange) change).getServletModels().keySet();
+			} else if (change instanceof EventListenerModelChange) {
+				models = ((EventListenerModelChange) change).getEventListenerModels();
+			} else if (change instanceof ErrorPageModelChange) {
+				models = ((ErrorPageModelChange) change).getErrorPageModels();
+			}
+			for (ElementModel<?, ?> model : models) {
+				if (model != null) {
+					model.setDtoFailureCode(DTOConstants.FAILURE_REASON_UNKNOWN);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Merged {@link Batch} which remembers how many of its changes were applied by the delegate, so after
+	 * a failure, the remaining changes can be passed again.
+	 */
+	static class MergedBatch extends Batch {
+
+		private boolean started;
+		private int applied;
+
+		MergedBatch(String description) {
+			super(description);
+		}
+
+		@Override
+		public void accept(BatchVisitor visitor) {
+			started = true;
+			applied = 0;
+			for (Change op : getOperations()) {
+				op.accept(visitor);
+				applied++;
+			}
+		}
+
+		/**
+		 * Creates new batch with the changes not yet applied.
+		 *
+		 * @param operations
+		 * @return
+		 */
+		MergedBatch remaining(List<Change> operations) {
+			MergedBatch batch = new MergedBatch("Remaining " + operations.size() + " changes of " + this);
+			batch.setShortDescription(getShortDescription());
+			batch.getOperations().addAll(operations);
+			return batch;
+		}
+	}
+
+}
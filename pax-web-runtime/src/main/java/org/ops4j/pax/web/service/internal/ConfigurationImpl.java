@@ -241,6 +241,9 @@ public class ConfigurationImpl extends PropertyStore implements Configuration {
 		private final File externalContextConfiguration;
 
 		private final int eventDispatcherThreadCount;
+		private final int eventDispatcherQueueSize;
+		private final long batchCoalescingQuietPeriod;
+		private final int batchCoalescingMaxBatches;
 
 		private final boolean showStacks;
 
@@ -317,6 +320,12 @@ public class ConfigurationImpl extends PropertyStore implements Configuration {
 			}
 			Integer eventDispatcherThreadCount = resolveIntegerProperty(PaxWebConfig.PID_CFG_EVENT_DISPATCHER_THREAD_COUNT);
 			this.eventDispatcherThreadCount = eventDispatcherThreadCount == null ? 1 : eventDispatcherThreadCount;
+			Integer eventDispatcherQueueSize = resolveIntegerProperty(PaxWebConfig.PID_CFG_EVENT_DISPATCHER_QUEUE_SIZE);
+			this.eventDispatcherQueueSize = eventDispatcherQueueSize == null ? 1024 : Math.max(1, eventDispatcherQueueSize);
+			Long quietPeriod = resolveLongProperty(PaxWebConfig.PID_CFG_BATCH_COALESCING_QUIET_PERIOD);
+			this.batchCoalescingQuietPeriod = quietPeriod == null ? 0L : Math.max(0L, quietPeriod);
+			Integer maxBatches = resolveIntegerProperty(PaxWebConfig.PID_CFG_BATCH_COALESCING_MAX_BATCHES);
+			this.batchCoalescingMaxBatches = maxBatches == null ? 100 : Math.max(1, maxBatches);
 
 			Boolean stacks = resolveBooleanProperty(PaxWebConfig.PID_CFG_SHOW_STACKS);
 			showStacks = stacks != null && stacks;
@@ -430,11 +439,43 @@ public class ConfigurationImpl extends PropertyStore implements Configuration {
 			return this.eventDispatcherThreadCount;
 		}
 
+		@Override
+		public Integer getEventDispatcherQueueSize() {
+			return this.eventDispatcherQueueSize;
+		}
+
+		@Override
+		public String getEventDispatcherOverflowPolicy() {
+			return resolveStringProperty(PaxWebConfig.PID_CFG_EVENT_DISPATCHER_OVERFLOW_POLICY);
+		}
+
+		@Override
+		public Long getBatchCoalescingQuietPeriod() {
+			return this.batchCoalescingQuietPeriod;
+		}
+
+		@Override
+		public Integer getBatchCoalescingMaxBatches() {
+			return this.batchCoalescingMaxBatches;
+		}
+
 		@Override
 		public Boolean isShowStacks() {
 			return showStacks;
 		}
 
+		@Override
+		public Boolean isRequestMetricsEnabled() {
+			Boolean enabled = resolveBooleanProperty(PaxWebConfig.PID_CFG_REQUEST_METRICS);
+			return enabled != null && enabled;
+		}
+
+		@Override
+		public Integer getFilterChainTimingSampleRate() {
+			Integer rate = resolveIntegerProperty(PaxWebConfig.PID_CFG_FILTER_CHAIN_TIMING_SAMPLE_RATE);
+			return rate == null || rate < 0 ? 0 : rate;
+		}
+
 		@Override
 		public String[] getVirtualHosts() {
 			return virtualHosts;
@@ -658,6 +699,16 @@ public class ConfigurationImpl extends PropertyStore implements Configuration {
 			return resolveBooleanProperty(PaxWebConfig.PID_CFG_FORMAUTH_REDIRECT);
 		}
 
+		@Override
+		public Integer getAuthenticationCacheTtl() {
+			return resolveIntegerProperty(PaxWebConfig.PID_CFG_AUTH_CACHE_TTL);
+		}
+
+		@Override
+		public Integer getAuthenticationCacheMaxSize() {
+			return resolveIntegerProperty(PaxWebConfig.PID_CFG_AUTH_CACHE_MAX_SIZE);
+		}
+
 		@Override
 		public Boolean isEncEnabled() {
 			Boolean enabled = resolveBooleanProperty(PaxWebConfig.PID_CFG_ENC_ENABLED);
@@ -751,6 +802,39 @@ public class ConfigurationImpl extends PropertyStore implements Configuration {
 		public Integer maxCacheTTL() {
 			return resolveIntegerProperty(PaxWebConfig.PID_CFG_DEFAULT_SERVLET_CACHE_TTL);
 		}
+
+		@Override
+		public boolean cacheOffHeap() {
+			Boolean offHeap = resolveBooleanProperty(PaxWebConfig.PID_CFG_DEFAULT_SERVLET_CACHE_OFF_HEAP);
+			return offHeap == null || offHeap;
+		}
+
+		@Override
+		public boolean precompressed() {
+			Boolean precompressed = resolveBooleanProperty(PaxWebConfig.PID_CFG_DEFAULT_SERVLET_PRECOMPRESSED);
+			return precompressed != null && precompressed;
+		}
+
+		@Override
+		public boolean compression() {
+			Boolean compression = resolveBooleanProperty(PaxWebConfig.PID_CFG_DEFAULT_SERVLET_COMPRESSION);
+			return compression != null && compression;
+		}
+
+		@Override
+		public Integer compressionCacheSize() {
+			return resolveIntegerProperty(PaxWebConfig.PID_CFG_DEFAULT_SERVLET_COMPRESSION_CACHE_SIZE);
+		}
+
+		@Override
+		public String compressionMimeTypes() {
+			return resolveStringProperty(PaxWebConfig.PID_CFG_DEFAULT_SERVLET_COMPRESSION_MIME_TYPES);
+		}
+
+		@Override
+		public Integer compressionMinLength() {
+			return resolveIntegerProperty(PaxWebConfig.PID_CFG_DEFAULT_SERVLET_COMPRESSION_MIN_LENGTH);
+		}
 	}
 
 	private class SessionConfigurationImpl implements SessionConfiguration {
@@ -857,6 +941,21 @@ public class ConfigurationImpl extends PropertyStore implements Configuration {
 			return resolveStringProperty(PaxWebConfig.PID_CFG_SESSION_STORE_DIRECTORY);
 		}
 
+		@Override
+		public Integer getSessionStoreFlushInterval() {
+			return resolveIntegerProperty(PaxWebConfig.PID_CFG_SESSION_STORE_FLUSH_INTERVAL);
+		}
+
+		@Override
+		public String getSessionAttributeStorage() {
+			return resolveStringProperty(PaxWebConfig.PID_CFG_SESSION_ATTRIBUTE_STORAGE);
+		}
+
+		@Override
+		public Integer getSessionAttributeStorageMaxSize() {
+			return resolveIntegerProperty(PaxWebConfig.PID_CFG_SESSION_ATTRIBUTE_STORAGE_MAX_SIZE);
+		}
+
 		@Override
 		public File getSessionStoreDirectory() {
 			String location = getSessionStoreDirectoryLocation();
@@ -1006,6 +1105,34 @@ public class ConfigurationImpl extends PropertyStore implements Configuration {
 		public String getGloablJspScratchDir() {
 			return globalScratchDir;
 		}
+
+		@Override
+		public Boolean isJspPrecompile() {
+			Boolean precompile = resolveBooleanProperty(PaxWebConfig.PID_CFG_JSP_PRECOMPILE);
+			return precompile != null && precompile;
+		}
+
+		@Override
+		public Integer getJspPrecompileThreads() {
+			Integer threads = resolveIntegerProperty(PaxWebConfig.PID_CFG_JSP_PRECOMPILE_THREADS);
+			return threads == null || threads <= 0 ? Runtime.getRuntime().availableProcessors() : threads;
+		}
+
+		@Override
+		public String getJspSharedCacheDir() {
+			Boolean sharedCache = resolveBooleanProperty(PaxWebConfig.PID_CFG_JSP_SHARED_CACHE);
+			if (sharedCache == null || !sharedCache) {
+				return null;
+			}
+			File dir = new File(serverConfig.getTemporaryDirectory(), "jsp-cache");
+			try {
+				dir.mkdirs();
+				return dir.getCanonicalPath();
+			} catch (IOException e) {
+				LOG.warn("Unexpected problem when checking shared JSP cache dir {}", dir, e);
+				return dir.getAbsolutePath();
+			}
+		}
 	}
 
 }
@@ -15,20 +15,17 @@
  */
 package org.ops4j.pax.web.service.internal;
 
-import java.util.Collections;
-import java.util.Set;
-import java.util.concurrent.Callable;
-import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.concurrent.ExecutionException;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 
 import org.ops4j.pax.web.service.spi.config.Configuration;
 import org.ops4j.pax.web.service.spi.model.events.WebElementEvent;
+import org.ops4j.pax.web.service.spi.model.events.WebElementEventData;
 import org.ops4j.pax.web.service.spi.model.events.WebElementEventListener;
+import org.ops4j.pax.web.service.spi.util.BoundedEventDispatcher;
+import org.ops4j.pax.web.service.spi.util.EventDispatcherMXBean;
 import org.ops4j.pax.web.service.spi.util.NamedThreadFactory;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.BundleEvent;
@@ -47,10 +44,15 @@ import org.slf4j.LoggerFactory;
  * <p>It's activated using a method from {@link WebElementEventListener} that called to <em>send</em> the event and the
  * event is passed to other registered {@link WebElementEventListener}s.</p>
  *
+ * <p>Each listener has own bounded queue of events (see {@link BoundedEventDispatcher}), so the thread registering
+ * web elements is not blocked by slow listeners (unless {@code block} overflow policy is used and the queue is
+ * full).</p>
+ *
  * @author Achim Nierbeck
  */
 public class WebElementEventDispatcher implements WebElementEventListener,
-		ServiceTrackerCustomizer<WebElementEventListener, WebElementEventListener>, BundleListener {
+		ServiceTrackerCustomizer<WebElementEventListener, WebElementEventListener>, BundleListener,
+		EventDispatcherMXBean {
 
 	private static final Logger LOG = LoggerFactory.getLogger(WebElementEventDispatcher.class);
 
@@ -60,13 +62,17 @@ public class WebElementEventDispatcher implements WebElementEventListener,
 	/** {@link ServiceTracker} for {@link WebElementEventListener web element listeners} */
 	private final ServiceTracker<WebElementEventListener, WebElementEventListener> webElementListenerTracker;
 
-	/** All tracked {@link WebElementEventListener web element listeners} */
-	private final Set<WebElementEventListener> listeners = new CopyOnWriteArraySet<>();
+	/** All tracked {@link WebElementEventListener web element listeners} with their queues of events */
+	private final BoundedEventDispatcher<WebElementEventListener, WebElementEvent> dispatcher;
 
 	public WebElementEventDispatcher(final BundleContext bundleContext, Configuration configuration) {
 		this.bundleContext = bundleContext;
 		this.executor = Executors.newFixedThreadPool(configuration.server().getEventDispatcherThreadCount(),
 				new NamedThreadFactory("events"));
+		this.dispatcher = new BoundedEventDispatcher<>("web element", executor,
+				configuration.server().getEventDispatcherQueueSize(),
+				BoundedEventDispatcher.OverflowPolicy.parse(configuration.server().getEventDispatcherOverflowPolicy()),
+				WebElementEventDispatcher::elementKey, WebElementEventListener::registrationEvents);
 
 		this.webElementListenerTracker = new ServiceTracker<>(bundleContext, WebElementEventListener.class.getName(), this);
 		this.webElementListenerTracker.open();
@@ -83,9 +89,7 @@ public class WebElementEventDispatcher implements WebElementEventListener,
 		WebElementEventListener listener = bundleContext.getService(reference);
 		if (listener != null) {
 			LOG.debug("New WebElementEventListener added: {}", listener.getClass().getName());
-			synchronized (listeners) {
-				listeners.add(listener);
-			}
+			dispatcher.addListener(listener);
 		}
 		return listener;
 	}
@@ -96,7 +100,7 @@ public class WebElementEventDispatcher implements WebElementEventListener,
 
 	@Override
 	public void removedService(ServiceReference<WebElementEventListener> reference, WebElementEventListener service) {
-		listeners.remove(service);
+		dispatcher.removeListener(service);
 		bundleContext.ungetService(reference);
 		LOG.debug("WebElementEventListener is removed: {}", service.getClass().getName());
 	}
@@ -106,49 +110,45 @@ public class WebElementEventDispatcher implements WebElementEventListener,
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("Sending web element event " + event + " for bundle " + event.getBundleName());
 		}
-		synchronized (listeners) {
-			callListeners(event);
-		}
+		dispatcher.dispatch(event);
+	}
+
+	/**
+	 * Returns delivery statistics for each {@link WebElementEventListener}
+	 * @return
+	 */
+	@Override
+	public List<BoundedEventDispatcher.ListenerStatistics> getStatistics() {
+		return dispatcher.getStatistics();
 	}
 
 	void destroy() {
 		bundleContext.removeBundleListener(this);
+		// deliver already queued events before the listeners are untracked
+		dispatcher.stop(60, TimeUnit.SECONDS);
 		webElementListenerTracker.close();
 		executor.shutdown();
-		// wait for the queued tasks to execute
 		try {
 			executor.awaitTermination(60, TimeUnit.SECONDS);
 		} catch (InterruptedException ignored) {
 		}
 	}
 
-	private void callListeners(WebElementEvent event) {
-		for (WebElementEventListener listener : listeners) {
-			try {
-				callListener(listener, event);
-			} catch (RejectedExecutionException ree) {
-				LOG.warn("Executor shut down", ree);
-				break;
-			}
+	/**
+	 * Events for the same web element (the same service or the same kind of element registered by the same
+	 * bundle with the same description) may be coalesced.
+	 * @param event
+	 * @return
+	 */
+	private static Object elementKey(WebElementEvent event) {
+		WebElementEventData data = event.getData();
+		if (data == null) {
+			return null;
 		}
-	}
-
-	private void callListener(final WebElementEventListener listener, final WebElementEvent event) {
-		try {
-			executor.invokeAny(Collections.<Callable<Void>>singleton(() -> {
-				listener.registrationEvent(event);
-				return null;
-			}), 60L, TimeUnit.SECONDS);
-		} catch (InterruptedException ie) {
-			LOG.warn("Thread interrupted", ie);
-			Thread.currentThread().interrupt();
-		} catch (TimeoutException te) {
-			LOG.warn("Listener timed out, will be ignored", te);
-			listeners.remove(listener);
-		} catch (ExecutionException ee) {
-			LOG.warn("Listener caused an exception, will be ignored", ee);
-			listeners.remove(listener);
+		if (data.getServiceId() > 0L) {
+			return data.getServiceId();
 		}
+		return data.getClass().getName() + "|" + event.getBundleId() + "|" + data;
 	}
 
 }
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.internal;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.ops4j.pax.web.service.spi.ServerController;
+import org.ops4j.pax.web.service.spi.model.OsgiContextModel;
+import org.ops4j.pax.web.service.spi.model.elements.FilterModel;
+import org.ops4j.pax.web.service.spi.task.Batch;
+import org.ops4j.pax.web.service.spi.task.BatchVisitor;
+import org.ops4j.pax.web.service.spi.task.Change;
+import org.ops4j.pax.web.service.spi.task.FilterModelChange;
+import org.ops4j.pax.web.service.spi.task.FilterStateChange;
+import org.ops4j.pax.web.service.spi.task.OpCode;
+import org.osgi.service.http.runtime.dto.DTOConstants;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BatchCoalescingServerControllerTest {
+
+	private ScheduledExecutorService executor;
+
+	@Before
+	public void init() {
+		executor = Executors.newSingleThreadScheduledExecutor();
+	}
+
+	@After
+	public void cleanup() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void onlyLastFilterStatePerContextIsKept() {
+		Batch b1 = new Batch("b1");
+		b1.updateFilters(filters("/c1", "/c2"), false);
+		Batch b2 = new Batch("b2");
+		b2.updateFilters(filters("/c1"), false);
+		Batch b3 = new Batch("b3");
+		b3.updateFilters(filters("/c1"), false);
+
+		Batch merged = BatchCoalescingServerController.merge(Arrays.asList(b1, b2, b3));
+		List<Change> operations = merged.getOperations();
+
+		assertThat(operations.size(), equalTo(2));
+		assertThat(operations.get(0), instanceOf(FilterStateChange.class));
+		assertThat(((FilterStateChange) operations.get(0)).getContextFilters().keySet(), equalTo(filters("/c2").keySet()));
+		assertTrue(operations.get(1) == b3.getOperations().get(0));
+	}
+
+	@Test
+	public void asynchronousFilterRegistrationsAreCoalesced() {
+		ServerController delegate = mock(ServerController.class);
+		BatchCoalescingServerController controller = new BatchCoalescingServerController(delegate, executor, 60_000L, 3);
+
+		controller.sendBatch(filterBatch(true));
+		controller.sendBatch(filterBatch(true));
+		verify(delegate, never()).sendBatch(any());
+
+		// third batch reaches the limit
+		controller.sendBatch(filterBatch(true));
+		ArgumentCaptor<Batch> captor = ArgumentCaptor.forClass(Batch.class);
+		verify(delegate, times(1)).sendBatch(captor.capture());
+		// 3 filter model changes and single filter state change
+		assertThat(captor.getValue().getOperations().size(), equalTo(4));
+	}
+
+	@Test
+	public void synchronousRegistrationFlushesPendingBatches() {
+		ServerController delegate = mock(ServerController.class);
+		BatchCoalescingServerController controller = new BatchCoalescingServerController(delegate, executor, 60_000L, 100);
+
+		Batch async = filterBatch(true);
+		Batch sync = filterBatch(false);
+		assertTrue(BatchCoalescingServerController.isCoalescable(async));
+		assertFalse(BatchCoalescingServerController.isCoalescable(sync));
+
+		controller.sendBatch(async);
+		controller.sendBatch(sync);
+
+		ArgumentCaptor<Batch> captor = ArgumentCaptor.forClass(Batch.class);
+		verify(delegate, times(2)).sendBatch(captor.capture());
+		assertTrue(captor.getAllValues().get(0) == async);
+		assertTrue(captor.getAllValues().get(1) == sync);
+	}
+
+	@Test
+	public void failedChangeOfCoalescedBatchesIsMarkedAndRemainingChangesAreSent() {
+		ServerController delegate = mock(ServerController.class);
+		BatchVisitor visitor = mock(BatchVisitor.class);
+		doAnswer(i -> {
+			i.<Batch>getArgument(0).accept(visitor);
+			return null;
+		}).when(delegate).sendBatch(any());
+		BatchCoalescingServerController controller = new BatchCoalescingServerController(delegate, executor, 60_000L, 3);
+
+		Batch b1 = filterBatch(true);
+		Batch b2 = filterBatch(true);
+		Batch b3 = filterBatch(true);
+		FilterModel f1 = ((FilterModelChange) b1.getOperations().get(0)).getFilterModels().get(0);
+		FilterModel f2 = ((FilterModelChange) b2.getOperations().get(0)).getFilterModels().get(0);
+		FilterModel f3 = ((FilterModelChange) b3.getOperations().get(0)).getFilterModels().get(0);
+		doThrow(new IllegalStateException("failed f2"))
+				.when(visitor).visitFilterModelChange(argThat(c -> c.getFilterModels().contains(f2)));
+
+		controller.sendBatch(b1);
+		controller.sendBatch(b2);
+		controller.sendBatch(b3);
+
+		ArgumentCaptor<Batch> captor = ArgumentCaptor.forClass(Batch.class);
+		verify(delegate, times(2)).sendBatch(captor.capture());
+		// 3 filter model changes and single filter state change
+		assertThat(captor.getAllValues().get(0).getOperations().size(), equalTo(4));
+		// change of f3 and filter state change
+		assertThat(captor.getAllValues().get(1).getOperations().size(), equalTo(2));
+		verify(visitor, times(1)).visitFilterStateChange(any());
+
+		verify(f1, never()).setDtoFailureCode(anyInt());
+		verify(f2, times(1)).setDtoFailureCode(DTOConstants.FAILURE_REASON_UNKNOWN);
+		verify(f3, never()).setDtoFailureCode(anyInt());
+	}
+
+	@Test
+	public void failedBatchIsMarked() {
+		ServerController delegate = mock(ServerController.class);
+		doThrow(new IllegalStateException("failed")).when(delegate).sendBatch(any());
+		BatchCoalescingServerController controller = new BatchCoalescingServerController(delegate, executor, 60_000L, 100);
+
+		Batch batch = filterBatch(true);
+		FilterModel model = ((FilterModelChange) batch.getOperations().get(0)).getFilterModels().get(0);
+		controller.sendBatch(batch);
+		controller.flush();
+
+		verify(model, times(1)).setDtoFailureCode(DTOConstants.FAILURE_REASON_UNKNOWN);
+	}
+
+	private Batch filterBatch(boolean async) {
+		FilterModel model = mock(FilterModel.class);
+		when(model.isAsynchronusRegistration()).thenReturn(async);
+		Batch batch = new Batch("filter");
+		batch.getOperations().add(new FilterModelChange(OpCode.ADD, model));
+		batch.updateFilters(filters("/c1"), false);
+		return batch;
+	}
+
+	private Map<String, TreeMap<FilterModel, List<OsgiContextModel>>> filters(String ... contextPaths) {
+		Map<String, TreeMap<FilterModel, List<OsgiContextModel>>> map = new HashMap<>();
+		for (String path : contextPaths) {
+			map.put(path, new TreeMap<>());
+		}
+		return map;
+	}
+
+}
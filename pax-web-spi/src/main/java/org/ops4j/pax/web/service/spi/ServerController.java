@@ -20,8 +20,11 @@ import java.net.URL;
 import javax.servlet.Servlet;
 
 import org.ops4j.pax.web.service.spi.config.Configuration;
+import org.ops4j.pax.web.service.spi.metrics.FilterChainTiming;
+import org.ops4j.pax.web.service.spi.metrics.RequestMetrics;
 import org.ops4j.pax.web.service.spi.model.events.ServerListener;
 import org.ops4j.pax.web.service.spi.task.Batch;
+import org.ops4j.pax.web.service.spi.util.AuthenticationCache;
 
 /**
  * <p>Interface used by pax-web-runtime to interact with actual server runtime. There are three groups of tasks
@@ -118,4 +121,28 @@ public interface ServerController {
 	 */
 	Servlet createResourceServlet(URL urlBase, String base);
 
+	/**
+	 * Returns {@link RequestMetrics} recorded by the server runtime.
+	 * @return {@code null} if request metrics are not enabled
+	 */
+	default RequestMetrics getRequestMetrics() {
+		return null;
+	}
+
+	/**
+	 * Returns {@link FilterChainTiming} recorded by the server runtime.
+	 * @return {@code null} if filter chain timing is not enabled
+	 */
+	default FilterChainTiming getFilterChainTiming() {
+		return null;
+	}
+
+	/**
+	 * Returns {@link AuthenticationCache} used by the server runtime in front of its realms.
+	 * @return {@code null} if authentication results are not cached
+	 */
+	default AuthenticationCache<?> getAuthenticationCache() {
+		return null;
+	}
+
 }
@@ -33,4 +33,24 @@ public interface JspConfiguration {
 	 */
 	String getGloablJspScratchDir();
 
+	/**
+	 * Should all the JSPs of a context be compiled (in parallel) when the JSP servlet is initialized?
+	 * Classes compiled before (in the same scratch directory) are reused if the JSPs didn't change.
+	 * @return
+	 */
+	Boolean isJspPrecompile();
+
+	/**
+	 * Number of threads used to precompile JSPs of single context.
+	 * @return
+	 */
+	Integer getJspPrecompileThreads();
+
+	/**
+	 * Returns a directory with compiled JSP classes shared by all the contexts or {@code null} if the classes
+	 * shouldn't be shared.
+	 * @return
+	 */
+	String getJspSharedCacheDir();
+
 }
@@ -37,18 +37,18 @@ public interface ResourceConfiguration {
 	boolean dirListing();
 
 	/**
-	 * <p>Integer property to specify maximum number of cache entries (per single <em>resource manager</em>).</p>
+	 * <p>Integer property to specify maximum number of entries of the resource cache (shared by all
+	 * <em>resource servlets</em>).</p>
 	 */
 	Integer maxCacheEntries();
 
 	/**
-	 * <p>Integer property to specify maximum size of single cache entry (file) (per single <em>resource manager</em>)
-	 * in kB.</p>
+	 * <p>Integer property to specify maximum size of single cache entry (file) in kB.</p>
 	 */
 	Integer maxCacheEntrySize();
 
 	/**
-	 * <p>Integer property to specify maximum total size of the cache (per single <em>resource manager</em>) in kB.</p>
+	 * <p>Integer property to specify maximum total size of the resource cache in kB.</p>
 	 */
 	Integer maxTotalCacheSize();
 
@@ -58,4 +58,37 @@ public interface ResourceConfiguration {
 	 */
 	Integer maxCacheTTL();
 
+	/**
+	 * <p>Boolean property to specify whether the content of cached resources should be stored in direct
+	 * (off-heap) buffers.</p>
+	 */
+	boolean cacheOffHeap();
+
+	/**
+	 * <p>Boolean property to specify whether <em>resource servlets</em> should serve {@code .br}/{@code .gz}
+	 * siblings of requested resources to clients which accept such encodings.</p>
+	 */
+	boolean precompressed();
+
+	/**
+	 * <p>Boolean property to specify whether <em>resource servlets</em> should gzip eligible resources on the fly
+	 * (once per resource version).</p>
+	 */
+	boolean compression();
+
+	/**
+	 * <p>Integer property to specify maximum total size (in kB) of the cache of compressed resources.</p>
+	 */
+	Integer compressionCacheSize();
+
+	/**
+	 * <p>Comma-separated list of mime types of resources which should be compressed on the fly.</p>
+	 */
+	String compressionMimeTypes();
+
+	/**
+	 * <p>Integer property to specify minimal length (in bytes) of resources which should be compressed on the fly.</p>
+	 */
+	Integer compressionMinLength();
+
 }
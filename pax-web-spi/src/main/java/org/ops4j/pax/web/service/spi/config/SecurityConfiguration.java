@@ -246,6 +246,19 @@ public interface SecurityConfiguration {
 	 */
 	Boolean getFormAuthRedirect();
 
+	/**
+	 * Returns time (in seconds) for which successful verification of user credentials is cached. When not positive,
+	 * credentials are verified by the realm for each request.
+	 * @return
+	 */
+	Integer getAuthenticationCacheTtl();
+
+	/**
+	 * Returns maximum number of cached verifications of user credentials.
+	 * @return
+	 */
+	Integer getAuthenticationCacheMaxSize();
+
 	/**
 	 * Checks if configuration values are expected to be encrypted - this triggers a configuration (or tracking)
 	 * of Jasypt StringEncryptor (optional dependency)
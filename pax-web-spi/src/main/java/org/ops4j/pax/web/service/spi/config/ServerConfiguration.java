@@ -160,12 +160,51 @@ public interface ServerConfiguration {
 	 */
 	Integer getEventDispatcherThreadCount();
 
+	/**
+	 * Maximal number of events queued for each {@link WebElementEvent} listener.
+	 * @return
+	 */
+	Integer getEventDispatcherQueueSize();
+
+	/**
+	 * Policy applied when event queue of a listener is full - {@code coalesce} (default), {@code dropOldest} or
+	 * {@code block}.
+	 * @return
+	 */
+	String getEventDispatcherOverflowPolicy();
+
+	/**
+	 * Time in milliseconds without new asynchronous (Whiteboard) registrations after which the collected
+	 * batches are merged and passed to the server. {@code 0} disables batch coalescing.
+	 * @return
+	 */
+	Long getBatchCoalescingQuietPeriod();
+
+	/**
+	 * Maximal number of batches collected before they're merged and passed to the server.
+	 * @return
+	 */
+	Integer getBatchCoalescingMaxBatches();
+
 	/**
 	 * Flag that specifies whether stack traces should be visible in error pages.
 	 * @return
 	 */
 	Boolean isShowStacks();
 
+	/**
+	 * Flag that specifies whether request metrics should be collected.
+	 * @return
+	 */
+	Boolean isRequestMetricsEnabled();
+
+	/**
+	 * One of how many requests should have the elements of filter chain (preprocessors, security checks, filters
+	 * and servlets) timed. {@code 0} means the timing is disabled.
+	 * @return
+	 */
+	Integer getFilterChainTimingSampleRate();
+
 	/**
 	 * Returns a list of virtual hosts to be used by default (if a context doesn't specify own configuration).
 	 * Defaults to empty list.
@@ -114,6 +114,26 @@ public interface SessionConfiguration {
 	 */
 	File getSessionStoreDirectory();
 
+	/**
+	 * Interval (in ms) between background writes of changed sessions to the
+	 * {@link org.ops4j.pax.web.service.spi.session.SessionStore} in {@link #getSessionStoreDirectory()}.
+	 * @return
+	 */
+	Integer getSessionStoreFlushInterval();
+
+	/**
+	 * Returns the kind of {@link org.ops4j.pax.web.service.spi.session.SessionAttributeStorage} used for
+	 * attributes of live sessions ({@code heap} or {@code offheap}).
+	 * @return
+	 */
+	String getSessionAttributeStorage();
+
+	/**
+	 * Maximum size (in MB) of memory used by off-heap session attribute storage.
+	 * @return
+	 */
+	Integer getSessionAttributeStorageMaxSize();
+
 	/**
 	 * This method gathers some of individual session configuration parameters and returns ready to use
 	 * {@link SessionCookieConfig} object.
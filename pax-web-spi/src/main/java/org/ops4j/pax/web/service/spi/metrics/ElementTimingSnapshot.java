@@ -0,0 +1,102 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.spi.metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Immutable timing of single element of {@link FilterChainTiming} at some point of time. Times are in
+ * microseconds. <em>Total</em> time includes the rest of the chain invoked by the element, <em>self</em> time
+ * doesn't include nested elements. This class is exposed through JMX as
+ * {@link javax.management.openmbean.CompositeData} and can be reconstructed by MXBean proxies.
+ */
+public class ElementTimingSnapshot {
+
+	private final String name;
+	private final long samples;
+	private final long meanTime;
+	private final long time50;
+	private final long time99;
+	private final long maxTime;
+	private final long meanSelfTime;
+	private final long selfTime50;
+	private final long selfTime99;
+	private final long maxSelfTime;
+
+	@ConstructorProperties({ "name", "samples", "meanTime", "time50", "time99", "maxTime",
+			"meanSelfTime", "selfTime50", "selfTime99", "maxSelfTime" })
+	public ElementTimingSnapshot(String name, long samples, long meanTime, long time50, long time99, long maxTime,
+			long meanSelfTime, long selfTime50, long selfTime99, long maxSelfTime) {
+		this.name = name;
+		this.samples = samples;
+		this.meanTime = meanTime;
+		this.time50 = time50;
+		this.time99 = time99;
+		this.maxTime = maxTime;
+		this.meanSelfTime = meanSelfTime;
+		this.selfTime50 = selfTime50;
+		this.selfTime99 = selfTime99;
+		this.maxSelfTime = maxSelfTime;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getSamples() {
+		return samples;
+	}
+
+	public long getMeanTime() {
+		return meanTime;
+	}
+
+	public long getTime50() {
+		return time50;
+	}
+
+	public long getTime99() {
+		return time99;
+	}
+
+	public long getMaxTime() {
+		return maxTime;
+	}
+
+	public long getMeanSelfTime() {
+		return meanSelfTime;
+	}
+
+	public long getSelfTime50() {
+		return selfTime50;
+	}
+
+	public long getSelfTime99() {
+		return selfTime99;
+	}
+
+	public long getMaxSelfTime() {
+		return maxSelfTime;
+	}
+
+	@Override
+	public String toString() {
+		return name + ": samples=" + samples + ", mean=" + meanTime + "us, p50=" + time50 + "us, p99=" + time99
+				+ "us, max=" + maxTime + "us, self mean=" + meanSelfTime + "us, self p50=" + selfTime50
+				+ "us, self p99=" + selfTime99 + "us, self max=" + maxSelfTime + "us";
+	}
+
+}
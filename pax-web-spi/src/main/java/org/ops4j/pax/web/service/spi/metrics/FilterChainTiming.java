@@ -0,0 +1,311 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.spi.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.servlet.ServletContext;
+
+import org.ops4j.pax.web.service.WebContainerContext;
+import org.ops4j.pax.web.service.spi.config.ServerConfiguration;
+import org.ops4j.pax.web.service.spi.model.Identity;
+import org.ops4j.pax.web.service.spi.model.OsgiContextModel;
+import org.ops4j.pax.web.service.spi.servlet.OsgiScopedServletContext;
+import org.ops4j.pax.web.service.spi.servlet.OsgiServletContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Sampling-based timing of the elements invoked by {@link org.ops4j.pax.web.service.spi.servlet.OsgiFilterChain}:
+ * Whiteboard {@link org.osgi.service.http.whiteboard.Preprocessor preprocessors}, {@code handleSecurity()} calls,
+ * filters and target servlets.</p>
+ *
+ * <p>For one of {@link #getSampleRate()} requests, the chain starts a {@link Sample} which is available to the
+ * filter and servlet wrappers (invoked on the same thread) through {@link #current()}. Each element records
+ * its total time (including the rest of the chain) and self time (without the nested elements) into lock-free
+ * {@link LatencyHistogram histograms}.</p>
+ *
+ * <p>When the timing is not enabled, no instance is created, chains don't check anything and filter/servlet
+ * wrappers only read a static {@code volatile} flag.</p>
+ *
+ * <p>Element names (see {@link #element}) contain the context path and the ID of the model, so elements with
+ * the same name in different contexts are not merged. Server runtimes call {@link #remove(Identity)} when
+ * the model is unregistered.</p>
+ */
+public class FilterChainTiming implements FilterChainTimingMXBean {
+
+	public static final Logger LOG = LoggerFactory.getLogger(FilterChainTiming.class);
+
+	/** Prefix of names of {@link org.osgi.service.http.whiteboard.Preprocessor} elements */
+	public static final String PREPROCESSOR = "preprocessor:";
+
+	/** Prefix of names of {@code handleSecurity()} elements */
+	public static final String SECURITY = "security:";
+
+	/** Prefix of names of filter elements */
+	public static final String FILTER = "filter:";
+
+	/** Prefix of names of servlet elements */
+	public static final String SERVLET = "servlet:";
+
+	/** Maximal nesting of timed elements - deeper elements are not timed */
+	static final int MAX_DEPTH = 64;
+
+	/** Separator of the ID of the model at the end of element names */
+	private static final String MODEL_ID_SEPARATOR = "#";
+
+	/** Set when any instance is created, so wrappers don't access {@link #CURRENT} needlessly */
+	private static volatile boolean active = false;
+
+	private static final ThreadLocal<Sample> CURRENT = new ThreadLocal<>();
+
+	private final Map<String, ElementTiming> elements = new ConcurrentHashMap<>();
+
+	private final LongAdder sampledRequests = new LongAdder();
+
+	private volatile int sampleRate;
+
+	FilterChainTiming(int sampleRate) {
+		this.sampleRate = sampleRate;
+	}
+
+	/**
+	 * Creates the timing if it's enabled in {@link ServerConfiguration}.
+	 * @param configuration
+	 * @return {@code null} if filter chain timing is not enabled
+	 */
+	public static FilterChainTiming create(ServerConfiguration configuration) {
+		if (configuration == null || configuration.getFilterChainTimingSampleRate() == null
+				|| configuration.getFilterChainTimingSampleRate() <= 0) {
+			return null;
+		}
+		int rate = configuration.getFilterChainTimingSampleRate();
+		LOG.info("Filter chain timing enabled for 1 of {} requests", rate);
+		active = true;
+		return new FilterChainTiming(rate);
+	}
+
+	/**
+	 * Returns a {@link Sample} started by a chain for the request currently processed by calling thread.
+	 * @return {@code null} if the request is not sampled
+	 */
+	public static Sample current() {
+		return active ? CURRENT.get() : null;
+	}
+
+	/**
+	 * Name of an element like {@code filter:/context/name#FilterModel-12}.
+	 * @param kind prefix of the element ({@link #FILTER}, {@link #SERVLET}, ...)
+	 * @param contextPath context path of the element, {@code null} for elements not related to single context
+	 * @param name name of the element
+	 * @param model model of the element, may be {@code null}
+	 * @return
+	 */
+	public static String element(String kind, String contextPath, String name, Identity model) {
+		StringBuilder sb = new StringBuilder(kind);
+		if (contextPath != null) {
+			sb.append(contextPath).append('/');
+		}
+		sb.append(name);
+		if (model != null) {
+			sb.append(MODEL_ID_SEPARATOR).append(model.getId());
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Name of an element invoked within given {@link ServletContext}
+	 * @param kind
+	 * @param servletContext
+	 * @param name
+	 * @param model
+	 * @return
+	 */
+	public static String element(String kind, ServletContext servletContext, String name, Identity model) {
+		return element(kind, servletContext == null ? null : servletContext.getContextPath(), name, model);
+	}
+
+	/**
+	 * Name of an element representing {@code handleSecurity()} of given context.
+	 * @param osgiContextModel the model of the context, may be {@code null}
+	 * @param context
+	 * @return
+	 */
+	public static String securityElement(OsgiContextModel osgiContextModel, WebContainerContext context) {
+		return element(SECURITY, osgiContextModel == null ? null : osgiContextModel.getContextPath(),
+				context.getContextId(), osgiContextModel);
+	}
+
+	/**
+	 * Name of an element representing {@code handleSecurity()} of given context used within
+	 * a {@link ServletContext}.
+	 * @param servletContext
+	 * @param context
+	 * @return
+	 */
+	public static String securityElement(ServletContext servletContext, WebContainerContext context) {
+		OsgiContextModel model = null;
+		if (servletContext instanceof OsgiScopedServletContext) {
+			model = ((OsgiScopedServletContext) servletContext).getOsgiContextModel();
+		} else if (servletContext instanceof OsgiServletContext) {
+			model = ((OsgiServletContext) servletContext).getOsgiContextModel();
+		}
+		return securityElement(model, context);
+	}
+
+	/**
+	 * Decides whether the current request should be sampled and if so, starts a {@link Sample} available
+	 * through {@link #current()}. Requests dispatched within already sampled request are not sampled again.
+	 * @return {@code null} if the request is not sampled
+	 */
+	public Sample startSample() {
+		int rate = sampleRate;
+		if (rate <= 0 || (rate > 1 && ThreadLocalRandom.current().nextInt(rate) != 0) || CURRENT.get() != null) {
+			return null;
+		}
+		Sample sample = new Sample(this);
+		CURRENT.set(sample);
+		return sample;
+	}
+
+	/**
+	 * Ends a {@link Sample} returned from {@link #startSample()}.
+	 * @param sample
+	 */
+	public void endSample(Sample sample) {
+		CURRENT.remove();
+		sampledRequests.increment();
+	}
+
+	@Override
+	public int getSampleRate() {
+		return sampleRate;
+	}
+
+	@Override
+	public void setSampleRate(int sampleRate) {
+		this.sampleRate = Math.max(0, sampleRate);
+	}
+
+	@Override
+	public long getSampledRequests() {
+		return sampledRequests.sum();
+	}
+
+	@Override
+	public Map<String, ElementTimingSnapshot> getStatistics() {
+		Map<String, ElementTimingSnapshot> result = new TreeMap<>();
+		elements.forEach((name, timing) -> result.put(name, timing.snapshot()));
+		return result;
+	}
+
+	@Override
+	public void reset() {
+		sampledRequests.reset();
+		elements.clear();
+	}
+
+	/**
+	 * Removes timing of all the elements of unregistered model (servlet, filter or context)
+	 * @param model
+	 */
+	public void remove(Identity model) {
+		String suffix = MODEL_ID_SEPARATOR + model.getId();
+		elements.keySet().removeIf(name -> name.endsWith(suffix));
+	}
+
+	private void record(String element, long totalNanos, long selfNanos) {
+		ElementTiming timing = elements.get(element);
+		if (timing == null) {
+			timing = elements.computeIfAbsent(element, ElementTiming::new);
+		}
+		timing.total.record(totalNanos);
+		timing.self.record(selfNanos);
+	}
+
+	/**
+	 * Timing of a single sampled request. Elements call {@link #enter()} before invocation and
+	 * {@link #exit(String)} after it (in {@code finally} block). Not thread safe - it's used only by the thread
+	 * processing the request.
+	 */
+	public static final class Sample {
+
+		private final FilterChainTiming timing;
+
+		private final long[] starts = new long[MAX_DEPTH];
+		private final long[] nested = new long[MAX_DEPTH];
+		private int depth = 0;
+
+		Sample(FilterChainTiming timing) {
+			this.timing = timing;
+		}
+
+		/**
+		 * Marks the start of an element invocation.
+		 */
+		public void enter() {
+			if (depth < MAX_DEPTH) {
+				starts[depth] = System.nanoTime();
+				nested[depth] = 0L;
+			}
+			depth++;
+		}
+
+		/**
+		 * Marks the end of an element invocation started with last {@link #enter()}.
+		 * @param element name of the element (prefixed with the kind of the element)
+		 */
+		public void exit(String element) {
+			if (depth == 0) {
+				return;
+			}
+			depth--;
+			if (depth >= MAX_DEPTH) {
+				return;
+			}
+			long total = System.nanoTime() - starts[depth];
+			if (depth > 0) {
+				nested[depth - 1] += total;
+			}
+			timing.record(element, total, total - nested[depth]);
+		}
+	}
+
+	/**
+	 * Histograms of single element of the chain.
+	 */
+	private static class ElementTiming {
+
+		private final String name;
+		private final LatencyHistogram total = new LatencyHistogram();
+		private final LatencyHistogram self = new LatencyHistogram();
+
+		ElementTiming(String name) {
+			this.name = name;
+		}
+
+		ElementTimingSnapshot snapshot() {
+			return new ElementTimingSnapshot(name, total.getCount(),
+					total.getMean(), total.getValueAtPercentile(50d), total.getValueAtPercentile(99d), total.getMax(),
+					self.getMean(), self.getValueAtPercentile(50d), self.getValueAtPercentile(99d), self.getMax());
+		}
+	}
+
+}
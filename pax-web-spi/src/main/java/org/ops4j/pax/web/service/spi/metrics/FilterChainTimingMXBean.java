@@ -0,0 +1,48 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.spi.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link FilterChainTiming}, registered by pax-web-runtime as {@link #OBJECT_NAME}.
+ */
+public interface FilterChainTimingMXBean {
+
+	String OBJECT_NAME = "org.ops4j.pax.web:type=FilterChainTiming";
+
+	/**
+	 * One of how many requests is timed. {@code 0} pauses the sampling.
+	 * @return
+	 */
+	int getSampleRate();
+
+	void setSampleRate(int sampleRate);
+
+	long getSampledRequests();
+
+	/**
+	 * Timing of each preprocessor, security check, filter and servlet, keyed by element name
+	 * @return
+	 */
+	Map<String, ElementTimingSnapshot> getStatistics();
+
+	/**
+	 * Clears all the histograms
+	 */
+	void reset();
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.spi.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Lock-free histogram of latencies with log-linear buckets (like in HdrHistogram). Values are recorded in
+ * microseconds - each power of two range is divided into {@link #SUB_BUCKETS} buckets, so the precision of
+ * reported percentiles is about 3%. Recording is a single atomic increment and the memory footprint is fixed
+ * (about 10kB).</p>
+ */
+public class LatencyHistogram {
+
+	/** Number of linear buckets in each power of two range */
+	static final int SUB_BUCKETS = 32;
+
+	private static final int SUB_BUCKET_BITS = 5;
+
+	/** Values larger than {@code 2^MAX_EXPONENT} us (about 12 days) are recorded as the maximal value */
+	private static final int MAX_EXPONENT = 40;
+
+	private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Records a latency given in nanoseconds
+	 * @param nanos
+	 */
+	public void record(long nanos) {
+		long micros = Math.max(0L, TimeUnit.NANOSECONDS.toMicros(nanos));
+		counts.incrementAndGet(index(micros));
+		count.increment();
+		sum.add(micros);
+		if (micros > max.get()) {
+			max.accumulateAndGet(micros, Math::max);
+		}
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * Mean latency in microseconds
+	 * @return
+	 */
+	public long getMean() {
+		long c = count.sum();
+		return c == 0L ? 0L : sum.sum() / c;
+	}
+
+	/**
+	 * Maximal latency in microseconds
+	 * @return
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Returns the latency (in microseconds) below which given percentage of the recorded latencies fall. The
+	 * value is the upper bound of the bucket containing the percentile, but never more than {@link #getMax()}.
+	 * @param percentile value between {@code 0} and {@code 100}
+	 * @return
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long[] snapshot = new long[BUCKETS];
+		long total = 0L;
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = counts.get(i);
+			total += snapshot[i];
+		}
+		if (total == 0L) {
+			return 0L;
+		}
+		long rank = Math.max(1L, (long) Math.ceil(Math.min(100d, Math.max(0d, percentile)) / 100d * total));
+		long seen = 0L;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= rank) {
+				return Math.min(upperBound(i), getMax());
+			}
+		}
+		return getMax();
+	}
+
+	/**
+	 * Clears the histogram. Values recorded concurrently may be partially lost.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts.set(i, 0L);
+		}
+		count.reset();
+		sum.reset();
+		max.set(0L);
+	}
+
+	static int index(long micros) {
+		if (micros < 2 * SUB_BUCKETS) {
+			return (int) micros;
+		}
+		int exponent = Math.min(63 - Long.numberOfLeadingZeros(micros), MAX_EXPONENT);
+		int shift = exponent - SUB_BUCKET_BITS;
+		long subBucket = Math.min(micros >>> shift, 2 * SUB_BUCKETS - 1) - SUB_BUCKETS;
+		return (shift + 1) * SUB_BUCKETS + (int) subBucket;
+	}
+
+	static long upperBound(int index) {
+		if (index < 2 * SUB_BUCKETS) {
+			return index;
+		}
+		int shift = index / SUB_BUCKETS - 1;
+		long lower = (long) (index % SUB_BUCKETS + SUB_BUCKETS) << shift;
+		return lower + (1L << shift) - 1L;
+	}
+
+}
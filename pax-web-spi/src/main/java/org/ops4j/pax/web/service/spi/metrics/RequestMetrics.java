@@ -0,0 +1,269 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.spi.metrics;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletResponse;
+
+import org.ops4j.pax.web.service.spi.config.ServerConfiguration;
+import org.ops4j.pax.web.service.spi.model.OsgiContextModel;
+import org.ops4j.pax.web.service.spi.model.elements.ServletModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Container-neutral request metrics - counters and {@link LatencyHistogram latency histograms} for each
+ * {@link OsgiContextModel} and {@link ServletModel}. Each server runtime calls {@link #begin} and {@link #end}
+ * in the place where it knows both the target context and the target servlet of the request.</p>
+ *
+ * <p>Statistics are kept by model ID, so the lookup doesn't allocate. Server runtimes call
+ * {@link #remove(OsgiContextModel)} and {@link #remove(ServletModel)} when the model is unregistered and
+ * requests still in progress at that time don't create the statistics again in {@link #end}.</p>
+ */
+public class RequestMetrics implements RequestMetricsMXBean {
+
+	public static final Logger LOG = LoggerFactory.getLogger(RequestMetrics.class);
+
+	/** Property of {@link org.osgi.service.http.runtime.dto.RuntimeDTO#serviceDTO} with total number of requests */
+	public static final String PROPERTY_REQUESTS = "org.ops4j.pax.web.metrics.requests";
+
+	/** Property of {@link org.osgi.service.http.runtime.dto.RuntimeDTO#serviceDTO} with total number of errors */
+	public static final String PROPERTY_ERRORS = "org.ops4j.pax.web.metrics.errors";
+
+	/** Property of {@code HttpServiceRuntime} with JMX object name of the metrics */
+	public static final String PROPERTY_OBJECT_NAME = "org.ops4j.pax.web.metrics.objectName";
+
+	private final Map<String, RequestStatistics> contexts = new ConcurrentHashMap<>();
+	private final Map<String, RequestStatistics> servlets = new ConcurrentHashMap<>();
+
+	private final LongAdder totalRequests = new LongAdder();
+	private final LongAdder totalErrors = new LongAdder();
+
+	/**
+	 * Creates the metrics if they're enabled in {@link ServerConfiguration}.
+	 * @param configuration
+	 * @return {@code null} if request metrics are not enabled
+	 */
+	public static RequestMetrics create(ServerConfiguration configuration) {
+		if (configuration == null || configuration.isRequestMetricsEnabled() == null
+				|| !configuration.isRequestMetricsEnabled()) {
+			return null;
+		}
+		LOG.info("Request metrics enabled");
+		return new RequestMetrics();
+	}
+
+	/**
+	 * Marks the start of request processing by given context and servlet.
+	 * @param context may be {@code null}
+	 * @param servlet may be {@code null} (e.g., for default 404 servlet)
+	 * @return the start time to pass to {@link #end}
+	 */
+	public long begin(OsgiContextModel context, ServletModel servlet) {
+		if (context != null) {
+			statistics(context).begin();
+		}
+		if (servlet != null) {
+			statistics(servlet).begin();
+		}
+		return System.nanoTime();
+	}
+
+	/**
+	 * Marks the end of request processing started with {@link #begin}.
+	 * @param context
+	 * @param servlet
+	 * @param start
+	 * @param status HTTP status of the response
+	 * @param failed whether the processing ended with an exception
+	 */
+	public void end(OsgiContextModel context, ServletModel servlet, long start, int status, boolean failed) {
+		long nanos = System.nanoTime() - start;
+		boolean error = failed || status >= 500;
+		totalRequests.increment();
+		if (error) {
+			totalErrors.increment();
+		}
+		// the model may have been removed while the request was processed
+		RequestStatistics stats = context == null ? null : contexts.get(context.getId());
+		if (stats != null) {
+			stats.end(nanos, error);
+		}
+		stats = servlet == null ? null : servlets.get(servlet.getId());
+		if (stats != null) {
+			stats.end(nanos, error);
+		}
+	}
+
+	/**
+	 * Marks the end of request processing in a servlet container. If the request was put into asynchronous mode,
+	 * the processing ends when the {@link javax.servlet.AsyncContext} completes.
+	 * @param request
+	 * @param response
+	 * @param context
+	 * @param servlet
+	 * @param start
+	 * @param failed
+	 */
+	public void end(ServletRequest request, ServletResponse response, OsgiContextModel context,
+			ServletModel servlet, long start, boolean failed) {
+		if (!failed && request.isAsyncStarted()) {
+			try {
+				request.getAsyncContext().addListener(new MetricsAsyncListener(context, servlet, start));
+				return;
+			} catch (IllegalStateException e) {
+				// async processing has already completed
+				LOG.trace("Can't add async listener: {}", e.getMessage());
+			}
+		}
+		end(context, servlet, start, status(response), failed);
+	}
+
+	/**
+	 * Removes the statistics of a context
+	 * @param context
+	 */
+	public void remove(OsgiContextModel context) {
+		contexts.remove(context.getId());
+	}
+
+	/**
+	 * Removes the statistics of a servlet
+	 * @param servlet
+	 */
+	public void remove(ServletModel servlet) {
+		servlets.remove(servlet.getId());
+	}
+
+	@Override
+	public long getTotalRequests() {
+		return totalRequests.sum();
+	}
+
+	@Override
+	public long getTotalErrors() {
+		return totalErrors.sum();
+	}
+
+	@Override
+	public Map<String, RequestStatisticsSnapshot> getContextStatistics() {
+		return snapshots(contexts);
+	}
+
+	@Override
+	public Map<String, RequestStatisticsSnapshot> getServletStatistics() {
+		return snapshots(servlets);
+	}
+
+	@Override
+	public void reset() {
+		totalRequests.reset();
+		totalErrors.reset();
+		contexts.values().forEach(RequestStatistics::reset);
+		servlets.values().forEach(RequestStatistics::reset);
+	}
+
+	/**
+	 * Returns (creating if needed) statistics of given context
+	 * @param context
+	 * @return
+	 */
+	public RequestStatistics statistics(OsgiContextModel context) {
+		RequestStatistics stats = contexts.get(context.getId());
+		if (stats == null) {
+			stats = contexts.computeIfAbsent(context.getId(),
+					id -> new RequestStatistics(context.getName() + " (" + context.getContextPath() + ")"));
+		}
+		return stats;
+	}
+
+	/**
+	 * Returns (creating if needed) statistics of given servlet
+	 * @param servlet
+	 * @return
+	 */
+	public RequestStatistics statistics(ServletModel servlet) {
+		RequestStatistics stats = servlets.get(servlet.getId());
+		if (stats == null) {
+			stats = servlets.computeIfAbsent(servlet.getId(), id -> {
+				StringBuilder name = new StringBuilder();
+				servlet.getContextModels().forEach(ocm -> name.append(name.length() == 0 ? "" : ",").append(ocm.getName()));
+				return new RequestStatistics(name + "/" + servlet.getName());
+			});
+		}
+		return stats;
+	}
+
+	private Map<String, RequestStatisticsSnapshot> snapshots(Map<String, RequestStatistics> statistics) {
+		Map<String, RequestStatisticsSnapshot> result = new TreeMap<>();
+		statistics.forEach((id, stats) -> {
+			String key = result.containsKey(stats.getName()) ? stats.getName() + " #" + id : stats.getName();
+			result.put(key, stats.snapshot());
+		});
+		return result;
+	}
+
+	private static int status(ServletResponse response) {
+		return response instanceof HttpServletResponse ? ((HttpServletResponse) response).getStatus() : 200;
+	}
+
+	/**
+	 * {@link AsyncListener} which ends request processing when asynchronous processing completes.
+	 */
+	private class MetricsAsyncListener implements AsyncListener {
+
+		private final OsgiContextModel context;
+		private final ServletModel servlet;
+		private final long start;
+		private boolean failed = false;
+
+		MetricsAsyncListener(OsgiContextModel context, ServletModel servlet, long start) {
+			this.context = context;
+			this.servlet = servlet;
+			this.start = start;
+		}
+
+		@Override
+		public void onComplete(AsyncEvent event) throws IOException {
+			end(context, servlet, start, status(event.getSuppliedResponse()), failed);
+		}
+
+		@Override
+		public void onTimeout(AsyncEvent event) throws IOException {
+			failed = true;
+		}
+
+		@Override
+		public void onError(AsyncEvent event) throws IOException {
+			failed = true;
+		}
+
+		@Override
+		public void onStartAsync(AsyncEvent event) throws IOException {
+			// request was put into async mode again - keep listening
+			event.getAsyncContext().addListener(this);
+		}
+	}
+
+}
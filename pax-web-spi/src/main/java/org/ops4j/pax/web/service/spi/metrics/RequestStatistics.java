@@ -0,0 +1,98 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.spi.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live counters and {@link LatencyHistogram} of requests handled by single context or servlet.
+ */
+public class RequestStatistics {
+
+	private final String name;
+
+	private final LongAdder requests = new LongAdder();
+	private final LongAdder errors = new LongAdder();
+	private final LongAdder active = new LongAdder();
+	private final LatencyHistogram latency = new LatencyHistogram();
+
+	public RequestStatistics(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Marks the start of request processing
+	 */
+	public void begin() {
+		active.increment();
+	}
+
+	/**
+	 * Marks the end of request processing
+	 * @param nanos duration of request processing
+	 * @param error whether the request has failed (with exception or with {@code 5xx} status)
+	 */
+	public void end(long nanos, boolean error) {
+		active.decrement();
+		requests.increment();
+		if (error) {
+			errors.increment();
+		}
+		latency.record(nanos);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getRequests() {
+		return requests.sum();
+	}
+
+	public long getErrors() {
+		return errors.sum();
+	}
+
+	public long getActive() {
+		return active.sum();
+	}
+
+	public LatencyHistogram getLatency() {
+		return latency;
+	}
+
+	public void reset() {
+		requests.reset();
+		errors.reset();
+		latency.reset();
+	}
+
+	/**
+	 * Returns immutable view of current values.
+	 * @return
+	 */
+	public RequestStatisticsSnapshot snapshot() {
+		return new RequestStatisticsSnapshot(name, requests.sum(), errors.sum(), active.sum(), latency.getMean(),
+				latency.getValueAtPercentile(50d), latency.getValueAtPercentile(90d),
+				latency.getValueAtPercentile(99d), latency.getValueAtPercentile(99.9d), latency.getMax());
+	}
+
+	@Override
+	public String toString() {
+		return "RequestStatistics{name=" + name + ", requests=" + getRequests() + ", errors=" + getErrors() + "}";
+	}
+
+}
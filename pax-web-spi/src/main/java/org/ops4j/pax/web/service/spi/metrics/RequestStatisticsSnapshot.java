@@ -0,0 +1,96 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.spi.metrics;
+
+/**
+ * Immutable values of {@link RequestStatistics} at some point of time. Latencies are in microseconds. This class
+ * is exposed through JMX as {@link javax.management.openmbean.CompositeData}.
+ */
+public class RequestStatisticsSnapshot {
+
+	private final String name;
+	private final long requests;
+	private final long errors;
+	private final long active;
+	private final long meanLatency;
+	private final long latency50;
+	private final long latency90;
+	private final long latency99;
+	private final long latency999;
+	private final long maxLatency;
+
+	public RequestStatisticsSnapshot(String name, long requests, long errors, long active, long meanLatency,
+			long latency50, long latency90, long latency99, long latency999, long maxLatency) {
+		this.name = name;
+		this.requests = requests;
+		this.errors = errors;
+		this.active = active;
+		this.meanLatency = meanLatency;
+		this.latency50 = latency50;
+		this.latency90 = latency90;
+		this.latency99 = latency99;
+		this.latency999 = latency999;
+		this.maxLatency = maxLatency;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getRequests() {
+		return requests;
+	}
+
+	public long getErrors() {
+		return errors;
+	}
+
+	public long getActive() {
+		return active;
+	}
+
+	public long getMeanLatency() {
+		return meanLatency;
+	}
+
+	public long getLatency50() {
+		return latency50;
+	}
+
+	public long getLatency90() {
+		return latency90;
+	}
+
+	public long getLatency99() {
+		return latency99;
+	}
+
+	public long getLatency999() {
+		return latency999;
+	}
+
+	public long getMaxLatency() {
+		return maxLatency;
+	}
+
+	@Override
+	public String toString() {
+		return name + ": requests=" + requests + ", errors=" + errors + ", active=" + active
+				+ ", mean=" + meanLatency + "us, p50=" + latency50 + "us, p90=" + latency90
+				+ "us, p99=" + latency99 + "us, p99.9=" + latency999 + "us, max=" + maxLatency + "us";
+	}
+
+}
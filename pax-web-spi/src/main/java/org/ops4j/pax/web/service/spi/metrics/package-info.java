@@ -0,0 +1,22 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/**
+ * Package containing container-neutral request metrics (counters and latency histograms per
+ * {@link org.ops4j.pax.web.service.spi.model.OsgiContextModel} and
+ * {@link org.ops4j.pax.web.service.spi.model.elements.ServletModel}), which are recorded by all the server
+ * runtimes.
+ */
+package org.ops4j.pax.web.service.spi.metrics;
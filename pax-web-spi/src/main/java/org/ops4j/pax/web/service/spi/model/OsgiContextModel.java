@@ -208,6 +208,12 @@ public final class OsgiContextModel extends Identity implements Comparable<OsgiC
 	/** If this name is set, it'll be used in associated {@link WebContainerContext} */
 	private String name = null;
 
+	/**
+	 * Session ID prefix derived from {@link #getTemporaryLocation()}, computed once (and again only after
+	 * changing {@link #name} or {@link #contextPath}), because it's needed for every request.
+	 */
+	private volatile String sessionIdPrefix;
+
 	/**
 	 * <p>Actual OSGi-specific <em>context</em> (can be {@link HttpContext} or
 	 * {@link ServletContextHelper} wrapper) that'll be used by {@link ServletContext}
@@ -486,15 +492,23 @@ public final class OsgiContextModel extends Identity implements Comparable<OsgiC
 				return new WebContainerContextWrapper(bundleContext.getBundle(), (ServletContextHelper) context, name);
 			}
 
-			dtoFailureCode = DTOConstants.FAILURE_REASON_SERVICE_NOT_GETTABLE;
+			serviceNotGettable();
 			throw new IllegalStateException("Unsupported Whiteboard service for HttpContext/ServletContextHelper"
 					+ " specified");
 		}
 
-		dtoFailureCode = DTOConstants.FAILURE_REASON_SERVICE_NOT_GETTABLE;
+		serviceNotGettable();
 		throw new IllegalStateException("No HttpContext/ServletContextHelper configured for " + this);
 	}
 
+	private void serviceNotGettable() {
+		if (dtoFailureCode != DTOConstants.FAILURE_REASON_SERVICE_NOT_GETTABLE) {
+			dtoFailureCode = DTOConstants.FAILURE_REASON_SERVICE_NOT_GETTABLE;
+			// context is resolved by the runtimes outside of configuration thread
+			ServerModel.dtoFailureCodeChanged();
+		}
+	}
+
 	private String toString(ServiceReference<?> ref) {
 		Long id = (Long) ref.getProperty(Constants.SERVICE_ID);
 		return String.format("ServiceReference (id=%d, objectClass=%s)", id, String.join(", ", Utils.getObjectClasses(ref)));
@@ -540,6 +554,7 @@ public final class OsgiContextModel extends Identity implements Comparable<OsgiC
 
 	public void setName(String name) {
 		this.name = name;
+		this.sessionIdPrefix = null;
 	}
 
 	public Map<String, String> getContextParams() {
@@ -576,6 +591,7 @@ public final class OsgiContextModel extends Identity implements Comparable<OsgiC
 
 	public void setContextPath(String contextPath) {
 		this.contextPath = contextPath;
+		this.sessionIdPrefix = null;
 	}
 
 	public int getServiceRank() {
@@ -817,6 +833,22 @@ public final class OsgiContextModel extends Identity implements Comparable<OsgiC
 		return String.format("%s/%s", "/".equals(contextPath) ? "ROOT" : contextPath.substring(1), name);
 	}
 
+	/**
+	 * Returns the prefix used by Pax Web session ID generators/managers to make session IDs unique across
+	 * {@link OsgiContextModel OSGi contexts} sharing single {@link ServletContext}. It's
+	 * {@link #getTemporaryLocation()} with slashes replaced by underscores. The value is cached, so it can be
+	 * used for each request without any allocation.
+	 * @return
+	 */
+	public String getSessionIdPrefix() {
+		String prefix = sessionIdPrefix;
+		if (prefix == null) {
+			prefix = getTemporaryLocation().replace('/', '_');
+			sessionIdPrefix = prefix;
+		}
+		return prefix;
+	}
+
 	/**
 	 * Called on demand when someone wants to create {@link ServletContextDTO successful DTO} from this
 	 * {@link OsgiContextModel}
@@ -0,0 +1,277 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.spi.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.osgi.dto.DTO;
+import org.osgi.service.http.runtime.dto.FilterDTO;
+import org.osgi.service.http.runtime.dto.RequestInfoDTO;
+import org.osgi.service.http.runtime.dto.ResourceDTO;
+import org.osgi.service.http.runtime.dto.RuntimeDTO;
+import org.osgi.service.http.runtime.dto.ServletContextDTO;
+import org.osgi.service.http.runtime.dto.ServletDTO;
+
+/**
+ * <p>Index of the mappings from {@link RuntimeDTO} used to calculate {@link RequestInfoDTO} for given path without
+ * sorting all the contexts and patterns for each request. The index is created once for each snapshot of
+ * {@link RuntimeDTO} maintained by {@link ServerModel}, so it's always in sync with the model.</p>
+ *
+ * <p>Contexts and servlet/resource mappings are resolved by hash lookups of path prefixes (at {@code /}
+ * boundaries) from the longest one, according to "12.1 Use of URL Paths" of the Servlet specification:<ol>
+ *     <li>exact match</li>
+ *     <li>longest prefix ({@code /xxx/*}) match</li>
+ *     <li>extension ({@code *.xxx}) match</li>
+ *     <li>default servlet ({@code /})</li>
+ * </ol></p>
+ */
+class RequestInfoIndex {
+
+	/** Context indexes by context path - first {@link ServletContextDTO} for given path wins */
+	private final Map<String, ContextIndex> contexts = new HashMap<>();
+
+	RequestInfoIndex(RuntimeDTO runtimeDTO) {
+		if (runtimeDTO.servletContextDTOs != null) {
+			for (ServletContextDTO scDTO : runtimeDTO.servletContextDTOs) {
+				String contextPath = "/".equals(scDTO.contextPath) || scDTO.contextPath == null ? "" : scDTO.contextPath;
+				contexts.putIfAbsent(contextPath, new ContextIndex(scDTO));
+			}
+		}
+	}
+
+	/**
+	 * Finds the context, servlet/resource and filters that would handle a request with given path.
+	 * @param path
+	 * @return
+	 */
+	public RequestInfoDTO resolve(String path) {
+		RequestInfoDTO dto = new RequestInfoDTO();
+		dto.path = path;
+
+		String p = path;
+		int query = p.indexOf('?');
+		if (query >= 0) {
+			// remove query string
+			p = p.substring(0, query);
+		}
+		if (!p.startsWith("/")) {
+			p = "/" + p;
+		}
+
+		// the longest context path which is equal to the path or its prefix ending before "/"
+		String candidate = p;
+		while (true) {
+			ContextIndex context = contexts.get(candidate);
+			if (context != null) {
+				String remaining = p.substring(candidate.length());
+				context.resolve(remaining.isEmpty() ? "/" : remaining, dto);
+				break;
+			}
+			if (candidate.isEmpty()) {
+				break;
+			}
+			candidate = candidate.substring(0, candidate.lastIndexOf('/'));
+		}
+
+		return dto;
+	}
+
+	/**
+	 * Mappings of single {@link ServletContextDTO}.
+	 */
+	private static class ContextIndex {
+		private final long serviceId;
+
+		private final Map<String, DTO> exactMappings = new HashMap<>();
+		/** Prefix mappings without trailing {@code /*} - {@code /*} is stored under empty key */
+		private final Map<String, DTO> prefixMappings = new HashMap<>();
+		/** Extension mappings without leading {@code *.} */
+		private final Map<String, DTO> extensionMappings = new HashMap<>();
+		private DTO defaultMapping;
+
+		private final List<FilterMatcher> filters = new ArrayList<>();
+
+		ContextIndex(ServletContextDTO scDTO) {
+			this.serviceId = scDTO.serviceId;
+			if (scDTO.servletDTOs != null) {
+				for (ServletDTO sDTO : scDTO.servletDTOs) {
+					addMappings(sDTO.patterns, sDTO);
+				}
+			}
+			if (scDTO.resourceDTOs != null) {
+				for (ResourceDTO rDTO : scDTO.resourceDTOs) {
+					addMappings(rDTO.patterns, rDTO);
+				}
+			}
+			if (scDTO.filterDTOs != null) {
+				for (FilterDTO fDTO : scDTO.filterDTOs) {
+					filters.add(new FilterMatcher(fDTO));
+				}
+			}
+		}
+
+		private void addMappings(String[] patterns, DTO target) {
+			if (patterns == null) {
+				return;
+			}
+			for (String pattern : patterns) {
+				if ("/".equals(pattern)) {
+					defaultMapping = target;
+				} else if ("".equals(pattern)) {
+					// context root
+					exactMappings.put("/", target);
+				} else if (pattern.endsWith("/*")) {
+					prefixMappings.put(pattern.substring(0, pattern.length() - 2), target);
+				} else if (pattern.startsWith("*.")) {
+					extensionMappings.put(pattern.substring(2), target);
+				} else {
+					exactMappings.put(pattern, target);
+				}
+			}
+		}
+
+		public void resolve(String path, RequestInfoDTO dto) {
+			dto.servletContextId = serviceId;
+
+			DTO target = exactMappings.get(path);
+			if (target == null && !prefixMappings.isEmpty()) {
+				String candidate = path;
+				while (target == null) {
+					target = prefixMappings.get(candidate);
+					if (candidate.isEmpty()) {
+						break;
+					}
+					candidate = candidate.substring(0, candidate.lastIndexOf('/'));
+				}
+			}
+			if (target == null && !extensionMappings.isEmpty()) {
+				String extension = extension(path);
+				if (extension != null) {
+					target = extensionMappings.get(extension);
+				}
+			}
+			if (target == null) {
+				target = defaultMapping;
+			}
+
+			String targetName = null;
+			if (target instanceof ServletDTO) {
+				dto.servletDTO = (ServletDTO) target;
+				targetName = dto.servletDTO.name;
+			} else if (target instanceof ResourceDTO) {
+				dto.resourceDTO = (ResourceDTO) target;
+				targetName = "default";
+			}
+
+			List<FilterDTO> matchingFilters = new ArrayList<>();
+			for (FilterMatcher filter : filters) {
+				if (filter.matches(path, targetName)) {
+					matchingFilters.add(filter.dto);
+				}
+			}
+			dto.filterDTOs = matchingFilters.toArray(new FilterDTO[0]);
+		}
+	}
+
+	/**
+	 * Precompiled mappings of single {@link FilterDTO}.
+	 */
+	private static class FilterMatcher {
+		private final FilterDTO dto;
+
+		private final Set<String> servletNames;
+		private final Set<String> exactMappings = new HashSet<>();
+		private final Set<String> prefixMappings = new HashSet<>();
+		private final Set<String> extensionMappings = new HashSet<>();
+		private final List<Pattern> regexMappings = new ArrayList<>();
+
+		FilterMatcher(FilterDTO dto) {
+			this.dto = dto;
+			this.servletNames = dto.servletNames == null ? Collections.emptySet() : new HashSet<>();
+			if (dto.servletNames != null) {
+				Collections.addAll(servletNames, dto.servletNames);
+			}
+			if (dto.patterns != null) {
+				for (String pattern : dto.patterns) {
+					if (pattern.endsWith("/*")) {
+						prefixMappings.add(pattern.substring(0, pattern.length() - 2));
+					} else if (pattern.startsWith("*.")) {
+						extensionMappings.add(pattern.substring(2));
+					} else {
+						exactMappings.add("".equals(pattern) ? "/" : pattern);
+					}
+				}
+			}
+			if (dto.regexs != null) {
+				for (String regex : dto.regexs) {
+					regexMappings.add(Pattern.compile(regex));
+				}
+			}
+		}
+
+		public boolean matches(String path, String targetName) {
+			if (targetName != null && servletNames.contains(targetName)) {
+				return true;
+			}
+			if (exactMappings.contains(path)) {
+				return true;
+			}
+			if (!prefixMappings.isEmpty()) {
+				String candidate = path;
+				while (true) {
+					if (prefixMappings.contains(candidate)) {
+						return true;
+					}
+					if (candidate.isEmpty()) {
+						break;
+					}
+					candidate = candidate.substring(0, candidate.lastIndexOf('/'));
+				}
+			}
+			if (!extensionMappings.isEmpty()) {
+				String extension = extension(path);
+				if (extension != null && extensionMappings.contains(extension)) {
+					return true;
+				}
+			}
+			for (Pattern regex : regexMappings) {
+				if (regex.matcher(path).matches()) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Returns an extension of last segment of the path or {@code null}
+	 * @param path
+	 * @return
+	 */
+	private static String extension(String path) {
+		int slash = path.lastIndexOf('/');
+		int dot = path.lastIndexOf('.');
+		return dot > slash ? path.substring(dot + 1) : null;
+	}
+
+}
@@ -20,7 +20,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.Dictionary;
 import java.util.EventListener;
 import java.util.HashMap;
@@ -45,7 +44,6 @@ import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import javax.servlet.Filter;
 import javax.servlet.Servlet;
@@ -61,6 +59,7 @@ import org.ops4j.pax.web.service.spi.ServerController;
 import org.ops4j.pax.web.service.spi.config.JspConfiguration;
 import org.ops4j.pax.web.service.spi.context.DefaultMultiBundleWebContainerContext;
 import org.ops4j.pax.web.service.spi.context.WebContainerContextWrapper;
+import org.ops4j.pax.web.service.spi.metrics.RequestMetrics;
 import org.ops4j.pax.web.service.spi.model.elements.ContainerInitializerModel;
 import org.ops4j.pax.web.service.spi.model.elements.ElementModel;
 import org.ops4j.pax.web.service.spi.model.elements.ErrorPageModel;
@@ -98,10 +97,10 @@ import org.ops4j.pax.web.service.spi.whiteboard.WhiteboardWebContainerView;
 import org.ops4j.pax.web.service.whiteboard.ContextMapping;
 import org.ops4j.pax.web.service.whiteboard.HttpContextMapping;
 import org.ops4j.pax.web.service.whiteboard.ServletContextHelperMapping;
-import org.osgi.dto.DTO;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.Constants;
 import org.osgi.framework.ServiceFactory;
+import org.osgi.framework.ServiceReference;
 import org.osgi.framework.ServiceRegistration;
 import org.osgi.framework.dto.ServiceReferenceDTO;
 import org.osgi.service.http.HttpContext;
@@ -150,6 +149,13 @@ public class ServerModel implements BatchVisitor, HttpServiceRuntime, ReportView
 	/** This virtual host name is used if there is no Web-VirtualHosts in manifest. */
 	private static final String DEFAULT_VIRTUAL_HOST = "default";
 
+	/**
+	 * Number of changes of DTO failure codes of the models made outside of configuration thread - for example
+	 * when a runtime can't get a servlet service or servlet's {@code init()} fails. Such changes don't go
+	 * through {@link #apply}, but still have to invalidate {@link #runtimeDTOSnapshot}.
+	 */
+	private static final AtomicLong FAILURE_CODE_CHANGES = new AtomicLong(0L);
+
 	private final Executor executor;
 
 	/** Unique identified of the Thread from (assumed) single thread pool executor. */
@@ -430,11 +436,29 @@ public class ServerModel implements BatchVisitor, HttpServiceRuntime, ReportView
 	 */
 	private ServiceRegistration<HttpServiceRuntime> httpServiceRuntimeReg;
 
+	/**
+	 * Request metrics of the actual runtime (if enabled) - totals are exposed as properties of
+	 * {@link RuntimeDTO#serviceDTO}.
+	 */
+	private volatile RequestMetrics requestMetrics;
+
 	/**
 	 * {@code service.changecount} for {@link HttpServiceRuntime} {@link ServiceRegistration}.
 	 */
 	private final AtomicLong changeCount = new AtomicLong(0L);
 
+	/**
+	 * Version of the model incremented (in configuration thread) after each task that may have changed the model
+	 * is applied. Unlike {@link #changeCount}, which is incremented when a task is submitted, it tells whether
+	 * {@link #runtimeDTOSnapshot} still reflects the model.
+	 */
+	private final AtomicLong modelVersion = new AtomicLong(0L);
+
+	/**
+	 * Last {@link RuntimeDTO} built in configuration thread, shared by all readers until the model changes.
+	 */
+	private volatile RuntimeDTOSnapshot runtimeDTOSnapshot;
+
 	private final List<ReportViewPlugin> plugins = new CopyOnWriteArrayList<>();
 
 	private final AtomicBoolean stopping = new AtomicBoolean(false);
@@ -529,46 +553,117 @@ public class ServerModel implements BatchVisitor, HttpServiceRuntime, ReportView
 
 		if (!asynchronous && Thread.currentThread().getId() == registrationThreadId) {
 			// we can run immediately
-			return task.run();
+			return apply(task);
 		}
 
 		final Throwable originalTrace = new Throwable();
 
 		try {
-			try {
-				CompletableFuture<T> future = CompletableFuture.supplyAsync(() -> {
-					try {
-						return task.run();
-					} catch (ServletException e) {
-						throw new ModelRegistrationException(e);
-					} catch (NamespaceException e) {
-						throw new ModelRegistrationException(e);
-					}
-				}, executor);
-				if (asynchronous) {
-					return null;
-				} else {
-					return future.get();
-				}
-			} catch (InterruptedException e) {
-				Thread.currentThread().interrupt();
-				throw new IllegalStateException(e.getMessage(), e);
-			} catch (ExecutionException e) {
-				if (e.getCause() instanceof ModelRegistrationException) {
-					((ModelRegistrationException) e.getCause()).throwTheCause();
-				} else if (e.getCause() instanceof RuntimeException) {
-					throw (RuntimeException) e.getCause();
-				} else {
-					// no idea what went wrong
-					throw new RuntimeException(e.getCause().getMessage(), e.getCause());
+			CompletableFuture<T> future = CompletableFuture.supplyAsync(() -> {
+				try {
+					return apply(task);
+				} catch (ServletException e) {
+					throw new ModelRegistrationException(e);
+				} catch (NamespaceException e) {
+					throw new ModelRegistrationException(e);
 				}
-			}
+			}, executor);
+			return asynchronous ? null : await(future, originalTrace);
 		} catch (RejectedExecutionException e) {
 			return null;
 		} catch (RuntimeException e) {
 			e.addSuppressed(originalTrace);
 			throw e;
 		}
+	}
+
+	/**
+	 * Runs a task, which may change the model, in configuration thread and marks the model as changed.
+	 * @param task
+	 * @param <T>
+	 * @return
+	 * @throws ServletException
+	 * @throws NamespaceException
+	 */
+	private <T> T apply(ModelRegistrationTask<T> task) throws ServletException, NamespaceException {
+		try {
+			return task.run();
+		} finally {
+			modelVersion.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Called when DTO failure code of an {@link ElementModel} or {@link OsgiContextModel} changes, so next
+	 * {@link #getRuntimeDTO()} call reflects the failure, even if it was set outside of configuration thread.
+	 */
+	public static void dtoFailureCodeChanged() {
+		FAILURE_CODE_CHANGES.incrementAndGet();
+	}
+
+	/**
+	 * Version of the model used to check whether {@link #runtimeDTOSnapshot} is current. Both counters only grow,
+	 * so their sum changes whenever any of them changes.
+	 * @return
+	 */
+	private long dtoVersion() {
+		return modelVersion.get() + FAILURE_CODE_CHANGES.get();
+	}
+
+	/**
+	 * Runs a read-only task in configuration thread - without incrementing the change counter.
+	 * @param task
+	 * @param <T>
+	 * @return
+	 */
+	private <T> T query(ModelRegistrationTask<T> task) {
+		try {
+			if (Thread.currentThread().getId() == registrationThreadId) {
+				return task.run();
+			}
+			final Throwable originalTrace = new Throwable();
+			CompletableFuture<T> future = CompletableFuture.supplyAsync(() -> {
+				try {
+					return task.run();
+				} catch (ServletException e) {
+					throw new ModelRegistrationException(e);
+				} catch (NamespaceException e) {
+					throw new ModelRegistrationException(e);
+				}
+			}, executor);
+			return await(future, originalTrace);
+		} catch (RejectedExecutionException e) {
+			return null;
+		} catch (ServletException | NamespaceException e) {
+			throw new RuntimeException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Waits for the result of a task run in another thread, unwrapping the original exception.
+	 * @param future
+	 * @param originalTrace
+	 * @param <T>
+	 * @return
+	 * @throws ServletException
+	 * @throws NamespaceException
+	 */
+	private <T> T await(CompletableFuture<T> future, Throwable originalTrace) throws ServletException, NamespaceException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e.getMessage(), e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof ModelRegistrationException) {
+				((ModelRegistrationException) e.getCause()).throwTheCause();
+			} else if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			} else {
+				// no idea what went wrong
+				throw new RuntimeException(e.getCause().getMessage(), e.getCause());
+			}
+		}
 
 		// ??
 		return null;
@@ -600,7 +695,7 @@ public class ServerModel implements BatchVisitor, HttpServiceRuntime, ReportView
 		try {
 			CompletableFuture.supplyAsync(() -> {
 				try {
-					return task.run();
+					return apply(task);
 				} catch (ServletException e) {
 					throw new ModelRegistrationException(e);
 				} catch (NamespaceException e) {
@@ -3104,371 +3199,310 @@ public class ServerModel implements BatchVisitor, HttpServiceRuntime, ReportView
 
 	// --- implementation of org.osgi.service.http.runtime.HttpServiceRuntime
 
+	/**
+	 * <p>Returns {@link RuntimeDTO} built from a snapshot which is shared by all callers until the model changes.
+	 * Only when the model has changed since the snapshot was created, a new snapshot is built in configuration
+	 * thread - otherwise the DTO is returned without entering this thread, so monitoring tools polling the
+	 * {@link HttpServiceRuntime} don't block the registrations.</p>
+	 *
+	 * <p>Only {@link RuntimeDTO#serviceDTO} and the top-level arrays are created for each call - the context and
+	 * element DTOs inside the arrays are shared by all the callers and have to be treated as read-only.</p>
+	 *
+	 * @return
+	 */
 	@Override
 	public RuntimeDTO getRuntimeDTO() {
-		return runSilently(() -> {
-			RuntimeDTO dto = new RuntimeDTO();
+		RuntimeDTOSnapshot snapshot = getRuntimeDTOSnapshot();
+		if (snapshot == null) {
+			// configuration thread is no longer available
+			return null;
+		}
 
-			// --- service information
+		RuntimeDTO dto = new RuntimeDTO();
 
-			dto.serviceDTO = new ServiceReferenceDTO();
-			dto.serviceDTO.id = httpServiceRuntimeDTO.id;
-			dto.serviceDTO.bundle = httpServiceRuntimeDTO.bundle;
-			dto.serviceDTO.usingBundles = Arrays.stream(httpServiceRuntimeReg.getReference().getUsingBundles())
-					.mapToLong(Bundle::getBundleId).toArray();
-			dto.serviceDTO.properties = new HashMap<>(httpServiceRuntimeDTO.properties);
-			dto.serviceDTO.properties.put("service.changecount", changeCount.get());
-			// osgi.http.endpoint will be updated by org.ops4j.pax.web.service.internal.Activator.AddressConfiguration
+		// --- service information
 
-			// --- context information
+		dto.serviceDTO = new ServiceReferenceDTO();
+		dto.serviceDTO.id = httpServiceRuntimeDTO.id;
+		dto.serviceDTO.bundle = httpServiceRuntimeDTO.bundle;
+		ServiceReference<HttpServiceRuntime> ref = httpServiceRuntimeReg == null ? null : httpServiceRuntimeReg.getReference();
+		Bundle[] usingBundles = ref == null ? null : ref.getUsingBundles();
+		dto.serviceDTO.usingBundles = usingBundles == null ? new long[0]
+				: Arrays.stream(usingBundles).mapToLong(Bundle::getBundleId).toArray();
+		dto.serviceDTO.properties = new HashMap<>(httpServiceRuntimeDTO.properties);
+		dto.serviceDTO.properties.put("service.changecount", snapshot.changeCount);
+		RequestMetrics metrics = requestMetrics;
+		if (metrics != null) {
+			dto.serviceDTO.properties.put(RequestMetrics.PROPERTY_REQUESTS, metrics.getTotalRequests());
+			dto.serviceDTO.properties.put(RequestMetrics.PROPERTY_ERRORS, metrics.getTotalErrors());
+		}
+		// osgi.http.endpoint will be updated by org.ops4j.pax.web.service.internal.Activator.AddressConfiguration
 
-			Map<OsgiContextModel, ServletContextDTO> scDTOs = new LinkedHashMap<>();
-			List<FailedServletContextDTO> failedScDTOs = new ArrayList<>();
+		RuntimeDTO shared = snapshot.dto;
+		dto.servletContextDTOs = shared.servletContextDTOs.clone();
+		dto.failedServletContextDTOs = shared.failedServletContextDTOs.clone();
+		dto.failedErrorPageDTOs = shared.failedErrorPageDTOs.clone();
+		dto.failedFilterDTOs = shared.failedFilterDTOs.clone();
+		dto.preprocessorDTOs = shared.preprocessorDTOs.clone();
+		dto.failedPreprocessorDTOs = shared.failedPreprocessorDTOs.clone();
+		dto.failedListenerDTOs = shared.failedListenerDTOs.clone();
+		dto.failedResourceDTOs = shared.failedResourceDTOs.clone();
+		dto.failedServletDTOs = shared.failedServletDTOs.clone();
 
-			// OsgiContextModels from WABs - we don't care about contexts "awaiting allocation"
-			bundleWabAllocatedContexts.values().forEach(ocm -> {
-				scDTOs.put(ocm, ocm.toDTO());
-			});
-			// OsgiContextModels from HttpService/WebContainer (including Whiteboard ones with direct context instance)
-			// including non-failed ones and failed (usually shaded - set elements from 2nd to the end)
-			bundleContexts.values().forEach(ocms -> {
-				boolean first = true;
-				for (OsgiContextModel ocm : ocms) {
-					if (first) {
-						scDTOs.put(ocm, ocm.toDTO());
-					} else {
-						failedScDTOs.add(ocm.toFailedDTO(DTOConstants.FAILURE_REASON_SHADOWED_BY_OTHER_SERVICE));
-					}
-					first = false;
-				}
-			});
-			// HttpService/WebContainer which are shaded by Whiteboard-registered contexts with direct instance
-			bundleDefaultContexts.values().forEach(ocm -> {
-				failedScDTOs.add(ocm.toFailedDTO(DTOConstants.FAILURE_REASON_SHADOWED_BY_OTHER_SERVICE));
-			});
-			// OsgiContextModels from Whiteboard (excluding ones with direct context instance) - failed and non-failed
-			// they're not kept at ServerModel level at all
-			whiteboardContexts.values().stream().flatMap(Collection::stream).forEach(ocm -> {
-				if (ocm.getDtoFailureCode() >= 0) {
-					failedScDTOs.add(ocm.toFailedDTO(ocm.getDtoFailureCode()));
-				} else {
+		return dto;
+	}
+
+	/**
+	 * Returns current {@link RuntimeDTOSnapshot}, creating it in configuration thread if the model has changed.
+	 * @return
+	 */
+	private RuntimeDTOSnapshot getRuntimeDTOSnapshot() {
+		RuntimeDTOSnapshot snapshot = runtimeDTOSnapshot;
+		if (snapshot != null && snapshot.modelVersion == dtoVersion()) {
+			return snapshot;
+		}
+		RuntimeDTOSnapshot current = query(() -> {
+			RuntimeDTOSnapshot s = runtimeDTOSnapshot;
+			long version = dtoVersion();
+			if (s == null || s.modelVersion != version) {
+				// there are no concurrent changes of the model in configuration thread
+				s = new RuntimeDTOSnapshot(version, changeCount.get(), createRuntimeDTO());
+				runtimeDTOSnapshot = s;
+			}
+			return s;
+		});
+		return current != null ? current : snapshot;
+	}
+
+	/**
+	 * Creates {@link RuntimeDTO} (without {@link RuntimeDTO#serviceDTO}) from current state of the model. Has to be
+	 * called in configuration thread.
+	 * @return
+	 */
+	private RuntimeDTO createRuntimeDTO() {
+		RuntimeDTO dto = new RuntimeDTO();
+
+		// --- context information
+
+		Map<OsgiContextModel, ServletContextDTO> scDTOs = new LinkedHashMap<>();
+		List<FailedServletContextDTO> failedScDTOs = new ArrayList<>();
+
+		// OsgiContextModels from WABs - we don't care about contexts "awaiting allocation"
+		bundleWabAllocatedContexts.values().forEach(ocm -> {
+			scDTOs.put(ocm, ocm.toDTO());
+		});
+		// OsgiContextModels from HttpService/WebContainer (including Whiteboard ones with direct context instance)
+		// including non-failed ones and failed (usually shaded - set elements from 2nd to the end)
+		bundleContexts.values().forEach(ocms -> {
+			boolean first = true;
+			for (OsgiContextModel ocm : ocms) {
+				if (first) {
 					scDTOs.put(ocm, ocm.toDTO());
+				} else {
+					failedScDTOs.add(ocm.toFailedDTO(DTOConstants.FAILURE_REASON_SHADOWED_BY_OTHER_SERVICE));
 				}
-			});
-			// we don't care about shared HttpService/WebContainer contexts as these are Pax Web specific
-
-			dto.servletContextDTOs = scDTOs.values().toArray(new ServletContextDTO[0]);
-			dto.failedServletContextDTOs = failedScDTOs.toArray(new FailedServletContextDTO[0]);
-
-			// --- element information
-			//     successful DTOs are attached to one of the ServletContextDTO
-			//     failed DTOs are attached directly to the RuntimeDTO
-
-			Map<ServletContextDTO, List<ErrorPageDTO>> scErrorPages = new IdentityHashMap<>();
-			Map<ServletContextDTO, List<FilterDTO>> scFilters = new IdentityHashMap<>();
-			Map<ServletContextDTO, List<ListenerDTO>> scListeners = new IdentityHashMap<>();
-			List<PreprocessorDTO> preprocessorDTOs = new ArrayList<>();
-			Map<ServletContextDTO, List<ResourceDTO>> scResources = new IdentityHashMap<>();
-			Map<ServletContextDTO, List<ServletDTO>> scServlets = new IdentityHashMap<>();
-
-			for (ServletContextDTO scDTO : dto.servletContextDTOs) {
-				scErrorPages.put(scDTO, new ArrayList<>());
-				scFilters.put(scDTO, new ArrayList<>());
-				scListeners.put(scDTO, new ArrayList<>());
-				scResources.put(scDTO, new ArrayList<>());
-				scServlets.put(scDTO, new ArrayList<>());
-			}
-
-			List<FailedErrorPageDTO> failedErrorPageDTOs = new ArrayList<>();
-			List<FailedFilterDTO> failedFilterDTOs = new ArrayList<>();
-			List<FailedListenerDTO> failedListenerDTOs = new ArrayList<>();
-			List<FailedPreprocessorDTO> failedPreprocessorDTOs = new ArrayList<>();
-			List<FailedResourceDTO> failedResourceDTOs = new ArrayList<>();
-			List<FailedServletDTO> failedServletDTOs = new ArrayList<>();
-
-			// ------ servlets, resources and error pages
-			this.servletsForDTO.forEach(sm -> {
-				if (sm.isResourceServlet()) {
-					if (!sm.isValid()) {
-						failedResourceDTOs.add(sm.toFailedResourceDTO(sm.getDtoFailureCode()));
-						return;
-					}
-				} else if (sm.getErrorPageModel() != null) {
-					if (!sm.getErrorPageModel().isValid()) {
-						failedErrorPageDTOs.add(sm.getErrorPageModel().toFailedDTO(sm, sm.getErrorPageModel().getDtoFailureCode()));
-						return;
-					}
-				} else if (!sm.isValid()) {
-					failedServletDTOs.add(sm.toFailedServletDTO(sm.getDtoFailureCode()));
+				first = false;
+			}
+		});
+		// HttpService/WebContainer which are shaded by Whiteboard-registered contexts with direct instance
+		bundleDefaultContexts.values().forEach(ocm -> {
+			failedScDTOs.add(ocm.toFailedDTO(DTOConstants.FAILURE_REASON_SHADOWED_BY_OTHER_SERVICE));
+		});
+		// OsgiContextModels from Whiteboard (excluding ones with direct context instance) - failed and non-failed
+		// they're not kept at ServerModel level at all
+		whiteboardContexts.values().stream().flatMap(Collection::stream).forEach(ocm -> {
+			if (ocm.getDtoFailureCode() >= 0) {
+				failedScDTOs.add(ocm.toFailedDTO(ocm.getDtoFailureCode()));
+			} else {
+				scDTOs.put(ocm, ocm.toDTO());
+			}
+		});
+		// we don't care about shared HttpService/WebContainer contexts as these are Pax Web specific
+
+		dto.servletContextDTOs = scDTOs.values().toArray(new ServletContextDTO[0]);
+		dto.failedServletContextDTOs = failedScDTOs.toArray(new FailedServletContextDTO[0]);
+
+		// --- element information
+		//     successful DTOs are attached to one of the ServletContextDTO
+		//     failed DTOs are attached directly to the RuntimeDTO
+
+		Map<ServletContextDTO, List<ErrorPageDTO>> scErrorPages = new IdentityHashMap<>();
+		Map<ServletContextDTO, List<FilterDTO>> scFilters = new IdentityHashMap<>();
+		Map<ServletContextDTO, List<ListenerDTO>> scListeners = new IdentityHashMap<>();
+		List<PreprocessorDTO> preprocessorDTOs = new ArrayList<>();
+		Map<ServletContextDTO, List<ResourceDTO>> scResources = new IdentityHashMap<>();
+		Map<ServletContextDTO, List<ServletDTO>> scServlets = new IdentityHashMap<>();
+
+		for (ServletContextDTO scDTO : dto.servletContextDTOs) {
+			scErrorPages.put(scDTO, new ArrayList<>());
+			scFilters.put(scDTO, new ArrayList<>());
+			scListeners.put(scDTO, new ArrayList<>());
+			scResources.put(scDTO, new ArrayList<>());
+			scServlets.put(scDTO, new ArrayList<>());
+		}
+
+		List<FailedErrorPageDTO> failedErrorPageDTOs = new ArrayList<>();
+		List<FailedFilterDTO> failedFilterDTOs = new ArrayList<>();
+		List<FailedListenerDTO> failedListenerDTOs = new ArrayList<>();
+		List<FailedPreprocessorDTO> failedPreprocessorDTOs = new ArrayList<>();
+		List<FailedResourceDTO> failedResourceDTOs = new ArrayList<>();
+		List<FailedServletDTO> failedServletDTOs = new ArrayList<>();
+
+		// ------ servlets, resources and error pages
+		this.servletsForDTO.forEach(sm -> {
+			if (sm.isResourceServlet()) {
+				if (!sm.isValid()) {
+					failedResourceDTOs.add(sm.toFailedResourceDTO(sm.getDtoFailureCode()));
+					return;
+				}
+			} else if (sm.getErrorPageModel() != null) {
+				if (!sm.getErrorPageModel().isValid()) {
+					failedErrorPageDTOs.add(sm.getErrorPageModel().toFailedDTO(sm, sm.getErrorPageModel().getDtoFailureCode()));
 					return;
 				}
+			} else if (!sm.isValid() || sm.getDtoFailureCode() >= 0) {
+				// valid servlet may still fail at runtime (service not gettable, exception in init())
+				failedServletDTOs.add(sm.toFailedServletDTO(sm.getDtoFailureCode()));
+				return;
+			}
 
-				// case of valid models
-				sm.getContextModels().forEach(ocm -> {
-					if (sm.isResourceServlet()) {
-						scResources.get(scDTOs.get(ocm)).add(sm.toResourceDTO());
-					} else if (sm.getErrorPageModel() != null) {
-						scErrorPages.get(scDTOs.get(ocm)).add(sm.getErrorPageModel().toDTO(sm));
-					} else {
-						scServlets.get(scDTOs.get(ocm)).add(sm.toServletDTO());
-					}
-				});
-			});
-			this.disabledServletModels.forEach(sm -> {
+			// case of valid models
+			sm.getContextModels().forEach(ocm -> {
 				if (sm.isResourceServlet()) {
-					failedResourceDTOs.add(sm.toFailedResourceDTO(DTOConstants.FAILURE_REASON_SHADOWED_BY_OTHER_SERVICE));
+					scResources.get(scDTOs.get(ocm)).add(sm.toResourceDTO());
 				} else if (sm.getErrorPageModel() != null) {
-					failedErrorPageDTOs.add(sm.getErrorPageModel().toFailedDTO(sm, DTOConstants.FAILURE_REASON_SHADOWED_BY_OTHER_SERVICE));
-				} else {
-					failedServletDTOs.add(sm.toFailedServletDTO(DTOConstants.FAILURE_REASON_SHADOWED_BY_OTHER_SERVICE));
-				}
-			});
-			this.disabledErrorPageModels.forEach(epm -> {
-				failedErrorPageDTOs.add(epm.toFailedDTO(null, DTOConstants.FAILURE_REASON_SHADOWED_BY_OTHER_SERVICE));
-			});
-			// ------ filters and preprocessors
-			this.filtersForDTO.forEach(fm -> {
-				if (!fm.isValid()) {
-					if (fm.isPreprocessor()) {
-						failedPreprocessorDTOs.add(fm.toFailedPreprocessorDTO(fm.getDtoFailureCode()));
-					} else {
-						failedFilterDTOs.add(fm.toFailedFilterDTO(fm.getDtoFailureCode()));
-					}
+					scErrorPages.get(scDTOs.get(ocm)).add(sm.getErrorPageModel().toDTO(sm));
 				} else {
-					fm.getContextModels().forEach(ocm -> {
-						if (fm.isPreprocessor()) {
-							// diagram Figure 140.3 Runtime DTO Overview Diagram is wrong, because
-							// PreprocessorDTOs are kept at RuntimeDTO level
-							preprocessorDTOs.add(fm.toPreprocessorDTO());
-						} else {
-							// only preprocessors are associated (according to Whiteboard DTO chapter) with
-							// any context - even if in Pax Web they're associated with ALL the contexts
-							scFilters.get(scDTOs.get(ocm)).add(fm.toFilterDTO());
-						}
-					});
+					scServlets.get(scDTOs.get(ocm)).add(sm.toServletDTO());
 				}
 			});
-			this.disabledFilterModels.forEach(fm -> {
+		});
+		this.disabledServletModels.forEach(sm -> {
+			if (sm.isResourceServlet()) {
+				failedResourceDTOs.add(sm.toFailedResourceDTO(DTOConstants.FAILURE_REASON_SHADOWED_BY_OTHER_SERVICE));
+			} else if (sm.getErrorPageModel() != null) {
+				failedErrorPageDTOs.add(sm.getErrorPageModel().toFailedDTO(sm, DTOConstants.FAILURE_REASON_SHADOWED_BY_OTHER_SERVICE));
+			} else {
+				failedServletDTOs.add(sm.toFailedServletDTO(DTOConstants.FAILURE_REASON_SHADOWED_BY_OTHER_SERVICE));
+			}
+		});
+		this.disabledErrorPageModels.forEach(epm -> {
+			failedErrorPageDTOs.add(epm.toFailedDTO(null, DTOConstants.FAILURE_REASON_SHADOWED_BY_OTHER_SERVICE));
+		});
+		// ------ filters and preprocessors
+		this.filtersForDTO.forEach(fm -> {
+			if (!fm.isValid() || fm.getDtoFailureCode() >= 0) {
 				if (fm.isPreprocessor()) {
-					failedPreprocessorDTOs.add(fm.toFailedPreprocessorDTO(DTOConstants.FAILURE_REASON_SHADOWED_BY_OTHER_SERVICE));
-				} else {
-					failedFilterDTOs.add(fm.toFailedFilterDTO(DTOConstants.FAILURE_REASON_SHADOWED_BY_OTHER_SERVICE));
-				}
-			});
-			// ------ listeners
-			this.eventListenersForDTO.forEach(lm -> {
-				if (!lm.isValid()) {
-					failedListenerDTOs.add(lm.toFailedDTO(lm.getDtoFailureCode()));
+					failedPreprocessorDTOs.add(fm.toFailedPreprocessorDTO(fm.getDtoFailureCode()));
 				} else {
-					lm.getContextModels().forEach(ocm -> {
-						scListeners.get(scDTOs.get(ocm)).add(lm.toDTO());
-					});
+					failedFilterDTOs.add(fm.toFailedFilterDTO(fm.getDtoFailureCode()));
 				}
-			});
-			// ------ failed Whiteboard elements
-			this.failedWhiteboardElements.forEach(em -> {
-				if (em instanceof ErrorPageModel) {
-					failedErrorPageDTOs.add(((ErrorPageModel) em).toFailedDTO(null, em.getDtoFailureCode()));
-				} else if (em instanceof FilterModel) {
-					if (((FilterModel) em).isPreprocessor()) {
-						failedPreprocessorDTOs.add(((FilterModel) em).toFailedPreprocessorDTO(em.getDtoFailureCode()));
-					} else {
-						failedFilterDTOs.add(((FilterModel) em).toFailedFilterDTO(em.getDtoFailureCode()));
-					}
-				} else if (em instanceof EventListenerModel) {
-					failedListenerDTOs.add(((EventListenerModel) em).toFailedDTO(em.getDtoFailureCode()));
-				} else if (em instanceof ServletModel) {
-					if (((ServletModel) em).isResourceServlet()) {
-						failedResourceDTOs.add(((ServletModel) em).toFailedResourceDTO(em.getDtoFailureCode()));
-					} else if (((ServletModel) em).getErrorPageModel() != null) {
-						failedErrorPageDTOs.add(((ServletModel) em).getErrorPageModel().toFailedDTO((ServletModel) em,
-								((ServletModel) em).getErrorPageModel().getDtoFailureCode()));
+			} else {
+				fm.getContextModels().forEach(ocm -> {
+					if (fm.isPreprocessor()) {
+						// diagram Figure 140.3 Runtime DTO Overview Diagram is wrong, because
+						// PreprocessorDTOs are kept at RuntimeDTO level
+						preprocessorDTOs.add(fm.toPreprocessorDTO());
 					} else {
-						failedServletDTOs.add(((ServletModel) em).toFailedServletDTO(em.getDtoFailureCode()));
+						// only preprocessors are associated (according to Whiteboard DTO chapter) with
+						// any context - even if in Pax Web they're associated with ALL the contexts
+						scFilters.get(scDTOs.get(ocm)).add(fm.toFilterDTO());
 					}
+				});
+			}
+		});
+		this.disabledFilterModels.forEach(fm -> {
+			if (fm.isPreprocessor()) {
+				failedPreprocessorDTOs.add(fm.toFailedPreprocessorDTO(DTOConstants.FAILURE_REASON_SHADOWED_BY_OTHER_SERVICE));
+			} else {
+				failedFilterDTOs.add(fm.toFailedFilterDTO(DTOConstants.FAILURE_REASON_SHADOWED_BY_OTHER_SERVICE));
+			}
+		});
+		// ------ listeners
+		this.eventListenersForDTO.forEach(lm -> {
+			if (!lm.isValid() || lm.getDtoFailureCode() >= 0) {
+				failedListenerDTOs.add(lm.toFailedDTO(lm.getDtoFailureCode()));
+			} else {
+				lm.getContextModels().forEach(ocm -> {
+					scListeners.get(scDTOs.get(ocm)).add(lm.toDTO());
+				});
+			}
+		});
+		// ------ failed Whiteboard elements
+		this.failedWhiteboardElements.forEach(em -> {
+			if (em instanceof ErrorPageModel) {
+				failedErrorPageDTOs.add(((ErrorPageModel) em).toFailedDTO(null, em.getDtoFailureCode()));
+			} else if (em instanceof FilterModel) {
+				if (((FilterModel) em).isPreprocessor()) {
+					failedPreprocessorDTOs.add(((FilterModel) em).toFailedPreprocessorDTO(em.getDtoFailureCode()));
+				} else {
+					failedFilterDTOs.add(((FilterModel) em).toFailedFilterDTO(em.getDtoFailureCode()));
+				}
+			} else if (em instanceof EventListenerModel) {
+				failedListenerDTOs.add(((EventListenerModel) em).toFailedDTO(em.getDtoFailureCode()));
+			} else if (em instanceof ServletModel) {
+				if (((ServletModel) em).isResourceServlet()) {
+					failedResourceDTOs.add(((ServletModel) em).toFailedResourceDTO(em.getDtoFailureCode()));
+				} else if (((ServletModel) em).getErrorPageModel() != null) {
+					failedErrorPageDTOs.add(((ServletModel) em).getErrorPageModel().toFailedDTO((ServletModel) em,
+							((ServletModel) em).getErrorPageModel().getDtoFailureCode()));
+				} else {
+					failedServletDTOs.add(((ServletModel) em).toFailedServletDTO(em.getDtoFailureCode()));
 				}
-			});
+			}
+		});
 
-			for (ServletContextDTO scDTO : dto.servletContextDTOs) {
-				scDTO.errorPageDTOs = scErrorPages.get(scDTO).toArray(new ErrorPageDTO[0]);
-				for (ErrorPageDTO d : scDTO.errorPageDTOs) {
-					d.servletContextId = scDTO.serviceId;
-				}
-				scDTO.filterDTOs = scFilters.get(scDTO).toArray(new FilterDTO[0]);
-				for (FilterDTO d : scDTO.filterDTOs) {
-					d.servletContextId = scDTO.serviceId;
-				}
-				// this should work according to Figure 140.3 Runtime DTO Overview Diagram...
+		for (ServletContextDTO scDTO : dto.servletContextDTOs) {
+			scDTO.errorPageDTOs = scErrorPages.get(scDTO).toArray(new ErrorPageDTO[0]);
+			for (ErrorPageDTO d : scDTO.errorPageDTOs) {
+				d.servletContextId = scDTO.serviceId;
+			}
+			scDTO.filterDTOs = scFilters.get(scDTO).toArray(new FilterDTO[0]);
+			for (FilterDTO d : scDTO.filterDTOs) {
+				d.servletContextId = scDTO.serviceId;
+			}
+			// this should work according to Figure 140.3 Runtime DTO Overview Diagram...
 //				scDTO.preprocessorDTOs = scPreprocessors.get(scDTO).toArray(new PreprocessorDTO[0]);
-				scDTO.listenerDTOs = scListeners.get(scDTO).toArray(new ListenerDTO[0]);
-				for (ListenerDTO d : scDTO.listenerDTOs) {
-					d.servletContextId = scDTO.serviceId;
-				}
-				scDTO.servletDTOs = scServlets.get(scDTO).toArray(new ServletDTO[0]);
-				for (ServletDTO d : scDTO.servletDTOs) {
-					d.servletContextId = scDTO.serviceId;
-				}
-				scDTO.resourceDTOs = scResources.get(scDTO).toArray(new ResourceDTO[0]);
-				for (ResourceDTO d : scDTO.resourceDTOs) {
-					d.servletContextId = scDTO.serviceId;
-				}
+			scDTO.listenerDTOs = scListeners.get(scDTO).toArray(new ListenerDTO[0]);
+			for (ListenerDTO d : scDTO.listenerDTOs) {
+				d.servletContextId = scDTO.serviceId;
+			}
+			scDTO.servletDTOs = scServlets.get(scDTO).toArray(new ServletDTO[0]);
+			for (ServletDTO d : scDTO.servletDTOs) {
+				d.servletContextId = scDTO.serviceId;
 			}
+			scDTO.resourceDTOs = scResources.get(scDTO).toArray(new ResourceDTO[0]);
+			for (ResourceDTO d : scDTO.resourceDTOs) {
+				d.servletContextId = scDTO.serviceId;
+			}
+		}
 
-			dto.failedErrorPageDTOs = failedErrorPageDTOs.toArray(new FailedErrorPageDTO[0]);
-			dto.failedFilterDTOs = failedFilterDTOs.toArray(new FailedFilterDTO[0]);
-			dto.preprocessorDTOs = preprocessorDTOs.toArray(new PreprocessorDTO[0]);
-			dto.failedPreprocessorDTOs = failedPreprocessorDTOs.toArray(new FailedPreprocessorDTO[0]);
-			dto.failedListenerDTOs = failedListenerDTOs.toArray(new FailedListenerDTO[0]);
-			dto.failedResourceDTOs = failedResourceDTOs.toArray(new FailedResourceDTO[0]);
-			dto.failedServletDTOs = failedServletDTOs.toArray(new FailedServletDTO[0]);
+		dto.failedErrorPageDTOs = failedErrorPageDTOs.toArray(new FailedErrorPageDTO[0]);
+		dto.failedFilterDTOs = failedFilterDTOs.toArray(new FailedFilterDTO[0]);
+		dto.preprocessorDTOs = preprocessorDTOs.toArray(new PreprocessorDTO[0]);
+		dto.failedPreprocessorDTOs = failedPreprocessorDTOs.toArray(new FailedPreprocessorDTO[0]);
+		dto.failedListenerDTOs = failedListenerDTOs.toArray(new FailedListenerDTO[0]);
+		dto.failedResourceDTOs = failedResourceDTOs.toArray(new FailedResourceDTO[0]);
+		dto.failedServletDTOs = failedServletDTOs.toArray(new FailedServletDTO[0]);
 
-			return dto;
-		}, false);
+		return dto;
 	}
 
+	/**
+	 * Calculates {@link RequestInfoDTO} using {@link RequestInfoIndex} created (once) for current snapshot of
+	 * {@link RuntimeDTO}, so there's no need to enter configuration thread if the model hasn't changed.
+	 * @param path
+	 * @return
+	 */
 	@Override
 	public RequestInfoDTO calculateRequestInfoDTO(String path) {
-		return runSilently(() -> {
+		RuntimeDTOSnapshot snapshot = getRuntimeDTOSnapshot();
+		if (snapshot == null) {
 			RequestInfoDTO dto = new RequestInfoDTO();
 			dto.path = path;
-
-			// let's ... simply get the information from RuntimeDTO
-			RuntimeDTO runtimeDTO = getRuntimeDTO();
-
-			Set<ServletContextDTO> orderedServletContexts = new TreeSet<>(new ContextComparator());
-			Collections.addAll(orderedServletContexts, runtimeDTO.servletContextDTOs);
-
-			for (ServletContextDTO scdto : orderedServletContexts) {
-				if (path.startsWith(scdto.contextPath)) {
-					dto.servletContextId = scdto.serviceId;
-
-					String remaining = path.substring(scdto.contextPath.length());
-					if (remaining.contains("?")) {
-						// remove query string
-						remaining = remaining.substring(0, remaining.indexOf("?"));
-					}
-					if (!remaining.startsWith("/")) {
-						remaining = "/" + remaining;
-					}
-
-					// checking servlets/resources
-
-					// we can assume valid patterns: "/", "/xxx/*", "/xxx", "*.x".
-					// "/" has to be saved as fallback pattern (default servlet)
-					Map<String, DTO> orderedMappings = new TreeMap<>(new PatternComparator());
-					for (ServletDTO sdto : scdto.servletDTOs) {
-						for (String p : sdto.patterns) {
-							orderedMappings.put(p, sdto);
-						}
-					}
-					for (ResourceDTO rdto : scdto.resourceDTOs) {
-						for (String p : rdto.patterns) {
-							orderedMappings.put(p, rdto);
-						}
-					}
-					for (Map.Entry<String, DTO> e : orderedMappings.entrySet()) {
-						String mapping = e.getKey();
-						DTO target = e.getValue();
-
-						boolean match = false;
-						if (!"/".equals(mapping)) {
-							if (!mapping.contains("*") && mapping.equals(remaining)) {
-								// found exact match
-								match = true;
-							} else if (mapping.contains("*")) {
-								if (mapping.endsWith("/*") && remaining.startsWith(mapping.substring(0, mapping.length() - 2))) {
-									// found prefix match
-									match = true;
-								} else if (mapping.startsWith("*.") && remaining.endsWith(mapping.substring(1))) {
-									// found extension match
-									match = true;
-								}
-							}
-						} else {
-							// checked always last
-							match = true;
-						}
-						if (match) {
-							if (target instanceof ResourceDTO) {
-								dto.resourceDTO = (ResourceDTO) target;
-							} else {
-								dto.servletDTO = (ServletDTO) target;
-							}
-							// end of searching through servlet/resource mappings
-							break;
-						}
-						// continue with the next pattern
-					}
-
-					// checking filters
-					String targetName = null;
-					if (dto.servletDTO != null) {
-						targetName = dto.servletDTO.name;
-					} else if (dto.resourceDTO != null) {
-						targetName = "default";
-					}
-
-					List<FilterDTO> matchingFilters = new ArrayList<>();
-					for (FilterDTO fdto : scdto.filterDTOs) {
-						if (fdto.servletNames != null) {
-							boolean match = false;
-							for (String sn : fdto.servletNames) {
-								if (sn != null && sn.equals(targetName)) {
-									matchingFilters.add(fdto);
-									match = true;
-									break;
-								}
-							}
-							if (match) {
-								// no need to check the URL mappings
-								continue;
-							}
-						}
-						if (fdto.patterns != null) {
-							boolean match = false;
-							for (String p : fdto.patterns) {
-								if (!p.contains("*") && p.equals(remaining)) {
-									// found exact match
-									match = true;
-								} else if (p.contains("*")) {
-									if (p.endsWith("/*") && remaining.startsWith(p.substring(0, p.length() - 2))) {
-										// found prefix match
-										match = true;
-									} else if (p.startsWith("*.") && remaining.endsWith(p.substring(1))) {
-										// found extension match
-										match = true;
-									}
-								}
-								if (match) {
-									matchingFilters.add(fdto);
-									break;
-								}
-							}
-							if (match) {
-								// no need to check the regex mapping
-								continue;
-							}
-						}
-						if (fdto.regexs != null) {
-							boolean match = false;
-							for (String p : fdto.regexs) {
-								Pattern re = Pattern.compile(p);
-								if (re.matcher(remaining).matches()) {
-									matchingFilters.add(fdto);
-									break;
-								}
-							}
-						}
-					}
-					dto.filterDTOs = matchingFilters.toArray(new FilterDTO[0]);
-
-					// end of searching through context paths
-					break;
-				}
-			}
-
 			return dto;
-		}, false);
+		}
+		return snapshot.getRequestInfoIndex().resolve(path);
 	}
 
 	@Override
@@ -3589,6 +3623,14 @@ public class ServerModel implements BatchVisitor, HttpServiceRuntime, ReportView
 		this.httpServiceRuntimeDTO = httpServiceRuntimeDTO;
 	}
 
+	/**
+	 * Sets {@link RequestMetrics} of the runtime, so the totals are available in {@link #getRuntimeDTO()}.
+	 * @param requestMetrics
+	 */
+	public void setRequestMetrics(RequestMetrics requestMetrics) {
+		this.requestMetrics = requestMetrics;
+	}
+
 	public ServiceRegistration<HttpServiceRuntime> getHttpServiceRuntimeReg() {
 		return httpServiceRuntimeReg;
 	}
@@ -3620,68 +3662,32 @@ public class ServerModel implements BatchVisitor, HttpServiceRuntime, ReportView
 	}
 
 	/**
-	 * {@link Comparator} that sorts {@link ServletContextDTO} by the longest context path.
-	 */
-	private static class ContextComparator implements Comparator<ServletContextDTO> {
-		@Override
-		public int compare(ServletContextDTO o1, ServletContextDTO o2) {
-			String cp1 = o1.contextPath;
-			String cp2 = o2.contextPath;
-			long slashes1 = cp1.codePoints().mapToObj(cp -> (char) cp).filter(c -> c == '/').count();
-			long slashes2 = cp2.codePoints().mapToObj(cp -> (char) cp).filter(c -> c == '/').count();
-			if (slashes1 != slashes2) {
-				// more slashes - "earlier" (lower) context
-				return Long.compare(slashes2, slashes1);
-			}
-			if (cp1.length() != cp2.length()) {
-				// order by length, so "/" is at the end
-				return Integer.compare(cp2.length(), cp1.length());
-			}
-			// alphabetlically
-			return cp1.compareTo(cp2);
-		}
-	}
-
-	/**
-	 * {@link Comparator} that sorts pattern mappings of {@link ServletDTO} and {@link ResourceDTO} objects
+	 * Immutable (by convention) {@link RuntimeDTO} together with the version of the model it was created from.
 	 */
-	private static class PatternComparator implements Comparator<String> {
-		@Override
-		public int compare(String p1, String p2) {
-			long slashes1 = p1.codePoints().mapToObj(cp -> (char) cp).filter(c -> c == '/').count();
-			long slashes2 = p2.codePoints().mapToObj(cp -> (char) cp).filter(c -> c == '/').count();
-			// "/" always at the end
-			if ("/".equals(p1)) {
-				return 1;
-			}
-			if ("/".equals(p2)) {
-				return -1;
-			}
-			if (slashes1 != slashes2) {
-				// more slashes - "earlier" (lower) context. "*.xxx" has no slashes, so will have lowest priority
-				return Long.compare(slashes2, slashes1);
-			}
-			// 12.1 Use of URL Paths rules - exact matching is before pattern matching
-			if (p1.contains("*") && p2.contains("*")) {
-				if (p1.length() != p2.length()) {
-					// order by length, so "/" is at the end
-					return Integer.compare(p2.length(), p1.length());
-				}
-				// alphabetlically
-				return p1.compareTo(p2);
-			}
-			if (p1.contains("*")) {
-				return 1;
-			}
-			if (p2.contains("*")) {
-				return 1;
-			}
-			if (p1.length() != p2.length()) {
-				// order by length, so "/" is at the end
-				return Integer.compare(p2.length(), p1.length());
-			}
-			// alphabetlically
-			return p1.compareTo(p2);
+	private static class RuntimeDTOSnapshot {
+		private final long modelVersion;
+		private final long changeCount;
+		private final RuntimeDTO dto;
+		private volatile RequestInfoIndex requestInfoIndex;
+
+		RuntimeDTOSnapshot(long modelVersion, long changeCount, RuntimeDTO dto) {
+			this.modelVersion = modelVersion;
+			this.changeCount = changeCount;
+			this.dto = dto;
+		}
+
+		/**
+		 * Returns {@link RequestInfoIndex} for this snapshot, created on first use. Concurrent callers may create
+		 * equivalent indexes, which is harmless.
+		 * @return
+		 */
+		public RequestInfoIndex getRequestInfoIndex() {
+			RequestInfoIndex index = requestInfoIndex;
+			if (index == null) {
+				index = new RequestInfoIndex(dto);
+				requestInfoIndex = index;
+			}
+			return index;
 		}
 	}
 
@@ -26,6 +26,7 @@ import java.util.stream.Collectors;
 
 import org.ops4j.pax.web.service.spi.model.Identity;
 import org.ops4j.pax.web.service.spi.model.OsgiContextModel;
+import org.ops4j.pax.web.service.spi.model.ServerModel;
 import org.ops4j.pax.web.service.spi.model.events.WebElementEventData;
 import org.ops4j.pax.web.service.spi.whiteboard.WhiteboardWebContainerView;
 import org.ops4j.pax.web.service.whiteboard.ContextRelated;
@@ -365,8 +366,16 @@ public abstract class ElementModel<T, D extends WebElementEventData>
 		return dtoFailureCode;
 	}
 
+	/**
+	 * Sets the failure code of this element - may be called by the runtimes outside of configuration thread,
+	 * so {@link ServerModel} is notified to refresh its {@link org.osgi.service.http.runtime.dto.RuntimeDTO}.
+	 * @param dtoFailureCode
+	 */
 	public void setDtoFailureCode(int dtoFailureCode) {
-		this.dtoFailureCode = dtoFailureCode;
+		if (this.dtoFailureCode != dtoFailureCode) {
+			this.dtoFailureCode = dtoFailureCode;
+			ServerModel.dtoFailureCodeChanged();
+		}
 	}
 
 	public void setAsynchronusRegistration(boolean async) {
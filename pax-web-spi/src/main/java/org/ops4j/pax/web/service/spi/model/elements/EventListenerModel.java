@@ -119,9 +119,9 @@ public class EventListenerModel extends ElementModel<EventListener, EventListene
 				}
 			}
 			if (resolvedListener == null) {
-				dtoFailureCode = DTOConstants.FAILURE_REASON_SERVICE_NOT_GETTABLE;
+				setDtoFailureCode(DTOConstants.FAILURE_REASON_SERVICE_NOT_GETTABLE);
 			} else {
-				dtoFailureCode = -1;
+				setDtoFailureCode(-1);
 			}
 			return resolvedListener;
 		}
@@ -35,6 +35,7 @@ import javax.servlet.Servlet;
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletContext;
 
+import org.ops4j.pax.web.service.PaxWebConfig;
 import org.ops4j.pax.web.service.PaxWebConstants;
 import org.ops4j.pax.web.service.spi.config.JspConfiguration;
 import org.ops4j.pax.web.service.spi.model.OsgiContextModel;
@@ -714,6 +715,18 @@ public class ServletModel extends ElementModel<Servlet, ServletEventData> {
 			initParams.putIfAbsent("development", "false"); // to prevent checking for lastModified on bundle resources
 			initParams.putIfAbsent("suppressSmap", "true");
 			initParams.putIfAbsent("classdebuginfo", "false");
+			// handled by org.ops4j.pax.web.jsp.JspServlet, not by Jasper
+			if (Boolean.TRUE.equals(config.isJspPrecompile())) {
+				initParams.putIfAbsent(PaxWebConfig.PID_CFG_JSP_PRECOMPILE, "true");
+				initParams.putIfAbsent(PaxWebConfig.PID_CFG_JSP_PRECOMPILE_THREADS,
+						String.valueOf(config.getJspPrecompileThreads()));
+			}
+			// compiler class is loaded by Jasper from pax-web-jsp bundle
+			String sharedCacheDir = config.getJspSharedCacheDir();
+			if (sharedCacheDir != null && initParams.get("compiler") == null) {
+				initParams.putIfAbsent("compilerClassName", "org.ops4j.pax.web.jsp.CachingJDTCompiler");
+				initParams.putIfAbsent(PaxWebConfig.PID_CFG_JSP_SHARED_CACHE, sharedCacheDir);
+			}
 		}
 	}
 
@@ -15,6 +15,8 @@
  */
 package org.ops4j.pax.web.service.spi.model.events;
 
+import java.util.List;
+
 /**
  * <p>Listener interface to observe events related to {@link org.ops4j.pax.web.service.spi.model.elements.ElementModel}
  * registration.</p>
@@ -30,4 +32,15 @@ public interface WebElementEventListener {
 	 */
 	void registrationEvent(WebElementEvent event);
 
+	/**
+	 * Notification about several events (usually related to single registration batch) collected while
+	 * this listener was busy. By default each event is passed to {@link #registrationEvent(WebElementEvent)}.
+	 * @param events
+	 */
+	default void registrationEvents(List<WebElementEvent> events) {
+		for (WebElementEvent event : events) {
+			registrationEvent(event);
+		}
+	}
+
 }
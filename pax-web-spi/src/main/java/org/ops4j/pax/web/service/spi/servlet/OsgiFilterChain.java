@@ -16,8 +16,6 @@
 package org.ops4j.pax.web.service.spi.servlet;
 
 import java.io.IOException;
-import java.util.LinkedList;
-import java.util.List;
 import javax.servlet.FilterChain;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
@@ -27,6 +25,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.ops4j.pax.web.service.WebContainerContext;
+import org.ops4j.pax.web.service.spi.metrics.FilterChainTiming;
 import org.osgi.framework.Bundle;
 import org.osgi.service.http.whiteboard.Preprocessor;
 
@@ -38,10 +37,17 @@ import org.osgi.service.http.whiteboard.Preprocessor;
  *     {@link org.osgi.service.http.context.ServletContextHelper#handleSecurity} +
  *     {@link org.osgi.service.http.context.ServletContextHelper#finishSecurity}</li>
  * </ul>
+ *
+ * <p>Instances should be created using {@link OsgiFilterChainTemplate}, so the array of preprocessors is shared
+ * and the chain itself is only a per-request cursor.</p>
+ *
+ * <p>When {@link FilterChainTiming} is enabled, the chain starts timing for sampled requests and times
+ * preprocessors and security checks. Filters and servlets are timed by their OSGi wrappers.</p>
  */
 public class OsgiFilterChain implements FilterChain {
 
-	private final List<Preprocessor> preprocessors = new LinkedList<>();
+	/** Shared (never modified) array of preprocessor configs */
+	private final PreprocessorFilterConfig[] preprocessors;
 
 	private final ServletContext servletContext;
 	private final WebContainerContext webContext;
@@ -52,23 +58,32 @@ public class OsgiFilterChain implements FilterChain {
 
 	private int index = 0;
 
+	/** Timing of chain elements - {@code null} when not enabled */
+	private final FilterChainTiming timing;
+
+	/** Timing of current request - {@code null} when the request is not sampled */
+	private FilterChainTiming.Sample sample;
+
 	/**
 	 * Creates {@link FilterChain} that will invoke all the processors, security handlers, filters and target
 	 * servlet in correct order.
 	 *
-	 * @param preprocessors
+	 * @param preprocessors shared array of preprocessor configs - it's not copied and should not be modified
 	 * @param servletContext wrapped {@link ServletContext} with proper delegation
 	 * @param context already resolved (with proper {@link Bundle}) {@link WebContainerContext}.
 	 * @param originalChain
+	 * @param osgiSessionsBridge
+	 * @param timing {@link FilterChainTiming} if enabled
 	 */
-	public OsgiFilterChain(List<Preprocessor> preprocessors, ServletContext servletContext,
+	OsgiFilterChain(PreprocessorFilterConfig[] preprocessors, ServletContext servletContext,
 			WebContainerContext context, FilterChain originalChain,
-			OsgiSessionAttributeListener osgiSessionsBridge) {
-		this.preprocessors.addAll(preprocessors);
+			OsgiSessionAttributeListener osgiSessionsBridge, FilterChainTiming timing) {
+		this.preprocessors = preprocessors;
 		this.webContext = context;
 		this.servletContext = servletContext;
 		this.chain = originalChain;
 		this.osgiSessionsBridge = osgiSessionsBridge;
+		this.timing = timing;
 	}
 
 	public void setChain(FilterChain chain) {
@@ -80,22 +95,62 @@ public class OsgiFilterChain implements FilterChain {
 		HttpServletRequest req = (HttpServletRequest) request;
 		HttpServletResponse res = (HttpServletResponse) response;
 
+		if (index > 0) {
+			// called again by a preprocessor
+			proceed(req, res);
+			return;
+		}
+
 		// Here's the best place to wrap a request - but only when called for the first time!
-		if (index == 0 && servletContext != null) {
+		if (servletContext != null) {
 			req = new OsgiHttpServletRequestWrapper(req, servletContext, osgiSessionsBridge);
 		}
 
-		if (index < preprocessors.size()) {
-			// still something left
-			Preprocessor filter = preprocessors.get(index++);
-			filter.doFilter(req, res, this);
-			return;
+		try {
+			FilterChainTiming.Sample s = timing == null ? null : timing.startSample();
+			if (s != null) {
+				sample = s;
+				try {
+					proceed(req, res);
+				} finally {
+					timing.endSample(s);
+				}
+			} else {
+				proceed(req, res);
+			}
+		} finally {
+			// RegEx filters of all contexts are called within this chain
+			RegexFilterMatcher.requestFinished();
+		}
+	}
+
+	private void proceed(HttpServletRequest req, HttpServletResponse res) throws IOException, ServletException {
+		while (index < preprocessors.length) {
+			// still something left. getInstance() returns already obtained instance, so there's no
+			// per-request lookup. null instance means the service is not gettable (failure DTO is already set)
+			PreprocessorFilterConfig config = preprocessors[index++];
+			Preprocessor filter = config.getInstance();
+			if (filter != null) {
+				if (sample == null) {
+					filter.doFilter(req, res, this);
+				} else {
+					sample.enter();
+					try {
+						filter.doFilter(req, res, this);
+					} finally {
+						// preprocessors are not related to single context
+						sample.exit(FilterChainTiming.element(FilterChainTiming.PREPROCESSOR, (String) null,
+								config.getFilterName(), config.getModel()));
+					}
+				}
+				return;
+			}
 		}
 
 		// nothing left - time to call security and if it passes - call the rest of the chain (normal filters
 		// and target servlet)
 		try {
-			if (webContext == null || webContext.handleSecurity(req, res)) {
+			if (webContext == null || handleSecurity(req, res)) {
 				// continue normally with normal filters and target servlet
 				chain.doFilter(req, res);
 			} else {
@@ -116,4 +171,16 @@ public class OsgiFilterChain implements FilterChain {
 		}
 	}
 
+	private boolean handleSecurity(HttpServletRequest req, HttpServletResponse res) throws IOException {
+		if (sample == null) {
+			return webContext.handleSecurity(req, res);
+		}
+		sample.enter();
+		try {
+			return webContext.handleSecurity(req, res);
+		} finally {
+			sample.exit(FilterChainTiming.securityElement(servletContext, webContext));
+		}
+	}
+
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.spi.servlet;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletContext;
+
+import org.ops4j.pax.web.service.WebContainerContext;
+import org.ops4j.pax.web.service.spi.metrics.FilterChainTiming;
+import org.osgi.service.http.whiteboard.Preprocessor;
+
+/**
+ * <p>Precomputed, immutable template for {@link OsgiFilterChain} instances created for each request within
+ * single physical context (Jetty's {@code ServletContextHandler}, Tomcat's {@code StandardContext} or Undertow's
+ * deployment).</p>
+ *
+ * <p>{@link Preprocessor preprocessors} are always registered to all OSGi contexts of given physical context and
+ * are mapped to all chains, so the only thing that changes between requests is the target
+ * {@link ServletContext}/{@link WebContainerContext} and the original chain. The preprocessor configs are kept
+ * in an array which is replaced (never modified) only when the set of preprocessors changes, so creating
+ * {@link OsgiFilterChain} for a request is a single allocation of the chain itself, which acts as a cursor
+ * over the shared array.</p>
+ */
+public class OsgiFilterChainTemplate {
+
+	private static final PreprocessorFilterConfig[] NO_PREPROCESSORS = new PreprocessorFilterConfig[0];
+
+	private volatile PreprocessorFilterConfig[] preprocessors = NO_PREPROCESSORS;
+
+	/** Timing of chain elements - {@code null} when not enabled */
+	private FilterChainTiming timing;
+
+	/**
+	 * Returns current, unmodifiable list of {@link PreprocessorFilterConfig preprocessor configs}.
+	 * @return
+	 */
+	public List<PreprocessorFilterConfig> getPreprocessors() {
+		return Collections.unmodifiableList(Arrays.asList(preprocessors));
+	}
+
+	/**
+	 * Replaces the preprocessors used by this template. Should be called by server wrappers whenever the set
+	 * of preprocessors changes - chains created after this call will see new preprocessors, while chains
+	 * already being invoked keep using the previous array.
+	 * @param preprocessors
+	 */
+	public void setPreprocessors(Collection<PreprocessorFilterConfig> preprocessors) {
+		this.preprocessors = preprocessors.isEmpty() ? NO_PREPROCESSORS
+				: preprocessors.toArray(new PreprocessorFilterConfig[0]);
+	}
+
+	/**
+	 * Sets {@link FilterChainTiming} used by all the chains created by this template.
+	 * @param timing may be {@code null}
+	 */
+	public void setTiming(FilterChainTiming timing) {
+		this.timing = timing;
+	}
+
+	/**
+	 * Creates per-request {@link OsgiFilterChain} that shares preprocessors of this template.
+	 * @param servletContext
+	 * @param context
+	 * @param originalChain
+	 * @param osgiSessionsBridge
+	 * @return
+	 */
+	public OsgiFilterChain createChain(ServletContext servletContext, WebContainerContext context,
+			FilterChain originalChain, OsgiSessionAttributeListener osgiSessionsBridge) {
+		return new OsgiFilterChain(preprocessors, servletContext, context, originalChain, osgiSessionsBridge, timing);
+	}
+
+}
@@ -15,6 +15,7 @@
  */
 package org.ops4j.pax.web.service.spi.servlet;
 
+import org.ops4j.pax.web.service.spi.metrics.FilterChainTiming;
 import org.ops4j.pax.web.service.spi.model.elements.FilterModel;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.wiring.BundleWiring;
@@ -49,6 +50,12 @@ public class OsgiInitializedFilter implements Filter {
 	private final ServletContext servletContext;
 	private Pattern[] filterPatterns = null;
 
+	/** Matcher shared by RegEx filters of the context, so the URI is matched once per request */
+	private RegexFilterMatcher regexFilterMatcher;
+
+	/** Name of this filter used by {@link FilterChainTiming} */
+	private final String timingName;
+
 	/**
 	 * Whether TCCL should be set to servlet's bundle classloader. If {@code false}, TCCL from
 	 * containing {@link ServletContext} will be used.
@@ -61,6 +68,9 @@ public class OsgiInitializedFilter implements Filter {
 		this.filterModel = model;
 		this.servletContext = servletSpecificContext;
 		this.whiteboardTCCL = whiteboardTCCL;
+		this.timingName = model != null
+				? FilterChainTiming.element(FilterChainTiming.FILTER, servletSpecificContext, model.getName(), model)
+				: FilterChainTiming.FILTER + (filter != null ? filter.getClass().getName() : "null");
 
 		if (model != null && model.getMappingsPerDispatcherTypes().size() == 1) {
 			String[] regexPatterns = model.getMappingsPerDispatcherTypes().get(0).getRegexPatterns();
@@ -140,6 +150,21 @@ public class OsgiInitializedFilter implements Filter {
 
 	@Override
 	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+		FilterChainTiming.Sample sample = FilterChainTiming.current();
+		if (sample == null) {
+			doFilterInternal(request, response, chain);
+		} else {
+			sample.enter();
+			try {
+				doFilterInternal(request, response, chain);
+			} finally {
+				sample.exit(timingName);
+			}
+		}
+	}
+
+	private void doFilterInternal(ServletRequest request, ServletResponse response, FilterChain chain)
+			throws IOException, ServletException {
 		ClassLoader tccl = null;
 		try {
 			if (whiteboardTCCL) {
@@ -148,20 +173,11 @@ public class OsgiInitializedFilter implements Filter {
 			}
 			if (filterPatterns != null) {
 				// do RegEx matching
-				boolean match = false;
+				boolean match = true;
 				if (request instanceof HttpServletRequest) {
-					String uri = ((HttpServletRequest) request).getRequestURI();
-					if (((HttpServletRequest) request).getQueryString() != null) {
-						uri += "?" + ((HttpServletRequest) request).getQueryString();
-					}
-					for (Pattern p : filterPatterns) {
-						if (p.matcher(uri).matches()) {
-							match = true;
-							break;
-						}
-					}
-				} else {
-					match = true;
+					Boolean shared = regexFilterMatcher == null ? null
+							: regexFilterMatcher.matches(filterModel, (HttpServletRequest) request);
+					match = shared != null ? shared : matches((HttpServletRequest) request);
 				}
 				if (match) {
 					filter.doFilter(request, response, chain);
@@ -183,6 +199,29 @@ public class OsgiInitializedFilter implements Filter {
 		}
 	}
 
+	private boolean matches(HttpServletRequest request) {
+		String uri = request.getRequestURI();
+		if (request.getQueryString() != null) {
+			uri += "?" + request.getQueryString();
+		}
+		for (Pattern p : filterPatterns) {
+			if (p.matcher(uri).matches()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Sets {@link RegexFilterMatcher} of the context to which this filter belongs. Without it, the filter matches
+	 * its own patterns.
+	 *
+	 * @param regexFilterMatcher
+	 */
+	public void setRegexFilterMatcher(RegexFilterMatcher regexFilterMatcher) {
+		this.regexFilterMatcher = regexFilterMatcher;
+	}
+
 	@Override
 	public void destroy() {
 		filter.destroy();
@@ -24,7 +24,10 @@ import javax.servlet.ServletException;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 
+import org.ops4j.pax.web.service.spi.metrics.FilterChainTiming;
+import org.ops4j.pax.web.service.spi.model.elements.ServletModel;
 import org.osgi.framework.wiring.BundleWiring;
+import org.osgi.service.http.runtime.dto.DTOConstants;
 
 /**
  * {@link Servlet} wrapper that uses correct {@link ServletConfig} wrapper that returns correct wrapper
@@ -36,20 +39,38 @@ public class OsgiInitializedServlet implements Servlet {
 	private final Servlet servlet;
 	private final OsgiScopedServletContext servletContext;
 
+	/** Model of the servlet, where failed {@link #init} is reflected, if known */
+	private final ServletModel model;
+
 	/**
 	 * Whether TCCL should be set to servlet's bundle classloader. If {@code false}, TCCL from
 	 * containing {@link ServletContext} will be used.
 	 */
 	private final boolean whiteboardTCCL;
 
+	/** Name of this servlet used by {@link FilterChainTiming} - servlet name is known after {@link #init} */
+	private String timingName;
+
 	public OsgiInitializedServlet(Servlet servlet, OsgiScopedServletContext servletSpecificContext, boolean whiteboardTCCL) {
+		this(servlet, servletSpecificContext, whiteboardTCCL, null);
+	}
+
+	public OsgiInitializedServlet(Servlet servlet, OsgiScopedServletContext servletSpecificContext, boolean whiteboardTCCL,
+			ServletModel model) {
 		this.servlet = servlet;
 		this.servletContext = servletSpecificContext;
 		this.whiteboardTCCL = whiteboardTCCL;
+		this.model = model;
+		this.timingName = FilterChainTiming.element(FilterChainTiming.SERVLET, servletSpecificContext,
+				servlet.getClass().getName(), model);
 	}
 
 	@Override
 	public void init(final ServletConfig config) throws ServletException {
+		if (config.getServletName() != null) {
+			timingName = FilterChainTiming.element(FilterChainTiming.SERVLET, servletContext,
+					config.getServletName(), model);
+		}
 		ClassLoader tccl = Thread.currentThread().getContextClassLoader();
 		try {
 			ClassLoader newCl = null;
@@ -86,6 +107,14 @@ public class OsgiInitializedServlet implements Servlet {
 					return config.getInitParameterNames();
 				}
 			});
+			if (model != null && model.getDtoFailureCode() == DTOConstants.FAILURE_REASON_EXCEPTION_ON_INIT) {
+				model.setDtoFailureCode(-1);
+			}
+		} catch (ServletException | RuntimeException e) {
+			if (model != null) {
+				model.setDtoFailureCode(DTOConstants.FAILURE_REASON_EXCEPTION_ON_INIT);
+			}
+			throw e;
 		} finally {
 			Thread.currentThread().setContextClassLoader(tccl);
 		}
@@ -98,6 +127,20 @@ public class OsgiInitializedServlet implements Servlet {
 
 	@Override
 	public void service(ServletRequest req, ServletResponse res) throws ServletException, IOException {
+		FilterChainTiming.Sample sample = FilterChainTiming.current();
+		if (sample == null) {
+			doService(req, res);
+		} else {
+			sample.enter();
+			try {
+				doService(req, res);
+			} finally {
+				sample.exit(timingName);
+			}
+		}
+	}
+
+	private void doService(ServletRequest req, ServletResponse res) throws ServletException, IOException {
 		if (!whiteboardTCCL) {
 			servlet.service(req, res);
 		} else {
@@ -18,13 +18,28 @@ package org.ops4j.pax.web.service.spi.servlet;
 import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.servlet.ServletContext;
 
+import org.ops4j.pax.web.service.spi.util.BundleListenerRegistration;
 import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleEvent;
 import org.osgi.framework.BundleReference;
+import org.osgi.framework.namespace.BundleNamespace;
+import org.osgi.framework.namespace.PackageNamespace;
+import org.osgi.framework.wiring.BundleCapability;
+import org.osgi.framework.wiring.BundleRequirement;
+import org.osgi.framework.wiring.BundleWire;
+import org.osgi.framework.wiring.BundleWiring;
 
 /**
  * <p>A {@link ClassLoader} added in Pax Web to replace all pax-swissbox/xbean <em>bundle classloaders</em> and to be used
@@ -60,13 +75,78 @@ import org.osgi.framework.BundleReference;
  * </ul></p>
  *
  * <p>This {@link ClassLoader} implements {@link BundleReference}</p>
+ *
+ * <p>To avoid asking every bundle for every class/resource, this {@link ClassLoader} keeps an index of bundles
+ * that may provide given package - bundles which can't see the package at all (don't import or export it, don't
+ * contain it, don't use {@code Require-Bundle} or {@code DynamicImport-Package}) are skipped. The remaining bundles
+ * are always checked in the order in which they were added, so the first (primary) bundle wins. If none of them
+ * can load the class, the skipped bundles are checked as well (to handle boot delegation). Additionally there's
+ * a bounded cache of names that were not found at all. The index is invalidated when any of the bundles
+ * is resolved, updated, unresolved (refreshed) or uninstalled and the cache of missing names is cleared also when
+ * any bundle is installed or resolved, because it may make a class available through dynamic imports.</p>
  */
 public class OsgiServletContextClassLoader extends ClassLoader implements BundleReference {
 
+	/** Maximal number of remembered class/resource names that can't be found in any bundle. */
+	private static final int MAX_NEGATIVE_ENTRIES = 1024;
+
+	/** All the created classloaders that should be notified about bundle changes. */
+	private static final Set<OsgiServletContextClassLoader> LOADERS
+			= Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+	/**
+	 * Listener that invalidates the indices of all the classloaders when the bundles change. It's registered
+	 * when a classloader is created and unregistered when there are no classloaders left. Outside of OSGi,
+	 * {@link #invalidate()} has to be called explicitly.
+	 */
+	private static final BundleListenerRegistration BUNDLE_LISTENER = new BundleListenerRegistration(event -> {
+		switch (event.getType()) {
+			case BundleEvent.INSTALLED:
+			case BundleEvent.RESOLVED:
+			case BundleEvent.UPDATED:
+			case BundleEvent.UNRESOLVED:
+			case BundleEvent.UNINSTALLED:
+				List<OsgiServletContextClassLoader> loaders;
+				synchronized (LOADERS) {
+					loaders = new ArrayList<>(LOADERS);
+					if (loaders.isEmpty()) {
+						// all the classloaders were garbage collected
+						OsgiServletContextClassLoader.BUNDLE_LISTENER.unregister();
+					}
+				}
+				for (OsgiServletContextClassLoader loader : loaders) {
+					if (loader.bundles.contains(event.getBundle())) {
+						loader.invalidate();
+					} else if (event.getType() == BundleEvent.INSTALLED || event.getType() == BundleEvent.RESOLVED) {
+						// new bundle may be a source of dynamically imported packages
+						loader.clearMissing();
+					}
+				}
+				break;
+			default:
+				break;
+		}
+	});
+
 	private List<Bundle> bundles = new ArrayList<>();
 
+	/**
+	 * Package name to bundles which may load classes/resources from this package - in the order of
+	 * {@link #bundles}. Filled lazily, {@code null} if invalidated.
+	 */
+	private volatile Map<String, Bundle[]> packageIndex;
+
+	/** Information about bundle wirings used to build {@link #packageIndex}. {@code null} if invalidated. */
+	private volatile Map<Bundle, WiringInfo> wirings;
+
+	/** Names of classes and resources not found in any bundle */
+	private final NegativeCache missingClasses = new NegativeCache();
+	private final NegativeCache missingResources = new NegativeCache();
+
 	public OsgiServletContextClassLoader() {
 		super(null);
+		LOADERS.add(this);
+		BUNDLE_LISTENER.register();
 	}
 
 	@Override
@@ -81,6 +161,7 @@ public class OsgiServletContextClassLoader extends ClassLoader implements Bundle
 	public void addBundle(Bundle bundle) {
 		if (bundle != null && !bundles.contains(bundle)) {
 			bundles.add(bundle);
+			invalidate();
 		}
 	}
 
@@ -95,6 +176,7 @@ public class OsgiServletContextClassLoader extends ClassLoader implements Bundle
 					bundles.add(b);
 				}
 			}
+			invalidate();
 		}
 	}
 
@@ -109,28 +191,69 @@ public class OsgiServletContextClassLoader extends ClassLoader implements Bundle
 		bundles = Collections.unmodifiableList(bundles);
 	}
 
+	/**
+	 * Clears the package index and the cache of missing classes/resources. Called when any of the bundles
+	 * is resolved, refreshed, updated or uninstalled.
+	 */
+	public void invalidate() {
+		packageIndex = null;
+		wirings = null;
+		clearMissing();
+	}
+
+	/**
+	 * Clears only the cache of missing classes/resources.
+	 */
+	public void clearMissing() {
+		missingClasses.clear();
+		missingResources.clear();
+	}
+
 	@Override
 	public Class<?> loadClass(String name) throws ClassNotFoundException {
-		List<Exception> suppressed = new ArrayList<>(bundles.size());
-		for (Bundle b : bundles) {
-			if (b.getState() != Bundle.UNINSTALLED) {
+		if (missingClasses.contains(name)) {
+			throw new ClassNotFoundException(name);
+		}
+
+		List<Bundle> all = bundles;
+		Bundle[] candidates = candidates(packageOf(name, '.'));
+		ClassNotFoundException cnfe = null;
+		// first the bundles which may see the package, then (rarely) the remaining ones
+		for (int pass = 0; pass < 2; pass++) {
+			Iterable<Bundle> toCheck = pass == 0 ? Arrays.asList(candidates) : all;
+			for (Bundle b : toCheck) {
+				if (b.getState() == Bundle.UNINSTALLED || (pass == 1 && contains(candidates, b))) {
+					continue;
+				}
 				try {
 					return b.loadClass(name);
-				} catch (Exception e) {
-					suppressed.add(e);
+				} catch (Exception | NoClassDefFoundError e) {
+					if (cnfe == null) {
+						cnfe = new ClassNotFoundException(name);
+					}
+					cnfe.addSuppressed(e);
 				}
 			}
 		}
 
-		ClassNotFoundException cnfe = new ClassNotFoundException(name);
-		suppressed.forEach(cnfe::addSuppressed);
-		throw cnfe;
+		missingClasses.add(name);
+		throw cnfe == null ? new ClassNotFoundException(name) : cnfe;
 	}
 
 	@Override
 	protected URL findResource(String name) {
-		for (Bundle b : bundles) {
-			if (b.getState() != Bundle.UNINSTALLED) {
+		if (missingResources.contains(name)) {
+			return null;
+		}
+
+		List<Bundle> all = bundles;
+		Bundle[] candidates = candidates(packageOf(name, '/'));
+		for (int pass = 0; pass < 2; pass++) {
+			Iterable<Bundle> toCheck = pass == 0 ? Arrays.asList(candidates) : all;
+			for (Bundle b : toCheck) {
+				if (b.getState() == Bundle.UNINSTALLED || (pass == 1 && contains(candidates, b))) {
+					continue;
+				}
 				URL res = b.getResource(name);
 				if (res != null) {
 					return res;
@@ -138,11 +261,14 @@ public class OsgiServletContextClassLoader extends ClassLoader implements Bundle
 			}
 		}
 
+		missingResources.add(name);
 		return null;
 	}
 
 	@Override
 	protected Enumeration<URL> findResources(String name) throws IOException {
+		// all the bundles have to be checked, because many bundles may provide the same resource (like
+		// META-INF/services/*) and such lookups are not cached, because they're usually done once
 		List<URL> urls = new ArrayList<>(32);
 		for (Bundle b : bundles) {
 			if (b.getState() != Bundle.UNINSTALLED) {
@@ -164,4 +290,149 @@ public class OsgiServletContextClassLoader extends ClassLoader implements Bundle
 		throw new ClassNotFoundException(name);
 	}
 
+	/**
+	 * Returns the bundles which may provide given package - in the order of {@link #bundles}.
+	 * @param pkg
+	 * @return
+	 */
+	private Bundle[] candidates(String pkg) {
+		if (pkg == null || pkg.startsWith("java.")) {
+			return bundles.toArray(new Bundle[0]);
+		}
+		Map<String, Bundle[]> index = packageIndex;
+		if (index == null) {
+			index = new ConcurrentHashMap<>();
+			packageIndex = index;
+		}
+		return index.computeIfAbsent(pkg, this::findCandidates);
+	}
+
+	/**
+	 * Checks all the bundles and returns those which can't be proven to not see given package.
+	 * @param pkg
+	 * @return
+	 */
+	private Bundle[] findCandidates(String pkg) {
+		Map<Bundle, WiringInfo> infos = wirings;
+		if (infos == null) {
+			infos = new ConcurrentHashMap<>();
+			wirings = infos;
+		}
+		List<Bundle> result = new ArrayList<>(2);
+		for (Bundle b : bundles) {
+			if (b.getState() == Bundle.UNINSTALLED) {
+				continue;
+			}
+			BundleWiring wiring = b.adapt(BundleWiring.class);
+			if (wiring == null) {
+				// not resolved - can't tell anything
+				result.add(b);
+				continue;
+			}
+			WiringInfo info = infos.computeIfAbsent(b, bundle -> new WiringInfo(wiring));
+			if (info.open || info.packages.contains(pkg)) {
+				result.add(b);
+				continue;
+			}
+			// private package (or exported package, which is also imported under different name)
+			Collection<String> local = wiring.listResources("/" + pkg.replace('.', '/'), "*",
+					BundleWiring.LISTRESOURCES_LOCAL);
+			if (local == null || !local.isEmpty()) {
+				result.add(b);
+			}
+		}
+		return result.toArray(new Bundle[0]);
+	}
+
+	private static boolean contains(Bundle[] array, Bundle bundle) {
+		for (Bundle b : array) {
+			if (b == bundle) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns a package of class/resource name (using given separator) or {@code null} for default package.
+	 * @param name
+	 * @param separator
+	 * @return
+	 */
+	private static String packageOf(String name, char separator) {
+		String n = separator == '/' && name.startsWith("/") ? name.substring(1) : name;
+		int idx = n.lastIndexOf(separator);
+		if (idx <= 0) {
+			return null;
+		}
+		String pkg = n.substring(0, idx);
+		return separator == '/' ? pkg.replace('/', '.') : pkg;
+	}
+
+	/**
+	 * Packages a bundle surely sees (exports and imports) and whether it may see other packages through
+	 * {@code Require-Bundle} or {@code DynamicImport-Package}.
+	 */
+	private static final class WiringInfo {
+
+		private final Set<String> packages = new HashSet<>();
+		private final boolean open;
+
+		WiringInfo(BundleWiring wiring) {
+			List<BundleCapability> exports = wiring.getCapabilities(PackageNamespace.PACKAGE_NAMESPACE);
+			if (exports != null) {
+				for (BundleCapability capability : exports) {
+					add(capability.getAttributes().get(PackageNamespace.PACKAGE_NAMESPACE));
+				}
+			}
+			List<BundleWire> imports = wiring.getRequiredWires(PackageNamespace.PACKAGE_NAMESPACE);
+			if (imports != null) {
+				for (BundleWire wire : imports) {
+					add(wire.getCapability().getAttributes().get(PackageNamespace.PACKAGE_NAMESPACE));
+				}
+			}
+			boolean dynamic = false;
+			List<BundleRequirement> requirements = wiring.getRequirements(PackageNamespace.PACKAGE_NAMESPACE);
+			if (requirements != null) {
+				for (BundleRequirement requirement : requirements) {
+					dynamic |= PackageNamespace.RESOLUTION_DYNAMIC.equals(requirement.getDirectives()
+							.get(PackageNamespace.REQUIREMENT_RESOLUTION_DIRECTIVE));
+				}
+			}
+			List<BundleWire> requiredBundles = wiring.getRequiredWires(BundleNamespace.BUNDLE_NAMESPACE);
+			open = dynamic || (requiredBundles != null && !requiredBundles.isEmpty());
+		}
+
+		private void add(Object pkg) {
+			if (pkg instanceof String) {
+				packages.add((String) pkg);
+			}
+		}
+	}
+
+	/**
+	 * Bounded set of names that couldn't be found. Checking the names (which happens for each class/resource
+	 * lookup) doesn't need any lock. When the set is full, it's simply cleared - it's refilled quickly with
+	 * the names that are really looked up repeatedly.
+	 */
+	private static final class NegativeCache {
+
+		private final Set<String> names = ConcurrentHashMap.newKeySet();
+
+		public boolean contains(String name) {
+			return names.contains(name);
+		}
+
+		public void add(String name) {
+			if (names.size() >= MAX_NEGATIVE_ENTRIES) {
+				names.clear();
+			}
+			names.add(name);
+		}
+
+		public void clear() {
+			names.clear();
+		}
+	}
+
 }
@@ -15,9 +15,14 @@
  */
 package org.ops4j.pax.web.service.spi.servlet;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EventListener;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
-
+import java.util.Map;
+import java.util.Set;
 import javax.servlet.http.HttpSession;
 import javax.servlet.http.HttpSessionAttributeListener;
 import javax.servlet.http.HttpSessionBindingEvent;
@@ -26,15 +31,43 @@ import org.ops4j.pax.web.service.spi.model.OsgiContextModel;
 import org.ops4j.pax.web.service.spi.model.elements.EventListenerModel;
 
 /**
- * A runtime-agnostic interface used to call actual {@link javax.servlet.http.HttpSessionAttributeListener}
- * listeners registered in specific runtime.
+ * <p>A runtime-agnostic interface used to call actual {@link javax.servlet.http.HttpSessionAttributeListener}
+ * listeners registered in specific runtime.</p>
+ *
+ * <p>Single instance is shared by all the contexts of a runtime. Listeners are added/removed in configuration
+ * thread and for each change, arrays of listeners per {@link OsgiContextModel} are recalculated and published
+ * at once, so notifications (called for every session attribute change) don't need any locking and only
+ * iterate over listeners which really apply to the session's {@link OsgiContextModel}.</p>
  */
 public final class OsgiSessionAttributeListener {
 
-	private final List<EventListenerModel> sessionListenerModels;
+	private static final HttpSessionAttributeListener[] NO_LISTENERS = new HttpSessionAttributeListener[0];
+
+	/**
+	 * All {@link EventListenerModel} instances for {@link HttpSessionAttributeListener} listeners. Runtimes add
+	 * a model once for each target context path, so there may be duplicates. Guarded by {@code this}.
+	 */
+	private final List<EventListenerModel> sessionListenerModels = new ArrayList<>();
+
+	private volatile Listeners listeners = new Listeners(NO_LISTENERS, Collections.emptyMap());
+
+	/**
+	 * Adds {@link EventListenerModel} of {@link HttpSessionAttributeListener} with already resolved listener.
+	 * @param model
+	 */
+	public synchronized void addSessionListenerModel(EventListenerModel model) {
+		sessionListenerModels.add(model);
+		recalculate();
+	}
 
-	public OsgiSessionAttributeListener(List<EventListenerModel> sessionListenerModels) {
-		this.sessionListenerModels = sessionListenerModels;
+	/**
+	 * Removes {@link EventListenerModel} of {@link HttpSessionAttributeListener}.
+	 * @param model
+	 */
+	public synchronized void removeSessionListenerModel(EventListenerModel model) {
+		if (sessionListenerModels.remove(model)) {
+			recalculate();
+		}
 	}
 
 	/**
@@ -47,22 +80,59 @@ public final class OsgiSessionAttributeListener {
 	 * @param old
 	 */
 	public void callSessionListeners(HttpSession session, OsgiContextModel model, String name, Object value, Object old) {
+		Listeners current = this.listeners;
+		HttpSessionAttributeListener[] targets = model == null ? current.all
+				: current.perContext.getOrDefault(model, NO_LISTENERS);
+		if (targets.length == 0) {
+			return;
+		}
+
+		HttpSessionBindingEvent event = new HttpSessionBindingEvent(session, name, old == null ? value : old);
+		for (HttpSessionAttributeListener listener : targets) {
+			if (value == null) {
+				listener.attributeRemoved(event);
+			} else if (old == null) {
+				listener.attributeAdded(event);
+			} else {
+				listener.attributeReplaced(event);
+			}
+		}
+	}
+
+	private void recalculate() {
+		Set<EventListenerModel> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+		List<HttpSessionAttributeListener> all = new ArrayList<>();
+		Map<OsgiContextModel, List<HttpSessionAttributeListener>> perContext = new HashMap<>();
 		for (EventListenerModel elm : sessionListenerModels) {
-			if (model == null || elm.getContextModels().contains(model)) {
-				EventListener listener = elm.getResolvedListener();
-				if (listener instanceof HttpSessionAttributeListener) {
-					// can't imagine other scenario...
-					HttpSessionBindingEvent event = new HttpSessionBindingEvent(session, name, old == null ? value : old);
-					if (value == null) {
-						((HttpSessionAttributeListener) listener).attributeRemoved(event);
-					} else if (old == null) {
-						((HttpSessionAttributeListener) listener).attributeAdded(event);
-					} else {
-						((HttpSessionAttributeListener) listener).attributeReplaced(event);
-					}
+			if (!seen.add(elm)) {
+				continue;
+			}
+			EventListener listener = elm.getResolvedListener();
+			if (listener instanceof HttpSessionAttributeListener) {
+				// can't imagine other scenario...
+				all.add((HttpSessionAttributeListener) listener);
+				for (OsgiContextModel ocm : elm.getContextModels()) {
+					perContext.computeIfAbsent(ocm, m -> new ArrayList<>()).add((HttpSessionAttributeListener) listener);
 				}
 			}
 		}
+
+		Map<OsgiContextModel, HttpSessionAttributeListener[]> arrays = new HashMap<>();
+		perContext.forEach((ocm, list) -> arrays.put(ocm, list.toArray(NO_LISTENERS)));
+		this.listeners = new Listeners(all.toArray(NO_LISTENERS), arrays);
+	}
+
+	/**
+	 * Immutable set of listeners published at once.
+	 */
+	private static final class Listeners {
+		private final HttpSessionAttributeListener[] all;
+		private final Map<OsgiContextModel, HttpSessionAttributeListener[]> perContext;
+
+		Listeners(HttpSessionAttributeListener[] all, Map<OsgiContextModel, HttpSessionAttributeListener[]> perContext) {
+			this.all = all;
+			this.perContext = perContext;
+		}
 	}
 
 }
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.spi.servlet;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import javax.servlet.http.HttpServletRequest;
+
+import org.ops4j.pax.web.service.spi.model.elements.FilterModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Matcher for Whiteboard filters registered with {@code osgi.http.whiteboard.filter.regex} property, shared
+ * by all the filters of single physical context.</p>
+ *
+ * <p>Such filters are mapped to {@code /*} in the target container and the decision whether to call them is
+ * made for the request URI (with query string). Instead of running all the patterns of each filter separately,
+ * the patterns of all the filters of a context are compiled into single {@link Pattern} where each filter gets
+ * an (always empty) named group inside a lookahead - one {@link Matcher#lookingAt()} call tells which filters
+ * match. The result is cached per URI (the cache is bounded and simply cleared when full) and remembered
+ * for current thread until {@link OsgiFilterChain} of the request finishes, so the matching is done once per
+ * request, not once per filter.</p>
+ *
+ * <p>Patterns that can't be safely combined (with backreferences, quoting or comments) are matched one by one,
+ * still once per URI.</p>
+ */
+public class RegexFilterMatcher {
+
+	public static final Logger LOG = LoggerFactory.getLogger(RegexFilterMatcher.class);
+
+	/** Maximum number of URIs for which match results are cached */
+	static final int CACHE_SIZE = 1024;
+
+	/** {@link RequestMatch} of current request - not kept in request attributes, which are visible to the filters */
+	private static final ThreadLocal<RequestMatch> REQUEST_MATCH = new ThreadLocal<>();
+
+	/** Constructs that can't be wrapped in a group of combined pattern without changing their meaning */
+	private static final Pattern NOT_COMBINABLE = Pattern.compile("\\\\[1-9]|\\\\k<|\\\\Q|\\(\\?[a-zA-Z-]*x");
+
+	private volatile Patterns patterns = new Patterns(Collections.emptyMap(), null, null);
+
+	/**
+	 * Recompiles the matcher for new set of filters of the context. Only filters with RegEx mapping are taken
+	 * into account.
+	 *
+	 * @param filters
+	 */
+	public void update(Collection<FilterModel> filters) {
+		Map<FilterModel, Integer> indexes = new HashMap<>();
+		List<Pattern[]> separate = new ArrayList<>();
+		StringBuilder combined = new StringBuilder();
+		boolean combinable = true;
+		int expectedGroups = 0;
+
+		for (FilterModel model : filters) {
+			if (model.getMappingsPerDispatcherTypes().size() != 1) {
+				continue;
+			}
+			String[] regexPatterns = model.getMappingsPerDispatcherTypes().get(0).getRegexPatterns();
+			if (regexPatterns == null || regexPatterns.length == 0) {
+				continue;
+			}
+			List<Pattern> compiled = new ArrayList<>();
+			for (String pattern : regexPatterns) {
+				try {
+					compiled.add(Pattern.compile(pattern));
+				} catch (PatternSyntaxException e) {
+					// already reported by OsgiInitializedFilter
+				}
+			}
+			if (compiled.isEmpty()) {
+				// such filter matches all the requests
+				continue;
+			}
+
+			int index = separate.size();
+			indexes.put(model, index);
+			separate.add(compiled.toArray(new Pattern[0]));
+
+			combined.append("(?:(?=(?:");
+			for (int i = 0; i < compiled.size(); i++) {
+				Pattern p = compiled.get(i);
+				combinable &= p.flags() == 0 && !NOT_COMBINABLE.matcher(p.pattern()).find();
+				expectedGroups += p.matcher("").groupCount();
+				combined.append(i == 0 ? "" : "|").append("(?:").append(p.pattern()).append(")");
+			}
+			combined.append(")\\z)(?<f").append(index).append(">))?");
+			expectedGroups++;
+		}
+
+		Pattern pattern = null;
+		if (combinable && !indexes.isEmpty()) {
+			try {
+				pattern = Pattern.compile(combined.toString());
+				if (pattern.matcher("").groupCount() != expectedGroups) {
+					pattern = null;
+				}
+			} catch (PatternSyntaxException e) {
+				// for example duplicate named groups among different filters
+				pattern = null;
+			}
+			if (pattern == null) {
+				LOG.debug("RegEx filter patterns can't be combined, they'll be matched separately");
+			}
+		}
+
+		this.patterns = new Patterns(indexes, pattern, pattern == null ? separate.toArray(new Pattern[0][]) : null);
+	}
+
+	/**
+	 * Checks whether given filter should be invoked for given request.
+	 *
+	 * @param model
+	 * @param request
+	 * @return {@code null} if the filter is not known to this matcher
+	 */
+	public Boolean matches(FilterModel model, HttpServletRequest request) {
+		Patterns current = this.patterns;
+		Integer index = current.indexes.get(model);
+		if (index == null) {
+			return null;
+		}
+
+		String uri = request.getRequestURI();
+		String query = request.getQueryString();
+		RequestMatch rm = REQUEST_MATCH.get();
+		if (rm != null && rm.patterns == current && Objects.equals(rm.uri, uri) && Objects.equals(rm.query, query)) {
+			return rm.result.get(index);
+		}
+
+		BitSet result = current.match(query == null ? uri : uri + "?" + query);
+		REQUEST_MATCH.set(new RequestMatch(current, uri, query, result));
+		return result.get(index);
+	}
+
+	/**
+	 * Forgets the result of matching remembered for current thread. Called by {@link OsgiFilterChain} when
+	 * the request is finished, so the compiled patterns of stopped contexts are not referenced by the threads
+	 * of the container.
+	 */
+	public static void requestFinished() {
+		REQUEST_MATCH.remove();
+	}
+
+	/**
+	 * Immutable compiled state for one set of filters.
+	 */
+	static class Patterns {
+
+		private final Map<FilterModel, Integer> indexes;
+		private final Pattern combined;
+		private final Pattern[][] separate;
+
+		/** Match results per URI - {@link BitSet BitSets} are never changed after being put here */
+		private final Map<String, BitSet> cache = new ConcurrentHashMap<>();
+
+		Patterns(Map<FilterModel, Integer> indexes, Pattern combined, Pattern[][] separate) {
+			this.indexes = indexes;
+			this.combined = combined;
+			this.separate = separate;
+		}
+
+		BitSet match(String uri) {
+			BitSet result = cache.get(uri);
+			if (result != null) {
+				return result;
+			}
+
+			result = new BitSet(indexes.size());
+			if (combined != null) {
+				Matcher m = combined.matcher(uri);
+				if (m.lookingAt()) {
+					for (int i = 0; i < indexes.size(); i++) {
+						if (m.start("f" + i) >= 0) {
+							result.set(i);
+						}
+					}
+				}
+			} else {
+				for (int i = 0; i < separate.length; i++) {
+					for (Pattern p : separate[i]) {
+						if (p.matcher(uri).matches()) {
+							result.set(i);
+							break;
+						}
+					}
+				}
+			}
+
+			if (cache.size() >= CACHE_SIZE) {
+				cache.clear();
+			}
+			cache.put(uri, result);
+			return result;
+		}
+
+		boolean isCombined() {
+			return combined != null;
+		}
+	}
+
+	/**
+	 * Result of matching remembered for single request - forwarded requests have different URI and are matched
+	 * again. It depends only on the patterns and URI, so it's never wrong, even when not cleared after
+	 * a request (for example when the filters are called asynchronously in another thread).
+	 */
+	private static class RequestMatch {
+
+		private final Patterns patterns;
+		private final String uri;
+		private final String query;
+		private final BitSet result;
+
+		RequestMatch(Patterns patterns, String uri, String query, BitSet result) {
+			this.patterns = patterns;
+			this.uri = uri;
+			this.query = query;
+			this.result = result;
+		}
+	}
+
+	/**
+	 * Current compiled state - for tests and diagnostics.
+	 *
+	 * @return
+	 */
+	Patterns getPatterns() {
+		return patterns;
+	}
+
+}
@@ -0,0 +1,553 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.spi.session;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import org.ops4j.pax.web.service.spi.config.SessionConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>{@link SessionStore} keeping the sessions of each context in a log-structured (append-only) file.</p>
+ *
+ * <p>Each change of a session is appended to the log as a record:<pre>
+ * [int length][int CRC32 of the body][body = byte type, short idLength, byte[] id, long expiration, byte[] attributes]
+ * </pre>
+ * Changes are collected in memory and written by a single background thread every <em>flush interval</em>, so
+ * only the sessions which have changed since the last write are serialized and a crash loses at most the changes
+ * from last interval.</p>
+ *
+ * <p>When the log is opened, it is scanned through a memory-mapped buffer only to build an index of session IDs
+ * and positions of the latest records - attributes are read and deserialized only when a session is accessed.
+ * Incomplete or corrupted records at the end of the log (e.g., after a crash) are ignored. When the log contains
+ * more obsolete records than live ones, it is compacted.</p>
+ */
+public class LogSessionStore implements SessionStore {
+
+	public static final Logger LOG = LoggerFactory.getLogger(LogSessionStore.class);
+
+	/** Default interval (in ms) between background writes of changed sessions */
+	public static final int DEFAULT_FLUSH_INTERVAL = 1000;
+
+	private static final byte PUT = 1;
+	private static final byte REMOVE = 2;
+
+	/** Length and checksum of the record's body */
+	private static final int HEADER_SIZE = 8;
+
+	/** Type, length of ID and expiration */
+	private static final int MIN_BODY_SIZE = 1 + 2 + 8;
+
+	/** Logs smaller than this are never compacted */
+	private static final long MIN_COMPACTION_SIZE = 1024L * 1024L;
+
+	private static final String SUFFIX = ".sessions";
+
+	/** Pending removal of a session */
+	private static final Pending REMOVED = new Pending(0L, null);
+
+	private final File directory;
+	private final ConcurrentMap<String, ContextLog> logs = new ConcurrentHashMap<>();
+	private final ScheduledExecutorService writer;
+
+	private volatile boolean closed = false;
+
+	/**
+	 * Creates the store
+	 * @param directory directory where the logs of the contexts are kept
+	 * @param flushInterval interval (in ms) between background writes. If {@code <= 0}, changes are written only
+	 *        by {@link #flush()}
+	 */
+	public LogSessionStore(File directory, long flushInterval) {
+		this.directory = directory;
+		if (flushInterval > 0L) {
+			writer = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread t = new Thread(r, "pax-web-session-store");
+				t.setDaemon(true);
+				return t;
+			});
+			writer.scheduleWithFixedDelay(this::writePending, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+		} else {
+			writer = null;
+		}
+	}
+
+	/**
+	 * Creates the store if {@link SessionConfiguration#getSessionStoreDirectory()} is configured.
+	 * @param configuration
+	 * @return {@code null} if there's no directory for session persistence
+	 */
+	public static LogSessionStore create(SessionConfiguration configuration) {
+		File dir = configuration == null ? null : configuration.getSessionStoreDirectory();
+		if (dir == null) {
+			return null;
+		}
+		return create(dir, configuration.getSessionStoreFlushInterval());
+	}
+
+	/**
+	 * Creates the store in given directory
+	 * @param directory
+	 * @param flushInterval
+	 * @return
+	 */
+	public static LogSessionStore create(File directory, Integer flushInterval) {
+		LogSessionStore store = new LogSessionStore(directory,
+				flushInterval == null ? DEFAULT_FLUSH_INTERVAL : flushInterval);
+		LOG.info("Created session store in {} with flushInterval={}ms", directory,
+				flushInterval == null ? DEFAULT_FLUSH_INTERVAL : flushInterval);
+		return store;
+	}
+
+	@Override
+	public void store(String context, String id, long expiration, Map<String, Object> attributes) {
+		if (closed) {
+			LOG.debug("Session store is closed, not storing session {}", id);
+			return;
+		}
+		log(context).pending.put(id, new Pending(expiration, attributes));
+	}
+
+	@Override
+	public void remove(String context, String id) {
+		if (closed) {
+			return;
+		}
+		ContextLog log = log(context);
+		// there's always either pending change or index entry for known session
+		if (log.pending.containsKey(id) || log.index.containsKey(id)) {
+			log.pending.put(id, REMOVED);
+		}
+	}
+
+	@Override
+	public StoredSession load(String context, String id, ClassLoader classLoader) {
+		ContextLog log = log(context);
+		long now = System.currentTimeMillis();
+		Pending pending = log.pending.get(id);
+		if (pending != null) {
+			if (pending == REMOVED || isExpired(pending.expiration, now)) {
+				return null;
+			}
+			return new StoredSession(id, pending.expiration, () -> new HashMap<>(pending.attributes));
+		}
+		Entry entry = log.index.get(id);
+		if (entry == null || isExpired(entry.expiration, now)) {
+			return null;
+		}
+		return new StoredSession(id, entry.expiration, () -> log.readAttributes(id, classLoader));
+	}
+
+	@Override
+	public Set<String> getSessionIds(String context) {
+		ContextLog log = log(context);
+		long now = System.currentTimeMillis();
+		Set<String> ids = new HashSet<>();
+		log.index.forEach((id, entry) -> {
+			if (!isExpired(entry.expiration, now)) {
+				ids.add(id);
+			}
+		});
+		log.pending.forEach((id, pending) -> {
+			if (pending == REMOVED || isExpired(pending.expiration, now)) {
+				ids.remove(id);
+			} else {
+				ids.add(id);
+			}
+		});
+		return ids;
+	}
+
+	@Override
+	public void flush() {
+		writePending();
+	}
+
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		if (writer != null) {
+			writer.shutdown();
+			try {
+				writer.awaitTermination(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		writePending();
+		logs.values().forEach(ContextLog::close);
+		logs.clear();
+	}
+
+	private void writePending() {
+		for (ContextLog log : logs.values()) {
+			try {
+				log.drain();
+			} catch (Throwable t) {
+				LOG.warn("Problem writing sessions to {}: {}", log.file, t.getMessage(), t);
+			}
+		}
+	}
+
+	private ContextLog log(String context) {
+		return logs.computeIfAbsent(context == null || "".equals(context) ? "ROOT" : context, ContextLog::new);
+	}
+
+	private static boolean isExpired(long expiration, long now) {
+		return expiration > 0L && expiration <= now;
+	}
+
+	/**
+	 * Serializes the attributes of a session, skipping the ones that can't be serialized.
+	 * @param id
+	 * @param attributes
+	 * @return
+	 * @throws IOException
+	 */
+	private static byte[] serialize(String id, Map<String, Object> attributes) throws IOException {
+		Map<String, Object> copy = new HashMap<>();
+		attributes.forEach((name, value) -> {
+			if (value instanceof Serializable) {
+				copy.put(name, value);
+			}
+		});
+		try {
+			return Serialization.toBytes(copy);
+		} catch (IOException e) {
+			// some attribute is Serializable, but its state is not - check them one by one
+			Map<String, Object> valid = new HashMap<>();
+			copy.forEach((name, value) -> {
+				try {
+					Serialization.toBytes(value);
+					valid.put(name, value);
+				} catch (IOException ex) {
+					LOG.debug("Skipping attribute {} of session {}, which can't be serialized: {}", name, id, ex.getMessage());
+				}
+			});
+			return Serialization.toBytes(valid);
+		}
+	}
+
+	/**
+	 * Log of the sessions of single context
+	 */
+	private final class ContextLog {
+
+		private final File file;
+
+		/** Changes not yet written to the log */
+		private final ConcurrentMap<String, Pending> pending = new ConcurrentHashMap<>();
+
+		/** Positions of the latest records of live sessions */
+		private final ConcurrentMap<String, Entry> index = new ConcurrentHashMap<>();
+
+		/** Reads of the records use read lock, only compaction (which moves the records) uses write lock */
+		private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+		private volatile FileChannel channel;
+
+		// guarded by "this"
+		private long end = 0L;
+		private long garbage = 0L;
+
+		ContextLog(String context) {
+			this.file = new File(directory, context.replaceAll("[^A-Za-z0-9._-]", "_") + SUFFIX);
+			try {
+				open();
+			} catch (IOException e) {
+				LOG.warn("Can't open session log {}, sessions of context {} won't be persisted: {}",
+						file, context, e.getMessage(), e);
+			}
+		}
+
+		/**
+		 * Opens the log and builds the index of the sessions by scanning memory-mapped content of the log.
+		 * @throws IOException
+		 */
+		private synchronized void open() throws IOException {
+			FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+					StandardOpenOption.READ, StandardOpenOption.WRITE);
+			long size = ch.size();
+			long position = 0L;
+			if (size > 0L) {
+				MappedByteBuffer buffer = ch.map(FileChannel.MapMode.READ_ONLY, 0L, size);
+				CRC32 crc = new CRC32();
+				while (buffer.remaining() >= HEADER_SIZE) {
+					int length = buffer.getInt();
+					int checksum = buffer.getInt();
+					if (length < MIN_BODY_SIZE || length > buffer.remaining()) {
+						break;
+					}
+					ByteBuffer body = buffer.slice();
+					body.limit(length);
+					crc.reset();
+					crc.update(body.duplicate());
+					if ((int) crc.getValue() != checksum) {
+						break;
+					}
+					byte type = body.get();
+					int idLength = body.getShort() & 0xFFFF;
+					if ((type != PUT && type != REMOVE) || idLength > body.remaining() - 8) {
+						break;
+					}
+					byte[] idBytes = new byte[idLength];
+					body.get(idBytes);
+					long expiration = body.getLong();
+					index(new String(idBytes, StandardCharsets.UTF_8), type, position, length, expiration);
+
+					position += HEADER_SIZE + length;
+					buffer.position((int) position);
+				}
+				if (position < size) {
+					// incomplete record of interrupted write. It'll be overwritten by next records
+					LOG.warn("Ignoring {} bytes of incomplete session records at the end of {}", size - position, file);
+				}
+			}
+			end = position;
+			channel = ch;
+			LOG.debug("Opened session log {} with {} sessions", file, index.size());
+		}
+
+		private void index(String id, byte type, long position, int length, long expiration) {
+			Entry previous = type == PUT ? index.put(id, new Entry(position, length, expiration)) : index.remove(id);
+			if (previous != null) {
+				garbage += HEADER_SIZE + previous.length;
+			}
+			if (type == REMOVE) {
+				garbage += HEADER_SIZE + length;
+			}
+		}
+
+		/**
+		 * Writes pending changes to the log.
+		 * @throws IOException
+		 */
+		private synchronized void drain() throws IOException {
+			FileChannel ch = channel;
+			if (ch == null) {
+				// the log couldn't be opened
+				pending.clear();
+				return;
+			}
+			if (pending.isEmpty()) {
+				return;
+			}
+			boolean written = false;
+			for (Map.Entry<String, Pending> e : pending.entrySet()) {
+				String id = e.getKey();
+				Pending change = e.getValue();
+				try {
+					append(ch, id, change);
+					written = true;
+				} catch (IOException ex) {
+					LOG.warn("Can't write session {} to {}: {}", id, file, ex.getMessage());
+				}
+				// if the session has changed in the meantime, the change stays pending
+				pending.remove(id, change);
+			}
+			if (written) {
+				ch.force(false);
+			}
+			if (end > MIN_COMPACTION_SIZE && garbage > end / 2) {
+				compact();
+			}
+		}
+
+		private void append(FileChannel ch, String id, Pending change) throws IOException {
+			byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+			if (idBytes.length > 0xFFFF) {
+				throw new IOException("Session ID is too long");
+			}
+			byte type = change == REMOVED ? REMOVE : PUT;
+			byte[] attributes = type == PUT ? serialize(id, change.attributes) : new byte[0];
+			int length = MIN_BODY_SIZE + idBytes.length + attributes.length;
+
+			ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + length);
+			record.putInt(length).putInt(0);
+			record.put(type).putShort((short) idBytes.length).put(idBytes).putLong(change.expiration).put(attributes);
+			CRC32 crc = new CRC32();
+			crc.update(record.array(), HEADER_SIZE, length);
+			record.putInt(4, (int) crc.getValue());
+			record.flip();
+
+			long position = end;
+			while (record.hasRemaining()) {
+				position += ch.write(record, position);
+			}
+			index(id, type, end, length, change.expiration);
+			end = position;
+		}
+
+		/**
+		 * Copies the records of live sessions into new log, which replaces the current one.
+		 */
+		private void compact() {
+			File tmp = new File(directory, file.getName() + ".tmp");
+			long now = System.currentTimeMillis();
+			lock.writeLock().lock();
+			try {
+				Map<String, Entry> compacted = new HashMap<>();
+				long position = 0L;
+				try (FileChannel target = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE,
+						StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+					for (Map.Entry<String, Entry> e : index.entrySet()) {
+						Entry entry = e.getValue();
+						if (isExpired(entry.expiration, now)) {
+							continue;
+						}
+						long size = HEADER_SIZE + entry.length;
+						long copied = 0L;
+						while (copied < size) {
+							long n = channel.transferTo(entry.position + copied, size - copied, target);
+							if (n <= 0L) {
+								throw new EOFException("Unexpected end of " + file);
+							}
+							copied += n;
+						}
+						compacted.put(e.getKey(), new Entry(position, entry.length, entry.expiration));
+						position += size;
+					}
+					target.force(true);
+				}
+
+				long before = end;
+				channel.close();
+				try {
+					Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				} finally {
+					channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+				}
+				// not cleared, because the index is read without the lock
+				index.putAll(compacted);
+				index.keySet().retainAll(compacted.keySet());
+				end = position;
+				garbage = 0L;
+				LOG.debug("Compacted session log {} from {} to {} bytes", file, before, end);
+			} catch (IOException e) {
+				LOG.warn("Can't compact session log {}: {}", file, e.getMessage());
+				if (!tmp.delete()) {
+					LOG.debug("Can't delete {}", tmp);
+				}
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+
+		/**
+		 * Reads and deserializes the attributes of the session.
+		 * @param id
+		 * @param classLoader
+		 * @return
+		 */
+		private Map<String, Object> readAttributes(String id, ClassLoader classLoader) {
+			lock.readLock().lock();
+			try {
+				FileChannel ch = channel;
+				Entry entry = index.get(id);
+				if (ch == null || entry == null) {
+					return null;
+				}
+				ByteBuffer body = ByteBuffer.allocate(entry.length);
+				long position = entry.position + HEADER_SIZE;
+				while (body.hasRemaining()) {
+					int n = ch.read(body, position);
+					if (n < 0) {
+						throw new EOFException("Unexpected end of " + file);
+					}
+					position += n;
+				}
+				int idLength = body.getShort(1) & 0xFFFF;
+				int offset = MIN_BODY_SIZE + idLength;
+				@SuppressWarnings("unchecked")
+				Map<String, Object> attributes = (Map<String, Object>) Serialization.fromBytes(body.array(), offset,
+						entry.length - offset, classLoader);
+				return attributes;
+			} catch (IOException | ClassNotFoundException | ClassCastException e) {
+				LOG.warn("Can't load attributes of session {} from {}: {}", id, file, e.getMessage());
+				return null;
+			} finally {
+				lock.readLock().unlock();
+			}
+		}
+
+		private synchronized void close() {
+			FileChannel ch = channel;
+			channel = null;
+			if (ch != null) {
+				try {
+					ch.close();
+				} catch (IOException e) {
+					LOG.debug("Problem closing {}: {}", file, e.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Position and metadata of the latest record of a session
+	 */
+	private static final class Entry {
+		private final long position;
+		private final int length;
+		private final long expiration;
+
+		Entry(long position, int length, long expiration) {
+			this.position = position;
+			this.length = length;
+			this.expiration = expiration;
+		}
+	}
+
+	/**
+	 * Change of a session which is not yet written. {@code null} attributes mean removal.
+	 */
+	private static final class Pending {
+		private final long expiration;
+		private final Map<String, Object> attributes;
+
+		Pending(long expiration, Map<String, Object> attributes) {
+			this.expiration = expiration;
+			this.attributes = attributes;
+		}
+	}
+
+}
@@ -0,0 +1,466 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.spi.session;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.ops4j.pax.web.service.spi.config.SessionConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>{@link SessionAttributeStorage} keeping serialized attributes in direct memory, so the number of live
+ * sessions doesn't drive the size of the heap.</p>
+ *
+ * <p>Direct memory is allocated in slabs of {@link #SLAB_SIZE} bytes, which are split into blocks with sizes
+ * being powers of two. Freed blocks are reused for attributes of similar size. Attributes which are not
+ * {@link Serializable}, which are bigger than single slab or which don't fit into {@link #getMaxMemory()} are
+ * kept on the heap.</p>
+ *
+ * <p>Dirty tracking is done per attribute - when the last request using the session is done, only the attributes
+ * which were set or obtained (and which are not immutable) during the request are serialized again.
+ * Attributes are deserialized only when they're obtained and only the values obtained during a request are kept
+ * on the heap until the request is done.</p>
+ */
+public class OffHeapSessionAttributeStorage implements SessionAttributeStorage {
+
+	public static final Logger LOG = LoggerFactory.getLogger(OffHeapSessionAttributeStorage.class);
+
+	/** Default maximum size (in MB) of direct memory used for session attributes */
+	public static final int DEFAULT_MAX_SIZE = 256;
+
+	/** Direct memory is allocated in slabs of this size */
+	public static final int SLAB_SIZE = 1 << 20;
+
+	private static final int MIN_SHIFT = 6;
+	private static final int MAX_SHIFT = 20;
+
+	private final long maxMemory;
+
+	/** Frees the blocks of sessions which were dropped without clearing their attributes */
+	private final Cleaner cleaner = Cleaner.create();
+
+	/** Allocated slabs - the array is replaced (never modified) when new slab is allocated */
+	private volatile ByteBuffer[] slabs = new ByteBuffer[0];
+
+	/** Stacks of free blocks of each size - guarded by {@code this} */
+	private final long[][] freeBlocks = new long[MAX_SHIFT - MIN_SHIFT + 1][16];
+	private final int[] freeCounts = new int[MAX_SHIFT - MIN_SHIFT + 1];
+
+	/** Offset of unused part of last slab - guarded by {@code this} */
+	private int offset = SLAB_SIZE;
+
+	private final AtomicLong used = new AtomicLong();
+
+	/**
+	 * Creates the storage
+	 * @param maxMemory maximum size (in bytes) of direct memory to allocate
+	 */
+	public OffHeapSessionAttributeStorage(long maxMemory) {
+		this.maxMemory = Math.max(maxMemory, SLAB_SIZE);
+	}
+
+	/**
+	 * Creates the storage if {@link SessionConfiguration#getSessionAttributeStorage()} is {@link #OFF_HEAP}.
+	 * @param configuration
+	 * @return {@code null} if sessions attributes should be kept on the heap
+	 */
+	public static OffHeapSessionAttributeStorage create(SessionConfiguration configuration) {
+		if (configuration == null || !OFF_HEAP.equalsIgnoreCase(configuration.getSessionAttributeStorage())) {
+			return null;
+		}
+		Integer maxSize = configuration.getSessionAttributeStorageMaxSize();
+		OffHeapSessionAttributeStorage storage = new OffHeapSessionAttributeStorage(
+				(maxSize == null ? DEFAULT_MAX_SIZE : maxSize) * 1024L * 1024L);
+		LOG.info("Created off-heap session attribute storage with maxSize={}MB", storage.maxMemory / 1024 / 1024);
+		return storage;
+	}
+
+	@Override
+	public SessionAttributes createAttributes() {
+		Map<String, Slot> slots = new ConcurrentHashMap<>();
+		OffHeapSessionAttributes attributes = new OffHeapSessionAttributes(this, slots);
+		// the action can't reference the attributes themselves
+		cleaner.register(attributes, () -> slots.values().forEach(this::free));
+		return attributes;
+	}
+
+	@Override
+	public long getUsedMemory() {
+		return used.get();
+	}
+
+	@Override
+	public long getMaxMemory() {
+		return maxMemory;
+	}
+
+	/**
+	 * Returns the amount of direct memory (in bytes) allocated so far.
+	 * @return
+	 */
+	public long getAllocatedMemory() {
+		return (long) slabs.length * SLAB_SIZE;
+	}
+
+	/**
+	 * Serializes the value of the slot into direct memory. If it's not possible, the value stays on the heap.
+	 * @param slot
+	 */
+	private void store(Slot slot) {
+		slot.dirty = false;
+		Object value = slot.value;
+		if (value == null || slot.heap) {
+			return;
+		}
+		if (!(value instanceof Serializable)) {
+			slot.heap = true;
+			return;
+		}
+		byte[] data;
+		try {
+			data = Serialization.toBytes(value);
+		} catch (IOException e) {
+			LOG.debug("Attribute of class {} can't be serialized, keeping it on the heap: {}",
+					value.getClass().getName(), e.getMessage());
+			slot.heap = true;
+			return;
+		}
+		int shift = shift(data.length);
+		if (slot.block >= 0L && slot.shift != shift) {
+			free(slot);
+		}
+		if (slot.block < 0L) {
+			long block = shift > MAX_SHIFT ? -1L : allocate(shift);
+			if (block < 0L) {
+				// too big or no more memory
+				return;
+			}
+			slot.block = block;
+			slot.shift = shift;
+		}
+		ByteBuffer buffer = slabs[(int) (slot.block >>> 32)].duplicate();
+		buffer.position((int) slot.block);
+		buffer.put(data);
+		slot.length = data.length;
+		slot.classLoader = value.getClass().getClassLoader();
+		slot.value = null;
+	}
+
+	/**
+	 * Deserializes the value of the slot.
+	 * @param slot
+	 * @return
+	 */
+	private Object load(Slot slot) {
+		if (slot.block < 0L) {
+			return null;
+		}
+		byte[] data = new byte[slot.length];
+		ByteBuffer buffer = slabs[(int) (slot.block >>> 32)].duplicate();
+		buffer.position((int) slot.block);
+		buffer.get(data);
+		try {
+			return Serialization.fromBytes(data, 0, data.length, slot.classLoader,
+					Thread.currentThread().getContextClassLoader());
+		} catch (IOException | ClassNotFoundException e) {
+			LOG.warn("Can't deserialize session attribute: {}", e.getMessage(), e);
+			return null;
+		}
+	}
+
+	private synchronized long allocate(int shift) {
+		int sizeClass = shift - MIN_SHIFT;
+		long block;
+		if (freeCounts[sizeClass] > 0) {
+			block = freeBlocks[sizeClass][--freeCounts[sizeClass]];
+		} else {
+			int size = 1 << shift;
+			if (offset + size > SLAB_SIZE) {
+				if ((long) (slabs.length + 1) * SLAB_SIZE > maxMemory) {
+					return -1L;
+				}
+				// the rest of current slab is split into smaller free blocks
+				if (slabs.length > 0) {
+					while (SLAB_SIZE - offset >= 1 << MIN_SHIFT) {
+						int rest = 31 - Integer.numberOfLeadingZeros(SLAB_SIZE - offset);
+						push(rest - MIN_SHIFT, ((long) (slabs.length - 1) << 32) | offset);
+						offset += 1 << rest;
+					}
+				}
+				ByteBuffer[] newSlabs = Arrays.copyOf(slabs, slabs.length + 1);
+				newSlabs[slabs.length] = ByteBuffer.allocateDirect(SLAB_SIZE);
+				slabs = newSlabs;
+				offset = 0;
+			}
+			block = ((long) (slabs.length - 1) << 32) | offset;
+			offset += size;
+		}
+		used.addAndGet(1L << shift);
+		return block;
+	}
+
+	private void free(Slot slot) {
+		if (slot.block >= 0L) {
+			synchronized (this) {
+				push(slot.shift - MIN_SHIFT, slot.block);
+			}
+			used.addAndGet(-(1L << slot.shift));
+			slot.block = -1L;
+		}
+	}
+
+	private void push(int sizeClass, long block) {
+		if (freeCounts[sizeClass] == freeBlocks[sizeClass].length) {
+			freeBlocks[sizeClass] = Arrays.copyOf(freeBlocks[sizeClass], freeCounts[sizeClass] * 2);
+		}
+		freeBlocks[sizeClass][freeCounts[sizeClass]++] = block;
+	}
+
+	private static int shift(int length) {
+		return Math.max(MIN_SHIFT, 32 - Integer.numberOfLeadingZeros(Math.max(length, 1) - 1));
+	}
+
+	/**
+	 * Values which can't be changed after they're obtained from the session don't have to be stored again.
+	 * @param value
+	 * @return
+	 */
+	private static boolean isImmutable(Object value) {
+		return value instanceof String || value instanceof Number && value.getClass().getName().startsWith("java.lang.")
+				|| value instanceof Boolean || value instanceof Character || value instanceof Enum;
+	}
+
+	/**
+	 * Single attribute - either serialized in direct memory or (also) available as deserialized value.
+	 */
+	private static final class Slot {
+		/** Slab index (high 32 bits) and offset (low 32 bits) or {@code -1} */
+		private long block = -1L;
+		private int shift;
+		private int length;
+		/** Deserialized value or the value which has to be kept on the heap */
+		private Object value;
+		private ClassLoader classLoader;
+		/** Whether the value may be different than its serialized form */
+		private boolean dirty;
+		/** Whether the value can't be serialized */
+		private boolean heap;
+	}
+
+	/**
+	 * {@link SessionAttributes} of single session. Operations are synchronized, as concurrent access to single
+	 * session is rare.
+	 */
+	private static final class OffHeapSessionAttributes extends AbstractMap<String, Object> implements SessionAttributes {
+
+		private final OffHeapSessionAttributeStorage storage;
+		private final Map<String, Slot> slots;
+
+		/** Number of requests using the session - guarded by {@code this} */
+		private int accessCount = 0;
+
+		OffHeapSessionAttributes(OffHeapSessionAttributeStorage storage, Map<String, Slot> slots) {
+			this.storage = storage;
+			this.slots = slots;
+		}
+
+		@Override
+		public synchronized void access() {
+			accessCount++;
+		}
+
+		@Override
+		public synchronized void release() {
+			if (accessCount > 0) {
+				accessCount--;
+			}
+			if (accessCount == 0) {
+				for (Slot slot : slots.values()) {
+					if (slot.dirty) {
+						storage.store(slot);
+					}
+				}
+			}
+		}
+
+		@Override
+		public synchronized Object get(Object key) {
+			Slot slot = slots.get(key);
+			if (slot == null) {
+				return null;
+			}
+			if (slot.value == null) {
+				Object value = storage.load(slot);
+				if (accessCount == 0) {
+					// not obtained during a request (e.g., by session persistence), so a copy is enough
+					return value;
+				}
+				slot.value = value;
+				// the value may be changed by the application, so it'll be stored again at the end of the request
+				slot.dirty = value != null && !isImmutable(value);
+			}
+			return slot.value;
+		}
+
+		@Override
+		public synchronized Object put(String key, Object value) {
+			if (value == null) {
+				return remove(key);
+			}
+			Slot slot = new Slot();
+			slot.value = value;
+			slot.dirty = true;
+			Slot previous = slots.put(key, slot);
+			if (accessCount == 0) {
+				// not set during a request (e.g., when the session is restored), so store it now
+				storage.store(slot);
+			}
+			return previous == null ? null : drop(previous);
+		}
+
+		@Override
+		public synchronized Object remove(Object key) {
+			Slot previous = slots.remove(key);
+			return previous == null ? null : drop(previous);
+		}
+
+		@Override
+		public synchronized Object putIfAbsent(String key, Object value) {
+			Object current = get(key);
+			return current == null ? put(key, value) : current;
+		}
+
+		@Override
+		public synchronized boolean remove(Object key, Object value) {
+			if (value != null && Objects.equals(get(key), value)) {
+				remove(key);
+				return true;
+			}
+			return false;
+		}
+
+		@Override
+		public synchronized boolean replace(String key, Object oldValue, Object newValue) {
+			if (oldValue != null && Objects.equals(get(key), oldValue)) {
+				put(key, newValue);
+				return true;
+			}
+			return false;
+		}
+
+		@Override
+		public synchronized Object replace(String key, Object value) {
+			return slots.containsKey(key) ? put(key, value) : null;
+		}
+
+		@Override
+		public synchronized void clear() {
+			slots.values().forEach(storage::free);
+			slots.clear();
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return slots.containsKey(key);
+		}
+
+		@Override
+		public int size() {
+			return slots.size();
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return slots.isEmpty();
+		}
+
+		@Override
+		public Set<String> keySet() {
+			return Collections.unmodifiableSet(slots.keySet());
+		}
+
+		@Override
+		public Set<Entry<String, Object>> entrySet() {
+			return new AbstractSet<Entry<String, Object>>() {
+				@Override
+				public Iterator<Entry<String, Object>> iterator() {
+					Iterator<String> keys = slots.keySet().iterator();
+					return new Iterator<Entry<String, Object>>() {
+						private Entry<String, Object> next = advance();
+
+						private Entry<String, Object> advance() {
+							while (keys.hasNext()) {
+								String key = keys.next();
+								Object value = get(key);
+								if (value != null) {
+									return new SimpleImmutableEntry<>(key, value);
+								}
+							}
+							return null;
+						}
+
+						@Override
+						public boolean hasNext() {
+							return next != null;
+						}
+
+						@Override
+						public Entry<String, Object> next() {
+							if (next == null) {
+								throw new NoSuchElementException();
+							}
+							Entry<String, Object> result = next;
+							next = advance();
+							return result;
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return slots.size();
+				}
+			};
+		}
+
+		/**
+		 * Returns the value of removed/replaced slot and frees its memory.
+		 * @param slot
+		 * @return
+		 */
+		private Object drop(Slot slot) {
+			Object value = slot.value != null ? slot.value : storage.load(slot);
+			storage.free(slot);
+			return value;
+		}
+	}
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.spi.session;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+
+/**
+ * Java serialization of session attributes.
+ */
+final class Serialization {
+
+	private Serialization() {
+	}
+
+	static byte[] toBytes(Object object) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+			oos.writeObject(object);
+		}
+		return baos.toByteArray();
+	}
+
+	/**
+	 * Deserializes an object, resolving its classes using given class loaders (which may be {@code null})
+	 * before the default resolution of {@link ObjectInputStream}.
+	 * @param data
+	 * @param offset
+	 * @param length
+	 * @param classLoaders
+	 * @return
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	static Object fromBytes(byte[] data, int offset, int length, ClassLoader... classLoaders)
+			throws IOException, ClassNotFoundException {
+		try (ObjectInputStream ois = new ClassLoaderObjectInputStream(
+				new ByteArrayInputStream(data, offset, length), classLoaders)) {
+			return ois.readObject();
+		}
+	}
+
+	/**
+	 * {@link ObjectInputStream} resolving classes of the attributes using class loader(s) of the context.
+	 */
+	private static final class ClassLoaderObjectInputStream extends ObjectInputStream {
+		private final ClassLoader[] classLoaders;
+
+		ClassLoaderObjectInputStream(InputStream in, ClassLoader[] classLoaders) throws IOException {
+			super(in);
+			this.classLoaders = classLoaders;
+		}
+
+		@Override
+		protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+			for (ClassLoader classLoader : classLoaders) {
+				if (classLoader != null) {
+					try {
+						return Class.forName(desc.getName(), false, classLoader);
+					} catch (ClassNotFoundException ignored) {
+						// try next one
+					}
+				}
+			}
+			return super.resolveClass(desc);
+		}
+	}
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.spi.session;
+
+/**
+ * <p>Storage of the attributes of live sessions, shared by all the contexts of a server runtime. Server runtimes
+ * use {@link SessionAttributes} created by the storage instead of their own (heap-resident) attribute maps.</p>
+ *
+ * <p>The storage is selected with {@code org.ops4j.pax.web.session.attributeStorage} property of Pax Web
+ * configuration.</p>
+ */
+public interface SessionAttributeStorage {
+
+	/** Attributes are kept on the heap by the server runtime itself */
+	String HEAP = "heap";
+
+	/** Attributes are kept serialized in direct memory - see {@link OffHeapSessionAttributeStorage} */
+	String OFF_HEAP = "offheap";
+
+	/**
+	 * Creates attribute map for new session
+	 * @return
+	 */
+	SessionAttributes createAttributes();
+
+	/**
+	 * Returns the amount of memory (in bytes) used by the attributes of all the sessions.
+	 * @return
+	 */
+	long getUsedMemory();
+
+	/**
+	 * Returns the maximum amount of memory (in bytes) the storage may use. When it's used up, new attributes are
+	 * kept on the heap.
+	 * @return
+	 */
+	long getMaxMemory();
+
+}
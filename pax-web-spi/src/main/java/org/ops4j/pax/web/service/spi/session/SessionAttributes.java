@@ -0,0 +1,42 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.spi.session;
+
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>Attributes of single session created by {@link SessionAttributeStorage}. It's a {@link ConcurrentMap}, so it
+ * can directly replace attribute maps of the sessions of server runtimes.</p>
+ *
+ * <p>Values obtained from the map may be deserialized copies of the attributes, so the runtime has to call
+ * {@link #access()} when a request starts using the session and {@link #release()} when the request is done.
+ * Attributes which may have been changed during the request are then written back to the storage.</p>
+ */
+public interface SessionAttributes extends ConcurrentMap<String, Object> {
+
+	/**
+	 * Called when a request starts using the session.
+	 */
+	void access();
+
+	/**
+	 * Called when a request stops using the session. When there are no more requests using the session,
+	 * the attributes set or obtained during the requests are written back to the storage and their deserialized
+	 * values are no longer referenced.
+	 */
+	void release();
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.spi.session;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>Persistent storage of HTTP sessions, shared by all the contexts of a server runtime. Sessions are identified
+ * by a <em>context</em> (a name unique for the servlet context, like Undertow's deployment name) and session ID.</p>
+ *
+ * <p>Unlike the persistence mechanisms of the runtimes (like Undertow's
+ * {@code io.undertow.servlet.api.SessionPersistenceManager} or Tomcat's {@code StandardManager}), which write
+ * all the sessions when the context is stopped and read all of them back when it's started, this store is
+ * meant to be updated incrementally (whenever a session changes) and read lazily (when a session is accessed
+ * for the first time).</p>
+ */
+public interface SessionStore extends Closeable {
+
+	/**
+	 * Schedules a write of the session. The operation is asynchronous and the attributes are serialized when the
+	 * session is actually written, so a <em>live</em> map of attributes may be passed. Non-serializable attributes
+	 * are skipped.
+	 * @param context
+	 * @param id
+	 * @param expiration time (in ms since epoch) when the session expires, {@code <= 0} if it never expires
+	 * @param attributes
+	 */
+	void store(String context, String id, long expiration, Map<String, Object> attributes);
+
+	/**
+	 * Schedules a removal of the session.
+	 * @param context
+	 * @param id
+	 */
+	void remove(String context, String id);
+
+	/**
+	 * Returns a stored session. The attributes of the session are deserialized only when
+	 * {@link StoredSession#getAttributes()} is called.
+	 * @param context
+	 * @param id
+	 * @param classLoader class loader used to deserialize the attributes
+	 * @return {@code null} if there's no such session or the session has already expired
+	 */
+	StoredSession load(String context, String id, ClassLoader classLoader);
+
+	/**
+	 * Returns IDs of all not expired sessions stored for given context.
+	 * @param context
+	 * @return
+	 */
+	Set<String> getSessionIds(String context);
+
+	/**
+	 * Synchronously writes all the pending changes.
+	 */
+	void flush();
+
+	/**
+	 * Writes all the pending changes and releases the resources of the store.
+	 */
+	@Override
+	void close();
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.spi.session;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * A session obtained from {@link SessionStore}, which deserializes its attributes on first access.
+ */
+public final class StoredSession {
+
+	private final String id;
+	private final long expiration;
+	private final Supplier<Map<String, Object>> loader;
+
+	private volatile Map<String, Object> attributes;
+
+	public StoredSession(String id, long expiration, Supplier<Map<String, Object>> loader) {
+		this.id = id;
+		this.expiration = expiration;
+		this.loader = loader;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * Time (in ms since epoch) when the session expires, {@code <= 0} if it never expires.
+	 * @return
+	 */
+	public long getExpiration() {
+		return expiration;
+	}
+
+	public boolean isExpired(long now) {
+		return expiration > 0L && expiration <= now;
+	}
+
+	/**
+	 * Returns (deserializing on first call) the attributes of the session.
+	 * @return
+	 */
+	public Map<String, Object> getAttributes() {
+		Map<String, Object> result = attributes;
+		if (result == null) {
+			synchronized (this) {
+				result = attributes;
+				if (result == null) {
+					result = loader.get();
+					if (result == null) {
+						result = Collections.emptyMap();
+					}
+					attributes = result;
+				}
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return "StoredSession{id=" + id + ", expiration=" + expiration + "}";
+	}
+
+}
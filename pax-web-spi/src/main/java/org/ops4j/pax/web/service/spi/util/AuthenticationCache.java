@@ -0,0 +1,250 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.spi.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.ops4j.pax.web.service.spi.config.SecurityConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Bounded cache of successful credential verifications, used in front of <em>realms</em> (Undertow's
+ * {@code IdentityManager}, Jetty's {@code LoginService}, Tomcat's {@code Realm}), where verification may be
+ * expensive (like JAAS login against LDAP server) and is performed for each request using BASIC authentication.</p>
+ *
+ * <p>The key of each entry is a SHA-256 digest of realm name, user name and password, salted with a random value
+ * generated for each instance of the cache - plain passwords are never kept in memory. Only successful verifications
+ * are cached and each entry expires after configured time, so changed passwords and roles are eventually
+ * noticed even without {@link #invalidate(String, String) explicit invalidation}.</p>
+ *
+ * <p>Cache hits don't take any lock - like in {@link LruResourceCache}, each hit only records its access time
+ * and the least recently used entries are removed only when new entry exceeds the size limit.</p>
+ *
+ * @param <T> the type of the result of successful verification (account, user identity, principal)
+ */
+public class AuthenticationCache<T> implements AuthenticationCacheMXBean {
+
+	public static final Logger LOG = LoggerFactory.getLogger(AuthenticationCache.class);
+
+	/** Default maximum number of cached verifications */
+	public static final int DEFAULT_MAX_SIZE = 1000;
+
+	private static final int SALT_LENGTH = 16;
+
+	private final long ttl;
+	private final int maxSize;
+	private final byte[] salt = new byte[SALT_LENGTH];
+
+	private final Map<String, Entry<T>> entries = new ConcurrentHashMap<>();
+	/** Logical clock used to order the entries by access time */
+	private final AtomicLong clock = new AtomicLong();
+	private final Object evictionLock = new Object();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * Creates the cache
+	 * @param ttl time (in ms) after which successful verification has to be performed again
+	 * @param maxSize maximum number of cached verifications
+	 */
+	public AuthenticationCache(long ttl, int maxSize) {
+		this.ttl = ttl;
+		this.maxSize = maxSize;
+		new SecureRandom().nextBytes(salt);
+	}
+
+	/**
+	 * Creates the cache if it's enabled (by positive TTL) in {@link SecurityConfiguration}.
+	 * @param configuration
+	 * @param <T>
+	 * @return {@code null} if caching of authentication results is not enabled
+	 */
+	public static <T> AuthenticationCache<T> create(SecurityConfiguration configuration) {
+		if (configuration == null) {
+			return null;
+		}
+		Integer ttl = configuration.getAuthenticationCacheTtl();
+		if (ttl == null || ttl <= 0) {
+			return null;
+		}
+		Integer maxSize = configuration.getAuthenticationCacheMaxSize();
+		AuthenticationCache<T> cache = new AuthenticationCache<>(TimeUnit.SECONDS.toMillis(ttl),
+				maxSize == null || maxSize <= 0 ? DEFAULT_MAX_SIZE : maxSize);
+		LOG.info("Created authentication cache with ttl={}s, maxSize={}", ttl, cache.maxSize);
+		return cache;
+	}
+
+	/**
+	 * Returns the result of previous successful verification of given credentials or performs the verification
+	 * using passed {@code verifier} and caches its result if it's not {@code null}.
+	 * @param realm name of the realm (or any other identifier of the component verifying the credentials)
+	 * @param user
+	 * @param password
+	 * @param verifier performs actual verification, returning {@code null} if the credentials are not valid
+	 * @return
+	 */
+	public T verify(String realm, String user, String password, Supplier<T> verifier) {
+		if (user == null || password == null) {
+			return verifier.get();
+		}
+		String key = key(realm, user, password);
+		long now = System.currentTimeMillis();
+		Entry<T> entry = entries.get(key);
+		if (entry != null) {
+			if (entry.expires > now) {
+				hits.increment();
+				entry.lastAccess = clock.incrementAndGet();
+				return entry.value;
+			}
+			entries.remove(key, entry);
+		}
+
+		misses.increment();
+		T result = verifier.get();
+		if (result != null) {
+			put(key, new Entry<>(realm, user, result, now + ttl, clock.incrementAndGet()));
+		}
+		return result;
+	}
+
+	/**
+	 * Removes cached verifications of given user, so next verification is delegated to the realm.
+	 * @param realm name of the realm - {@code null} to invalidate given user in all realms
+	 * @param user
+	 */
+	public void invalidate(String realm, String user) {
+		entries.values().removeIf(e -> e.user.equals(user) && (realm == null || realm.equals(e.realm)));
+	}
+
+	/**
+	 * Removes all cached verifications
+	 */
+	@Override
+	public void invalidateAll() {
+		entries.clear();
+	}
+
+	@Override
+	public long getHits() {
+		return hits.sum();
+	}
+
+	@Override
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	@Override
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	@Override
+	public int getSize() {
+		return entries.size();
+	}
+
+	private void put(String key, Entry<T> entry) {
+		entries.put(key, entry);
+		if (entries.size() <= maxSize) {
+			return;
+		}
+		synchronized (evictionLock) {
+			// access times are copied, because they may change while sorting
+			List<Candidate<T>> candidates = new ArrayList<>(entries.size());
+			entries.forEach((k, v) -> candidates.add(new Candidate<>(k, v)));
+			candidates.sort(Comparator.comparingLong(c -> c.lastAccess));
+			for (Candidate<T> eldest : candidates) {
+				if (entries.size() <= maxSize) {
+					break;
+				}
+				if (eldest.entry == entry) {
+					// the new entry is the most recently used one, so it's never evicted here
+					continue;
+				}
+				if (entries.remove(eldest.key, eldest.entry)) {
+					evictions.increment();
+				}
+			}
+		}
+	}
+
+	private String key(String realm, String user, String password) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e.getMessage(), e);
+		}
+		digest.update(salt);
+		digest.update((realm == null ? "" : realm).getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+		digest.update(user.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+		digest.update(password.getBytes(StandardCharsets.UTF_8));
+		return Base64.getEncoder().encodeToString(digest.digest());
+	}
+
+	@Override
+	public String toString() {
+		return "AuthenticationCache{ttl=" + ttl + "ms, maxSize=" + maxSize + "}";
+	}
+
+	private static class Entry<T> {
+		private final String realm;
+		private final String user;
+		private final T value;
+		private final long expires;
+		private volatile long lastAccess;
+
+		Entry(String realm, String user, T value, long expires, long lastAccess) {
+			this.realm = realm;
+			this.user = user;
+			this.value = value;
+			this.expires = expires;
+			this.lastAccess = lastAccess;
+		}
+	}
+
+	private static class Candidate<T> {
+		private final String key;
+		private final Entry<T> entry;
+		private final long lastAccess;
+
+		Candidate(String key, Entry<T> entry) {
+			this.key = key;
+			this.entry = entry;
+			this.lastAccess = entry.lastAccess;
+		}
+	}
+
+}
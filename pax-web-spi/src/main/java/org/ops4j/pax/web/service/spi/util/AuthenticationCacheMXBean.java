@@ -0,0 +1,54 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.spi.util;
+
+/**
+ * JMX view of {@link AuthenticationCache}, registered by pax-web-runtime as {@link #OBJECT_NAME}.
+ */
+public interface AuthenticationCacheMXBean {
+
+	String OBJECT_NAME = "org.ops4j.pax.web:type=AuthenticationCache";
+
+	/**
+	 * Number of verifications answered from the cache
+	 * @return
+	 */
+	long getHits();
+
+	/**
+	 * Number of verifications delegated to the realm
+	 * @return
+	 */
+	long getMisses();
+
+	/**
+	 * Number of entries removed to keep the cache within its size limit
+	 * @return
+	 */
+	long getEvictions();
+
+	/**
+	 * Current number of cached verifications
+	 * @return
+	 */
+	int getSize();
+
+	/**
+	 * Removes all cached verifications, so for example changed passwords are checked by the realms immediately
+	 */
+	void invalidateAll();
+
+}
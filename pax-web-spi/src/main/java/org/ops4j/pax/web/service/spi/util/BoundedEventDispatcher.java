@@ -0,0 +1,538 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.spi.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Dispatcher of events, where each listener has own bounded queue of events. Sender only puts the event into
+ * the queues and the events are delivered to each listener in another thread (in order, but possibly several
+ * events at once). Slow listener doesn't delay the sender nor other listeners - it only fills its own queue and
+ * when the queue is full, {@link OverflowPolicy} is applied. By default ({@link #DEFAULT_POLICY}) the sender
+ * never waits - {@link OverflowPolicy#BLOCK} should be used only for internal listeners which can't lose
+ * any event.</p>
+ *
+ * <p>At most one thread delivers the events to given listener at a time, so a listener doesn't have to be
+ * thread-safe.</p>
+ *
+ * @param <L> type of the listener
+ * @param <E> type of the event
+ */
+public class BoundedEventDispatcher<L, E> {
+
+	public static final Logger LOG = LoggerFactory.getLogger(BoundedEventDispatcher.class);
+
+	public static final int DEFAULT_QUEUE_SIZE = 1024;
+
+	/** Maximal number of events passed to a listener at once */
+	public static final int MAX_BATCH_SIZE = 64;
+
+	/** Policy used when none (or unknown one) is configured - the sender is never blocked by slow listener */
+	public static final OverflowPolicy DEFAULT_POLICY = OverflowPolicy.COALESCE;
+
+	/** How long the sender waits for a place in full queue when {@link OverflowPolicy#BLOCK} is used */
+	private static final long BLOCK_TIMEOUT = TimeUnit.SECONDS.toNanos(60L);
+
+	private final String name;
+	private final Executor executor;
+	private final int queueSize;
+	private final OverflowPolicy policy;
+	private final Function<E, Object> coalescingKey;
+	private final Delivery<L, E> delivery;
+
+	private final Map<L, ListenerQueue> queues = new ConcurrentHashMap<>();
+
+	/** Marks the threads delivering the events, which should never block when sending new events */
+	private final ThreadLocal<Boolean> delivering = new ThreadLocal<>();
+
+	private volatile boolean stopped = false;
+
+	/**
+	 * Creates the dispatcher
+	 * @param name name used in log messages
+	 * @param executor {@link Executor} used to deliver the events
+	 * @param queueSize maximal number of events queued for single listener
+	 * @param policy what to do when the queue is full ({@link #DEFAULT_POLICY} if {@code null})
+	 * @param coalescingKey function returning a key for the event - when {@link OverflowPolicy#COALESCE} is used,
+	 *        older event with the same key is removed from full queue. May return {@code null}.
+	 * @param delivery how to pass a list of events to the listener
+	 */
+	public BoundedEventDispatcher(String name, Executor executor, int queueSize, OverflowPolicy policy,
+			Function<E, Object> coalescingKey, Delivery<L, E> delivery) {
+		this.name = name;
+		this.executor = executor;
+		this.queueSize = Math.max(1, queueSize);
+		this.policy = policy == null ? DEFAULT_POLICY : policy;
+		this.coalescingKey = coalescingKey;
+		this.delivery = delivery;
+	}
+
+	/**
+	 * Adds a listener with an event queue using configured {@link OverflowPolicy}
+	 * @param listener
+	 */
+	public void addListener(L listener) {
+		addListener(listener, policy);
+	}
+
+	/**
+	 * Adds a listener with an event queue using specific {@link OverflowPolicy}
+	 * @param listener
+	 * @param policy
+	 */
+	public void addListener(L listener, OverflowPolicy policy) {
+		queues.putIfAbsent(listener, new ListenerQueue(listener, policy));
+	}
+
+	/**
+	 * Removes a listener discarding all the events not yet delivered to it
+	 * @param listener
+	 */
+	public void removeListener(L listener) {
+		ListenerQueue queue = queues.remove(listener);
+		if (queue != null) {
+			queue.discard();
+		}
+	}
+
+	public boolean hasListener(L listener) {
+		return queues.containsKey(listener);
+	}
+
+	/**
+	 * Queues the event for delivery to all current listeners.
+	 * @param event
+	 */
+	public void dispatch(E event) {
+		if (stopped) {
+			LOG.debug("{} event dispatcher is stopped, {} won't be delivered", name, event);
+			return;
+		}
+		Object key = coalescingKey(event);
+		long now = System.nanoTime();
+		for (ListenerQueue queue : queues.values()) {
+			queue.offer(new Queued<>(event, key, now));
+		}
+	}
+
+	/**
+	 * Stops accepting new events and waits until already queued events are delivered.
+	 * @param timeout
+	 * @param unit
+	 */
+	public void stop(long timeout, TimeUnit unit) {
+		stopped = true;
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		for (ListenerQueue queue : queues.values()) {
+			try {
+				if (!queue.awaitIdle(deadline)) {
+					LOG.warn("Timeout waiting for delivery of {} events to {}", name, queue.listener);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Returns statistics of the delivery of events to each listener.
+	 * @return
+	 */
+	public List<ListenerStatistics> getStatistics() {
+		List<ListenerStatistics> result = new ArrayList<>();
+		for (ListenerQueue queue : queues.values()) {
+			result.add(queue.statistics());
+		}
+		return result;
+	}
+
+	private Object coalescingKey(E event) {
+		try {
+			return coalescingKey == null ? null : coalescingKey.apply(event);
+		} catch (RuntimeException e) {
+			LOG.debug("Can't determine coalescing key of {}: {}", event, e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * What to do with new event when listener's queue is full.
+	 */
+	public enum OverflowPolicy {
+		/** Sender waits (with timeout) until there's a place in the queue */
+		BLOCK,
+		/** The oldest event in the queue is discarded */
+		DROP_OLDEST,
+		/** Older event with the same key (e.g., for the same web element) is discarded or the oldest one if none */
+		COALESCE;
+
+		/**
+		 * Parses the policy from configuration value like {@code dropOldest}, {@code drop-oldest} or
+		 * {@code DROP_OLDEST}.
+		 * @param value
+		 * @return {@link #DEFAULT_POLICY} for {@code null} or unknown value
+		 */
+		public static OverflowPolicy parse(String value) {
+			if (value == null || "".equals(value.trim())) {
+				return DEFAULT_POLICY;
+			}
+			String v = value.trim().replace("-", "").replace("_", "");
+			for (OverflowPolicy p : values()) {
+				if (p.name().replace("_", "").equalsIgnoreCase(v)) {
+					return p;
+				}
+			}
+			LOG.warn("Unknown event overflow policy \"{}\", using {}", value, DEFAULT_POLICY);
+			return DEFAULT_POLICY;
+		}
+	}
+
+	/**
+	 * Function that passes a list of events (in the order of sending) to a listener.
+	 * @param <L>
+	 * @param <E>
+	 */
+	@FunctionalInterface
+	public interface Delivery<L, E> {
+		void deliver(L listener, List<E> events) throws Exception;
+	}
+
+	/**
+	 * Snapshot of delivery statistics for single listener. Latency is measured from sending the event until
+	 * the listener has processed it.
+	 */
+	public static final class ListenerStatistics {
+
+		private final String listener;
+		private final int queued;
+		private final long delivered;
+		private final long batches;
+		private final long dropped;
+		private final long coalesced;
+		private final long totalLatency;
+		private final long maxLatency;
+
+		ListenerStatistics(String listener, int queued, long delivered, long batches, long dropped,
+				long coalesced, long totalLatency, long maxLatency) {
+			this.listener = listener;
+			this.queued = queued;
+			this.delivered = delivered;
+			this.batches = batches;
+			this.dropped = dropped;
+			this.coalesced = coalesced;
+			this.totalLatency = totalLatency;
+			this.maxLatency = maxLatency;
+		}
+
+		public String getListener() {
+			return listener;
+		}
+
+		public int getQueued() {
+			return queued;
+		}
+
+		public long getDelivered() {
+			return delivered;
+		}
+
+		public long getBatches() {
+			return batches;
+		}
+
+		public long getDropped() {
+			return dropped;
+		}
+
+		public long getCoalesced() {
+			return coalesced;
+		}
+
+		/**
+		 * Average latency of delivered events in nanoseconds
+		 * @return
+		 */
+		public long getAverageLatency() {
+			return delivered == 0L ? 0L : totalLatency / delivered;
+		}
+
+		/**
+		 * Maximal latency of delivered events in nanoseconds
+		 * @return
+		 */
+		public long getMaxLatency() {
+			return maxLatency;
+		}
+
+		@Override
+		public String toString() {
+			return "ListenerStatistics{listener=" + listener + ", queued=" + queued + ", delivered=" + delivered
+					+ ", batches=" + batches + ", dropped=" + dropped + ", coalesced=" + coalesced
+					+ ", avgLatency=" + TimeUnit.NANOSECONDS.toMicros(getAverageLatency()) + "us"
+					+ ", maxLatency=" + TimeUnit.NANOSECONDS.toMicros(maxLatency) + "us}";
+		}
+	}
+
+	private static final class Queued<E> {
+		private final E event;
+		private final Object key;
+		private final long sent;
+
+		Queued(E event, Object key, long sent) {
+			this.event = event;
+			this.key = key;
+			this.sent = sent;
+		}
+	}
+
+	/**
+	 * Bounded queue of events for single listener. It's also a task delivering single batch of events - the task
+	 * is resubmitted while there are queued events, so listeners share the threads of the executor fairly.
+	 */
+	private final class ListenerQueue implements Runnable {
+
+		private final L listener;
+		private final OverflowPolicy policy;
+
+		/** Queued events - guarded by {@link #lock} */
+		private final ArrayDeque<Queued<E>> events = new ArrayDeque<>();
+		private final ReentrantLock lock = new ReentrantLock();
+		private final Condition notFull = lock.newCondition();
+		private final Condition idle = lock.newCondition();
+
+		/** Whether this task is submitted to the executor or running - guarded by {@link #lock} */
+		private boolean scheduled = false;
+		private boolean discarded = false;
+		/** Whether the overflow was already reported since the queue was last drained - guarded by {@link #lock} */
+		private boolean overflowReported = false;
+
+		private final LongAdder delivered = new LongAdder();
+		private final LongAdder batches = new LongAdder();
+		private final LongAdder dropped = new LongAdder();
+		private final LongAdder coalesced = new LongAdder();
+		private final LongAdder totalLatency = new LongAdder();
+		private final AtomicLong maxLatency = new AtomicLong();
+
+		ListenerQueue(L listener, OverflowPolicy policy) {
+			this.listener = listener;
+			this.policy = policy == null ? BoundedEventDispatcher.this.policy : policy;
+		}
+
+		void offer(Queued<E> event) {
+			boolean schedule = false;
+			lock.lock();
+			try {
+				if (discarded) {
+					return;
+				}
+				if (events.size() >= queueSize) {
+					makeRoom(event);
+				}
+				if (discarded) {
+					return;
+				}
+				events.addLast(event);
+				if (!scheduled) {
+					scheduled = true;
+					schedule = true;
+				}
+			} finally {
+				lock.unlock();
+			}
+			if (schedule) {
+				submit();
+			}
+		}
+
+		/**
+		 * Called with {@link #lock} held when the queue is full.
+		 * @param event
+		 */
+		private void makeRoom(Queued<E> event) {
+			if (policy == OverflowPolicy.BLOCK && delivering.get() == null) {
+				long nanos = BLOCK_TIMEOUT;
+				try {
+					while (events.size() >= queueSize && !discarded && nanos > 0L) {
+						nanos = notFull.awaitNanos(nanos);
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				if (events.size() < queueSize || discarded) {
+					return;
+				}
+				LOG.warn("Timeout waiting for {} event queue of {}, the oldest event is discarded", name, listener);
+			} else {
+				reportOverflow();
+				if (policy == OverflowPolicy.COALESCE && event.key != null) {
+					for (Iterator<Queued<E>> it = events.iterator(); it.hasNext(); ) {
+						if (Objects.equals(event.key, it.next().key)) {
+							it.remove();
+							coalesced.increment();
+							return;
+						}
+					}
+				}
+			}
+			Queued<E> oldest = events.pollFirst();
+			dropped.increment();
+			LOG.debug("{} event queue of {} is full, discarding {}", name, listener, oldest == null ? null : oldest.event);
+		}
+
+		/**
+		 * Warns (once until the queue is drained) that the listener can't keep up with the events.
+		 */
+		private void reportOverflow() {
+			if (!overflowReported) {
+				overflowReported = true;
+				LOG.warn("{} event queue of {} is full ({} events), applying {} policy", name, listener, queueSize, policy);
+			}
+		}
+
+		private void submit() {
+			try {
+				executor.execute(this);
+			} catch (RejectedExecutionException e) {
+				LOG.warn("Can't deliver {} events to {}: {}", name, listener, e.getMessage());
+				lock.lock();
+				try {
+					dropped.add(events.size());
+					events.clear();
+					scheduled = false;
+					notFull.signalAll();
+					idle.signalAll();
+				} finally {
+					lock.unlock();
+				}
+			}
+		}
+
+		@Override
+		public void run() {
+			List<Queued<E>> batch;
+			lock.lock();
+			try {
+				int count = Math.min(events.size(), MAX_BATCH_SIZE);
+				batch = new ArrayList<>(count);
+				for (int i = 0; i < count; i++) {
+					batch.add(events.pollFirst());
+				}
+				notFull.signalAll();
+			} finally {
+				lock.unlock();
+			}
+
+			if (!batch.isEmpty()) {
+				List<E> list = new ArrayList<>(batch.size());
+				for (Queued<E> q : batch) {
+					list.add(q.event);
+				}
+				delivering.set(Boolean.TRUE);
+				try {
+					delivery.deliver(listener, list);
+				} catch (Throwable t) {
+					LOG.warn("{} event listener {} caused an exception, will be ignored", name, listener, t);
+					removeListener(listener);
+				} finally {
+					delivering.remove();
+				}
+				long now = System.nanoTime();
+				for (Queued<E> q : batch) {
+					long latency = now - q.sent;
+					totalLatency.add(latency);
+					maxLatency.accumulateAndGet(latency, Math::max);
+				}
+				delivered.add(batch.size());
+				batches.increment();
+			}
+
+			boolean more;
+			lock.lock();
+			try {
+				more = !events.isEmpty() && !discarded;
+				if (!more) {
+					overflowReported = false;
+					scheduled = false;
+					idle.signalAll();
+				}
+			} finally {
+				lock.unlock();
+			}
+			if (more) {
+				submit();
+			}
+		}
+
+		void discard() {
+			lock.lock();
+			try {
+				discarded = true;
+				events.clear();
+				notFull.signalAll();
+				idle.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		boolean awaitIdle(long deadline) throws InterruptedException {
+			lock.lock();
+			try {
+				while (scheduled && !discarded) {
+					long nanos = deadline - System.nanoTime();
+					if (nanos <= 0L) {
+						return false;
+					}
+					idle.awaitNanos(nanos);
+				}
+				return true;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		ListenerStatistics statistics() {
+			int queued;
+			lock.lock();
+			try {
+				queued = events.size();
+			} finally {
+				lock.unlock();
+			}
+			return new ListenerStatistics(String.valueOf(listener), queued, delivered.sum(), batches.sum(),
+					dropped.sum(), coalesced.sum(), totalLatency.sum(), maxLatency.get());
+		}
+	}
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.spi.util;
+
+import java.util.function.Consumer;
+
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.framework.SynchronousBundleListener;
+
+/**
+ * <p>Registration of a {@link SynchronousBundleListener} using the {@link BundleContext} of pax-web-spi bundle.
+ * It's used by caches that have to react to changes of other bundles, but which are created without access
+ * to any {@link BundleContext} (and may be used outside of OSGi as well).</p>
+ *
+ * <p>{@link #register()} may be called many times (for example on each cache miss) - the listener is added only
+ * once for each lifecycle of pax-web-spi bundle. {@link #unregister()} removes the listener until next
+ * {@link #register()}.</p>
+ */
+public final class BundleListenerRegistration {
+
+	private final SynchronousBundleListener listener;
+
+	/** {@link BundleContext} (of pax-web-spi bundle) used to register the listener - guarded by {@code this} */
+	private BundleContext context;
+
+	public BundleListenerRegistration(SynchronousBundleListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Creates a registration of a listener, which passes bundles that were updated, unresolved (refreshed) or
+	 * uninstalled to given action.
+	 * @param action
+	 * @return
+	 */
+	public static BundleListenerRegistration forChangedBundles(Consumer<Bundle> action) {
+		return new BundleListenerRegistration(event -> {
+			switch (event.getType()) {
+				case BundleEvent.UPDATED:
+				case BundleEvent.UNRESOLVED:
+				case BundleEvent.UNINSTALLED:
+					action.accept(event.getBundle());
+					break;
+				default:
+					break;
+			}
+		});
+	}
+
+	/**
+	 * Adds the listener if it's not yet added using current {@link BundleContext} of pax-web-spi bundle. Does
+	 * nothing outside of OSGi.
+	 */
+	public synchronized void register() {
+		Bundle spi = FrameworkUtil.getBundle(BundleListenerRegistration.class);
+		BundleContext bundleContext = spi == null ? null : spi.getBundleContext();
+		if (bundleContext == null || bundleContext == context) {
+			return;
+		}
+		try {
+			bundleContext.addBundleListener(listener);
+			context = bundleContext;
+		} catch (IllegalStateException ignored) {
+			// pax-web-spi bundle is being stopped
+		}
+	}
+
+	/**
+	 * Removes the listener if it was added.
+	 */
+	public synchronized void unregister() {
+		if (context != null) {
+			try {
+				context.removeBundleListener(listener);
+			} catch (IllegalStateException ignored) {
+				// pax-web-spi bundle is being stopped
+			}
+			context = null;
+		}
+	}
+
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.spi.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+import org.ops4j.pax.web.service.spi.config.ResourceConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Bounded cache of gzip-compressed variants of static resources, used by <em>resource servlets</em> when
+ * resources are compressed on the fly. Each resource is compressed once and the result is kept under a key made of
+ * the location of the resource and its ETag - when the resource changes, so does its ETag and the old variant
+ * is eventually evicted.</p>
+ *
+ * <p>Resources which don't get smaller after compression are remembered as well, so they're not compressed
+ * again.</p>
+ */
+public class CompressedContentCache {
+
+	public static final Logger LOG = LoggerFactory.getLogger(CompressedContentCache.class);
+
+	public static final String DEFAULT_MIME_TYPES = "text/html,text/plain,text/css,text/xml,text/javascript,"
+			+ "application/javascript,application/json,application/xml,image/svg+xml";
+
+	/** Default maximum size of the cache in kB */
+	public static final int DEFAULT_MAX_SIZE = 8 * 1024;
+
+	/** Default minimal length of compressed resources - smaller resources are not worth compressing */
+	public static final int DEFAULT_MIN_LENGTH = 256;
+
+	private static final int MAX_ENTRIES = 4096;
+
+	/** Marker of resources that can't be compressed effectively */
+	private static final byte[] NOT_COMPRESSIBLE = new byte[0];
+
+	private final long maxSize;
+	private final long minLength;
+	private final long maxLength;
+	private final Set<String> mimeTypes;
+
+	/** Entries in access order - guarded by {@code this} */
+	private final LinkedHashMap<String, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long size = 0L;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * Creates the cache
+	 * @param maxSize maximum size (in bytes) of all compressed variants
+	 * @param mimeTypes comma-separated list of mime types to compress
+	 */
+	public CompressedContentCache(long maxSize, String mimeTypes) {
+		this(maxSize, mimeTypes, DEFAULT_MIN_LENGTH);
+	}
+
+	/**
+	 * Creates the cache
+	 * @param maxSize maximum size (in bytes) of all compressed variants
+	 * @param mimeTypes comma-separated list of mime types to compress
+	 * @param minLength minimal length (in bytes) of resources to compress
+	 */
+	public CompressedContentCache(long maxSize, String mimeTypes, long minLength) {
+		this.maxSize = maxSize;
+		this.minLength = Math.max(0L, minLength);
+		// compressed variant is unlikely to be smaller than 1/8 of the original
+		this.maxLength = maxSize * 8L;
+		this.mimeTypes = new HashSet<>();
+		for (String type : (mimeTypes == null ? DEFAULT_MIME_TYPES : mimeTypes).split("\\s*,\\s*")) {
+			if (!"".equals(type.trim())) {
+				this.mimeTypes.add(type.trim().toLowerCase(Locale.ROOT));
+			}
+		}
+	}
+
+	/**
+	 * Creates the cache if on-the-fly compression is enabled in {@link ResourceConfiguration}.
+	 * @param configuration
+	 * @return {@code null} if compression is not enabled
+	 */
+	public static CompressedContentCache create(ResourceConfiguration configuration) {
+		if (configuration == null || !configuration.compression()) {
+			return null;
+		}
+		Integer maxSize = configuration.compressionCacheSize();
+		Integer minLength = configuration.compressionMinLength();
+		CompressedContentCache cache = new CompressedContentCache(
+				(maxSize == null ? DEFAULT_MAX_SIZE : maxSize) * 1024L, configuration.compressionMimeTypes(),
+				minLength == null ? DEFAULT_MIN_LENGTH : minLength);
+		LOG.info("Created compressed resource cache with maxSize={}kB, minLength={}B, mimeTypes={}",
+				cache.maxSize / 1024, cache.minLength, cache.mimeTypes);
+		return cache;
+	}
+
+	/**
+	 * Checks whether a resource of given mime type (possibly with parameters like charset) and length should
+	 * be compressed.
+	 * @param mimeType
+	 * @param length
+	 * @return
+	 */
+	public boolean isCompressible(String mimeType, long length) {
+		if (mimeType == null || length < minLength || length > maxLength) {
+			return false;
+		}
+		int idx = mimeType.indexOf(';');
+		String type = (idx >= 0 ? mimeType.substring(0, idx) : mimeType).trim().toLowerCase(Locale.ROOT);
+		return mimeTypes.contains(type);
+	}
+
+	/**
+	 * Returns gzip-compressed content of a resource, compressing it if needed.
+	 * @param location location of the resource (e.g., its URL)
+	 * @param etag ETag of the resource, which changes when the resource changes
+	 * @param loader used to obtain uncompressed content
+	 * @return compressed content or {@code null} if compression doesn't make the resource smaller
+	 * @throws IOException
+	 */
+	public byte[] getGzipped(String location, String etag, ResourceCache.ContentLoader loader) throws IOException {
+		String key = location + "|" + etag;
+		byte[] content;
+		synchronized (this) {
+			content = entries.get(key);
+		}
+		if (content != null) {
+			hits.increment();
+			return content == NOT_COMPRESSIBLE ? null : content;
+		}
+
+		misses.increment();
+		content = compress(loader);
+		if (content == null) {
+			return null;
+		}
+		put(key, content);
+		return content == NOT_COMPRESSIBLE ? null : content;
+	}
+
+	/**
+	 * Removes all the compressed variants
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		size = 0L;
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public synchronized long getSize() {
+		return size;
+	}
+
+	private byte[] compress(ResourceCache.ContentLoader loader) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		long length = 0L;
+		try (InputStream is = loader.open()) {
+			if (is == null) {
+				return null;
+			}
+			try (GZIPOutputStream gzip = new GZIPOutputStream(baos, 8192)) {
+				byte[] buffer = new byte[8192];
+				int read;
+				while ((read = is.read(buffer)) > 0) {
+					gzip.write(buffer, 0, read);
+					length += read;
+				}
+			}
+		}
+		if (baos.size() >= length || baos.size() > maxSize) {
+			return NOT_COMPRESSIBLE;
+		}
+		return baos.toByteArray();
+	}
+
+	private synchronized void put(String key, byte[] content) {
+		byte[] previous = entries.put(key, content);
+		if (previous != null) {
+			size -= previous.length;
+		}
+		size += content.length;
+
+		Iterator<Map.Entry<String, byte[]>> it = entries.entrySet().iterator();
+		while ((size > maxSize || entries.size() > MAX_ENTRIES) && it.hasNext()) {
+			Map.Entry<String, byte[]> eldest = it.next();
+			it.remove();
+			size -= eldest.getValue().length;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "CompressedContentCache{maxSize=" + maxSize + ", mimeTypes=" + Arrays.toString(mimeTypes.toArray()) + "}";
+	}
+
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.spi.util;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.osgi.framework.Bundle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Framework-wide cache of descriptors (like {@code META-INF/web-fragment.xml} or {@code META-INF/**&#47;*.tld})
+ * found and parsed in bundles. The same library bundles (JSTL, MyFaces, ...) are reachable from many WABs and
+ * Whiteboard contexts and there's no need to search and parse their descriptors for each of them.</p>
+ *
+ * <p>Entries are kept per bundle and are valid as long as bundle's {@link Bundle#getLastModified()} doesn't
+ * change. Entries of a bundle are also removed when the bundle is updated, unresolved or uninstalled.</p>
+ *
+ * <p>Cached values are shared, so they should be treated as immutable by the callers.</p>
+ */
+public final class DescriptorCache {
+
+	public static final Logger LOG = LoggerFactory.getLogger(DescriptorCache.class);
+
+	private static final DescriptorCache INSTANCE = new DescriptorCache();
+
+	private final Map<Long, BundleDescriptors> bundles = new ConcurrentHashMap<>();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	private final BundleListenerRegistration listener = BundleListenerRegistration.forChangedBundles(this::invalidate);
+
+	private DescriptorCache() {
+	}
+
+	public static DescriptorCache getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Returns cached descriptor of a bundle or parses (and caches) it using passed {@link DescriptorParser}. When
+	 * the same descriptor is requested concurrently, only one thread parses it and others wait for the result.
+	 * Failures are not cached.
+	 *
+	 * @param bundle a bundle containing the descriptor
+	 * @param key a key of the descriptor within the bundle (e.g., URL of the descriptor)
+	 * @param parser used when there's no cached value
+	 * @param <T>
+	 * @param <E>
+	 * @return
+	 * @throws E
+	 */
+	@SuppressWarnings("unchecked")
+	public <T, E extends Exception> T computeIfAbsent(Bundle bundle, String key, DescriptorParser<T, E> parser) throws E {
+		if (bundle == null) {
+			return parser.parse();
+		}
+
+		long lastModified = bundle.getLastModified();
+		BundleDescriptors descriptors = bundles.compute(bundle.getBundleId(),
+				(id, existing) -> existing == null || existing.lastModified != lastModified
+						? new BundleDescriptors(lastModified) : existing);
+
+		CompletableFuture<Object> future = new CompletableFuture<>();
+		CompletableFuture<Object> existing = descriptors.values.putIfAbsent(key, future);
+		if (existing != null) {
+			try {
+				Object value = existing.get();
+				hits.increment();
+				return (T) value;
+			} catch (ExecutionException e) {
+				// failed in another thread - we'll try ourselves, so we get proper exception
+				return parser.parse();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return parser.parse();
+			}
+		}
+
+		misses.increment();
+		listener.register();
+		try {
+			T value = parser.parse();
+			future.complete(value);
+			return value;
+		} catch (Throwable t) {
+			descriptors.values.remove(key, future);
+			future.completeExceptionally(t);
+			throw t;
+		}
+	}
+
+	/**
+	 * Removes all cached descriptors of given bundle
+	 * @param bundle
+	 */
+	public void invalidate(Bundle bundle) {
+		if (bundles.remove(bundle.getBundleId()) != null) {
+			LOG.debug("Removed cached descriptors of {}", bundle);
+		}
+	}
+
+	/**
+	 * Removes all cached descriptors
+	 */
+	public void clear() {
+		bundles.clear();
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Function to parse a descriptor on cache miss.
+	 * @param <T>
+	 * @param <E>
+	 */
+	@FunctionalInterface
+	public interface DescriptorParser<T, E extends Exception> {
+		T parse() throws E;
+	}
+
+	private static final class BundleDescriptors {
+		private final long lastModified;
+		private final Map<String, CompletableFuture<Object>> values = new ConcurrentHashMap<>();
+
+		BundleDescriptors(long lastModified) {
+			this.lastModified = lastModified;
+		}
+	}
+
+}
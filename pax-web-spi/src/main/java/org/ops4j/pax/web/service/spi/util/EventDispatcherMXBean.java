@@ -0,0 +1,35 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.spi.util;
+
+import java.util.List;
+
+/**
+ * JMX view of the delivery of events by {@link BoundedEventDispatcher dispatchers} used by Pax Web. Web element
+ * events are dispatched by pax-web-runtime and web application (WAB) events by pax-web-extender-war.
+ */
+public interface EventDispatcherMXBean {
+
+	String WEB_ELEMENTS_OBJECT_NAME = "org.ops4j.pax.web:type=EventDispatcher,name=WebElements";
+	String WEB_APPLICATIONS_OBJECT_NAME = "org.ops4j.pax.web:type=EventDispatcher,name=WebApplications";
+
+	/**
+	 * Delivery statistics for each listener
+	 * @return
+	 */
+	List<BoundedEventDispatcher.ListenerStatistics> getStatistics();
+
+}
@@ -0,0 +1,347 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.spi.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+import org.ops4j.pax.web.service.spi.config.ResourceConfiguration;
+import org.ops4j.pax.web.service.spi.model.OsgiContextModel;
+import org.osgi.framework.Bundle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Default {@link ResourceCache} bounded by number of entries and total size of the content. Least recently
+ * used entries are evicted first. The content is stored in direct (off-heap) {@link ByteBuffer buffers} by
+ * default.</p>
+ *
+ * <p>Cache hits don't take any lock - the entries are kept in a {@link ConcurrentHashMap} and each hit only
+ * records the time of last access (as a value of a logical clock). Only eviction (which happens after loading
+ * the content on cache miss anyway) is serialized and it removes the entries with the oldest access times.</p>
+ *
+ * <p>Entries of contexts owned by a bundle are removed when the bundle is updated, unresolved or uninstalled.</p>
+ */
+public class LruResourceCache implements ResourceCache {
+
+	public static final Logger LOG = LoggerFactory.getLogger(LruResourceCache.class);
+
+	public static final int DEFAULT_MAX_ENTRIES = 2048;
+	/** Default maximum size of single entry in kB */
+	public static final int DEFAULT_MAX_ENTRY_SIZE = 2048;
+	/** Default maximum size of the cache in kB */
+	public static final int DEFAULT_MAX_TOTAL_SIZE = 32 * 1024;
+
+	private final int maxEntries;
+	private final long maxEntrySize;
+	private final long maxTotalSize;
+	private final long ttlNanos;
+	private final boolean offHeap;
+
+	private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+	private final AtomicLong size = new AtomicLong();
+	/** Logical clock used to order the entries by access time */
+	private final AtomicLong clock = new AtomicLong();
+	private final Object evictionLock = new Object();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	private final BundleListenerRegistration listener = BundleListenerRegistration.forChangedBundles(this::invalidate);
+
+	/**
+	 * Creates resource cache.
+	 *
+	 * @param maxEntries maximum number of entries
+	 * @param maxEntrySize maximum size (in bytes) of single resource to cache
+	 * @param maxTotalSize maximum size (in bytes) of all cached resources
+	 * @param ttl time (in milliseconds) after which the entries expire - {@code 0} means no expiration
+	 * @param offHeap whether to use direct {@link ByteBuffer buffers}
+	 */
+	public LruResourceCache(int maxEntries, long maxEntrySize, long maxTotalSize, long ttl, boolean offHeap) {
+		this.maxEntries = maxEntries;
+		this.maxEntrySize = Math.min(maxEntrySize, maxTotalSize);
+		this.maxTotalSize = maxTotalSize;
+		this.ttlNanos = ttl > 0 ? TimeUnit.MILLISECONDS.toNanos(ttl) : 0L;
+		this.offHeap = offHeap;
+	}
+
+	/**
+	 * Creates resource cache using {@link ResourceConfiguration}. Unspecified values are replaced with defaults.
+	 * @param configuration
+	 * @return
+	 */
+	public static LruResourceCache create(ResourceConfiguration configuration) {
+		Integer maxEntries = configuration == null ? null : configuration.maxCacheEntries();
+		Integer maxEntrySize = configuration == null ? null : configuration.maxCacheEntrySize();
+		Integer maxTotalSize = configuration == null ? null : configuration.maxTotalCacheSize();
+		Integer ttl = configuration == null ? null : configuration.maxCacheTTL();
+		boolean offHeap = configuration == null || configuration.cacheOffHeap();
+
+		LruResourceCache cache = new LruResourceCache(
+				maxEntries == null ? DEFAULT_MAX_ENTRIES : maxEntries,
+				(maxEntrySize == null ? DEFAULT_MAX_ENTRY_SIZE : maxEntrySize) * 1024L,
+				(maxTotalSize == null ? DEFAULT_MAX_TOTAL_SIZE : maxTotalSize) * 1024L,
+				ttl == null ? 0L : ttl, offHeap);
+		LOG.info("Created resource cache with maxEntries={}, maxEntrySize={}kB, maxSize={}kB, TTL={}ms, offHeap={}",
+				cache.maxEntries, cache.maxEntrySize / 1024, cache.maxTotalSize / 1024,
+				TimeUnit.NANOSECONDS.toMillis(cache.ttlNanos), offHeap);
+		return cache;
+	}
+
+	@Override
+	public ByteBuffer getContent(OsgiContextModel context, String servletName, String path, long lastModified,
+			long length, ContentLoader loader) throws IOException {
+		if (length < 0L || length > maxEntrySize || maxEntries <= 0) {
+			return null;
+		}
+
+		Key key = new Key(context, servletName, path);
+		Entry entry = entries.get(key);
+		if (entry != null) {
+			if (entry.lastModified == lastModified && entry.length == length
+					&& (ttlNanos == 0L || System.nanoTime() - entry.created < ttlNanos)) {
+				hits.increment();
+				entry.lastAccess = clock.incrementAndGet();
+				return entry.content.duplicate();
+			}
+			remove(key, entry);
+		}
+
+		misses.increment();
+		ByteBuffer content = load(loader, (int) length);
+		if (content == null) {
+			return null;
+		}
+
+		Bundle owner = context == null ? null : context.getOwnerBundle();
+		entry = new Entry(content.asReadOnlyBuffer(), lastModified, length, owner == null ? -1L : owner.getBundleId(),
+				clock.incrementAndGet());
+		put(key, entry);
+		if (owner != null) {
+			listener.register();
+		}
+
+		return entry.content.duplicate();
+	}
+
+	@Override
+	public void invalidate(OsgiContextModel context) {
+		removeIf(e -> Objects.equals(e.getKey().context, context));
+	}
+
+	@Override
+	public void invalidate(OsgiContextModel context, String servletName) {
+		removeIf(e -> Objects.equals(e.getKey().context, context)
+				&& Objects.equals(e.getKey().servletName, servletName));
+	}
+
+	@Override
+	public void invalidate(Bundle bundle) {
+		long bundleId = bundle.getBundleId();
+		removeIf(e -> e.getValue().bundleId == bundleId);
+	}
+
+	@Override
+	public void clear() {
+		removeIf(e -> true);
+	}
+
+	@Override
+	public void close() {
+		clear();
+		listener.unregister();
+	}
+
+	@Override
+	public long getHits() {
+		return hits.sum();
+	}
+
+	@Override
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	@Override
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	@Override
+	public int getEntryCount() {
+		return entries.size();
+	}
+
+	@Override
+	public long getSize() {
+		return size.get();
+	}
+
+	/**
+	 * Reads the content which is expected to have given length. If the actual length is different (the resource
+	 * changed in the meantime), {@code null} is returned.
+	 *
+	 * @param loader
+	 * @param length
+	 * @return
+	 * @throws IOException
+	 */
+	private ByteBuffer load(ContentLoader loader, int length) throws IOException {
+		ByteBuffer buffer = offHeap ? ByteBuffer.allocateDirect(length) : ByteBuffer.allocate(length);
+		try (InputStream is = loader.open()) {
+			if (is == null) {
+				return null;
+			}
+			byte[] chunk = new byte[Math.max(1, Math.min(length, 8192))];
+			int read;
+			while ((read = is.read(chunk)) > 0) {
+				if (read > buffer.remaining()) {
+					return null;
+				}
+				buffer.put(chunk, 0, read);
+			}
+		}
+		if (buffer.hasRemaining()) {
+			return null;
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	private void put(Key key, Entry entry) {
+		Entry previous = entries.put(key, entry);
+		if (previous != null) {
+			size.addAndGet(-previous.length);
+		}
+		size.addAndGet(entry.length);
+
+		if (size.get() <= maxTotalSize && entries.size() <= maxEntries) {
+			return;
+		}
+		synchronized (evictionLock) {
+			if (size.get() <= maxTotalSize && entries.size() <= maxEntries) {
+				// concurrent eviction already made the room
+				return;
+			}
+			// access times are copied, because they may change while sorting
+			List<Candidate> candidates = new ArrayList<>(entries.size());
+			entries.forEach((k, v) -> candidates.add(new Candidate(k, v)));
+			candidates.sort(Comparator.comparingLong(c -> c.lastAccess));
+			for (Candidate eldest : candidates) {
+				if (size.get() <= maxTotalSize && entries.size() <= maxEntries) {
+					break;
+				}
+				if (eldest.entry == entry) {
+					// the new entry is the most recently used one, so it's never evicted here
+					continue;
+				}
+				if (entries.remove(eldest.key, eldest.entry)) {
+					size.addAndGet(-eldest.entry.length);
+					evictions.increment();
+				}
+			}
+		}
+	}
+
+	private void remove(Key key, Entry entry) {
+		if (entries.remove(key, entry)) {
+			size.addAndGet(-entry.length);
+		}
+	}
+
+	private void removeIf(Predicate<Map.Entry<Key, Entry>> condition) {
+		for (Map.Entry<Key, Entry> e : entries.entrySet()) {
+			if (condition.test(e)) {
+				remove(e.getKey(), e.getValue());
+			}
+		}
+	}
+
+	private static final class Key {
+		private final OsgiContextModel context;
+		private final String servletName;
+		private final String path;
+		private final int hash;
+
+		Key(OsgiContextModel context, String servletName, String path) {
+			this.context = context;
+			this.servletName = servletName;
+			this.path = path;
+			this.hash = 31 * (31 * Objects.hashCode(context) + Objects.hashCode(servletName)) + Objects.hashCode(path);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key key = (Key) o;
+			return Objects.equals(context, key.context) && Objects.equals(servletName, key.servletName)
+					&& Objects.equals(path, key.path);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	private static final class Entry {
+		private final ByteBuffer content;
+		private final long lastModified;
+		private final long length;
+		private final long bundleId;
+		private final long created = System.nanoTime();
+		private volatile long lastAccess;
+
+		Entry(ByteBuffer content, long lastModified, long length, long bundleId, long lastAccess) {
+			this.content = content;
+			this.lastModified = lastModified;
+			this.length = length;
+			this.bundleId = bundleId;
+			this.lastAccess = lastAccess;
+		}
+	}
+
+	private static final class Candidate {
+		private final Key key;
+		private final Entry entry;
+		private final long lastAccess;
+
+		Candidate(Key key, Entry entry) {
+			this.key = key;
+			this.entry = entry;
+			this.lastAccess = entry.lastAccess;
+		}
+	}
+
+}
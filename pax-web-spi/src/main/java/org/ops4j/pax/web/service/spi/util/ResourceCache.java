@@ -0,0 +1,121 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.spi.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import org.ops4j.pax.web.service.spi.model.OsgiContextModel;
+import org.osgi.framework.Bundle;
+
+/**
+ * <p>Container-neutral cache of static resource content used by <em>resource servlets</em> of Jetty, Tomcat
+ * and Undertow. There's single cache for a server (created by {@link org.ops4j.pax.web.service.spi.ServerController})
+ * so the memory used for static resources is bounded no matter how many resource servlets are registered.</p>
+ *
+ * <p>Entries are keyed by {@link OsgiContextModel}, name of the resource servlet and a path (location) of
+ * the resource. Resource servlets are
+ * still responsible for resolving the resources (and their metadata) - the cache only keeps the content, which is
+ * valid as long as the last modification time and the length of the resource don't change.</p>
+ */
+public interface ResourceCache {
+
+	/**
+	 * Returns cached content of a resource or loads (and caches) it using passed {@link ContentLoader}. The returned
+	 * buffer is read-only and may be consumed by the caller. {@code null} is returned if the resource can't be
+	 * cached (unknown or too big length) - the caller should then serve the resource directly.
+	 *
+	 * @param context {@link OsgiContextModel} of the resource servlet serving the resource
+	 * @param servletName name of the resource servlet serving the resource
+	 * @param path a path (location) identifying the resource within the context
+	 * @param lastModified last modification time of the resource, as seen by the resource servlet
+	 * @param length length of the resource, as seen by the resource servlet
+	 * @param loader used to load the content when there's no (valid) cached value
+	 * @return
+	 * @throws IOException
+	 */
+	ByteBuffer getContent(OsgiContextModel context, String servletName, String path, long lastModified,
+			long length, ContentLoader loader) throws IOException;
+
+	/**
+	 * Removes all the entries cached for given {@link OsgiContextModel}
+	 * @param context
+	 */
+	void invalidate(OsgiContextModel context);
+
+	/**
+	 * Removes the entries cached for single resource servlet registered in given {@link OsgiContextModel}
+	 * @param context
+	 * @param servletName
+	 */
+	void invalidate(OsgiContextModel context, String servletName);
+
+	/**
+	 * Removes all the entries cached for {@link OsgiContextModel contexts} owned by given {@link Bundle}
+	 * @param bundle
+	 */
+	void invalidate(Bundle bundle);
+
+	/**
+	 * Removes all the cached entries
+	 */
+	void clear();
+
+	/**
+	 * Clears the cache and releases all the resources (like bundle listeners) used by the cache.
+	 */
+	void close();
+
+	/**
+	 * Number of requests for content served from the cache
+	 * @return
+	 */
+	long getHits();
+
+	/**
+	 * Number of requests for content that had to be loaded
+	 * @return
+	 */
+	long getMisses();
+
+	/**
+	 * Number of entries removed to keep the cache within its limits
+	 * @return
+	 */
+	long getEvictions();
+
+	/**
+	 * Current number of cached entries
+	 * @return
+	 */
+	int getEntryCount();
+
+	/**
+	 * Current total size (in bytes) of cached content
+	 * @return
+	 */
+	long getSize();
+
+	/**
+	 * Function to obtain the content of a resource on cache miss.
+	 */
+	@FunctionalInterface
+	interface ContentLoader {
+		InputStream open() throws IOException;
+	}
+
+}
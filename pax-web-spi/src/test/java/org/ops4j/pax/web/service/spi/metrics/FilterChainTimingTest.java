@@ -0,0 +1,114 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.spi.metrics;
+
+import java.util.Map;
+
+import org.junit.Test;
+import org.ops4j.pax.web.service.spi.config.ServerConfiguration;
+import org.ops4j.pax.web.service.spi.model.Identity;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FilterChainTimingTest {
+
+	@Test
+	public void disabledByDefault() {
+		ServerConfiguration config = mock(ServerConfiguration.class);
+		assertThat(FilterChainTiming.create(config), nullValue());
+		when(config.getFilterChainTimingSampleRate()).thenReturn(0);
+		assertThat(FilterChainTiming.create(config), nullValue());
+	}
+
+	@Test
+	public void nestedElements() throws Exception {
+		ServerConfiguration config = mock(ServerConfiguration.class);
+		when(config.getFilterChainTimingSampleRate()).thenReturn(1);
+		FilterChainTiming timing = FilterChainTiming.create(config);
+		assertThat(timing, notNullValue());
+
+		FilterChainTiming.Sample sample = timing.startSample();
+		assertThat(FilterChainTiming.current(), equalTo(sample));
+		// nested chain doesn't start another sample
+		assertThat(timing.startSample(), nullValue());
+		try {
+			sample.enter();
+			Thread.sleep(10);
+			sample.enter();
+			Thread.sleep(20);
+			sample.exit(FilterChainTiming.SERVLET + "s1");
+			sample.exit(FilterChainTiming.FILTER + "f1");
+		} finally {
+			timing.endSample(sample);
+		}
+		assertThat(FilterChainTiming.current(), nullValue());
+		assertThat(timing.getSampledRequests(), equalTo(1L));
+
+		Map<String, ElementTimingSnapshot> stats = timing.getStatistics();
+		ElementTimingSnapshot filter = stats.get("filter:f1");
+		ElementTimingSnapshot servlet = stats.get("servlet:s1");
+		assertThat(filter.getSamples(), equalTo(1L));
+		assertTrue(filter.getMaxTime() >= 30_000L);
+		assertTrue(filter.getMaxSelfTime() >= 10_000L && filter.getMaxSelfTime() < filter.getMaxTime() - 15_000L);
+		assertTrue(servlet.getMaxSelfTime() >= 20_000L);
+
+		timing.reset();
+		assertTrue(timing.getStatistics().isEmpty());
+	}
+
+	@Test
+	public void pausedSampling() {
+		FilterChainTiming timing = new FilterChainTiming(1);
+		timing.setSampleRate(0);
+		assertThat(timing.startSample(), nullValue());
+	}
+
+	@Test
+	public void sameNamesInDifferentContexts() {
+		FilterChainTiming timing = new FilterChainTiming(1);
+		Identity f1 = new Identity() { };
+		Identity f2 = new Identity() { };
+		String e1 = FilterChainTiming.element(FilterChainTiming.FILTER, "/c1", "f", f1);
+		String e2 = FilterChainTiming.element(FilterChainTiming.FILTER, "/c2", "f", f2);
+		assertThat(e1, equalTo("filter:/c1/f#" + f1.getId()));
+		assertThat(FilterChainTiming.element(FilterChainTiming.PREPROCESSOR, (String) null, "p", null),
+				equalTo("preprocessor:p"));
+
+		FilterChainTiming.Sample sample = timing.startSample();
+		try {
+			sample.enter();
+			sample.exit(e1);
+			sample.enter();
+			sample.exit(e2);
+		} finally {
+			timing.endSample(sample);
+		}
+		assertThat(timing.getStatistics().size(), equalTo(2));
+
+		// unregistered filter
+		timing.remove(f1);
+		assertFalse(timing.getStatistics().containsKey(e1));
+		assertTrue(timing.getStatistics().containsKey(e2));
+	}
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.spi.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+	@Test
+	public void bucketsCoverAllValues() {
+		int previous = -1;
+		for (long micros = 0L; micros < 1_000_000L; micros++) {
+			int index = LatencyHistogram.index(micros);
+			assertTrue(index == previous || index == previous + 1);
+			assertTrue(LatencyHistogram.upperBound(index) >= micros);
+			// relative error is bounded by the number of sub buckets
+			assertTrue(LatencyHistogram.upperBound(index) - micros <= micros / LatencyHistogram.SUB_BUCKETS);
+			previous = index;
+		}
+		// huge values don't overflow the buckets
+		LatencyHistogram.index(Long.MAX_VALUE);
+	}
+
+	@Test
+	public void percentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertThat(histogram.getValueAtPercentile(99d), equalTo(0L));
+
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(TimeUnit.MILLISECONDS.toNanos(i));
+		}
+
+		assertThat(histogram.getCount(), equalTo(1000L));
+		assertThat(histogram.getMax(), equalTo(1_000_000L));
+		assertThat(histogram.getMean(), equalTo(500_500L));
+		long p50 = histogram.getValueAtPercentile(50d);
+		assertTrue(p50 >= 500_000L && p50 <= 500_000L + 500_000L / LatencyHistogram.SUB_BUCKETS);
+		long p99 = histogram.getValueAtPercentile(99d);
+		assertTrue(p99 >= 990_000L && p99 <= 1_000_000L);
+		assertThat(histogram.getValueAtPercentile(100d), equalTo(1_000_000L));
+
+		histogram.reset();
+		assertThat(histogram.getCount(), equalTo(0L));
+		assertThat(histogram.getMax(), equalTo(0L));
+	}
+
+	@Test
+	public void statistics() {
+		RequestStatistics stats = new RequestStatistics("/c1");
+		stats.begin();
+		stats.begin();
+		assertThat(stats.getActive(), equalTo(2L));
+		stats.end(TimeUnit.MILLISECONDS.toNanos(2), false);
+		stats.end(TimeUnit.MILLISECONDS.toNanos(4), true);
+
+		RequestStatisticsSnapshot snapshot = stats.snapshot();
+		assertThat(snapshot.getName(), equalTo("/c1"));
+		assertThat(snapshot.getRequests(), equalTo(2L));
+		assertThat(snapshot.getErrors(), equalTo(1L));
+		assertThat(snapshot.getActive(), equalTo(0L));
+		assertThat(snapshot.getMaxLatency(), equalTo(4000L));
+		assertThat(snapshot.getMeanLatency(), equalTo(3000L));
+	}
+
+}
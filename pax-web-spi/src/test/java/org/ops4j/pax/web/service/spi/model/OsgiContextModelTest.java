@@ -17,6 +17,9 @@ package org.ops4j.pax.web.service.spi.model;
 
 import org.junit.Test;
 
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertTrue;
 
 public class OsgiContextModelTest {
@@ -31,4 +34,18 @@ public class OsgiContextModelTest {
 		assertTrue("Comparing by static atomic id", ocm1.compareTo(ocm2) < 0);
 	}
 
+	@Test
+	public void sessionIdPrefixIsComputedOnce() {
+		OsgiContextModel ocm = new OsgiContextModel(null, 0, 0L, true);
+		ocm.setContextPath("/c1/c2");
+		ocm.setName("my/context");
+
+		String prefix = ocm.getSessionIdPrefix();
+		assertThat(prefix, equalTo("c1_c2_my_context"));
+		assertThat("No allocation for subsequent calls", ocm.getSessionIdPrefix(), sameInstance(prefix));
+
+		ocm.setContextPath("/");
+		assertThat(ocm.getSessionIdPrefix(), equalTo("ROOT_my_context"));
+	}
+
 }
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.spi.model;
+
+import org.junit.Test;
+import org.osgi.service.http.runtime.dto.FilterDTO;
+import org.osgi.service.http.runtime.dto.RequestInfoDTO;
+import org.osgi.service.http.runtime.dto.ResourceDTO;
+import org.osgi.service.http.runtime.dto.RuntimeDTO;
+import org.osgi.service.http.runtime.dto.ServletContextDTO;
+import org.osgi.service.http.runtime.dto.ServletDTO;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class RequestInfoIndexTest {
+
+	@Test
+	public void mappingsAreResolvedInServletSpecificationOrder() {
+		ServletDTO def = servlet("default", "/");
+		ServletDTO exact = servlet("exact", "/a/b");
+		ServletDTO prefix = servlet("prefix", "/a/*");
+		ServletDTO jsp = servlet("jsp", "*.jsp");
+		ResourceDTO resources = new ResourceDTO();
+		resources.patterns = new String[] { "/static/*" };
+
+		FilterDTO byPath = filter("byPath", new String[] { "/a/*" }, null, null);
+		FilterDTO byName = filter("byName", null, new String[] { "jsp" }, null);
+		FilterDTO byRegex = filter("byRegex", null, null, new String[] { ".*\\.css" });
+
+		ServletContextDTO root = new ServletContextDTO();
+		root.contextPath = "/";
+		root.serviceId = 1L;
+		root.servletDTOs = new ServletDTO[] { def, exact, prefix, jsp };
+		root.resourceDTOs = new ResourceDTO[] { resources };
+		root.filterDTOs = new FilterDTO[] { byPath, byName, byRegex };
+
+		ServletContextDTO ctx = new ServletContextDTO();
+		ctx.contextPath = "/ctx";
+		ctx.serviceId = 2L;
+		ctx.servletDTOs = new ServletDTO[] { servlet("all", "/*") };
+		ctx.resourceDTOs = new ResourceDTO[0];
+		ctx.filterDTOs = new FilterDTO[0];
+
+		RuntimeDTO runtimeDTO = new RuntimeDTO();
+		runtimeDTO.servletContextDTOs = new ServletContextDTO[] { root, ctx };
+		RequestInfoIndex index = new RequestInfoIndex(runtimeDTO);
+
+		RequestInfoDTO info = index.resolve("/a/b");
+		assertEquals(1L, info.servletContextId);
+		assertSame(exact, info.servletDTO);
+		assertEquals(1, info.filterDTOs.length);
+
+		assertSame(prefix, index.resolve("/a").servletDTO);
+		assertSame(prefix, index.resolve("/a/x.jsp?x=y").servletDTO);
+		assertSame(jsp, index.resolve("/b/x.jsp").servletDTO);
+		assertSame(byName, index.resolve("/b/x.jsp").filterDTOs[0]);
+		assertSame(def, index.resolve("/ab").servletDTO);
+
+		info = index.resolve("/static/site.css");
+		assertNull(info.servletDTO);
+		assertSame(resources, info.resourceDTO);
+		assertSame(byRegex, info.filterDTOs[0]);
+
+		assertEquals(2L, index.resolve("/ctx").servletContextId);
+		assertEquals(2L, index.resolve("/ctx/x/y").servletContextId);
+		assertEquals(1L, index.resolve("/ctxx").servletContextId);
+	}
+
+	private ServletDTO servlet(String name, String... patterns) {
+		ServletDTO dto = new ServletDTO();
+		dto.name = name;
+		dto.patterns = patterns;
+		return dto;
+	}
+
+	private FilterDTO filter(String name, String[] patterns, String[] servletNames, String[] regexs) {
+		FilterDTO dto = new FilterDTO();
+		dto.name = name;
+		dto.patterns = patterns;
+		dto.servletNames = servletNames;
+		dto.regexs = regexs;
+		return dto;
+	}
+
+}
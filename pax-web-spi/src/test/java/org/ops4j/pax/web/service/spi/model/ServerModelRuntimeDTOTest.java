@@ -0,0 +1,94 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.spi.model;
+
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.ops4j.pax.web.service.spi.model.elements.ServletModel;
+import org.osgi.framework.dto.ServiceReferenceDTO;
+import org.osgi.service.http.runtime.dto.DTOConstants;
+import org.osgi.service.http.runtime.dto.RuntimeDTO;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class ServerModelRuntimeDTOTest {
+
+	private ExecutorService executor;
+	private ServerModel model;
+
+	@Before
+	public void init() {
+		executor = Executors.newSingleThreadExecutor();
+		model = new ServerModel(executor);
+		ServiceReferenceDTO ref = new ServiceReferenceDTO();
+		ref.properties = new HashMap<>();
+		model.setHttpServiceRuntimeInformation(null, ref);
+	}
+
+	@After
+	public void cleanup() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void snapshotIsSharedUntilModelChanges() throws Exception {
+		ServletModel failed = new ServletModel.Builder("s1").withUrlPatterns(new String[] { "/s1" }).build();
+		failed.setDtoFailureCode(DTOConstants.FAILURE_REASON_VALIDATION_FAILED);
+		model.runSilently(() -> model.getFailedWhiteboardElements().add(failed), false);
+
+		RuntimeDTO dto1 = model.getRuntimeDTO();
+		RuntimeDTO dto2 = model.getRuntimeDTO();
+
+		// reading the DTO doesn't change the model - element DTOs are shared, arrays are copied for each caller
+		assertEquals(1, dto1.failedServletDTOs.length);
+		assertNotSame(dto1.failedServletDTOs, dto2.failedServletDTOs);
+		assertSame(dto1.failedServletDTOs[0], dto2.failedServletDTOs[0]);
+		assertEquals(dto1.serviceDTO.properties.get("service.changecount"),
+				dto2.serviceDTO.properties.get("service.changecount"));
+		model.calculateRequestInfoDTO("/test");
+		assertSame(dto1.failedServletDTOs[0], model.getRuntimeDTO().failedServletDTOs[0]);
+
+		model.run(() -> null, false);
+
+		RuntimeDTO dto3 = model.getRuntimeDTO();
+		assertNotSame(dto1.failedServletDTOs[0], dto3.failedServletDTOs[0]);
+		assertEquals(2L, dto3.serviceDTO.properties.get("service.changecount"));
+	}
+
+	@Test
+	public void failureCodeChangedOutsideOfModelInvalidatesSnapshot() throws Exception {
+		ServletModel failed = new ServletModel.Builder("s1").withUrlPatterns(new String[] { "/s1" }).build();
+		failed.setDtoFailureCode(DTOConstants.FAILURE_REASON_VALIDATION_FAILED);
+		model.runSilently(() -> model.getFailedWhiteboardElements().add(failed), false);
+
+		RuntimeDTO dto1 = model.getRuntimeDTO();
+		assertEquals(DTOConstants.FAILURE_REASON_VALIDATION_FAILED, dto1.failedServletDTOs[0].failureReason);
+
+		// for example runtime can't get the servlet service
+		failed.setDtoFailureCode(DTOConstants.FAILURE_REASON_SERVICE_NOT_GETTABLE);
+
+		RuntimeDTO dto2 = model.getRuntimeDTO();
+		assertEquals(DTOConstants.FAILURE_REASON_SERVICE_NOT_GETTABLE, dto2.failedServletDTOs[0].failureReason);
+	}
+
+}
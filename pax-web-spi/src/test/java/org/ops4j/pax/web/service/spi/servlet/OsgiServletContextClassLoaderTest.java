@@ -0,0 +1,140 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.spi.servlet;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.namespace.PackageNamespace;
+import org.osgi.framework.wiring.BundleCapability;
+import org.osgi.framework.wiring.BundleWiring;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class OsgiServletContextClassLoaderTest {
+
+	@Test
+	public void earlierBundleWinsForSharedPackage() throws Exception {
+		// WAB with private copy of org.example and library bundle exporting it
+		Bundle wab = bundle(new String[] { "org.example" });
+		Bundle library = bundle(new String[0], "org.example");
+		when(wab.loadClass("org.example.Test")).thenAnswer(i -> String.class);
+		when(library.loadClass("org.example.Test")).thenAnswer(i -> Integer.class);
+
+		OsgiServletContextClassLoader cl = new OsgiServletContextClassLoader();
+		cl.addBundles(wab, library);
+
+		assertSame(String.class, cl.loadClass("org.example.Test"));
+		verify(library, never()).loadClass(anyString());
+	}
+
+	@Test
+	public void bundlesWhichCantSeePackageAreSkipped() throws Exception {
+		Bundle wab = bundle(new String[0]);
+		Bundle library = bundle(new String[0], "org.example");
+		when(library.loadClass("org.example.Test")).thenAnswer(i -> String.class);
+
+		OsgiServletContextClassLoader cl = new OsgiServletContextClassLoader();
+		cl.addBundles(wab, library);
+
+		assertSame(String.class, cl.loadClass("org.example.Test"));
+		verify(wab, never()).loadClass(anyString());
+	}
+
+	@Test
+	public void missingResourcesAreNotRememberedForFindResources() throws Exception {
+		Bundle b1 = bundle(new String[0]);
+		when(b1.getResources("META-INF/services/org.example.Service")).thenReturn(null);
+
+		OsgiServletContextClassLoader cl = new OsgiServletContextClassLoader();
+		cl.addBundle(b1);
+
+		assertFalse(cl.getResources("META-INF/services/org.example.Service").hasMoreElements());
+		URL url = new URL("file:/org.example.Service");
+		when(b1.getResources("META-INF/services/org.example.Service"))
+				.thenReturn(Collections.enumeration(Collections.singletonList(url)));
+		assertSame(url, cl.getResources("META-INF/services/org.example.Service").nextElement());
+	}
+
+	@Test
+	public void missingClassesAreRemembered() throws Exception {
+		Bundle b1 = bundle(new String[0]);
+		when(b1.loadClass("org.example.Missing")).thenThrow(new ClassNotFoundException("org.example.Missing"));
+
+		OsgiServletContextClassLoader cl = new OsgiServletContextClassLoader();
+		cl.addBundle(b1);
+
+		for (int i = 0; i < 3; i++) {
+			try {
+				cl.loadClass("org.example.Missing");
+				fail("Should have thrown ClassNotFoundException");
+			} catch (ClassNotFoundException expected) {
+				// expected
+			}
+		}
+		verify(b1, times(1)).loadClass("org.example.Missing");
+
+		// for example some bundle with the missing package is installed
+		cl.clearMissing();
+		try {
+			cl.loadClass("org.example.Missing");
+			fail("Should have thrown ClassNotFoundException");
+		} catch (ClassNotFoundException expected) {
+			// expected
+		}
+		verify(b1, times(2)).loadClass("org.example.Missing");
+	}
+
+	private Bundle bundle(String[] localPackages, String ... exports) {
+		Bundle bundle = mock(Bundle.class);
+		when(bundle.getState()).thenReturn(Bundle.ACTIVE);
+		BundleWiring wiring = mock(BundleWiring.class);
+		when(bundle.adapt(BundleWiring.class)).thenReturn(wiring);
+		when(wiring.listResources(anyString(), anyString(), anyInt())).thenReturn(Collections.emptyList());
+		for (String pkg : localPackages) {
+			when(wiring.listResources(eq("/" + pkg.replace('.', '/')), anyString(), anyInt()))
+					.thenReturn(Collections.singletonList(pkg.replace('.', '/') + "/Test.class"));
+		}
+		List<BundleCapability> capabilities = new ArrayList<>();
+		for (String pkg : exports) {
+			BundleCapability capability = mock(BundleCapability.class);
+			Map<String, Object> attributes = new HashMap<>();
+			attributes.put(PackageNamespace.PACKAGE_NAMESPACE, pkg);
+			when(capability.getAttributes()).thenReturn(attributes);
+			capabilities.add(capability);
+		}
+		when(wiring.getCapabilities(PackageNamespace.PACKAGE_NAMESPACE)).thenReturn(capabilities);
+		when(wiring.getRequiredWires(PackageNamespace.PACKAGE_NAMESPACE)).thenReturn(Collections.emptyList());
+		return bundle;
+	}
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.spi.servlet;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.servlet.http.HttpSessionAttributeListener;
+import javax.servlet.http.HttpSessionBindingEvent;
+
+import org.junit.Test;
+import org.ops4j.pax.web.service.spi.model.OsgiContextModel;
+import org.ops4j.pax.web.service.spi.model.elements.EventListenerModel;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class OsgiSessionAttributeListenerTest {
+
+	@Test
+	public void listenersAreCalledOnlyForTheirContexts() {
+		OsgiContextModel ocm1 = new OsgiContextModel(null, 0, 1L, false);
+		OsgiContextModel ocm2 = new OsgiContextModel(null, 0, 2L, false);
+		List<String> events = new ArrayList<>();
+
+		EventListenerModel elm1 = model("l1", events, ocm1);
+		EventListenerModel elm2 = model("l2", events, ocm1, ocm2);
+
+		OsgiSessionAttributeListener bridge = new OsgiSessionAttributeListener();
+		bridge.addSessionListenerModel(elm1);
+		// runtimes add the model once for each context path
+		bridge.addSessionListenerModel(elm2);
+		bridge.addSessionListenerModel(elm2);
+
+		bridge.callSessionListeners(null, ocm1, "a", "v1", null);
+		bridge.callSessionListeners(null, ocm2, "a", "v2", "v1");
+		assertThat(events, equalTo(List.of("l1:added:a", "l2:added:a", "l2:replaced:a")));
+
+		events.clear();
+		bridge.removeSessionListenerModel(elm2);
+		// still registered for other context path
+		bridge.callSessionListeners(null, ocm2, "a", null, "v2");
+		bridge.removeSessionListenerModel(elm2);
+		bridge.callSessionListeners(null, ocm2, "a", null, "v2");
+		assertThat(events, equalTo(List.of("l2:removed:a")));
+	}
+
+	private EventListenerModel model(String name, List<String> events, OsgiContextModel... contexts) {
+		EventListenerModel model = new EventListenerModel(new HttpSessionAttributeListener() {
+			@Override
+			public void attributeAdded(HttpSessionBindingEvent event) {
+				events.add(name + ":added:" + event.getName());
+			}
+
+			@Override
+			public void attributeRemoved(HttpSessionBindingEvent event) {
+				events.add(name + ":removed:" + event.getName());
+			}
+
+			@Override
+			public void attributeReplaced(HttpSessionBindingEvent event) {
+				events.add(name + ":replaced:" + event.getName());
+			}
+		});
+		for (OsgiContextModel ocm : contexts) {
+			model.addContextModel(ocm);
+		}
+		model.resolveEventListener();
+		return model;
+	}
+
+}
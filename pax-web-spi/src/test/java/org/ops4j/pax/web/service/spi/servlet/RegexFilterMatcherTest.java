@@ -0,0 +1,120 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.spi.servlet;
+
+import java.util.Arrays;
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.After;
+import org.junit.Test;
+import org.ops4j.pax.web.service.spi.model.elements.FilterModel;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RegexFilterMatcherTest {
+
+	@After
+	public void cleanup() {
+		RegexFilterMatcher.requestFinished();
+	}
+
+	@Test
+	public void combinedPatterns() {
+		FilterModel f1 = filter("f1", ".*\\.txt");
+		FilterModel f2 = filter("f2", "/a/.*", "/b/.*");
+		FilterModel f3 = filter("f3", "/a/x(\\d+)\\?q=.*");
+		FilterModel plain = new FilterModel.Builder("plain").withUrlPatterns(new String[] { "/*" }).build();
+
+		RegexFilterMatcher matcher = new RegexFilterMatcher();
+		matcher.update(Arrays.asList(f1, f2, f3, plain));
+		assertTrue(matcher.getPatterns().isCombined());
+
+		HttpServletRequest request = request("/a/x12", "q=1");
+		assertFalse(matcher.matches(f1, request));
+		assertTrue(matcher.matches(f2, request));
+		assertTrue(matcher.matches(f3, request));
+		assertThat(matcher.matches(plain, request), nullValue());
+		// match is remembered for current thread, not in the request
+		verify(request, never()).setAttribute(anyString(), any());
+		RegexFilterMatcher.requestFinished();
+
+		request = request("/b/file.txt", null);
+		assertTrue(matcher.matches(f1, request));
+		assertTrue(matcher.matches(f2, request));
+		assertFalse(matcher.matches(f3, request));
+
+		// patterns match entire URI
+		request = request("/c/file.txt.bak", null);
+		assertFalse(matcher.matches(f1, request));
+	}
+
+	@Test
+	public void backreferencesAreMatchedSeparately() {
+		FilterModel f1 = filter("f1", "/(a|b)/\\1");
+		FilterModel f2 = filter("f2", "/a/.*");
+
+		RegexFilterMatcher matcher = new RegexFilterMatcher();
+		matcher.update(Arrays.asList(f1, f2));
+		assertFalse(matcher.getPatterns().isCombined());
+
+		HttpServletRequest request = request("/a/a", null);
+		assertTrue(matcher.matches(f1, request));
+		assertTrue(matcher.matches(f2, request));
+		request = request("/a/b", null);
+		assertFalse(matcher.matches(f1, request));
+		assertTrue(matcher.matches(f2, request));
+	}
+
+	@Test
+	public void updatedFilters() {
+		FilterModel f1 = filter("f1", "/a/.*");
+		FilterModel f2 = filter("f2", "/b/.*");
+
+		RegexFilterMatcher matcher = new RegexFilterMatcher();
+		matcher.update(Arrays.asList(f1, f2));
+		HttpServletRequest request = request("/b/c", null);
+		assertFalse(matcher.matches(f1, request));
+		assertTrue(matcher.matches(f2, request));
+
+		matcher.update(Arrays.asList(f2, f1));
+		// result remembered for the request is not used after the update
+		assertFalse(matcher.matches(f1, request));
+		assertTrue(matcher.matches(f2, request));
+		assertThat(matcher.getPatterns().match("/a/b").cardinality(), equalTo(1));
+	}
+
+	private FilterModel filter(String name, String... regex) {
+		return new FilterModel.Builder(name).withRegexMapping(regex).build();
+	}
+
+	private HttpServletRequest request(String uri, String query) {
+		HttpServletRequest request = mock(HttpServletRequest.class);
+		when(request.getRequestURI()).thenReturn(uri);
+		when(request.getQueryString()).thenReturn(query);
+		return request;
+	}
+
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.spi.session;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class LogSessionStoreTest {
+
+	private File dir;
+
+	@Before
+	public void cleanup() throws IOException {
+		dir = new File("target/session-store");
+		FileUtils.deleteDirectory(dir);
+		assertTrue(dir.mkdirs());
+	}
+
+	@Test
+	public void sessionsAreReloaded() {
+		LogSessionStore store = new LogSessionStore(dir, 0L);
+		Map<String, Object> attributes = new HashMap<>();
+		attributes.put("a", "1");
+		attributes.put("not-serializable", new Object());
+		store.store("c1", "s1", 0L, attributes);
+		store.store("c1", "s2", 0L, attributes);
+		store.store("c1", "s3", System.currentTimeMillis() - 1000L, attributes);
+		store.store("c2", "s1", 0L, new HashMap<>());
+		// not yet written, but available
+		assertThat(store.load("c1", "s1", null).getAttributes().get("a"), equalTo("1"));
+		store.flush();
+		attributes.put("a", "2");
+		store.store("c1", "s1", 0L, attributes);
+		store.remove("c1", "s2");
+		store.close();
+
+		store = new LogSessionStore(dir, 0L);
+		assertThat(store.getSessionIds("c1").size(), equalTo(1));
+		StoredSession s1 = store.load("c1", "s1", getClass().getClassLoader());
+		assertThat(s1.getAttributes().get("a"), equalTo("2"));
+		assertThat(s1.getAttributes().size(), equalTo(1));
+		assertThat(store.load("c1", "s2", null), nullValue());
+		assertThat(store.load("c1", "s3", null), nullValue());
+		assertTrue(store.getSessionIds("c2").contains("s1"));
+		store.close();
+	}
+
+	@Test
+	public void incompleteRecordIsIgnored() throws IOException {
+		LogSessionStore store = new LogSessionStore(dir, 0L);
+		Map<String, Object> attributes = new HashMap<>();
+		attributes.put("a", "1");
+		store.store("c1", "s1", 0L, attributes);
+		store.flush();
+		store.store("c1", "s2", 0L, attributes);
+		store.close();
+
+		// simulate interrupted write of s2
+		File log = new File(dir, "c1.sessions");
+		try (RandomAccessFile raf = new RandomAccessFile(log, "rw")) {
+			raf.setLength(raf.length() - 3);
+		}
+
+		store = new LogSessionStore(dir, 0L);
+		assertThat(store.load("c1", "s2", null), nullValue());
+		assertThat(store.load("c1", "s1", null).getAttributes().get("a"), equalTo("1"));
+		store.store("c1", "s3", 0L, attributes);
+		store.close();
+
+		store = new LogSessionStore(dir, 0L);
+		assertThat(store.getSessionIds("c1").size(), equalTo(2));
+		assertThat(store.load("c1", "s3", null).getAttributes().get("a"), equalTo("1"));
+		store.close();
+	}
+
+	@Test
+	public void logIsCompacted() {
+		LogSessionStore store = new LogSessionStore(dir, 0L);
+		Map<String, Object> attributes = new HashMap<>();
+		attributes.put("data", new byte[700 * 1024]);
+		for (int i = 0; i < 3; i++) {
+			store.store("c1", "s1", 0L, attributes);
+			store.flush();
+		}
+		store.store("c1", "s2", 0L, new HashMap<>());
+		store.flush();
+
+		File log = new File(dir, "c1.sessions");
+		assertTrue(log.length() < 1024 * 1024);
+		assertThat(((byte[]) store.load("c1", "s1", null).getAttributes().get("data")).length, equalTo(700 * 1024));
+		assertTrue(store.getSessionIds("c1").contains("s2"));
+		store.close();
+	}
+
+}
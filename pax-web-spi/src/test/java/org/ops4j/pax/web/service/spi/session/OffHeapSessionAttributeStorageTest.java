@@ -0,0 +1,88 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.spi.session;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class OffHeapSessionAttributeStorageTest {
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void attributesAreStoredAfterRequest() {
+		OffHeapSessionAttributeStorage storage = new OffHeapSessionAttributeStorage(1024 * 1024);
+		SessionAttributes attributes = storage.createAttributes();
+
+		attributes.access();
+		List<String> list = new ArrayList<>();
+		list.add("a");
+		attributes.put("list", list);
+		Object notSerializable = new Object();
+		attributes.put("object", notSerializable);
+		assertThat(storage.getUsedMemory(), equalTo(0L));
+		attributes.release();
+		assertTrue(storage.getUsedMemory() > 0L);
+
+		// obtained attribute is a copy, which may be changed during the request
+		attributes.access();
+		List<String> copy = (List<String>) attributes.get("list");
+		assertThat(copy, not(sameInstance(list)));
+		copy.add("b");
+		assertThat(attributes.get("object"), sameInstance(notSerializable));
+		attributes.release();
+
+		assertThat(((List<String>) attributes.get("list")).size(), equalTo(2));
+		assertThat(attributes.size(), equalTo(2));
+		assertThat(((List<String>) attributes.remove("list")).size(), equalTo(2));
+		assertThat(storage.getUsedMemory(), equalTo(0L));
+	}
+
+	@Test
+	public void memoryIsReused() {
+		OffHeapSessionAttributeStorage storage = new OffHeapSessionAttributeStorage(1024 * 1024);
+		SessionAttributes attributes = storage.createAttributes();
+
+		attributes.put("s", "value1");
+		long used = storage.getUsedMemory();
+		assertThat(attributes.put("s", "value2"), equalTo("value1"));
+		assertThat(storage.getUsedMemory(), equalTo(used));
+		attributes.clear();
+		assertThat(storage.getUsedMemory(), equalTo(0L));
+		assertThat(storage.getAllocatedMemory(), equalTo((long) OffHeapSessionAttributeStorage.SLAB_SIZE));
+	}
+
+	@Test
+	public void attributesAreKeptOnHeapWhenMemoryIsExhausted() {
+		OffHeapSessionAttributeStorage storage = new OffHeapSessionAttributeStorage(1024 * 1024);
+		SessionAttributes attributes = storage.createAttributes();
+
+		attributes.put("a1", new byte[600 * 1024]);
+		attributes.put("a2", new byte[600 * 1024]);
+
+		assertThat(storage.getAllocatedMemory(), equalTo(1024L * 1024L));
+		assertThat(((byte[]) attributes.get("a1")).length, equalTo(600 * 1024));
+		assertThat(((byte[]) attributes.get("a2")).length, equalTo(600 * 1024));
+	}
+
+}
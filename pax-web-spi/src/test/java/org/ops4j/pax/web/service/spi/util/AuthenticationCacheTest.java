@@ -0,0 +1,92 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.spi.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class AuthenticationCacheTest {
+
+	@Test
+	public void successfulVerificationIsCached() {
+		AuthenticationCache<String> cache = new AuthenticationCache<>(60000L, 10);
+		AtomicInteger logins = new AtomicInteger();
+
+		assertThat(cache.verify("karaf", "admin", "secret", () -> "admin@" + logins.incrementAndGet()), equalTo("admin@1"));
+		assertThat(cache.verify("karaf", "admin", "secret", () -> "admin@" + logins.incrementAndGet()), equalTo("admin@1"));
+		// different password, realm - different key
+		assertThat(cache.verify("karaf", "admin", "other", () -> null), nullValue());
+		assertThat(cache.verify("other", "admin", "secret", () -> "admin@" + logins.incrementAndGet()), equalTo("admin@2"));
+
+		assertThat(cache.getHits(), equalTo(1L));
+		assertThat(cache.getMisses(), equalTo(3L));
+		assertThat(cache.getSize(), equalTo(2));
+	}
+
+	@Test
+	public void failedVerificationIsNotCached() {
+		AuthenticationCache<String> cache = new AuthenticationCache<>(60000L, 10);
+		AtomicInteger logins = new AtomicInteger();
+
+		cache.verify("karaf", "admin", "wrong", () -> {
+			logins.incrementAndGet();
+			return null;
+		});
+		cache.verify("karaf", "admin", "wrong", () -> {
+			logins.incrementAndGet();
+			return null;
+		});
+
+		assertThat(logins.get(), equalTo(2));
+		assertThat(cache.getSize(), equalTo(0));
+	}
+
+	@Test
+	public void entriesExpireAndAreEvicted() throws InterruptedException {
+		AuthenticationCache<String> cache = new AuthenticationCache<>(50L, 2);
+
+		cache.verify("r", "u1", "p", () -> "u1");
+		Thread.sleep(100L);
+		assertThat(cache.verify("r", "u1", "p", () -> "u1'"), equalTo("u1'"));
+
+		cache.verify("r", "u2", "p", () -> "u2");
+		cache.verify("r", "u3", "p", () -> "u3");
+		assertThat(cache.getEvictions(), equalTo(1L));
+		assertThat(cache.getSize(), equalTo(2));
+	}
+
+	@Test
+	public void explicitInvalidation() {
+		AuthenticationCache<String> cache = new AuthenticationCache<>(60000L, 10);
+
+		cache.verify("r1", "u1", "p", () -> "u1");
+		cache.verify("r2", "u1", "p", () -> "u1");
+		cache.verify("r1", "u2", "p", () -> "u2");
+
+		cache.invalidate("r1", "u1");
+		assertThat(cache.getSize(), equalTo(2));
+		cache.invalidate(null, "u1");
+		assertThat(cache.getSize(), equalTo(1));
+		cache.invalidateAll();
+		assertThat(cache.getSize(), equalTo(0));
+	}
+
+}
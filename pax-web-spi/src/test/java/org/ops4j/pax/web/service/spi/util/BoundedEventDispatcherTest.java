@@ -0,0 +1,199 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.spi.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class BoundedEventDispatcherTest {
+
+	private ExecutorService executor;
+
+	@Before
+	public void init() {
+		executor = Executors.newFixedThreadPool(2);
+	}
+
+	@After
+	public void cleanup() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void eventsAreDeliveredInOrder() throws InterruptedException {
+		BoundedEventDispatcher<Consumer<String>, String> dispatcher = dispatcher(1024,
+				BoundedEventDispatcher.OverflowPolicy.BLOCK);
+		List<String> received = Collections.synchronizedList(new ArrayList<>());
+		dispatcher.addListener(received::add);
+
+		for (int i = 0; i < 100; i++) {
+			dispatcher.dispatch("e" + i);
+		}
+		dispatcher.stop(10, TimeUnit.SECONDS);
+
+		assertThat(received.size(), equalTo(100));
+		for (int i = 0; i < 100; i++) {
+			assertThat(received.get(i), equalTo("e" + i));
+		}
+		BoundedEventDispatcher.ListenerStatistics stats = dispatcher.getStatistics().get(0);
+		assertThat(stats.getDelivered(), equalTo(100L));
+		assertThat(stats.getDropped(), equalTo(0L));
+		assertTrue(stats.getBatches() >= 2L);
+	}
+
+	@Test
+	public void slowListenerDoesNotBlockOthers() throws InterruptedException {
+		BoundedEventDispatcher<Consumer<String>, String> dispatcher = dispatcher(2,
+				BoundedEventDispatcher.OverflowPolicy.DROP_OLDEST);
+		CountDownLatch release = new CountDownLatch(1);
+		List<String> slow = Collections.synchronizedList(new ArrayList<>());
+		List<String> fast = Collections.synchronizedList(new ArrayList<>());
+		CountDownLatch fastDone = new CountDownLatch(5);
+		dispatcher.addListener(e -> {
+			try {
+				release.await();
+			} catch (InterruptedException ignored) {
+			}
+			slow.add(e);
+		});
+		dispatcher.addListener(e -> {
+			fast.add(e);
+			fastDone.countDown();
+		});
+
+		dispatcher.dispatch("1");
+		// wait until slow listener gets the first event, so the queue is empty
+		Thread.sleep(100);
+		for (int i = 2; i <= 5; i++) {
+			dispatcher.dispatch(Integer.toString(i));
+		}
+
+		assertTrue(fastDone.await(5, TimeUnit.SECONDS));
+		release.countDown();
+		dispatcher.stop(10, TimeUnit.SECONDS);
+
+		// "2" and "3" were discarded from full queue of slow listener
+		assertThat(slow, equalTo(List.of("1", "4", "5")));
+		assertThat(fast, equalTo(List.of("1", "2", "3", "4", "5")));
+	}
+
+	@Test
+	public void eventsForTheSameKeyAreCoalesced() throws InterruptedException {
+		BoundedEventDispatcher<Consumer<String>, String> dispatcher = dispatcher(3,
+				BoundedEventDispatcher.OverflowPolicy.COALESCE);
+		CountDownLatch release = new CountDownLatch(1);
+		List<String> received = Collections.synchronizedList(new ArrayList<>());
+		dispatcher.addListener(e -> {
+			try {
+				release.await();
+			} catch (InterruptedException ignored) {
+			}
+			received.add(e);
+		});
+
+		dispatcher.dispatch("x:0");
+		Thread.sleep(100);
+		dispatcher.dispatch("a:1");
+		dispatcher.dispatch("b:1");
+		dispatcher.dispatch("c:1");
+		// replaces "b:1"
+		dispatcher.dispatch("b:2");
+		// no event for "d" queued - the oldest one is discarded
+		dispatcher.dispatch("d:1");
+
+		release.countDown();
+		dispatcher.stop(10, TimeUnit.SECONDS);
+
+		assertThat(received, equalTo(List.of("x:0", "c:1", "b:2", "d:1")));
+		BoundedEventDispatcher.ListenerStatistics stats = dispatcher.getStatistics().get(0);
+		assertThat(stats.getCoalesced(), equalTo(1L));
+		assertThat(stats.getDropped(), equalTo(1L));
+	}
+
+	@Test
+	public void defaultPolicyNeverBlocksSender() throws InterruptedException {
+		BoundedEventDispatcher<Consumer<String>, String> dispatcher = dispatcher(2, null);
+		CountDownLatch release = new CountDownLatch(1);
+		List<String> received = Collections.synchronizedList(new ArrayList<>());
+		dispatcher.addListener(e -> {
+			try {
+				release.await();
+			} catch (InterruptedException ignored) {
+			}
+			received.add(e);
+		});
+
+		dispatcher.dispatch("0");
+		Thread.sleep(100);
+		long start = System.nanoTime();
+		for (int i = 1; i <= 100; i++) {
+			dispatcher.dispatch(Integer.toString(i));
+		}
+		assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 5L);
+
+		release.countDown();
+		dispatcher.stop(10, TimeUnit.SECONDS);
+
+		assertThat(received, equalTo(List.of("0", "99", "100")));
+		assertThat(dispatcher.getStatistics().get(0).getDropped(), equalTo(98L));
+	}
+
+	@Test
+	public void failingListenerIsRemoved() throws InterruptedException {
+		BoundedEventDispatcher<Consumer<String>, String> dispatcher = dispatcher(10,
+				BoundedEventDispatcher.OverflowPolicy.BLOCK);
+		Consumer<String> listener = e -> {
+			throw new IllegalStateException(e);
+		};
+		dispatcher.addListener(listener);
+		dispatcher.dispatch("1");
+		dispatcher.stop(10, TimeUnit.SECONDS);
+
+		assertThat(dispatcher.hasListener(listener), equalTo(false));
+	}
+
+	@Test
+	public void overflowPolicyIsParsed() {
+		assertThat(BoundedEventDispatcher.OverflowPolicy.parse(null), equalTo(BoundedEventDispatcher.DEFAULT_POLICY));
+		assertThat(BoundedEventDispatcher.OverflowPolicy.parse("dropOldest"), equalTo(BoundedEventDispatcher.OverflowPolicy.DROP_OLDEST));
+		assertThat(BoundedEventDispatcher.OverflowPolicy.parse("drop-oldest"), equalTo(BoundedEventDispatcher.OverflowPolicy.DROP_OLDEST));
+		assertThat(BoundedEventDispatcher.OverflowPolicy.parse(" coalesce "), equalTo(BoundedEventDispatcher.OverflowPolicy.COALESCE));
+		assertThat(BoundedEventDispatcher.OverflowPolicy.parse("whatever"), equalTo(BoundedEventDispatcher.DEFAULT_POLICY));
+		assertThat(BoundedEventDispatcher.OverflowPolicy.parse("block"), equalTo(BoundedEventDispatcher.OverflowPolicy.BLOCK));
+	}
+
+	private BoundedEventDispatcher<Consumer<String>, String> dispatcher(int size, BoundedEventDispatcher.OverflowPolicy policy) {
+		// key is the part before ':'
+		return new BoundedEventDispatcher<>("test", executor, size, policy,
+				e -> e.contains(":") ? e.substring(0, e.indexOf(':')) : e,
+				(listener, events) -> events.forEach(listener));
+	}
+
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.spi.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CompressedContentCacheTest {
+
+	@Test
+	public void compressibleTypes() {
+		CompressedContentCache cache = new CompressedContentCache(1024 * 1024, null);
+
+		assertTrue(cache.isCompressible("text/css", 1000));
+		assertTrue(cache.isCompressible("text/html; charset=UTF-8", 1000));
+		assertTrue(cache.isCompressible("Application/JavaScript", 1000));
+		assertFalse(cache.isCompressible("text/css", 10));
+		assertFalse(cache.isCompressible("image/png", 1000));
+		assertFalse(cache.isCompressible(null, 1000));
+
+		cache = new CompressedContentCache(1024 * 1024, "image/png, text/css");
+		assertTrue(cache.isCompressible("image/png", 1000));
+		assertFalse(cache.isCompressible("text/html", 1000));
+
+		cache = new CompressedContentCache(1024 * 1024, null, 2048);
+		assertFalse(cache.isCompressible("text/css", 1000));
+		assertTrue(cache.isCompressible("text/css", 2048));
+	}
+
+	@Test
+	public void contentIsCompressedOncePerETag() throws IOException {
+		CompressedContentCache cache = new CompressedContentCache(1024 * 1024, null);
+		byte[] text = new String(new char[4096]).replace('\0', 'a').getBytes(StandardCharsets.UTF_8);
+		AtomicInteger loads = new AtomicInteger();
+
+		byte[] gz1 = cache.getGzipped("/a.css", "W/\"1\"", () -> {
+			loads.incrementAndGet();
+			return new ByteArrayInputStream(text);
+		});
+		byte[] gz2 = cache.getGzipped("/a.css", "W/\"1\"", () -> {
+			loads.incrementAndGet();
+			return new ByteArrayInputStream(text);
+		});
+		assertThat(loads.get(), equalTo(1));
+		assertTrue(gz1 == gz2);
+		assertTrue(gz1.length < text.length);
+		assertThat(new GZIPInputStream(new ByteArrayInputStream(gz1)).readAllBytes(), equalTo(text));
+
+		cache.getGzipped("/a.css", "W/\"2\"", () -> {
+			loads.incrementAndGet();
+			return new ByteArrayInputStream(text);
+		});
+		assertThat(loads.get(), equalTo(2));
+		assertThat(cache.getHits(), equalTo(1L));
+		assertThat(cache.getMisses(), equalTo(2L));
+	}
+
+	@Test
+	public void incompressibleContentIsRemembered() throws IOException {
+		CompressedContentCache cache = new CompressedContentCache(1024 * 1024, null);
+		byte[] random = new byte[4096];
+		new Random(42).nextBytes(random);
+		AtomicInteger loads = new AtomicInteger();
+
+		for (int i = 0; i < 2; i++) {
+			assertThat(cache.getGzipped("/r.txt", "1", () -> {
+				loads.incrementAndGet();
+				return new ByteArrayInputStream(random);
+			}), nullValue());
+		}
+		assertThat(loads.get(), equalTo(1));
+		assertThat(cache.getSize(), equalTo(0L));
+	}
+
+	@Test
+	public void cacheIsBounded() throws IOException {
+		CompressedContentCache cache = new CompressedContentCache(100, null);
+		byte[] text = new String(new char[4096]).replace('\0', 'a').getBytes(StandardCharsets.UTF_8);
+
+		for (int i = 0; i < 10; i++) {
+			cache.getGzipped("/" + i, "1", () -> new ByteArrayInputStream(text));
+		}
+		assertTrue(cache.getSize() <= 100L);
+	}
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.spi.util;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DescriptorCacheTest {
+
+	@After
+	public void cleanup() {
+		DescriptorCache.getInstance().clear();
+	}
+
+	@Test
+	public void descriptorsAreParsedOncePerBundleRevision() throws Exception {
+		Bundle bundle = mock(Bundle.class);
+		when(bundle.getBundleId()).thenReturn(42L);
+		when(bundle.getLastModified()).thenReturn(1000L);
+		AtomicInteger count = new AtomicInteger();
+		DescriptorCache cache = DescriptorCache.getInstance();
+
+		assertEquals("v1", cache.computeIfAbsent(bundle, "a.tld", () -> "v" + count.incrementAndGet()));
+		assertEquals("v1", cache.computeIfAbsent(bundle, "a.tld", () -> "v" + count.incrementAndGet()));
+		assertEquals("v2", cache.computeIfAbsent(bundle, "b.tld", () -> "v" + count.incrementAndGet()));
+
+		// updated bundle
+		when(bundle.getLastModified()).thenReturn(2000L);
+		assertEquals("v3", cache.computeIfAbsent(bundle, "a.tld", () -> "v" + count.incrementAndGet()));
+	}
+
+	@Test
+	public void failuresAreNotCached() throws Exception {
+		Bundle bundle = mock(Bundle.class);
+		when(bundle.getBundleId()).thenReturn(43L);
+		DescriptorCache cache = DescriptorCache.getInstance();
+
+		try {
+			cache.computeIfAbsent(bundle, "a.tld", () -> {
+				throw new IOException("expected");
+			});
+			fail("Should have thrown IOException");
+		} catch (IOException expected) {
+			// expected
+		}
+		assertEquals("ok", cache.computeIfAbsent(bundle, "a.tld", () -> "ok"));
+	}
+
+}
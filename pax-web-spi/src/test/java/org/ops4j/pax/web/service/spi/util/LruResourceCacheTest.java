@@ -0,0 +1,128 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.spi.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.ops4j.pax.web.service.spi.model.OsgiContextModel;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class LruResourceCacheTest {
+
+	@Test
+	public void contentIsLoadedOnce() throws IOException {
+		LruResourceCache cache = new LruResourceCache(10, 1024, 4096, 0, true);
+		OsgiContextModel ctx = new OsgiContextModel(null, 0, 0L, false);
+		AtomicInteger loads = new AtomicInteger();
+
+		ByteBuffer b1 = cache.getContent(ctx, "s", "/a.txt", 1L, 5L, () -> {
+			loads.incrementAndGet();
+			return new ByteArrayInputStream("hello".getBytes(StandardCharsets.UTF_8));
+		});
+		ByteBuffer b2 = cache.getContent(ctx, "s", "/a.txt", 1L, 5L, () -> {
+			loads.incrementAndGet();
+			return new ByteArrayInputStream("hello".getBytes(StandardCharsets.UTF_8));
+		});
+
+		assertThat(loads.get(), equalTo(1));
+		assertThat(text(b1), equalTo("hello"));
+		assertThat(text(b2), equalTo("hello"));
+		assertTrue(b1.isDirect());
+		assertTrue(b1.isReadOnly());
+		assertThat(cache.getHits(), equalTo(1L));
+		assertThat(cache.getMisses(), equalTo(1L));
+		assertThat(cache.getSize(), equalTo(5L));
+	}
+
+	@Test
+	public void changedResourceIsReloaded() throws IOException {
+		LruResourceCache cache = new LruResourceCache(10, 1024, 4096, 0, false);
+		OsgiContextModel ctx = new OsgiContextModel(null, 0, 0L, false);
+
+		cache.getContent(ctx, "s", "/a.txt", 1L, 3L, () -> new ByteArrayInputStream("abc".getBytes(StandardCharsets.UTF_8)));
+		ByteBuffer b = cache.getContent(ctx, "s", "/a.txt", 2L, 3L, () -> new ByteArrayInputStream("def".getBytes(StandardCharsets.UTF_8)));
+
+		assertThat(text(b), equalTo("def"));
+		assertThat(cache.getMisses(), equalTo(2L));
+		assertThat(cache.getEntryCount(), equalTo(1));
+	}
+
+	@Test
+	public void leastRecentlyUsedEntriesAreEvicted() throws IOException {
+		LruResourceCache cache = new LruResourceCache(10, 4, 8, 0, false);
+		OsgiContextModel ctx = new OsgiContextModel(null, 0, 0L, false);
+
+		cache.getContent(ctx, "s", "/1", 1L, 4L, () -> new ByteArrayInputStream(new byte[4]));
+		cache.getContent(ctx, "s", "/2", 1L, 4L, () -> new ByteArrayInputStream(new byte[4]));
+		// access /1, so /2 is the eldest
+		cache.getContent(ctx, "s", "/1", 1L, 4L, () -> new ByteArrayInputStream(new byte[4]));
+		cache.getContent(ctx, "s", "/3", 1L, 4L, () -> new ByteArrayInputStream(new byte[4]));
+
+		assertThat(cache.getEvictions(), equalTo(1L));
+		assertThat(cache.getSize(), equalTo(8L));
+		cache.getContent(ctx, "s", "/1", 1L, 4L, () -> new ByteArrayInputStream(new byte[4]));
+		assertThat(cache.getHits(), equalTo(2L));
+
+		// too big
+		assertThat(cache.getContent(ctx, "s", "/4", 1L, 5L, () -> new ByteArrayInputStream(new byte[5])), nullValue());
+
+		cache.invalidate(ctx);
+		assertThat(cache.getEntryCount(), equalTo(0));
+		assertThat(cache.getSize(), equalTo(0L));
+	}
+
+	@Test
+	public void onlyEntriesOfGivenServletAreInvalidated() throws IOException {
+		LruResourceCache cache = new LruResourceCache(10, 1024, 4096, 0, false);
+		OsgiContextModel ctx = new OsgiContextModel(null, 0, 0L, false);
+
+		cache.getContent(ctx, "s1", "/a", 1L, 4L, () -> new ByteArrayInputStream(new byte[4]));
+		cache.getContent(ctx, "s2", "/a", 1L, 4L, () -> new ByteArrayInputStream(new byte[4]));
+		cache.getContent(ctx, "s2", "/b", 1L, 4L, () -> new ByteArrayInputStream(new byte[4]));
+		assertThat(cache.getEntryCount(), equalTo(3));
+
+		cache.invalidate(ctx, "s1");
+		assertThat(cache.getEntryCount(), equalTo(2));
+		assertThat(cache.getSize(), equalTo(8L));
+		cache.getContent(ctx, "s2", "/a", 1L, 4L, () -> new ByteArrayInputStream(new byte[4]));
+		assertThat(cache.getHits(), equalTo(1L));
+	}
+
+	@Test
+	public void unexpectedLengthIsNotCached() throws IOException {
+		LruResourceCache cache = new LruResourceCache(10, 1024, 4096, 0, true);
+
+		assertThat(cache.getContent(null, "s", "/a", 1L, 4L, () -> new ByteArrayInputStream(new byte[5])), nullValue());
+		assertThat(cache.getContent(null, "s", "/a", 1L, 4L, () -> new ByteArrayInputStream(new byte[3])), nullValue());
+		assertThat(cache.getEntryCount(), equalTo(0));
+	}
+
+	private String text(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+}
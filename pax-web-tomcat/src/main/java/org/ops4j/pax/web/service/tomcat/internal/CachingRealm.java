@@ -0,0 +1,169 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.tomcat.internal;
+
+import java.beans.PropertyChangeListener;
+import java.io.IOException;
+import java.security.Principal;
+import java.security.cert.X509Certificate;
+
+import org.apache.catalina.Container;
+import org.apache.catalina.Context;
+import org.apache.catalina.CredentialHandler;
+import org.apache.catalina.Realm;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.connector.Request;
+import org.apache.catalina.connector.Response;
+import org.apache.tomcat.util.descriptor.web.SecurityConstraint;
+import org.ietf.jgss.GSSContext;
+import org.ietf.jgss.GSSCredential;
+import org.ietf.jgss.GSSName;
+import org.ops4j.pax.web.service.spi.util.AuthenticationCache;
+
+/**
+ * <p>{@link Realm} that caches successful authentication with user name and password (BASIC and FORM
+ * authentication) performed by a {@link Realm} configured in {@code tomcat-server.xml} (like
+ * {@link org.apache.catalina.realm.JAASRealm}). All other methods are simply delegated.</p>
+ *
+ * <p>This realm is not part of container hierarchy - it's returned from {@link PaxWebStandardContext#getRealm()},
+ * while the lifecycle of the delegate is still managed by its own container.</p>
+ */
+class CachingRealm implements Realm {
+
+	private final Realm delegate;
+	private final AuthenticationCache<Principal> cache;
+	private final String name;
+
+	CachingRealm(Realm delegate, AuthenticationCache<Principal> cache) {
+		this.delegate = delegate;
+		this.cache = cache;
+		this.name = delegate.getClass().getName() + "@" + Integer.toHexString(System.identityHashCode(delegate));
+	}
+
+	public Realm getDelegate() {
+		return delegate;
+	}
+
+	/**
+	 * Tomcat doesn't pass logout to a {@link Realm}, so {@link PaxWebStandardContext} calls this method when
+	 * authenticated user logs out.
+	 * @param username
+	 */
+	public void logout(String username) {
+		cache.invalidate(name, username);
+	}
+
+	@Override
+	public Container getContainer() {
+		return delegate.getContainer();
+	}
+
+	@Override
+	public void setContainer(Container container) {
+		// the delegate stays attached to its own container
+	}
+
+	@Override
+	public CredentialHandler getCredentialHandler() {
+		return delegate.getCredentialHandler();
+	}
+
+	@Override
+	public void setCredentialHandler(CredentialHandler credentialHandler) {
+		delegate.setCredentialHandler(credentialHandler);
+	}
+
+	@Override
+	public void addPropertyChangeListener(PropertyChangeListener listener) {
+		delegate.addPropertyChangeListener(listener);
+	}
+
+	@Override
+	public void removePropertyChangeListener(PropertyChangeListener listener) {
+		delegate.removePropertyChangeListener(listener);
+	}
+
+	@Override
+	public Principal authenticate(String username) {
+		return delegate.authenticate(username);
+	}
+
+	@Override
+	public Principal authenticate(String username, String credentials) {
+		return cache.verify(name, username, credentials, () -> delegate.authenticate(username, credentials));
+	}
+
+	@Override
+	public Principal authenticate(String username, String digest, String nonce, String nc, String cnonce,
+			String qop, String realm, String md5a2) {
+		// digests are different for each request, so there's nothing to cache
+		return delegate.authenticate(username, digest, nonce, nc, cnonce, qop, realm, md5a2);
+	}
+
+	@Override
+	public Principal authenticate(GSSContext gssContext, boolean storeCreds) {
+		return delegate.authenticate(gssContext, storeCreds);
+	}
+
+	@Override
+	public Principal authenticate(GSSName gssName, GSSCredential gssCredential) {
+		return delegate.authenticate(gssName, gssCredential);
+	}
+
+	@Override
+	public Principal authenticate(X509Certificate[] certs) {
+		return delegate.authenticate(certs);
+	}
+
+	@Override
+	public void backgroundProcess() {
+		// background processing of the delegate is done by its container
+	}
+
+	@Override
+	public SecurityConstraint[] findSecurityConstraints(Request request, Context context) {
+		return delegate.findSecurityConstraints(request, context);
+	}
+
+	@Override
+	public boolean hasResourcePermission(Request request, Response response, SecurityConstraint[] constraint,
+			Context context) throws IOException {
+		return delegate.hasResourcePermission(request, response, constraint, context);
+	}
+
+	@Override
+	public boolean hasRole(Wrapper wrapper, Principal principal, String role) {
+		return delegate.hasRole(wrapper, principal, role);
+	}
+
+	@Override
+	public boolean hasUserDataPermission(Request request, Response response, SecurityConstraint[] constraint)
+			throws IOException {
+		return delegate.hasUserDataPermission(request, response, constraint);
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	public String[] getRoles(Principal principal) {
+		return delegate.getRoles(principal);
+	}
+
+	@Override
+	public boolean isAvailable() {
+		return delegate.isAvailable();
+	}
+
+}
@@ -31,6 +31,7 @@ import org.ops4j.pax.web.service.spi.model.elements.FilterModel;
 import org.ops4j.pax.web.service.spi.servlet.OsgiInitializedFilter;
 import org.ops4j.pax.web.service.spi.servlet.OsgiScopedServletContext;
 import org.ops4j.pax.web.service.spi.servlet.OsgiServletContext;
+import org.ops4j.pax.web.service.spi.servlet.RegexFilterMatcher;
 import org.ops4j.pax.web.service.spi.servlet.ScopedFilter;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceObjects;
@@ -56,6 +57,8 @@ public class PaxWebFilterDef extends FilterDef {
 
 	private boolean whiteboardTCCL;
 
+	private RegexFilterMatcher regexFilterMatcher;
+
 	public PaxWebFilterDef(FilterModel filterModel, boolean initialFilter, OsgiServletContext osgiContext) {
 		this.filterModel = filterModel;
 		this.initialFilter = initialFilter;
@@ -99,7 +102,7 @@ public class PaxWebFilterDef extends FilterDef {
 			super.setFilter(filter);
 		} else {
 			Filter delegate = filter == null ? new LifecycleFilter()
-					: new ScopedFilter(new OsgiInitializedFilter(filter, filterModel, servletContext, whiteboardTCCL), filterModel);
+					: new ScopedFilter(osgiInitializedFilter(filter), filterModel);
 			super.setFilter(delegate);
 		}
 	}
@@ -127,6 +130,16 @@ public class PaxWebFilterDef extends FilterDef {
 		this.whiteboardTCCL = whiteboardTCCL;
 	}
 
+	public void setRegexFilterMatcher(RegexFilterMatcher regexFilterMatcher) {
+		this.regexFilterMatcher = regexFilterMatcher;
+	}
+
+	private OsgiInitializedFilter osgiInitializedFilter(Filter instance) {
+		OsgiInitializedFilter filter = new OsgiInitializedFilter(instance, filterModel, servletContext, whiteboardTCCL);
+		filter.setRegexFilterMatcher(regexFilterMatcher);
+		return filter;
+	}
+
 	/**
 	 * This filter can instantiate the target filter. Only needed for Tomcat, where the "holder" is not that
 	 * extensible.
@@ -158,7 +171,7 @@ public class PaxWebFilterDef extends FilterDef {
 					filterModel.setDtoFailureCode(DTOConstants.FAILURE_REASON_SERVICE_NOT_GETTABLE);
 				}
 
-				filter = new ScopedFilter(new OsgiInitializedFilter(instance, filterModel, servletContext, whiteboardTCCL), filterModel);
+				filter = new ScopedFilter(osgiInitializedFilter(instance), filterModel);
 			} else {
 				// strange...
 				filter = new GenericFilter() {
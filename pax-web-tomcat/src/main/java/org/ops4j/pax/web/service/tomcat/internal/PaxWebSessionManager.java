@@ -16,19 +16,60 @@
 package org.ops4j.pax.web.service.tomcat.internal;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
+import org.apache.catalina.Loader;
 import org.apache.catalina.Session;
 import org.apache.catalina.session.StandardManager;
+import org.apache.catalina.session.StandardSession;
+import org.ops4j.pax.web.service.spi.session.SessionAttributeStorage;
+import org.ops4j.pax.web.service.spi.session.SessionStore;
+import org.ops4j.pax.web.service.spi.session.StoredSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+/**
+ * <p>{@link StandardManager} aware of session ID prefixes related to {@link org.ops4j.pax.web.service.spi.model.OsgiContextModel}.</p>
+ *
+ * <p>When {@link SessionAttributeStorage} is configured, sessions keep their attributes in the storage
+ * (see {@link PaxWebStandardSession}).</p>
+ *
+ * <p>When {@link SessionStore} is configured, sessions are not loaded/unloaded all at once by {@link #load()} and
+ * {@link #unload()}. Instead, sessions accessed since previous {@link #backgroundProcess()} are written to the store
+ * and stored sessions are restored when they're accessed for the first time.</p>
+ */
 public class PaxWebSessionManager extends StandardManager {
 
+	public static final Logger LOG = LoggerFactory.getLogger(PaxWebSessionManager.class);
+
+	private final SessionStore store;
+	private final SessionAttributeStorage attributeStorage;
+
+	/** Time of previous write of accessed sessions */
+	private long lastStore = 0L;
+
+	public PaxWebSessionManager() {
+		this(null, null);
+	}
+
+	public PaxWebSessionManager(SessionStore store, SessionAttributeStorage attributeStorage) {
+		this.store = store;
+		this.attributeStorage = attributeStorage;
+	}
+
 	@Override
 	public Session findSession(String id) throws IOException {
 		String sessionIdPrefix = PaxWebSessionIdGenerator.sessionIdPrefix.get();
 		if (sessionIdPrefix != null && !id.startsWith(sessionIdPrefix + "~")) {
 			id = sessionIdPrefix + "~" + id;
 		}
-		return super.findSession(id);
+		Session session = super.findSession(id);
+		if (session == null && store != null && getState().isAvailable()) {
+			session = restore(id);
+		}
+		return session;
 	}
 
 	@Override
@@ -42,4 +83,115 @@ public class PaxWebSessionManager extends StandardManager {
 		return super.createSession(sessionId);
 	}
 
+	@Override
+	protected StandardSession getNewSession() {
+		return attributeStorage == null ? super.getNewSession() : new PaxWebStandardSession(this, attributeStorage);
+	}
+
+	@Override
+	public void remove(Session session, boolean update) {
+		super.remove(session, update);
+		// when the manager is stopping, sessions are expired, but they should stay in the store
+		if (store != null && getState().isAvailable()) {
+			store.remove(storeContext(), session.getIdInternal());
+		}
+	}
+
+	@Override
+	public void backgroundProcess() {
+		super.backgroundProcess();
+		if (store != null) {
+			long now = System.currentTimeMillis();
+			for (Session session : findSessions()) {
+				if (session.getThisAccessedTimeInternal() >= lastStore) {
+					store(session);
+				}
+			}
+			lastStore = now;
+		}
+	}
+
+	@Override
+	public void load() throws ClassNotFoundException, IOException {
+		if (store == null) {
+			super.load();
+		}
+		// otherwise sessions are restored in findSession()
+	}
+
+	@Override
+	public void unload() throws IOException {
+		if (store == null) {
+			super.unload();
+			return;
+		}
+		for (Session session : findSessions()) {
+			store(session);
+		}
+		store.flush();
+	}
+
+	private void store(Session session) {
+		if (!(session instanceof StandardSession) || !session.isValid()) {
+			return;
+		}
+		StandardSession standardSession = (StandardSession) session;
+		Map<String, Object> attributes = new HashMap<>();
+		try {
+			for (String name : Collections.list(standardSession.getAttributeNames())) {
+				Object value = standardSession.getAttribute(name);
+				if (value != null) {
+					attributes.put(name, value);
+				}
+			}
+		} catch (IllegalStateException e) {
+			// invalidated in the meantime
+			return;
+		}
+		int maxInactiveInterval = session.getMaxInactiveInterval();
+		long expiration = maxInactiveInterval <= 0 ? 0L
+				: session.getThisAccessedTimeInternal() + maxInactiveInterval * 1000L;
+		store.store(storeContext(), session.getIdInternal(), expiration, attributes);
+	}
+
+	/**
+	 * Restores a session from the {@link SessionStore}
+	 * @param id
+	 * @return
+	 */
+	private synchronized Session restore(String id) {
+		Session existing = sessions.get(id);
+		if (existing != null) {
+			return existing;
+		}
+		Loader loader = getContext().getLoader();
+		StoredSession stored = store.load(storeContext(), id, loader == null ? null : loader.getClassLoader());
+		if (stored == null) {
+			return null;
+		}
+
+		StandardSession session = (StandardSession) createEmptySession();
+		session.setNew(false);
+		session.setValid(true);
+		session.setCreationTime(System.currentTimeMillis());
+		session.setMaxInactiveInterval(getContext().getSessionTimeout() * 60);
+		// without notification of HttpSessionListeners, as the session is not new
+		session.setId(id, false);
+		for (Map.Entry<String, Object> e : stored.getAttributes().entrySet()) {
+			session.setAttribute(e.getKey(), e.getValue(), false);
+		}
+		session.activate();
+		LOG.debug("Restored session {} of {} from session store", id, getContext().getName());
+		return session;
+	}
+
+	/**
+	 * Name of the context in {@link SessionStore} - the same as used for Undertow deployments.
+	 * @return
+	 */
+	private String storeContext() {
+		String path = getContext().getPath();
+		return path == null || "".equals(path) || "/".equals(path) ? "ROOT" : path.substring(1).replace('/', '_');
+	}
+
 }
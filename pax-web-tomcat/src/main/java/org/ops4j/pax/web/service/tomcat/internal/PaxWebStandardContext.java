@@ -15,6 +15,7 @@
  */
 package org.ops4j.pax.web.service.tomcat.internal;
 
+import java.security.Principal;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedList;
@@ -22,7 +23,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
-import java.util.stream.Collectors;
 import javax.servlet.DispatcherType;
 import javax.servlet.Filter;
 import javax.servlet.Servlet;
@@ -36,6 +36,7 @@ import javax.servlet.http.HttpSessionListener;
 import org.apache.catalina.Container;
 import org.apache.catalina.LifecycleException;
 import org.apache.catalina.LifecycleState;
+import org.apache.catalina.Realm;
 import org.apache.catalina.core.StandardContext;
 import org.apache.catalina.valves.ValveBase;
 import org.apache.tomcat.util.descriptor.web.ErrorPage;
@@ -46,13 +47,18 @@ import org.ops4j.pax.web.service.spi.model.elements.EventListenerKey;
 import org.ops4j.pax.web.service.spi.model.elements.EventListenerModel;
 import org.ops4j.pax.web.service.spi.model.elements.FilterModel;
 import org.ops4j.pax.web.service.spi.model.elements.ServletModel;
+import org.ops4j.pax.web.service.spi.metrics.FilterChainTiming;
+import org.ops4j.pax.web.service.spi.metrics.RequestMetrics;
 import org.ops4j.pax.web.service.spi.servlet.Default404Servlet;
 import org.ops4j.pax.web.service.spi.servlet.OsgiFilterChain;
+import org.ops4j.pax.web.service.spi.servlet.OsgiFilterChainTemplate;
 import org.ops4j.pax.web.service.spi.servlet.OsgiScopedServletContext;
 import org.ops4j.pax.web.service.spi.servlet.OsgiServletContext;
 import org.ops4j.pax.web.service.spi.servlet.OsgiSessionAttributeListener;
 import org.ops4j.pax.web.service.spi.servlet.PreprocessorFilterConfig;
+import org.ops4j.pax.web.service.spi.servlet.RegexFilterMatcher;
 import org.ops4j.pax.web.service.spi.servlet.SCIWrapper;
+import org.ops4j.pax.web.service.spi.util.AuthenticationCache;
 import org.osgi.service.http.whiteboard.Preprocessor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -99,9 +105,12 @@ public class PaxWebStandardContext extends StandardContext {
 	/**
 	 * {@link Preprocessor} are registered as filters, but without particular target
 	 * {@link org.ops4j.pax.web.service.spi.servlet.OsgiServletContext}, so they're effectively registered in
-	 * all available physical servlet contexts.
+	 * all available physical servlet contexts. The configs are kept in shared chain template.
 	 */
-	private final List<PreprocessorFilterConfig> preprocessors = new LinkedList<>();
+	private final OsgiFilterChainTemplate chainTemplate = new OsgiFilterChainTemplate();
+
+	/** Matcher for RegEx filters of this context, which are mapped to {@code /*} */
+	private final RegexFilterMatcher regexFilterMatcher = new RegexFilterMatcher();
 
 	private final Collection<SCIWrapper> servletContainerInitializers = new LinkedList<>();
 
@@ -123,6 +132,13 @@ public class PaxWebStandardContext extends StandardContext {
 	private String[] connectorNames;
 	private boolean whiteboardTCCL;
 
+	/** Cache of successful authentications shared by all the contexts - if enabled */
+	private AuthenticationCache<Principal> authenticationCache;
+	private volatile CachingRealm cachingRealm;
+
+	/** Request metrics shared by all the contexts - if enabled */
+	private RequestMetrics requestMetrics;
+
 	public PaxWebStandardContext(Default404Servlet defaultServlet, OsgiSessionAttributeListener osgiSessionsBridge) {
 		super();
 		getPipeline().addValve(new PaxWebStandardContextValve((ValveBase) getPipeline().getBasic(), defaultServlet));
@@ -153,18 +169,26 @@ public class PaxWebStandardContext extends StandardContext {
 			}
 
 			final OsgiFilterChain osgiChain;
-			List<Preprocessor> preprocessorInstances = preprocessors.stream().map(PreprocessorFilterConfig::getInstance).collect(Collectors.toList());
 			if (wrapper != null && !wrapper.is404()) {
-				osgiChain = new OsgiFilterChain(new ArrayList<>(preprocessorInstances),
-						wrapper.getServletContext(), wrapper.getWebContainerContext(), null, osgiSessionsBridge);
+				osgiChain = chainTemplate.createChain(wrapper.getServletContext(), wrapper.getWebContainerContext(),
+						chain, osgiSessionsBridge);
 			} else {
-				osgiChain = new OsgiFilterChain(new ArrayList<>(preprocessorInstances),
-						delegate.getDefaultServletContext(), delegate.getDefaultWebContainerContext(), null, osgiSessionsBridge);
+				osgiChain = chainTemplate.createChain(delegate.getDefaultServletContext(),
+						delegate.getDefaultWebContainerContext(), chain, osgiSessionsBridge);
 			}
 
 			// this chain will be called (or not)
-			osgiChain.setChain(chain);
-			osgiChain.doFilter(request, response);
+			Principal principal = cachingRealm == null || !(request instanceof HttpServletRequest) ? null
+					: ((HttpServletRequest) request).getUserPrincipal();
+			try {
+				osgiChain.doFilter(request, response);
+			} finally {
+				CachingRealm cr = cachingRealm;
+				if (principal != null && cr != null && ((HttpServletRequest) request).getUserPrincipal() == null) {
+					// HttpServletRequest.logout() was called - Tomcat doesn't tell the realm about it
+					cr.logout(principal.getName());
+				}
+			}
 		};
 
 		FilterModel filterModel = new FilterModel("__osgi@" + System.identityHashCode(osgiInitFilter),
@@ -226,7 +250,7 @@ public class PaxWebStandardContext extends StandardContext {
 
 	@Override
 	public boolean filterStart() {
-		for (PreprocessorFilterConfig fc : preprocessors) {
+		for (PreprocessorFilterConfig fc : chainTemplate.getPreprocessors()) {
 			try {
 				fc.getInstance().init(fc);
 			} catch (ServletException e) {
@@ -242,7 +266,7 @@ public class PaxWebStandardContext extends StandardContext {
 		boolean result = super.filterStop();
 
 		// destroy the preprocessors
-		for (PreprocessorFilterConfig fc : preprocessors) {
+		for (PreprocessorFilterConfig fc : chainTemplate.getPreprocessors()) {
 			fc.destroy();
 		}
 
@@ -504,7 +528,16 @@ public class PaxWebStandardContext extends StandardContext {
 	}
 
 	public List<PreprocessorFilterConfig> getPreprocessors() {
-		return preprocessors;
+		return chainTemplate.getPreprocessors();
+	}
+
+	/**
+	 * Replaces all the preprocessors of this context - chains created after this call will use new set of
+	 * preprocessors.
+	 * @param preprocessors
+	 */
+	public void setPreprocessors(List<PreprocessorFilterConfig> preprocessors) {
+		chainTemplate.setPreprocessors(preprocessors);
 	}
 
 	public void setVirtualHosts(String[] virtualHosts) {
@@ -604,4 +637,43 @@ public class PaxWebStandardContext extends StandardContext {
 		this.whiteboardTCCL = whiteboardTCCL;
 	}
 
+	public void setAuthenticationCache(AuthenticationCache<Principal> authenticationCache) {
+		this.authenticationCache = authenticationCache;
+	}
+
+	public void setRequestMetrics(RequestMetrics requestMetrics) {
+		this.requestMetrics = requestMetrics;
+	}
+
+	public RequestMetrics getRequestMetrics() {
+		return requestMetrics;
+	}
+
+	public void setFilterChainTiming(FilterChainTiming filterChainTiming) {
+		chainTemplate.setTiming(filterChainTiming);
+	}
+
+	public RegexFilterMatcher getRegexFilterMatcher() {
+		return regexFilterMatcher;
+	}
+
+	/**
+	 * Authenticators get the realm using this method, so when {@link AuthenticationCache} is enabled, we return
+	 * a {@link CachingRealm} wrapping a realm of this context (or one inherited from host/engine).
+	 * @return
+	 */
+	@Override
+	public Realm getRealm() {
+		Realm realm = super.getRealm();
+		if (authenticationCache == null || realm == null) {
+			return realm;
+		}
+		CachingRealm cr = cachingRealm;
+		if (cr == null || cr.getDelegate() != realm) {
+			cr = new CachingRealm(realm, authenticationCache);
+			cachingRealm = cr;
+		}
+		return cr;
+	}
+
 }
@@ -87,8 +87,8 @@ public class PaxWebStandardContextValve extends ValveBase {
 					: getContainer() instanceof PaxWebStandardContext
 					? ((PaxWebStandardContext) getContainer()).getDefaultOsgiContextModel() : null;
 			if (osgiContextModel != null) {
-				String sessionIdPrefix = osgiContextModel.getTemporaryLocation().replaceAll("/", "_");
-				PaxWebSessionIdGenerator.sessionIdPrefix.set(sessionIdPrefix);
+				// precomputed in OsgiContextModel, so there's no per-request allocation
+				PaxWebSessionIdGenerator.sessionIdPrefix.set(osgiContextModel.getSessionIdPrefix());
 			}
 		}
 
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.tomcat.internal;
+
+import org.apache.catalina.Manager;
+import org.apache.catalina.session.StandardSession;
+import org.ops4j.pax.web.service.spi.session.SessionAttributeStorage;
+import org.ops4j.pax.web.service.spi.session.SessionAttributes;
+
+/**
+ * {@link StandardSession} which keeps its attributes in {@link SessionAttributes} obtained from
+ * {@link SessionAttributeStorage} instead of heap-resident map.
+ */
+public class PaxWebStandardSession extends StandardSession {
+
+	private static final long serialVersionUID = 1L;
+
+	public PaxWebStandardSession(Manager manager, SessionAttributeStorage storage) {
+		super(manager);
+		this.attributes = storage.createAttributes();
+	}
+
+	@Override
+	public void access() {
+		super.access();
+		((SessionAttributes) attributes).access();
+	}
+
+	@Override
+	public void endAccess() {
+		super.endAccess();
+		((SessionAttributes) attributes).release();
+	}
+
+}
@@ -191,6 +191,14 @@ public class PaxWebStandardWrapper extends StandardWrapper {
 		return is404;
 	}
 
+	/**
+	 * Returns the {@link PaxWebStandardContext} to which this wrapper was added (not a scoped context)
+	 * @return
+	 */
+	PaxWebStandardContext getRealContext() {
+		return realContext;
+	}
+
 	@Override
 	public String getServletClass() {
 		if (super.getServletClass() != null) {
@@ -245,7 +253,7 @@ public class PaxWebStandardWrapper extends StandardWrapper {
 			throw new IllegalStateException("Can't load servlet for " + servletModel);
 		}
 
-		return new OsgiInitializedServlet(instance, servletContext, whiteboardTCCL);
+		return new OsgiInitializedServlet(instance, servletContext, whiteboardTCCL, servletModel);
 	}
 
 	@Override
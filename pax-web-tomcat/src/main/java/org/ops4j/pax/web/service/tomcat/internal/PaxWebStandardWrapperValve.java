@@ -16,17 +16,24 @@
 package org.ops4j.pax.web.service.tomcat.internal;
 
 import java.io.IOException;
+import javax.servlet.DispatcherType;
+import javax.servlet.RequestDispatcher;
 import javax.servlet.ServletException;
 
 import org.apache.catalina.connector.Request;
 import org.apache.catalina.connector.Response;
 import org.apache.catalina.valves.ValveBase;
+import org.ops4j.pax.web.service.spi.metrics.RequestMetrics;
+import org.ops4j.pax.web.service.spi.model.OsgiContextModel;
 
 import static org.ops4j.pax.web.service.tomcat.internal.PaxWebStandardContext.PAXWEB_STANDARD_WRAPPER;
 
 public class PaxWebStandardWrapperValve extends ValveBase {
 
+	private final PaxWebStandardWrapper wrapper;
+
 	public PaxWebStandardWrapperValve(ValveBase next, PaxWebStandardWrapper wrapper) {
+		this.wrapper = wrapper;
 		setNext(next);
 		setAsyncSupported(wrapper.isAsyncSupported());
 		setContainer(wrapper);
@@ -47,7 +54,25 @@ public class PaxWebStandardWrapperValve extends ValveBase {
 		request.setAttribute(PAXWEB_STANDARD_WRAPPER, request.getWrapper());
 		PaxWebSessionIdGenerator.cookieSessionId.set(request.getRequestedSessionId());
 
-		getNext().invoke(request, response);
+		// metrics are recorded only for initial dispatch - async dispatches are part of the same request
+		PaxWebStandardContext realContext = wrapper.getRealContext();
+		RequestMetrics metrics = realContext == null ? null : realContext.getRequestMetrics();
+		if (metrics == null || request.getDispatcherType() != DispatcherType.REQUEST) {
+			getNext().invoke(request, response);
+			return;
+		}
+
+		OsgiContextModel context = wrapper.getOsgiContextModel() == null
+				? realContext.getDefaultOsgiContextModel() : wrapper.getOsgiContextModel();
+		long start = metrics.begin(context, wrapper.getServletModel());
+		boolean failed = true;
+		try {
+			getNext().invoke(request, response);
+			// org.apache.catalina.core.StandardWrapperValve doesn't rethrow exceptions of filters and servlets
+			failed = request.getAttribute(RequestDispatcher.ERROR_EXCEPTION) != null;
+		} finally {
+			metrics.end(request, response, context, wrapper.getServletModel(), start, failed);
+		}
 	}
 
 }
@@ -26,9 +26,15 @@ import javax.servlet.Servlet;
 import org.ops4j.pax.web.service.spi.ServerController;
 import org.ops4j.pax.web.service.spi.ServerState;
 import org.ops4j.pax.web.service.spi.config.Configuration;
+import org.ops4j.pax.web.service.spi.metrics.FilterChainTiming;
+import org.ops4j.pax.web.service.spi.metrics.RequestMetrics;
 import org.ops4j.pax.web.service.spi.model.events.ServerEvent;
 import org.ops4j.pax.web.service.spi.model.events.ServerListener;
 import org.ops4j.pax.web.service.spi.task.Batch;
+import org.ops4j.pax.web.service.spi.util.AuthenticationCache;
+import org.ops4j.pax.web.service.spi.util.CompressedContentCache;
+import org.ops4j.pax.web.service.spi.util.LruResourceCache;
+import org.ops4j.pax.web.service.spi.util.ResourceCache;
 import org.ops4j.pax.web.service.tomcat.internal.web.TomcatResourceServlet;
 import org.osgi.framework.Bundle;
 import org.slf4j.Logger;
@@ -60,6 +66,12 @@ class TomcatServerController implements ServerController {
 	 */
 	private TomcatServerWrapper tomcatServerWrapper;
 
+	/** Cache of static resource content shared by all resource servlets of this server */
+	private final ResourceCache resourceCache;
+
+	/** Cache of compressed resource variants, {@code null} if on-the-fly compression is disabled */
+	private final CompressedContentCache compressedCache;
+
 	TomcatServerController(Bundle paxWebTomcatBundle, ClassLoader classLoader,
 			TomcatFactory tomcatFactory, Configuration configuration) {
 		this.paxWebTomcatBundle = paxWebTomcatBundle;
@@ -69,6 +81,8 @@ class TomcatServerController implements ServerController {
 		this.state = ServerState.UNCONFIGURED;
 
 		this.listeners = Collections.synchronizedSet(new LinkedHashSet<>());
+		this.resourceCache = LruResourceCache.create(configuration.resources());
+		this.compressedCache = CompressedContentCache.create(configuration.resources());
 	}
 
 	// --- lifecycle methods
@@ -117,6 +131,10 @@ class TomcatServerController implements ServerController {
 		}
 
 		tomcatServerWrapper.stop();
+		resourceCache.close();
+		if (compressedCache != null) {
+			compressedCache.clear();
+		}
 
 		state = ServerState.STOPPED;
 		notifyListeners(new ServerEvent(ServerEvent.State.STOPPED, null));
@@ -127,6 +145,21 @@ class TomcatServerController implements ServerController {
 		return configuration;
 	}
 
+	@Override
+	public RequestMetrics getRequestMetrics() {
+		return tomcatServerWrapper.getRequestMetrics();
+	}
+
+	@Override
+	public FilterChainTiming getFilterChainTiming() {
+		return tomcatServerWrapper.getFilterChainTiming();
+	}
+
+	@Override
+	public AuthenticationCache<?> getAuthenticationCache() {
+		return tomcatServerWrapper.getAuthenticationCache();
+	}
+
 	// --- listener related methods
 
 	@Override
@@ -167,7 +200,8 @@ class TomcatServerController implements ServerController {
 		try {
 			// TCCL is needed so StringManagers in Tomcat code work
 			Thread.currentThread().setContextClassLoader(TomcatServerWrapper.class.getClassLoader());
-			return new TomcatResourceServlet(baseDirectory, chroot, configuration.resources());
+			return new TomcatResourceServlet(baseDirectory, chroot, configuration.resources(), resourceCache,
+					compressedCache);
 		} finally {
 			Thread.currentThread().setContextClassLoader(tccl);
 		}
@@ -22,6 +22,7 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.security.Principal;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -30,6 +31,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -79,6 +81,8 @@ import org.apache.tomcat.util.http.SameSiteCookies;
 import org.ops4j.pax.web.service.spi.config.Configuration;
 import org.ops4j.pax.web.service.spi.config.LogConfiguration;
 import org.ops4j.pax.web.service.spi.config.SessionConfiguration;
+import org.ops4j.pax.web.service.spi.metrics.FilterChainTiming;
+import org.ops4j.pax.web.service.spi.metrics.RequestMetrics;
 import org.ops4j.pax.web.service.spi.model.ContextMetadataModel;
 import org.ops4j.pax.web.service.spi.model.OsgiContextModel;
 import org.ops4j.pax.web.service.spi.model.ServletContextModel;
@@ -104,6 +108,10 @@ import org.ops4j.pax.web.service.spi.servlet.OsgiSessionAttributeListener;
 import org.ops4j.pax.web.service.spi.servlet.PreprocessorFilterConfig;
 import org.ops4j.pax.web.service.spi.servlet.RegisteringContainerInitializer;
 import org.ops4j.pax.web.service.spi.servlet.SCIWrapper;
+import org.ops4j.pax.web.service.spi.session.LogSessionStore;
+import org.ops4j.pax.web.service.spi.session.OffHeapSessionAttributeStorage;
+import org.ops4j.pax.web.service.spi.session.SessionAttributeStorage;
+import org.ops4j.pax.web.service.spi.session.SessionStore;
 import org.ops4j.pax.web.service.spi.task.BatchVisitor;
 import org.ops4j.pax.web.service.spi.task.ClearDynamicRegistrationsChange;
 import org.ops4j.pax.web.service.spi.task.ContainerInitializerModelChange;
@@ -125,6 +133,7 @@ import org.ops4j.pax.web.service.spi.task.ServletModelChange;
 import org.ops4j.pax.web.service.spi.task.TransactionStateChange;
 import org.ops4j.pax.web.service.spi.task.WebSocketModelChange;
 import org.ops4j.pax.web.service.spi.task.WelcomeFileModelChange;
+import org.ops4j.pax.web.service.spi.util.AuthenticationCache;
 import org.ops4j.pax.web.service.spi.util.Utils;
 import org.ops4j.pax.web.service.tomcat.internal.web.TomcatResourceServlet;
 import org.osgi.framework.Bundle;
@@ -237,19 +246,36 @@ class TomcatServerWrapper implements BatchVisitor {
 	private SessionCookieConfig defaultSessionCookieConfig;
 
 	/**
-	 * All {@link EventListenerModel} instances for {@link HttpSessionAttributeListener} listeners. They'll be
-	 * reviewed in order to propagate session attribute events per {@link OsgiContextModel}.
+	 * Bridge keeping {@link EventListenerModel} instances for {@link HttpSessionAttributeListener} listeners to
+	 * propagate session attribute events per {@link OsgiContextModel}. Shared by all the contexts.
 	 */
-	private final List<EventListenerModel> sessionListenerModels = new ArrayList<>();
+	private final OsgiSessionAttributeListener osgiSessionsBridge = new OsgiSessionAttributeListener();
 
 	private final Map<String, TreeMap<OsgiContextModel, SecurityConfigurationModel>> contextSecurityConstraints = new HashMap<>();
 
+	/** Session store shared by {@link PaxWebSessionManager session managers} of all the contexts */
+	private SessionStore sessionStore;
+
+	/** Storage of attributes of the sessions of all the contexts - if not kept on the heap */
+	private SessionAttributeStorage sessionAttributeStorage;
+
+	/** Cache of successful authentications shared by all the contexts - if enabled */
+	private AuthenticationCache<Principal> authenticationCache;
+
+	/** Request metrics shared by all the contexts - if enabled */
+	private final RequestMetrics requestMetrics;
+
+	/** Timing of filter chain elements shared by all the contexts - if enabled */
+	private final FilterChainTiming filterChainTiming;
+
 	TomcatServerWrapper(Configuration config, TomcatFactory tomcatFactory,
 			Bundle paxWebTomcatBundle, ClassLoader classLoader) {
 		this.configuration = config;
 		this.tomcatFactory = tomcatFactory;
 		this.paxWebTomcatBundle = paxWebTomcatBundle;
 		this.classLoader = classLoader;
+		this.requestMetrics = RequestMetrics.create(config.server());
+		this.filterChainTiming = FilterChainTiming.create(config.server());
 	}
 
 	// --- lifecycle and configuration methods
@@ -287,6 +313,9 @@ class TomcatServerWrapper implements BatchVisitor {
 		// default session configuration is prepared, but not set in the server instance. It can be set
 		// only after first context is created
 		this.defaultSessionCookieConfig = configuration.session().getDefaultSessionCookieConfig();
+		this.sessionStore = LogSessionStore.create(configuration.session());
+		this.sessionAttributeStorage = OffHeapSessionAttributeStorage.create(configuration.session());
+		this.authenticationCache = AuthenticationCache.create(configuration.security());
 	}
 
 	/**
@@ -675,6 +704,11 @@ class TomcatServerWrapper implements BatchVisitor {
 			LOG.info("Destroying Tomcat server {}", server);
 			server.destroy();
 
+			if (sessionStore != null) {
+				sessionStore.close();
+				sessionStore = null;
+			}
+
 			// I found this necessary, when pax-web-tomcat is restarted/refreshed without affecting
 			// pax-web-extender-whiteboard
 			osgiServletContexts.values().forEach(OsgiServletContext::unregister);
@@ -683,6 +717,30 @@ class TomcatServerWrapper implements BatchVisitor {
 		}
 	}
 
+	/**
+	 * Returns request metrics recorded by all the contexts of this server
+	 * @return {@code null} if request metrics are not enabled
+	 */
+	public RequestMetrics getRequestMetrics() {
+		return requestMetrics;
+	}
+
+	/**
+	 * Returns timing of filter chain elements invoked in all the contexts of this server
+	 * @return {@code null} if filter chain timing is not enabled
+	 */
+	public FilterChainTiming getFilterChainTiming() {
+		return filterChainTiming;
+	}
+
+	/**
+	 * Returns the cache of successful authentications used in front of the realms of this server
+	 * @return {@code null} if authentication results are not cached
+	 */
+	public AuthenticationCache<?> getAuthenticationCache() {
+		return authenticationCache;
+	}
+
 	/**
 	 * If state allows, this methods returns currently configured/started addresses of the listeners.
 	 * @param useLocalPort
@@ -767,8 +825,11 @@ class TomcatServerWrapper implements BatchVisitor {
 			LOG.info("Creating new Tomcat context for {}", model);
 
 //							Context ctx = new HttpServiceContext(getHost(), accessControllerContext);
-			PaxWebStandardContext context = new PaxWebStandardContext(default404Servlet, new OsgiSessionAttributeListener(sessionListenerModels));
+			PaxWebStandardContext context = new PaxWebStandardContext(default404Servlet, osgiSessionsBridge);
 			context.setWhiteboardTCCL("whiteboard".equalsIgnoreCase(configuration.server().getTCCLType()));
+			context.setAuthenticationCache(authenticationCache);
+			context.setRequestMetrics(requestMetrics);
+			context.setFilterChainTiming(filterChainTiming);
 
 			context.setPath("/".equals(contextPath) ? "" : contextPath);
 			// name is used in final toString(), so better to have it clearer
@@ -830,11 +891,9 @@ class TomcatServerWrapper implements BatchVisitor {
 			}
 			context.setCookieProcessor(cookieProcessor);
 
-			StandardManager manager = new PaxWebSessionManager();
+			// with session store, sessions are persisted incrementally instead of StandardManager's SESSIONS.ser
+			StandardManager manager = new PaxWebSessionManager(sessionStore, sessionAttributeStorage);
 			manager.setSessionIdGenerator(new PaxWebSessionIdGenerator());
-			if (sc.getSessionStoreDirectory() != null) {
-				manager.setPathname(new File(sc.getSessionStoreDirectory(), "SESSIONS.ser").getAbsolutePath());
-			}
 			context.setManager(manager);
 
 			//		// TODO: what about the AccessControlContext?
@@ -888,6 +947,13 @@ class TomcatServerWrapper implements BatchVisitor {
 		OsgiContextModel osgiModel = change.getOsgiContextModel();
 		ServletContextModel servletContextModel = change.getServletContextModel();
 
+		if (requestMetrics != null && change.getKind() == OpCode.DELETE) {
+			requestMetrics.remove(osgiModel);
+		}
+		if (filterChainTiming != null && change.getKind() == OpCode.DELETE) {
+			filterChainTiming.remove(osgiModel);
+		}
+
 		String contextPath = osgiModel.getContextPath();
 		PaxWebStandardContext realContext = contextHandlers.get(contextPath);
 
@@ -1105,6 +1171,13 @@ class TomcatServerWrapper implements BatchVisitor {
 
 		Set<String> done = new HashSet<>();
 
+		if (requestMetrics != null && change.getKind() == OpCode.DELETE) {
+			change.getServletModels().keySet().forEach(requestMetrics::remove);
+		}
+		if (filterChainTiming != null && change.getKind() == OpCode.DELETE) {
+			change.getServletModels().keySet().forEach(filterChainTiming::remove);
+		}
+
 		if ((change.getKind() == OpCode.ADD && !change.isDisabled()) || change.getKind() == OpCode.ENABLE) {
 			ServletModel model = change.getServletModel();
 			if (change.getNewModelsInfo() == null) {
@@ -1311,6 +1384,10 @@ class TomcatServerWrapper implements BatchVisitor {
 
 	@Override
 	public void visitFilterModelChange(FilterModelChange change) {
+		if (filterChainTiming != null && change.getKind() == OpCode.DELETE) {
+			change.getFilterModels().forEach(filterChainTiming::remove);
+		}
+
 		// only handle dynamic filter registration here - filter added only as last filter
 		FilterModel model = change.getFilterModel();
 		Set<String> done = new HashSet<>();
@@ -1406,17 +1483,20 @@ class TomcatServerWrapper implements BatchVisitor {
 				context.removeFilterMap(map);
 			}
 
-			// clear to keep the order of all available preprocessors
-			context.getPreprocessors().clear();
+			// collect new list to keep the order of all available preprocessors
+			List<PreprocessorFilterConfig> preprocessors = new LinkedList<>();
 
 			for (Iterator<FilterModel> iterator = filters.iterator(); iterator.hasNext(); ) {
 				FilterModel model = iterator.next();
 				if (model.isPreprocessor()) {
-					context.getPreprocessors()
-							.add(new PreprocessorFilterConfig(model, osgiServletContexts.get(defaultHighestRankedModel)));
+					preprocessors.add(new PreprocessorFilterConfig(model, osgiServletContexts.get(defaultHighestRankedModel)));
 					iterator.remove();
 				}
 			}
+			context.setPreprocessors(preprocessors);
+
+			// RegEx filters are mapped to "/*", so single matcher of the context decides which of them are called
+			context.getRegexFilterMatcher().update(filters);
 
 			for (FilterModel model : filters) {
 				List<OsgiContextModel> contextModels = filtersMap.get(model) != null
@@ -1425,6 +1505,7 @@ class TomcatServerWrapper implements BatchVisitor {
 
 				PaxWebFilterDef filterDef = new PaxWebFilterDef(model, false, osgiContext);
 				filterDef.setWhiteboardTCCL("whiteboard".equalsIgnoreCase(configuration.server().getTCCLType()));
+				filterDef.setRegexFilterMatcher(context.getRegexFilterMatcher());
 				context.addFilterDef(filterDef);
 				configureFilterMappings(model, context);
 			}
@@ -1457,7 +1538,7 @@ class TomcatServerWrapper implements BatchVisitor {
 				}
 				if (eventListener instanceof HttpSessionAttributeListener) {
 					// we have to store it separately to propagate OsgiHttpSession specific events
-					sessionListenerModels.add(eventListenerModel);
+					osgiSessionsBridge.addSessionListenerModel(eventListenerModel);
 				}
 
 				boolean stopped = false;
@@ -1519,7 +1600,7 @@ class TomcatServerWrapper implements BatchVisitor {
 						}
 					}
 					if (eventListener instanceof HttpSessionAttributeListener) {
-						sessionListenerModels.remove(eventListenerModel);
+						osgiSessionsBridge.removeSessionListenerModel(eventListenerModel);
 					}
 
 					if (pendingTransaction(contextPath)) {
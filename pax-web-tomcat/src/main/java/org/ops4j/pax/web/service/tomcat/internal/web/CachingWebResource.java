@@ -0,0 +1,199 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.tomcat.internal.web;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.security.cert.Certificate;
+import java.util.jar.Manifest;
+
+import org.apache.catalina.WebResource;
+import org.apache.catalina.WebResourceRoot;
+import org.ops4j.pax.web.service.spi.model.OsgiContextModel;
+import org.ops4j.pax.web.service.spi.util.ByteBufferInputStream;
+import org.ops4j.pax.web.service.spi.util.ResourceCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>{@link WebResource} which provides its content from shared {@link ResourceCache}. Tomcat's own cache
+ * (configured in {@link TomcatResourceServlet}) keeps only the metadata of such resources.</p>
+ */
+class CachingWebResource implements WebResource {
+
+	public static final Logger LOG = LoggerFactory.getLogger(CachingWebResource.class);
+
+	private final WebResource delegate;
+	private final ResourceCache cache;
+	private final OsgiContextModel contextModel;
+	private final String servletName;
+
+	// remembered up front, because some resources can't provide metadata after their stream was obtained
+	private final long lastModified;
+	private final long contentLength;
+
+	CachingWebResource(WebResource delegate, ResourceCache cache, OsgiContextModel contextModel,
+			String servletName) {
+		this.delegate = delegate;
+		this.cache = cache;
+		this.contextModel = contextModel;
+		this.servletName = servletName;
+		this.lastModified = delegate.getLastModified();
+		this.contentLength = delegate.getContentLength();
+	}
+
+	@Override
+	public InputStream getInputStream() {
+		URL url = delegate.getURL();
+		if (url != null) {
+			try {
+				ByteBuffer content = cache.getContent(contextModel, servletName, url.toExternalForm(), lastModified,
+						contentLength, () -> {
+							// prefer the stream which may be already opened by the delegate
+							InputStream is = delegate.getInputStream();
+							return is != null ? is : url.openStream();
+						});
+				if (content != null) {
+					return new ByteBufferInputStream(content);
+				}
+			} catch (IOException e) {
+				LOG.debug("Can't cache content of {}: {}", url, e.getMessage());
+			}
+		}
+		InputStream is = delegate.getInputStream();
+		if (is == null) {
+			byte[] content = delegate.getContent();
+			if (content != null) {
+				return new ByteArrayInputStream(content);
+			}
+		}
+		return is;
+	}
+
+	@Override
+	public byte[] getContent() {
+		return delegate.getContent();
+	}
+
+	@Override
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	@Override
+	public String getLastModifiedHttp() {
+		return delegate.getLastModifiedHttp();
+	}
+
+	@Override
+	public boolean exists() {
+		return delegate.exists();
+	}
+
+	@Override
+	public boolean isVirtual() {
+		return delegate.isVirtual();
+	}
+
+	@Override
+	public boolean isDirectory() {
+		return delegate.isDirectory();
+	}
+
+	@Override
+	public boolean isFile() {
+		return delegate.isFile();
+	}
+
+	@Override
+	public boolean delete() {
+		return delegate.delete();
+	}
+
+	@Override
+	public String getName() {
+		return delegate.getName();
+	}
+
+	@Override
+	public long getContentLength() {
+		return contentLength;
+	}
+
+	@Override
+	public String getCanonicalPath() {
+		return delegate.getCanonicalPath();
+	}
+
+	@Override
+	public boolean canRead() {
+		return delegate.canRead();
+	}
+
+	@Override
+	public String getWebappPath() {
+		return delegate.getWebappPath();
+	}
+
+	@Override
+	public String getETag() {
+		return delegate.getETag();
+	}
+
+	@Override
+	public void setMimeType(String mimeType) {
+		delegate.setMimeType(mimeType);
+	}
+
+	@Override
+	public String getMimeType() {
+		return delegate.getMimeType();
+	}
+
+	@Override
+	public long getCreation() {
+		return delegate.getCreation();
+	}
+
+	@Override
+	public URL getURL() {
+		return delegate.getURL();
+	}
+
+	@Override
+	public URL getCodeBase() {
+		return delegate.getCodeBase();
+	}
+
+	@Override
+	public WebResourceRoot getWebResourceRoot() {
+		return delegate.getWebResourceRoot();
+	}
+
+	@Override
+	public Certificate[] getCertificates() {
+		return delegate.getCertificates();
+	}
+
+	@Override
+	public Manifest getManifest() {
+		return delegate.getManifest();
+	}
+
+}
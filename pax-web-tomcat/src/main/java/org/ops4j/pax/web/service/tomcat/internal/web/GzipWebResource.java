@@ -0,0 +1,167 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.tomcat.internal.web;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URL;
+import java.security.cert.Certificate;
+import java.util.jar.Manifest;
+
+import org.apache.catalina.WebResource;
+import org.apache.catalina.WebResourceRoot;
+
+/**
+ * <p>{@link WebResource} with gzipped content of original resource. Tomcat's
+ * {@link org.apache.catalina.servlets.DefaultServlet} treats it as precompressed variant of the original resource,
+ * so {@code Vary} and {@code Content-Encoding} headers are handled by Tomcat.</p>
+ */
+class GzipWebResource implements WebResource {
+
+	private final WebResource original;
+	private final byte[] gzipped;
+
+	GzipWebResource(WebResource original, byte[] gzipped) {
+		this.original = original;
+		this.gzipped = gzipped;
+	}
+
+	@Override
+	public long getLastModified() {
+		return original.getLastModified();
+	}
+
+	@Override
+	public String getLastModifiedHttp() {
+		return original.getLastModifiedHttp();
+	}
+
+	@Override
+	public boolean exists() {
+		return true;
+	}
+
+	@Override
+	public boolean isVirtual() {
+		return true;
+	}
+
+	@Override
+	public boolean isDirectory() {
+		return false;
+	}
+
+	@Override
+	public boolean isFile() {
+		return true;
+	}
+
+	@Override
+	public boolean delete() {
+		return false;
+	}
+
+	@Override
+	public String getName() {
+		return original.getName();
+	}
+
+	@Override
+	public long getContentLength() {
+		return gzipped.length;
+	}
+
+	@Override
+	public String getCanonicalPath() {
+		// no canonical path, so Tomcat doesn't try to use sendfile with the original file
+		return null;
+	}
+
+	@Override
+	public boolean canRead() {
+		return true;
+	}
+
+	@Override
+	public String getWebappPath() {
+		return original.getWebappPath();
+	}
+
+	@Override
+	public String getETag() {
+		// gzipped representation needs its own validator - the suffix is added inside the quotes of
+		// (weak or strong) ETag of the original resource
+		String etag = original.getETag();
+		if (etag == null) {
+			return null;
+		}
+		if (etag.length() > 1 && etag.endsWith("\"")) {
+			return etag.substring(0, etag.length() - 1) + "-gzip\"";
+		}
+		return etag + "-gzip";
+	}
+
+	@Override
+	public void setMimeType(String mimeType) {
+		original.setMimeType(mimeType);
+	}
+
+	@Override
+	public String getMimeType() {
+		return original.getMimeType();
+	}
+
+	@Override
+	public InputStream getInputStream() {
+		return new ByteArrayInputStream(gzipped);
+	}
+
+	@Override
+	public byte[] getContent() {
+		return gzipped;
+	}
+
+	@Override
+	public long getCreation() {
+		return original.getCreation();
+	}
+
+	@Override
+	public URL getURL() {
+		return original.getURL();
+	}
+
+	@Override
+	public URL getCodeBase() {
+		return original.getCodeBase();
+	}
+
+	@Override
+	public WebResourceRoot getWebResourceRoot() {
+		return original.getWebResourceRoot();
+	}
+
+	@Override
+	public Certificate[] getCertificates() {
+		return original.getCertificates();
+	}
+
+	@Override
+	public Manifest getManifest() {
+		return original.getManifest();
+	}
+
+}
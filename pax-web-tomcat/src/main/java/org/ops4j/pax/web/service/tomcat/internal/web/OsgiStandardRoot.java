@@ -40,6 +40,9 @@ import org.apache.catalina.webresources.EmptyResource;
 import org.apache.catalina.webresources.FileResource;
 import org.apache.catalina.webresources.StandardRoot;
 import org.apache.juli.logging.Log;
+import org.ops4j.pax.web.service.spi.model.OsgiContextModel;
+import org.ops4j.pax.web.service.spi.util.CompressedContentCache;
+import org.ops4j.pax.web.service.spi.util.ResourceCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -47,6 +50,12 @@ class OsgiStandardRoot extends StandardRoot {
 
 	public static final Logger LOG = LoggerFactory.getLogger(OsgiStandardRoot.class);
 
+	/**
+	 * Suffix of the path under which gzipped variant of a resource is available. It contains NUL character,
+	 * so it never comes from a request (Tomcat rejects such URIs).
+	 */
+	static final String GZIP_VARIANT_SUFFIX = "\0gzip";
+
 	private final ServletContext osgiScopedServletContext;
 
 	private final File baseDirectory;
@@ -54,20 +63,89 @@ class OsgiStandardRoot extends StandardRoot {
 	private final WebResourceRoot root;
 	private final int maxEntrySize;
 
+	private final ResourceCache resourceCache;
+	private final CompressedContentCache compressedCache;
+	private final OsgiContextModel contextModel;
+	private final String servletName;
+
 	OsgiStandardRoot(WebResourceRoot root, File baseDirectory, String chroot, ServletContext osgiScopedServletContext, int maxEntrySize) {
+		this(root, baseDirectory, chroot, osgiScopedServletContext, maxEntrySize, null, null, null, null);
+	}
+
+	/**
+	 * Creates {@link StandardRoot} which (if {@code resourceCache} is specified) provides the content of file
+	 * resources from {@link ResourceCache}. If {@code compressedCache} is specified, gzipped variants of
+	 * resources are available under paths ending with {@link #GZIP_VARIANT_SUFFIX}.
+	 */
+	OsgiStandardRoot(WebResourceRoot root, File baseDirectory, String chroot, ServletContext osgiScopedServletContext,
+			int maxEntrySize, ResourceCache resourceCache, CompressedContentCache compressedCache,
+			OsgiContextModel contextModel, String servletName) {
 		super(root.getContext());
 		this.root = root;
 		this.baseDirectory = baseDirectory;
 		this.chroot = chroot;
 		this.osgiScopedServletContext = osgiScopedServletContext;
-		this.maxEntrySize = maxEntrySize;
+		// with shared cache, there's no need to read the content when resolving the resource
+		this.maxEntrySize = resourceCache == null ? maxEntrySize : 0;
+		this.resourceCache = resourceCache;
+		this.compressedCache = compressedCache;
+		this.contextModel = contextModel;
+		this.servletName = servletName;
+	}
+
+	@Override
+	public WebResource getResource(String path) {
+		if (compressedCache != null && path != null && path.endsWith(GZIP_VARIANT_SUFFIX)) {
+			return gzipVariant(path);
+		}
+		return super.getResource(path);
+	}
+
+	/**
+	 * Returns gzipped variant of a resource (compressed once and then taken from {@link CompressedContentCache})
+	 * @param path
+	 * @return
+	 */
+	private WebResource gzipVariant(String path) {
+		WebResource original = super.getResource(path.substring(0, path.length() - GZIP_VARIANT_SUFFIX.length()));
+		URL url = original.getURL();
+		if (original.isFile() && url != null) {
+			String mimeType = original.getMimeType();
+			if (mimeType == null) {
+				mimeType = osgiScopedServletContext.getMimeType(original.getName());
+			}
+			if (compressedCache.isCompressible(mimeType, original.getContentLength())) {
+				try {
+					byte[] gzipped = compressedCache.getGzipped(url.toExternalForm(), original.getETag(),
+							original::getInputStream);
+					if (gzipped != null) {
+						return new GzipWebResource(original, gzipped);
+					}
+				} catch (IOException e) {
+					LOG.debug("Can't compress content of {}: {}", url, e.getMessage());
+				}
+			}
+		}
+		return new EmptyResource(this, path);
+	}
+
+	private WebResource cached(WebResource resource) {
+		if (resourceCache == null || !resource.isFile()) {
+			return resource;
+		}
+		return new CachingWebResource(resource, resourceCache, contextModel, servletName);
 	}
 
 	@Override
 	protected WebResourceSet createMainResourceSet() {
 		if (baseDirectory != null) {
 			// directory based resource (Pax Web special)
-			return new DirResourceSet(this, "/", baseDirectory.getAbsolutePath(), "/");
+			return new DirResourceSet(this, "/", baseDirectory.getAbsolutePath(), "/") {
+				@Override
+				public WebResource getResource(String path) {
+					return cached(super.getResource(path));
+				}
+			};
 		} else {
 			// HttpService / Whiteboard case - resources are fetched from root or subdir of a bundle
 			// through ServletContext.getResource() -> ServletContextHelper.getResource()
@@ -120,7 +198,7 @@ class OsgiStandardRoot extends StandardRoot {
 						try {
 							File file = new File(resource.toURI());
 							if (file.isFile() || file.isDirectory()) {
-								return new FileResource(root, fullPath, file, true, null);
+								return cached(new FileResource(root, fullPath, file, true, null));
 							}
 							return new EmptyResource(root, path);
 						} catch (URISyntaxException e) {
@@ -157,7 +235,7 @@ class OsgiStandardRoot extends StandardRoot {
 					}
 
 					try {
-						return new UrlResource(OsgiStandardRoot.this, resource, fullPath, maxEntrySize);
+						return cached(new UrlResource(OsgiStandardRoot.this, resource, fullPath, maxEntrySize));
 					} catch (IOException e) {
 						LOG.warn(e.getMessage(), e);
 						return new EmptyResource(root, path);
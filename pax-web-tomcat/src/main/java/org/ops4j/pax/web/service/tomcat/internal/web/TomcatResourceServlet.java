@@ -17,6 +17,9 @@ package org.ops4j.pax.web.service.tomcat.internal.web;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import javax.servlet.DispatcherType;
 import javax.servlet.RequestDispatcher;
 import javax.servlet.ServletContext;
@@ -28,9 +31,12 @@ import org.apache.catalina.LifecycleException;
 import org.apache.catalina.WebResource;
 import org.apache.catalina.servlets.DefaultServlet;
 import org.ops4j.pax.web.service.spi.config.ResourceConfiguration;
+import org.ops4j.pax.web.service.spi.model.OsgiContextModel;
 import org.ops4j.pax.web.service.spi.servlet.OsgiScopedServletContext;
 import org.ops4j.pax.web.service.spi.servlet.OsgiServletContext;
+import org.ops4j.pax.web.service.spi.util.CompressedContentCache;
 import org.ops4j.pax.web.service.spi.util.Path;
+import org.ops4j.pax.web.service.spi.util.ResourceCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -53,15 +59,28 @@ public class TomcatResourceServlet extends DefaultServlet {
 
 	private final ResourceConfiguration resourceConfig;
 
+	/** Cache shared by all resource servlets of the server. If {@code null}, Tomcat's own cache is used. */
+	private final ResourceCache resourceCache;
+
+	/** Cache of on-the-fly compressed variants of resources. If {@code null}, resources are not compressed. */
+	private final CompressedContentCache compressedCache;
+
 	private String[] welcomeFiles;
 
 	private boolean redirectWelcome = false;
 	private boolean pathInfoOnly = true;
 
 	public TomcatResourceServlet(File baseDirectory, String chroot, ResourceConfiguration resourceConfig) {
+		this(baseDirectory, chroot, resourceConfig, null, null);
+	}
+
+	public TomcatResourceServlet(File baseDirectory, String chroot, ResourceConfiguration resourceConfig,
+			ResourceCache resourceCache, CompressedContentCache compressedCache) {
 		this.baseDirectory = baseDirectory;
 		this.chroot = chroot;
 		this.resourceConfig = resourceConfig;
+		this.resourceCache = resourceCache;
+		this.compressedCache = compressedCache;
 	}
 
 	/**
@@ -103,21 +122,40 @@ public class TomcatResourceServlet extends DefaultServlet {
 				? (int) resources.getCacheMaxSize() / 20 : resourceConfig.maxCacheEntrySize();
 
 		// and tweak org.apache.catalina.servlets.DefaultServlet.resources
-		resources = new OsgiStandardRoot(this.resources, baseDirectory, chroot, osgiScopedServletContext, maxEntrySize * 1024);
+		resources = new OsgiStandardRoot(this.resources, baseDirectory, chroot, osgiScopedServletContext,
+				maxEntrySize * 1024, resourceCache, compressedCache, getOsgiContextModel(), getServletName());
+
+		// org.apache.catalina.servlets.DefaultServlet.compressionFormats - ".br"/".gz" siblings are found by
+		// Tomcat itself and on-the-fly compressed variants are provided by OsgiStandardRoot under special path
+		List<CompressionFormat> formats = new ArrayList<>(Arrays.asList(compressionFormats));
+		if (formats.isEmpty() && resourceConfig != null && resourceConfig.precompressed()) {
+			formats.add(new CompressionFormat(".br", "br"));
+			formats.add(new CompressionFormat(".gz", "gzip"));
+		}
+		if (compressedCache != null) {
+			formats.add(new CompressionFormat(OsgiStandardRoot.GZIP_VARIANT_SUFFIX, "gzip"));
+		}
+		compressionFormats = formats.toArray(new CompressionFormat[0]);
 
 		resources.setCachingAllowed(true);
 		// org.apache.catalina.webresources.Cache.maxSize
 		resources.setCacheMaxSize(resourceConfig == null || resourceConfig.maxTotalCacheSize() == null
 				? 10 * 1024 : resourceConfig.maxTotalCacheSize());
-		// org.apache.catalina.webresources.Cache.objectMaxSize
-		resources.setCacheObjectMaxSize(maxEntrySize);
+		// org.apache.catalina.webresources.Cache.objectMaxSize - when using shared cache, Tomcat's cache
+		// keeps only metadata of the resources
+		resources.setCacheObjectMaxSize(resourceCache == null ? maxEntrySize : 0);
 		// org.apache.catalina.webresources.Cache.ttl
 		resources.setCacheTtl(resourceConfig == null || resourceConfig.maxCacheTTL() == null
 				? 5000 : resourceConfig.maxCacheTTL());
 
-		LOG.info("Initialized Tomcat Resource Servlet for base=\"{}\" with cache maxSize={}kB, maxEntrySize={}kB, TTL={}ms",
-				baseDirectory != null ? baseDirectory : chroot,
-				resources.getCacheMaxSize(), resources.getCacheObjectMaxSize(), resources.getCacheTtl());
+		if (resourceCache != null) {
+			LOG.info("Initialized Tomcat Resource Servlet for base=\"{}\" using shared resource cache, metadata TTL={}ms",
+					baseDirectory != null ? baseDirectory : chroot, resources.getCacheTtl());
+		} else {
+			LOG.info("Initialized Tomcat Resource Servlet for base=\"{}\" with cache maxSize={}kB, maxEntrySize={}kB, TTL={}ms",
+					baseDirectory != null ? baseDirectory : chroot,
+					resources.getCacheMaxSize(), resources.getCacheObjectMaxSize(), resources.getCacheTtl());
+		}
 
 		if (welcomeFiles == null) {
 			if (osgiScopedServletContext instanceof OsgiScopedServletContext) {
@@ -139,6 +177,25 @@ public class TomcatResourceServlet extends DefaultServlet {
 		}
 	}
 
+	@Override
+	public void destroy() {
+		if (resourceCache != null) {
+			// other resource servlets of the same context still use their entries
+			resourceCache.invalidate(getOsgiContextModel(), getServletName());
+		}
+		super.destroy();
+	}
+
+	private OsgiContextModel getOsgiContextModel() {
+		ServletContext context = getServletContext();
+		if (context instanceof OsgiScopedServletContext) {
+			return ((OsgiScopedServletContext) context).getOsgiContextModel();
+		} else if (context instanceof OsgiServletContext) {
+			return ((OsgiServletContext) context).getOsgiContextModel();
+		}
+		return null;
+	}
+
 	@Override
 	protected void serveResource(HttpServletRequest request, HttpServletResponse response, boolean content, String inputEncoding) throws IOException, ServletException {
 		// an override of this huge method is needed to handle welcome files
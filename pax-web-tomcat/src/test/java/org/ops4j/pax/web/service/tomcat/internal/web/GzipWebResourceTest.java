@@ -0,0 +1,43 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.tomcat.internal.web;
+
+import org.apache.catalina.WebResource;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class GzipWebResourceTest {
+
+	@Test
+	public void gzippedResourceHasDistinctETag() {
+		assertThat(gzipped("W/\"42-1600000000000\"").getETag(), equalTo("W/\"42-1600000000000-gzip\""));
+		assertThat(gzipped("\"abc\"").getETag(), equalTo("\"abc-gzip\""));
+		assertThat(gzipped("abc").getETag(), equalTo("abc-gzip"));
+		assertThat(gzipped(null).getETag(), nullValue());
+	}
+
+	private GzipWebResource gzipped(String etag) {
+		WebResource original = mock(WebResource.class);
+		when(original.getETag()).thenReturn(etag);
+		return new GzipWebResource(original, new byte[0]);
+	}
+
+}
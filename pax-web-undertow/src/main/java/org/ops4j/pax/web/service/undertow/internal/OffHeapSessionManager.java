@@ -0,0 +1,314 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.undertow.internal;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.session.Session;
+import io.undertow.server.session.SessionConfig;
+import io.undertow.server.session.SessionListener;
+import io.undertow.server.session.SessionListeners;
+import io.undertow.server.session.SessionManager;
+import io.undertow.server.session.SessionManagerStatistics;
+import io.undertow.servlet.api.SessionManagerFactory;
+import io.undertow.util.AttachmentKey;
+import org.ops4j.pax.web.service.spi.session.SessionAttributeStorage;
+import org.ops4j.pax.web.service.spi.session.SessionAttributes;
+
+/**
+ * <p>{@link SessionManager} which keeps session attributes in {@link SessionAttributes} obtained from
+ * {@link SessionAttributeStorage}. Sessions themselves (IDs, timeouts, invalidation) are managed by delegate
+ * manager (usually {@link io.undertow.server.session.InMemorySessionManager}), which doesn't store any attributes.</p>
+ *
+ * <p>Attribute events are sent by this manager, session lifecycle events of the delegate manager are passed
+ * to the listeners with the sessions of this manager.</p>
+ */
+public class OffHeapSessionManager implements SessionManager {
+
+	/** Sessions obtained during a request - their attributes are released when the exchange completes */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static final AttachmentKey<Set<OffHeapSession>> ACCESSED_SESSIONS = (AttachmentKey) AttachmentKey.create(Set.class);
+
+	private final SessionManager delegate;
+	private final SessionAttributeStorage storage;
+
+	private final SessionListeners listeners = new SessionListeners();
+
+	/** Sessions by current ID */
+	private final Map<String, OffHeapSession> sessions = new ConcurrentHashMap<>();
+
+	public OffHeapSessionManager(SessionManager delegate, SessionAttributeStorage storage) {
+		this.delegate = delegate;
+		this.storage = storage;
+		this.delegate.registerSessionListener(new DelegateSessionListener());
+	}
+
+	/**
+	 * Returns {@link SessionManagerFactory} which wraps managers of given factory.
+	 * @param delegate
+	 * @param storage
+	 * @return
+	 */
+	public static SessionManagerFactory factory(SessionManagerFactory delegate, SessionAttributeStorage storage) {
+		return deployment -> new OffHeapSessionManager(delegate.createSessionManager(deployment), storage);
+	}
+
+	@Override
+	public String getDeploymentName() {
+		return delegate.getDeploymentName();
+	}
+
+	@Override
+	public void start() {
+		delegate.start();
+	}
+
+	@Override
+	public void stop() {
+		delegate.stop();
+		sessions.values().forEach(s -> s.attributes.clear());
+		sessions.clear();
+	}
+
+	@Override
+	public Session createSession(HttpServerExchange exchange, SessionConfig sessionCookieConfig) {
+		return accessed(exchange, wrap(delegate.createSession(exchange, sessionCookieConfig)));
+	}
+
+	@Override
+	public Session getSession(HttpServerExchange exchange, SessionConfig sessionCookieConfig) {
+		Session session = delegate.getSession(exchange, sessionCookieConfig);
+		return session == null ? null : accessed(exchange, wrap(session));
+	}
+
+	@Override
+	public Session getSession(String sessionId) {
+		Session session = delegate.getSession(sessionId);
+		return session == null ? null : wrap(session);
+	}
+
+	@Override
+	public void registerSessionListener(SessionListener listener) {
+		listeners.addSessionListener(listener);
+	}
+
+	@Override
+	public void removeSessionListener(SessionListener listener) {
+		listeners.removeSessionListener(listener);
+	}
+
+	@Override
+	public void setDefaultSessionTimeout(int timeout) {
+		delegate.setDefaultSessionTimeout(timeout);
+	}
+
+	@Override
+	public Set<String> getTransientSessions() {
+		return delegate.getTransientSessions();
+	}
+
+	@Override
+	public Set<String> getActiveSessions() {
+		return delegate.getActiveSessions();
+	}
+
+	@Override
+	public Set<String> getAllSessions() {
+		return delegate.getAllSessions();
+	}
+
+	@Override
+	public SessionManagerStatistics getStatistics() {
+		return delegate.getStatistics();
+	}
+
+	private OffHeapSession wrap(Session session) {
+		OffHeapSession wrapper = sessions.get(session.getId());
+		if (wrapper == null || wrapper.delegate != session) {
+			// attributes of replaced wrapper (if any) will be freed when it's garbage collected
+			wrapper = sessions.merge(session.getId(), new OffHeapSession(session),
+					(existing, created) -> existing.delegate == session ? existing : created);
+		}
+		return wrapper;
+	}
+
+	/**
+	 * Marks the session as used by the request, so its attributes are released when the exchange completes.
+	 * @param exchange
+	 * @param session
+	 * @return
+	 */
+	private OffHeapSession accessed(HttpServerExchange exchange, OffHeapSession session) {
+		if (exchange == null) {
+			return session;
+		}
+		Set<OffHeapSession> accessed = exchange.getAttachment(ACCESSED_SESSIONS);
+		if (accessed == null) {
+			accessed = Collections.newSetFromMap(new IdentityHashMap<>());
+			exchange.putAttachment(ACCESSED_SESSIONS, accessed);
+			final Set<OffHeapSession> released = accessed;
+			exchange.addExchangeCompleteListener((ex, nextListener) -> {
+				try {
+					released.forEach(s -> s.attributes.release());
+				} finally {
+					nextListener.proceed();
+				}
+			});
+		}
+		if (accessed.add(session)) {
+			session.attributes.access();
+		}
+		return session;
+	}
+
+	/**
+	 * {@link Session} of the delegate manager with attributes kept in {@link SessionAttributes}.
+	 */
+	class OffHeapSession implements Session {
+
+		private final Session delegate;
+		private final SessionAttributes attributes;
+
+		OffHeapSession(Session delegate) {
+			this.delegate = delegate;
+			this.attributes = storage.createAttributes();
+		}
+
+		SessionAttributes getAttributes() {
+			return attributes;
+		}
+
+		@Override
+		public String getId() {
+			return delegate.getId();
+		}
+
+		@Override
+		public void requestDone(HttpServerExchange exchange) {
+			delegate.requestDone(exchange);
+		}
+
+		@Override
+		public long getCreationTime() {
+			return delegate.getCreationTime();
+		}
+
+		@Override
+		public long getLastAccessedTime() {
+			return delegate.getLastAccessedTime();
+		}
+
+		@Override
+		public void setMaxInactiveInterval(int interval) {
+			delegate.setMaxInactiveInterval(interval);
+		}
+
+		@Override
+		public int getMaxInactiveInterval() {
+			return delegate.getMaxInactiveInterval();
+		}
+
+		@Override
+		public Object getAttribute(String name) {
+			// checks validity of the session and extends its lifetime
+			delegate.getAttribute(name);
+			return attributes.get(name);
+		}
+
+		@Override
+		public Set<String> getAttributeNames() {
+			delegate.getAttributeNames();
+			return attributes.keySet();
+		}
+
+		@Override
+		public Object setAttribute(String name, Object value) {
+			if (value == null) {
+				return removeAttribute(name);
+			}
+			delegate.getAttribute(name);
+			Object existing = attributes.put(name, value);
+			if (existing == null) {
+				listeners.attributeAdded(this, name, value);
+			} else {
+				listeners.attributeUpdated(this, name, value, existing);
+			}
+			return existing;
+		}
+
+		@Override
+		public Object removeAttribute(String name) {
+			delegate.getAttribute(name);
+			Object existing = attributes.remove(name);
+			listeners.attributeRemoved(this, name, existing);
+			return existing;
+		}
+
+		@Override
+		public void invalidate(HttpServerExchange exchange) {
+			delegate.invalidate(exchange);
+		}
+
+		@Override
+		public SessionManager getSessionManager() {
+			return OffHeapSessionManager.this;
+		}
+
+		@Override
+		public String changeSessionId(HttpServerExchange exchange, SessionConfig config) {
+			return delegate.changeSessionId(exchange, config);
+		}
+	}
+
+	/**
+	 * Passes session lifecycle events of the delegate manager to the listeners of this manager.
+	 */
+	private class DelegateSessionListener implements SessionListener {
+
+		@Override
+		public void sessionCreated(Session session, HttpServerExchange exchange) {
+			listeners.sessionCreated(wrap(session), exchange);
+		}
+
+		@Override
+		public void sessionDestroyed(Session session, HttpServerExchange exchange, SessionDestroyedReason reason) {
+			OffHeapSession wrapper = wrap(session);
+			try {
+				listeners.sessionDestroyed(wrapper, exchange, reason);
+			} finally {
+				sessions.remove(wrapper.getId(), wrapper);
+				wrapper.attributes.clear();
+			}
+		}
+
+		@Override
+		public void sessionIdChanged(Session session, String oldSessionId) {
+			OffHeapSession wrapper = sessions.remove(oldSessionId);
+			if (wrapper != null && wrapper.delegate == session) {
+				sessions.put(session.getId(), wrapper);
+			} else {
+				wrapper = wrap(session);
+			}
+			listeners.sessionIdChanged(wrapper, oldSessionId);
+		}
+	}
+
+}
@@ -27,6 +27,7 @@ import org.ops4j.pax.web.service.spi.model.elements.FilterModel;
 import org.ops4j.pax.web.service.spi.servlet.OsgiInitializedFilter;
 import org.ops4j.pax.web.service.spi.servlet.OsgiScopedServletContext;
 import org.ops4j.pax.web.service.spi.servlet.OsgiServletContext;
+import org.ops4j.pax.web.service.spi.servlet.RegexFilterMatcher;
 import org.ops4j.pax.web.service.spi.servlet.ScopedFilter;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceObjects;
@@ -47,6 +48,8 @@ public class PaxWebFilterInfo extends FilterInfo {
 
 	private boolean whiteboardTCCL;
 
+	private RegexFilterMatcher regexFilterMatcher;
+
 	public PaxWebFilterInfo(FilterModel model, OsgiServletContext osgiServletContext,
 			boolean whiteboardTCCL) {
 		super(model.getName(), model.getActualClass(),
@@ -69,8 +72,9 @@ public class PaxWebFilterInfo extends FilterInfo {
 
 	@Override
 	public FilterInfo clone() {
-		final FilterInfo info = new PaxWebFilterInfo(this.filterModel, this.osgiServletContext,
+		final PaxWebFilterInfo info = new PaxWebFilterInfo(this.filterModel, this.osgiServletContext,
 				this.whiteboardTCCL);
+		info.setRegexFilterMatcher(regexFilterMatcher);
 
 		info.setAsyncSupported(isAsyncSupported());
 		getInitParams().forEach(info::addInitParam);
@@ -82,6 +86,11 @@ public class PaxWebFilterInfo extends FilterInfo {
 		return filterModel;
 	}
 
+	public void setRegexFilterMatcher(RegexFilterMatcher regexFilterMatcher) {
+		this.regexFilterMatcher = regexFilterMatcher;
+		((FilterModelFactory) getInstanceFactory()).regexFilterMatcher = regexFilterMatcher;
+	}
+
 	/**
 	 * An {@link InstanceFactory} that returns {@link Filter filter instance} from {@link FilterModel}.
 	 */
@@ -93,6 +102,8 @@ public class PaxWebFilterInfo extends FilterInfo {
 
 		private final boolean whiteboardTCCL;
 
+		private RegexFilterMatcher regexFilterMatcher;
+
 		FilterModelFactory(FilterModel model, OsgiScopedServletContext osgiScopedServletContext, boolean whiteboardTCCL) {
 			this.model = model;
 			this.osgiScopedServletContext = osgiScopedServletContext;
@@ -131,7 +142,8 @@ public class PaxWebFilterInfo extends FilterInfo {
 				}
 			}
 
-			Filter osgiInitializedFilter = new OsgiInitializedFilter(instance, model, this.osgiScopedServletContext, whiteboardTCCL);
+			OsgiInitializedFilter osgiInitializedFilter = new OsgiInitializedFilter(instance, model, this.osgiScopedServletContext, whiteboardTCCL);
+			osgiInitializedFilter.setRegexFilterMatcher(regexFilterMatcher);
 			Filter scopedFilter = new ScopedFilter(osgiInitializedFilter, model);
 
 			return new ImmediateInstanceHandle<Filter>(scopedFilter) {
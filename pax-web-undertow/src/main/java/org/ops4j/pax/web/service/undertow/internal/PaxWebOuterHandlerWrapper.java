@@ -15,9 +15,13 @@
  */
 package org.ops4j.pax.web.service.undertow.internal;
 
+import javax.servlet.DispatcherType;
+import javax.servlet.RequestDispatcher;
 import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
 
+import io.undertow.server.DefaultResponseListener;
+import io.undertow.server.ExchangeCompletionListener;
 import io.undertow.server.HandlerWrapper;
 import io.undertow.server.HttpHandler;
 import io.undertow.server.HttpServerExchange;
@@ -26,7 +30,9 @@ import io.undertow.servlet.api.ServletInfo;
 import io.undertow.servlet.handlers.ServletRequestContext;
 import io.undertow.util.Headers;
 import io.undertow.util.StatusCodes;
+import org.ops4j.pax.web.service.spi.metrics.RequestMetrics;
 import org.ops4j.pax.web.service.spi.model.OsgiContextModel;
+import org.ops4j.pax.web.service.spi.model.elements.ServletModel;
 import org.ops4j.pax.web.service.spi.servlet.OsgiHttpServletRequestWrapper;
 import org.ops4j.pax.web.service.spi.servlet.OsgiServletContext;
 import org.ops4j.pax.web.service.spi.servlet.OsgiSessionAttributeListener;
@@ -37,18 +43,32 @@ import org.ops4j.pax.web.service.spi.servlet.OsgiSessionAttributeListener;
  */
 public class PaxWebOuterHandlerWrapper implements HandlerWrapper {
 
+	/**
+	 * Single, stateless listener clearing the session ID data passed to {@link PaxWebSessionIdGenerator}, so we
+	 * don't create new listener for each request.
+	 */
+	private static final ExchangeCompletionListener CLEAR_SESSION_ID_DATA = (exchange, nextListener) -> {
+		PaxWebSessionIdGenerator.sessionIdPrefix.set(null);
+		PaxWebSessionIdGenerator.cookieSessionId.set(null);
+		nextListener.proceed();
+	};
+
 	/** Default {@link ServletContext} to use for chains without target servlet (e.g., filters only) */
 	private OsgiServletContext defaultServletContext;
 
 	private final OsgiSessionAttributeListener osgiSessionsBridge;
 
+	/** Request metrics shared by all the contexts - if enabled */
+	private final RequestMetrics requestMetrics;
+
 	// as in org.eclipse.jetty.server.handler.ContextHandler._vhosts, _vhostswildcard and _vconnectors
 	private String[] virtualHosts;
 	private boolean[] virtualHostWildcards;
 	private String[] connectorNames;
 
-	public PaxWebOuterHandlerWrapper(OsgiSessionAttributeListener osgiSessionsBridge) {
+	public PaxWebOuterHandlerWrapper(OsgiSessionAttributeListener osgiSessionsBridge, RequestMetrics requestMetrics) {
 		this.osgiSessionsBridge = osgiSessionsBridge;
+		this.requestMetrics = requestMetrics;
 	}
 
 	@Override
@@ -89,8 +109,10 @@ public class PaxWebOuterHandlerWrapper implements HandlerWrapper {
 				ServletInfo servletInfo = context.getCurrentServlet().getManagedServlet().getServletInfo();
 
 				OsgiContextModel osgiContextModel = null;
+				ServletModel servletModel = null;
 				if (servletInfo instanceof PaxWebServletInfo) {
 					PaxWebServletInfo paxWebServletInfo = (PaxWebServletInfo) servletInfo;
+					servletModel = paxWebServletInfo.getServletModel();
 
 					HttpServletRequest req;
 					if (!paxWebServletInfo.is404()) {
@@ -109,9 +131,9 @@ public class PaxWebOuterHandlerWrapper implements HandlerWrapper {
 
 				// attachment is such a great place to pass information down the request handling thread...
 				// unfortunately session manipulation methods can't access the exchange
+				// the prefix is precomputed in OsgiContextModel, so there's no per-request allocation
 				if (osgiContextModel != null) {
-					String sessionIdPrefix = osgiContextModel.getTemporaryLocation().replaceAll("/", "_");
-					PaxWebSessionIdGenerator.sessionIdPrefix.set(sessionIdPrefix);
+					PaxWebSessionIdGenerator.sessionIdPrefix.set(osgiContextModel.getSessionIdPrefix());
 					String sessionCookie = context.getCurrentServletContext().getSessionCookieConfig().getName();
 					Cookie cookie = exchange.getRequestCookie(sessionCookie);
 					if (cookie != null) {
@@ -119,17 +141,54 @@ public class PaxWebOuterHandlerWrapper implements HandlerWrapper {
 					}
 				}
 
-				exchange.addExchangeCompleteListener((exchange1, nextListener) -> {
-					PaxWebSessionIdGenerator.sessionIdPrefix.set(null);
-					PaxWebSessionIdGenerator.cookieSessionId.set(null);
-					nextListener.proceed();
-				});
+				exchange.addExchangeCompleteListener(CLEAR_SESSION_ID_DATA);
+
+				// metrics are recorded only for initial dispatch and the request ends when the exchange completes
+				// (also for asynchronous processing)
+				final boolean[] failed = requestMetrics != null
+						&& incomingRequest.getDispatcherType() == DispatcherType.REQUEST ? new boolean[] { false } : null;
+				if (failed != null) {
+					final OsgiContextModel metricsContext = osgiContextModel;
+					final ServletModel metricsServlet = servletModel;
+					final long start = requestMetrics.begin(metricsContext, metricsServlet);
+					exchange.addExchangeCompleteListener((ex, nextListener) -> {
+						requestMetrics.end(metricsContext, metricsServlet, start, ex.getStatusCode(),
+								failed[0] || endedWithException(ex));
+						nextListener.proceed();
+					});
+				}
+
 				// just proceed
-				handler.handleRequest(exchange);
+				try {
+					handler.handleRequest(exchange);
+				} catch (Exception | Error e) {
+					// io.undertow.servlet.handlers.ServletInitialHandler handles it after we rethrow it, so
+					// the exchange is not yet completed
+					if (failed != null) {
+						failed[0] = true;
+					}
+					throw e;
+				}
 			}
 		};
 	}
 
+	/**
+	 * Checks whether the exchange ended with an exception not thrown from this wrapper - for example during
+	 * asynchronous processing.
+	 *
+	 * @param exchange
+	 * @return
+	 */
+	private static boolean endedWithException(HttpServerExchange exchange) {
+		if (exchange.getAttachment(DefaultResponseListener.EXCEPTION) != null) {
+			return true;
+		}
+		ServletRequestContext context = exchange.getAttachment(ServletRequestContext.ATTACHMENT_KEY);
+		return context != null && context.getOriginalRequest() != null
+				&& context.getOriginalRequest().getAttribute(RequestDispatcher.ERROR_EXCEPTION) != null;
+	}
+
 	public OsgiServletContext getDefaultServletContext() {
 		return defaultServletContext;
 	}
@@ -15,10 +15,7 @@
  */
 package org.ops4j.pax.web.service.undertow.internal;
 
-import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.stream.Collectors;
 import javax.servlet.FilterChain;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletRequest;
@@ -30,7 +27,8 @@ import io.undertow.server.HandlerWrapper;
 import io.undertow.server.HttpHandler;
 import io.undertow.server.HttpServerExchange;
 import io.undertow.servlet.handlers.ServletRequestContext;
-import org.ops4j.pax.web.service.spi.servlet.OsgiFilterChain;
+import org.ops4j.pax.web.service.spi.metrics.FilterChainTiming;
+import org.ops4j.pax.web.service.spi.servlet.OsgiFilterChainTemplate;
 import org.ops4j.pax.web.service.spi.servlet.PreprocessorFilterConfig;
 import org.osgi.service.http.whiteboard.Preprocessor;
 
@@ -43,9 +41,9 @@ public class PaxWebPreprocessorsHandler implements HandlerWrapper {
 	/**
 	 * {@link Preprocessor} are registered as filters, but without particular target
 	 * {@link org.ops4j.pax.web.service.spi.servlet.OsgiServletContext}, so they're effectively registered in
-	 * all available physical servlet contexts.
+	 * all available physical servlet contexts. The configs are kept in shared chain template.
 	 */
-	private final List<PreprocessorFilterConfig> preprocessors = new LinkedList<>();
+	private final OsgiFilterChainTemplate chainTemplate = new OsgiFilterChainTemplate();
 
 	@Override
 	@SuppressWarnings("Convert2Lambda")
@@ -57,10 +55,8 @@ public class PaxWebPreprocessorsHandler implements HandlerWrapper {
 				HttpServletRequest incomingRequest = (HttpServletRequest) context.getServletRequest();
 				HttpServletResponse outgoingRequest = (HttpServletResponse) context.getServletResponse();
 
-				List<Preprocessor> preprocessorInstances = preprocessors.stream().map(PreprocessorFilterConfig::getInstance).collect(Collectors.toList());
-
 				final Exception[] ex = new Exception[] { null };
-				FilterChain chain = new OsgiFilterChain(new ArrayList<>(preprocessorInstances), null, null, new FilterChain() {
+				FilterChain chain = chainTemplate.createChain(null, null, new FilterChain() {
 					@Override
 					public void doFilter(ServletRequest request, ServletResponse response) {
 						// just proceed
@@ -80,8 +76,26 @@ public class PaxWebPreprocessorsHandler implements HandlerWrapper {
 		};
 	}
 
+	/**
+	 * Sets {@link FilterChainTiming} used by OSGi filter chains of this handler. Security checks, filters and
+	 * servlets are invoked within these chains, so they're timed too.
+	 * @param filterChainTiming may be {@code null}
+	 */
+	public void setFilterChainTiming(FilterChainTiming filterChainTiming) {
+		chainTemplate.setTiming(filterChainTiming);
+	}
+
 	public List<PreprocessorFilterConfig> getPreprocessors() {
-		return preprocessors;
+		return chainTemplate.getPreprocessors();
+	}
+
+	/**
+	 * Replaces all the preprocessors of this handler - chains created after this call will use new set of
+	 * preprocessors.
+	 * @param preprocessors
+	 */
+	public void setPreprocessors(List<PreprocessorFilterConfig> preprocessors) {
+		chainTemplate.setPreprocessors(preprocessors);
 	}
 
 }
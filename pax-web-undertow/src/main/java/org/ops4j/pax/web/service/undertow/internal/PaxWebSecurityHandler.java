@@ -15,6 +15,7 @@
  */
 package org.ops4j.pax.web.service.undertow.internal;
 
+import java.io.IOException;
 import javax.servlet.Servlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -25,6 +26,7 @@ import io.undertow.server.HttpServerExchange;
 import io.undertow.servlet.api.ServletInfo;
 import io.undertow.servlet.handlers.ServletRequestContext;
 import org.ops4j.pax.web.service.WebContainerContext;
+import org.ops4j.pax.web.service.spi.metrics.FilterChainTiming;
 import org.ops4j.pax.web.service.spi.model.OsgiContextModel;
 
 public class PaxWebSecurityHandler implements HandlerWrapper {
@@ -50,14 +52,17 @@ public class PaxWebSecurityHandler implements HandlerWrapper {
 					HttpServletResponse res = (HttpServletResponse) context.getServletResponse();
 
 					WebContainerContext webContext;
+					OsgiContextModel osgiContextModel;
 					if (!paxWebServletInfo.is404()) {
 						webContext = paxWebServletInfo.getWebContainerContext();
+						osgiContextModel = paxWebServletInfo.getOsgiContextModel();
 					} else {
 						webContext = defaultWebContainerContext;
+						osgiContextModel = defaultOsgiContextModel;
 					}
 
 					try {
-						if (webContext == null || webContext.handleSecurity(req, res)) {
+						if (webContext == null || handleSecurity(osgiContextModel, webContext, req, res)) {
 							// continue normally with normal filters and target servlet
 							handler.handleRequest(exchange);
 						} else {
@@ -81,6 +86,20 @@ public class PaxWebSecurityHandler implements HandlerWrapper {
 		};
 	}
 
+	private boolean handleSecurity(OsgiContextModel osgiContextModel, WebContainerContext webContext,
+			HttpServletRequest req, HttpServletResponse res) throws IOException {
+		FilterChainTiming.Sample sample = FilterChainTiming.current();
+		if (sample == null) {
+			return webContext.handleSecurity(req, res);
+		}
+		sample.enter();
+		try {
+			return webContext.handleSecurity(req, res);
+		} finally {
+			sample.exit(FilterChainTiming.securityElement(osgiContextModel, webContext));
+		}
+	}
+
 	public OsgiContextModel getDefaultOsgiContextModel() {
 		return defaultOsgiContextModel;
 	}
@@ -0,0 +1,299 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.undertow.internal;
+
+import java.util.AbstractMap;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.session.Session;
+import io.undertow.server.session.SessionListener;
+import io.undertow.servlet.api.SessionPersistenceManager;
+import org.ops4j.pax.web.service.spi.session.SessionStore;
+import org.ops4j.pax.web.service.spi.session.StoredSession;
+
+/**
+ * <p>{@link SessionPersistenceManager} backed by a {@link SessionStore}.</p>
+ *
+ * <p>Undertow calls {@link #persistSessions} only when a deployment is stopped, so sessions are additionally
+ * written (asynchronously, by the store) after every change detected by a {@link SessionListener} created
+ * for each deployment with {@link #createSessionListener(String)}. When a deployment is started, Undertow gets
+ * all the stored sessions, but their attributes are deserialized only when a session is accessed.</p>
+ *
+ * <p>Sessions which are only read don't trigger any {@link SessionListener} method, so their stored expiration
+ * is periodically refreshed from {@link Session#getLastAccessedTime()}. The stored expiration is ahead of the real
+ * one by {@link #EXPIRATION_SLACK}, so a session restored after a crash doesn't expire earlier than it should.</p>
+ */
+public class StoreSessionPersistence implements SessionPersistenceManager {
+
+	/** How often the expiration of read-only sessions is checked */
+	static final long REFRESH_INTERVAL = 10_000L;
+
+	/**
+	 * Stored expiration is ahead of the real one by this value - session is stored again when its real expiration
+	 * gets closer than half of this value to the stored one.
+	 */
+	static final long EXPIRATION_SLACK = 3 * REFRESH_INTERVAL;
+
+	private final SessionStore store;
+
+	private final Map<String, StoreSessionListener> listeners = new ConcurrentHashMap<>();
+
+	private final ScheduledExecutorService refresher;
+
+	public StoreSessionPersistence(SessionStore store) {
+		this.store = store;
+		this.refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "paxweb-session-refresh");
+			t.setDaemon(true);
+			return t;
+		});
+		this.refresher.scheduleWithFixedDelay(this::refreshExpirations, REFRESH_INTERVAL, REFRESH_INTERVAL,
+				TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Creates a {@link SessionListener} which has to be registered in the {@link io.undertow.servlet.api.DeploymentInfo}
+	 * of given deployment, so changed sessions are stored without waiting for the deployment to stop.
+	 * @param deploymentName
+	 * @return
+	 */
+	public SessionListener createSessionListener(String deploymentName) {
+		return listeners.computeIfAbsent(deploymentName, StoreSessionListener::new);
+	}
+
+	@Override
+	public void persistSessions(String deploymentName, Map<String, PersistentSession> sessionData) {
+		StoreSessionListener listener = listeners.get(deploymentName);
+		if (listener != null) {
+			// sessions will now be destroyed because of undeployment - they should stay in the store
+			listener.deactivate();
+		}
+		for (Map.Entry<String, PersistentSession> e : sessionData.entrySet()) {
+			Date expiration = e.getValue().getExpiration();
+			store.store(deploymentName, e.getKey(), expiration == null ? 0L : expiration.getTime(),
+					e.getValue().getSessionData());
+		}
+		store.flush();
+	}
+
+	@Override
+	public Map<String, PersistentSession> loadSessionAttributes(String deploymentName, ClassLoader classLoader) {
+		StoreSessionListener listener = listeners.get(deploymentName);
+		if (listener != null) {
+			listener.activate();
+		}
+		Map<String, PersistentSession> result = new LinkedHashMap<>();
+		for (String id : store.getSessionIds(deploymentName)) {
+			StoredSession session = store.load(deploymentName, id, classLoader);
+			if (session != null) {
+				Date expiration = new Date(session.getExpiration() <= 0L ? Long.MAX_VALUE : session.getExpiration());
+				result.put(id, new PersistentSession(expiration, new LazyAttributes(session)));
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public void clear(String deploymentName) {
+		// Undertow calls this method after loading the sessions, but the sessions are kept in the store until
+		// they're removed (invalidated or timed out)
+	}
+
+	/**
+	 * Writes pending changes and closes the underlying {@link SessionStore}.
+	 */
+	public void close() {
+		refresher.shutdownNow();
+		store.close();
+	}
+
+	/**
+	 * Stores again the sessions which were accessed (without changing the attributes) since they were stored, so
+	 * stored expiration doesn't fall behind the real one.
+	 */
+	void refreshExpirations() {
+		for (StoreSessionListener listener : listeners.values()) {
+			listener.refreshExpirations();
+		}
+	}
+
+	/**
+	 * {@link Map} of session attributes deserialized only when the map is accessed.
+	 */
+	private static class LazyAttributes extends AbstractMap<String, Object> {
+
+		private final StoredSession session;
+
+		LazyAttributes(StoredSession session) {
+			this.session = session;
+		}
+
+		@Override
+		public Set<Entry<String, Object>> entrySet() {
+			return session.getAttributes().entrySet();
+		}
+
+		@Override
+		public Object get(Object key) {
+			return session.getAttributes().get(key);
+		}
+	}
+
+	/**
+	 * Active session with its attributes and the expiration it was stored with.
+	 */
+	private static class TrackedSession {
+
+		private final Session session;
+		private final Map<String, Object> attributes;
+		private volatile long storedExpiration;
+
+		TrackedSession(Session session, Map<String, Object> attributes) {
+			this.session = session;
+			this.attributes = attributes;
+		}
+	}
+
+	/**
+	 * {@link SessionListener} which tracks the attributes of the sessions (without calling
+	 * {@link Session#getAttribute(String)}, which extends the lifetime of the session) and schedules writes of
+	 * changed sessions.
+	 */
+	private class StoreSessionListener implements SessionListener {
+
+		private final String deploymentName;
+
+		/** Active sessions, by session ID */
+		private final Map<String, TrackedSession> sessions = new ConcurrentHashMap<>();
+
+		private volatile boolean active = true;
+
+		StoreSessionListener(String deploymentName) {
+			this.deploymentName = deploymentName;
+		}
+
+		void activate() {
+			active = true;
+		}
+
+		void deactivate() {
+			active = false;
+			sessions.clear();
+		}
+
+		@Override
+		public void sessionCreated(Session session, HttpServerExchange exchange) {
+			if (active) {
+				// attributes kept by OffHeapSessionManager can be read without affecting the session
+				Map<String, Object> attributes = session instanceof OffHeapSessionManager.OffHeapSession
+						? ((OffHeapSessionManager.OffHeapSession) session).getAttributes() : new ConcurrentHashMap<>();
+				TrackedSession tracked = new TrackedSession(session, attributes);
+				sessions.put(session.getId(), tracked);
+				changed(tracked);
+			}
+		}
+
+		@Override
+		public void sessionDestroyed(Session session, HttpServerExchange exchange, SessionDestroyedReason reason) {
+			if (active && sessions.remove(session.getId()) != null && reason != SessionDestroyedReason.UNDEPLOY) {
+				store.remove(deploymentName, session.getId());
+			}
+		}
+
+		@Override
+		public void attributeAdded(Session session, String name, Object value) {
+			attributeUpdated(session, name, value, null);
+		}
+
+		@Override
+		public void attributeUpdated(Session session, String name, Object newValue, Object oldValue) {
+			TrackedSession tracked = active ? sessions.get(session.getId()) : null;
+			if (tracked != null) {
+				if (session instanceof OffHeapSessionManager.OffHeapSession) {
+					// already changed
+					changed(tracked);
+					return;
+				}
+				if (newValue == null) {
+					tracked.attributes.remove(name);
+				} else {
+					tracked.attributes.put(name, newValue);
+				}
+				changed(tracked);
+			}
+		}
+
+		@Override
+		public void attributeRemoved(Session session, String name, Object oldValue) {
+			attributeUpdated(session, name, null, oldValue);
+		}
+
+		@Override
+		public void sessionIdChanged(Session session, String oldSessionId) {
+			TrackedSession tracked = active ? sessions.remove(oldSessionId) : null;
+			if (tracked != null) {
+				TrackedSession renamed = new TrackedSession(session, tracked.attributes);
+				sessions.put(session.getId(), renamed);
+				store.remove(deploymentName, oldSessionId);
+				changed(renamed);
+			}
+		}
+
+		void refreshExpirations() {
+			if (!active) {
+				return;
+			}
+			for (TrackedSession tracked : sessions.values()) {
+				long expiration;
+				try {
+					expiration = expiration(tracked.session);
+				} catch (IllegalStateException e) {
+					// invalidated - will be removed by sessionDestroyed()
+					continue;
+				}
+				if (expiration > 0L && expiration + EXPIRATION_SLACK / 2 > tracked.storedExpiration) {
+					changed(tracked);
+				}
+			}
+		}
+
+		private void changed(TrackedSession tracked) {
+			long expiration = expiration(tracked.session);
+			long stored = expiration <= 0L ? 0L : expiration + EXPIRATION_SLACK;
+			tracked.storedExpiration = stored;
+			store.store(deploymentName, tracked.session.getId(), stored, tracked.attributes);
+		}
+
+		/**
+		 * Real expiration of the session.
+		 * @param session
+		 * @return {@code 0} if the session never expires
+		 */
+		private long expiration(Session session) {
+			int maxInactiveInterval = session.getMaxInactiveInterval();
+			return maxInactiveInterval <= 0 ? 0L : session.getLastAccessedTime() + maxInactiveInterval * 1000L;
+		}
+	}
+
+}
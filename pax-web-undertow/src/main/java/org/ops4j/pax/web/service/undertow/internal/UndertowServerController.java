@@ -27,9 +27,15 @@ import io.undertow.security.idm.IdentityManager;
 import org.ops4j.pax.web.service.spi.ServerController;
 import org.ops4j.pax.web.service.spi.ServerState;
 import org.ops4j.pax.web.service.spi.config.Configuration;
+import org.ops4j.pax.web.service.spi.metrics.FilterChainTiming;
+import org.ops4j.pax.web.service.spi.metrics.RequestMetrics;
 import org.ops4j.pax.web.service.spi.model.events.ServerEvent;
 import org.ops4j.pax.web.service.spi.model.events.ServerListener;
 import org.ops4j.pax.web.service.spi.task.Batch;
+import org.ops4j.pax.web.service.spi.util.AuthenticationCache;
+import org.ops4j.pax.web.service.spi.util.CompressedContentCache;
+import org.ops4j.pax.web.service.spi.util.LruResourceCache;
+import org.ops4j.pax.web.service.spi.util.ResourceCache;
 import org.ops4j.pax.web.service.undertow.internal.web.UndertowResourceServlet;
 import org.osgi.framework.Bundle;
 import org.slf4j.Logger;
@@ -59,6 +65,12 @@ public class UndertowServerController implements ServerController/*, IdentityMan
 	 */
 	private UndertowServerWrapper undertowServerWrapper;
 
+	/** Cache of static resource content shared by all resource servlets of this server */
+	private final ResourceCache resourceCache;
+
+	/** Cache of compressed resource variants, {@code null} if on-the-fly compression is disabled */
+	private final CompressedContentCache compressedCache;
+
 				private IdentityManager identityManager;
 
 	public UndertowServerController(Bundle paxWebUndertowBundle, ClassLoader classLoader,
@@ -70,6 +82,8 @@ public class UndertowServerController implements ServerController/*, IdentityMan
 		this.state = ServerState.UNCONFIGURED;
 
 		this.listeners = Collections.synchronizedSet(new LinkedHashSet<>());
+		this.resourceCache = LruResourceCache.create(configuration.resources());
+		this.compressedCache = CompressedContentCache.create(configuration.resources());
 	}
 
 	// --- lifecycle methods
@@ -118,6 +132,10 @@ public class UndertowServerController implements ServerController/*, IdentityMan
 		}
 
 		undertowServerWrapper.stop();
+		resourceCache.close();
+		if (compressedCache != null) {
+			compressedCache.clear();
+		}
 
 		state = ServerState.STOPPED;
 		notifyListeners(new ServerEvent(ServerEvent.State.STOPPED, null));
@@ -128,6 +146,21 @@ public class UndertowServerController implements ServerController/*, IdentityMan
 		return configuration;
 	}
 
+	@Override
+	public RequestMetrics getRequestMetrics() {
+		return undertowServerWrapper.getRequestMetrics();
+	}
+
+	@Override
+	public FilterChainTiming getFilterChainTiming() {
+		return undertowServerWrapper.getFilterChainTiming();
+	}
+
+	@Override
+	public AuthenticationCache<?> getAuthenticationCache() {
+		return undertowServerWrapper.getAuthenticationCache();
+	}
+
 	// --- listener related methods
 
 	@Override
@@ -164,7 +197,8 @@ public class UndertowServerController implements ServerController/*, IdentityMan
 		}
 		String chroot = baseDirectory == null ? base : null;
 
-		UndertowResourceServlet undertowResourceServlet = new UndertowResourceServlet(baseDirectory, chroot);
+		UndertowResourceServlet undertowResourceServlet = new UndertowResourceServlet(baseDirectory, chroot, resourceCache,
+				compressedCache, configuration.resources().precompressed());
 
 		// acces via "web root directory" - Pax Web special
 		Integer maxSize = configuration.resources().maxTotalCacheSize();
@@ -64,6 +64,8 @@ import io.undertow.Undertow;
 import io.undertow.connector.ByteBufferPool;
 import io.undertow.predicate.Predicate;
 import io.undertow.predicate.Predicates;
+import io.undertow.security.api.NotificationReceiver;
+import io.undertow.security.idm.Account;
 import io.undertow.security.idm.IdentityManager;
 import io.undertow.server.HttpHandler;
 import io.undertow.server.HttpServerExchange;
@@ -113,6 +115,8 @@ import org.ops4j.pax.web.service.AuthenticatorService;
 import org.ops4j.pax.web.service.spi.config.Configuration;
 import org.ops4j.pax.web.service.spi.config.LogConfiguration;
 import org.ops4j.pax.web.service.spi.config.SessionConfiguration;
+import org.ops4j.pax.web.service.spi.metrics.FilterChainTiming;
+import org.ops4j.pax.web.service.spi.metrics.RequestMetrics;
 import org.ops4j.pax.web.service.spi.model.ContextMetadataModel;
 import org.ops4j.pax.web.service.spi.model.OsgiContextModel;
 import org.ops4j.pax.web.service.spi.model.ServletContextModel;
@@ -139,7 +143,11 @@ import org.ops4j.pax.web.service.spi.servlet.OsgiServletContext;
 import org.ops4j.pax.web.service.spi.servlet.OsgiServletContextClassLoader;
 import org.ops4j.pax.web.service.spi.servlet.OsgiSessionAttributeListener;
 import org.ops4j.pax.web.service.spi.servlet.PreprocessorFilterConfig;
+import org.ops4j.pax.web.service.spi.servlet.RegexFilterMatcher;
 import org.ops4j.pax.web.service.spi.servlet.RegisteringContainerInitializer;
+import org.ops4j.pax.web.service.spi.session.LogSessionStore;
+import org.ops4j.pax.web.service.spi.session.OffHeapSessionAttributeStorage;
+import org.ops4j.pax.web.service.spi.session.SessionAttributeStorage;
 import org.ops4j.pax.web.service.spi.task.BatchVisitor;
 import org.ops4j.pax.web.service.spi.task.ClearDynamicRegistrationsChange;
 import org.ops4j.pax.web.service.spi.task.ContainerInitializerModelChange;
@@ -161,6 +169,7 @@ import org.ops4j.pax.web.service.spi.task.ServletModelChange;
 import org.ops4j.pax.web.service.spi.task.TransactionStateChange;
 import org.ops4j.pax.web.service.spi.task.WebSocketModelChange;
 import org.ops4j.pax.web.service.spi.task.WelcomeFileModelChange;
+import org.ops4j.pax.web.service.spi.util.AuthenticationCache;
 import org.ops4j.pax.web.service.spi.util.Utils;
 import org.ops4j.pax.web.service.undertow.PaxWebUndertowExtension;
 import org.ops4j.pax.web.service.undertow.UndertowSupport;
@@ -247,6 +256,9 @@ class UndertowServerWrapper implements BatchVisitor, UndertowSupport {
 
 	private IdentityManager identityManager;
 
+	/** Cache of successful authentications used by {@link #identityManager} */
+	private AuthenticationCache<Account> authenticationCache;
+
 	/**
 	 * A set of context paths that are being configured within <em>transactions</em> - context is started only at
 	 * the end of the transaction.
@@ -317,6 +329,9 @@ class UndertowServerWrapper implements BatchVisitor, UndertowSupport {
 	 */
 	private final Map<String, DeploymentInfo> deploymentInfos = new HashMap<>();
 
+	/** Matchers for RegEx filters (mapped to {@code /*}) of each context */
+	private final Map<String, RegexFilterMatcher> regexFilterMatchers = new HashMap<>();
+
 	/**
 	 * 1:1 mapping between {@link OsgiContextModel} and {@link org.osgi.service.http.context.ServletContextHelper}'s
 	 * specific {@link javax.servlet.ServletContext}.
@@ -369,6 +384,9 @@ class UndertowServerWrapper implements BatchVisitor, UndertowSupport {
 	private Integer defaultSessionTimeout = null;
 	private SessionPersistenceManager globalSessionPersistenceManager;
 
+	/** Storage of attributes of the sessions of all the contexts - if not kept on the heap */
+	private SessionAttributeStorage sessionAttributeStorage;
+
 	// configuration read from undertow.xml
 	private UndertowConfiguration undertowConfiguration;
 
@@ -379,10 +397,16 @@ class UndertowServerWrapper implements BatchVisitor, UndertowSupport {
 	private final Map<String, FlexibleErrorPages> errorPages = new HashMap<>();
 
 	/**
-	 * All {@link EventListenerModel} instances for {@link HttpSessionAttributeListener} listeners. They'll be
-	 * reviewed in order to propagate session attribute events per {@link OsgiContextModel}.
+	 * Bridge keeping {@link EventListenerModel} instances for {@link HttpSessionAttributeListener} listeners to
+	 * propagate session attribute events per {@link OsgiContextModel}. Shared by all the contexts.
 	 */
-	private final List<EventListenerModel> sessionListenerModels = new ArrayList<>();
+	private final OsgiSessionAttributeListener osgiSessionsBridge = new OsgiSessionAttributeListener();
+
+	/** Request metrics shared by all the contexts - if enabled */
+	private final RequestMetrics requestMetrics;
+
+	/** Timing of filter chain elements shared by all the contexts - if enabled */
+	private final FilterChainTiming filterChainTiming;
 
 	private final Map<String, TreeMap<OsgiContextModel, SecurityConfigurationModel>> contextSecurityConstraints = new HashMap<>();
 
@@ -392,6 +416,8 @@ class UndertowServerWrapper implements BatchVisitor, UndertowSupport {
 		this.undertowFactory = undertowFactory;
 		this.paxWebUndertowBundle = paxWebUndertowBundle;
 		this.classLoader = classLoader;
+		this.requestMetrics = RequestMetrics.create(config.server());
+		this.filterChainTiming = FilterChainTiming.create(config.server());
 	}
 
 	// --- lifecycle and configuration methods
@@ -435,11 +461,14 @@ class UndertowServerWrapper implements BatchVisitor, UndertowSupport {
 			defaultSessionTimeout = configuration.session().getSessionTimeout();
 		}
 
+		sessionAttributeStorage = OffHeapSessionAttributeStorage.create(configuration.session());
+
 		if (globalSessionPersistenceManager == null) {
-			File dir = configuration.session().getSessionStoreDirectory();
-			if (dir != null) {
-				LOG.info("Using file session persistence. Location: " + dir.getCanonicalPath());
-				globalSessionPersistenceManager = new FileSessionPersistence(dir);
+			LogSessionStore store = LogSessionStore.create(configuration.session());
+			if (store != null) {
+				LOG.info("Using file session persistence. Location: "
+						+ configuration.session().getSessionStoreDirectory().getCanonicalPath());
+				globalSessionPersistenceManager = new StoreSessionPersistence(store);
 			} else {
 				LOG.info("Using in-memory session persistence");
 				globalSessionPersistenceManager = new InMemorySessionPersistence();
@@ -559,7 +588,11 @@ class UndertowServerWrapper implements BatchVisitor, UndertowSupport {
 				}
 				Set<String> rolePrincipalClassNames = new LinkedHashSet<>(defaultRealm.getRolePrincipalClassNames());
 
-				identityManager = new JaasIdentityManager(jaasAuth.getName(), userPrincipalClassName, rolePrincipalClassNames);
+				JaasIdentityManager jaasIdentityManager = new JaasIdentityManager(jaasAuth.getName(),
+						userPrincipalClassName, rolePrincipalClassNames);
+				authenticationCache = AuthenticationCache.create(configuration.security());
+				jaasIdentityManager.setAuthenticationCache(authenticationCache);
+				identityManager = jaasIdentityManager;
 			} else if (propertiesAuth != null || usersAuth != null) {
 				Map<String, String> users = new HashMap<>();
 
@@ -583,7 +616,10 @@ class UndertowServerWrapper implements BatchVisitor, UndertowSupport {
 					}
 				}
 
-				identityManager = new PropertiesIdentityManager(users);
+				PropertiesIdentityManager propertiesIdentityManager = new PropertiesIdentityManager(users);
+				authenticationCache = AuthenticationCache.create(configuration.security());
+				propertiesIdentityManager.setAuthenticationCache(authenticationCache);
+				identityManager = propertiesIdentityManager;
 			}
 		}
 
@@ -760,7 +796,8 @@ class UndertowServerWrapper implements BatchVisitor, UndertowSupport {
 				File sessionsDir = new File(persistentSessions.getPath());
 				if (sessionsDir.isDirectory() || sessionsDir.mkdirs()) {
 					LOG.info("Using file session persistence. Location: " + sessionsDir.getCanonicalPath());
-					globalSessionPersistenceManager = new FileSessionPersistence(sessionsDir);
+					globalSessionPersistenceManager = new StoreSessionPersistence(LogSessionStore.create(sessionsDir,
+							configuration.session().getSessionStoreFlushInterval()));
 				} else {
 					LOG.warn("Can't access or create {} for file session persistence.", sessionsDir);
 				}
@@ -1050,6 +1087,10 @@ class UndertowServerWrapper implements BatchVisitor, UndertowSupport {
 			}
 		});
 		deploymentInfos.clear();
+		if (globalSessionPersistenceManager instanceof StoreSessionPersistence) {
+			((StoreSessionPersistence) globalSessionPersistenceManager).close();
+			globalSessionPersistenceManager = null;
+		}
 		// do not clear osgiContextModels and osgiServletContexts
 		// - they'll be cleared individually through HttpServiceEnabled
 //		osgiServletContexts.clear();
@@ -1070,6 +1111,30 @@ class UndertowServerWrapper implements BatchVisitor, UndertowSupport {
 		osgiServletContexts.values().forEach(OsgiServletContext::unregister);
 	}
 
+	/**
+	 * Returns request metrics recorded by all the contexts of this server
+	 * @return {@code null} if request metrics are not enabled
+	 */
+	public RequestMetrics getRequestMetrics() {
+		return requestMetrics;
+	}
+
+	/**
+	 * Returns timing of filter chain elements invoked in all the contexts of this server
+	 * @return {@code null} if filter chain timing is not enabled
+	 */
+	public FilterChainTiming getFilterChainTiming() {
+		return filterChainTiming;
+	}
+
+	/**
+	 * Returns the cache of successful authentications used in front of the realms of this server
+	 * @return {@code null} if authentication results are not cached
+	 */
+	public AuthenticationCache<?> getAuthenticationCache() {
+		return authenticationCache;
+	}
+
 	/**
 	 * If state allows, this methods returns currently configured/started addresses of the listeners.
 	 * @param useLocalPort
@@ -1168,6 +1233,10 @@ class UndertowServerWrapper implements BatchVisitor, UndertowSupport {
 			// one IDM for all the contexts - it's only an authentication repository, login configs and authorization
 			// checks will be handled depending on OsgiContextModel
 			deploymentInfo.setIdentityManager(identityManager);
+			if (identityManager instanceof NotificationReceiver) {
+				// Undertow doesn't tell identity managers about logout
+				deploymentInfo.addNotificationReceiver((NotificationReceiver) identityManager);
+			}
 
 			// In Jetty and Tomcat we can operate on FilterChains, here we have to split the OsgiFilterChain's
 			// functionality into different HandlerWrappers:
@@ -1179,10 +1248,11 @@ class UndertowServerWrapper implements BatchVisitor, UndertowSupport {
 			// into the "outermost" one
 
 			PaxWebPreprocessorsHandler preprocessorWrapper = new PaxWebPreprocessorsHandler();
+			preprocessorWrapper.setFilterChainTiming(filterChainTiming);
 			this.preprocessorsHandlers.put(contextPath, preprocessorWrapper);
 			deploymentInfo.addOuterHandlerChainWrapper(preprocessorWrapper);
 
-			PaxWebOuterHandlerWrapper outerWrapper = new PaxWebOuterHandlerWrapper(new OsgiSessionAttributeListener(sessionListenerModels));
+			PaxWebOuterHandlerWrapper outerWrapper = new PaxWebOuterHandlerWrapper(osgiSessionsBridge, requestMetrics);
 			this.wrappingHandlers.put(contextPath, outerWrapper);
 			deploymentInfo.addOuterHandlerChainWrapper(outerWrapper);
 
@@ -1205,6 +1275,11 @@ class UndertowServerWrapper implements BatchVisitor, UndertowSupport {
 			deploymentInfo.setServletSessionConfig(ssc);
 
 			deploymentInfo.setSessionPersistenceManager(globalSessionPersistenceManager);
+			if (globalSessionPersistenceManager instanceof StoreSessionPersistence) {
+				// to store changed sessions incrementally
+				deploymentInfo.addSessionListener(((StoreSessionPersistence) globalSessionPersistenceManager)
+						.createSessionListener(deploymentName));
+			}
 
 			// do NOT add&deploy&start the context here - only after registering first "active" web element
 			// only prepare the original (cloned later) DeploymentInfo
@@ -1234,6 +1309,7 @@ class UndertowServerWrapper implements BatchVisitor, UndertowSupport {
 			initializers.remove(contextPath);
 			osgiContextModels.remove(contextPath);
 			deploymentInfos.remove(contextPath);
+			regexFilterMatchers.remove(contextPath);
 			securityHandlers.remove(contextPath);
 			wrappingHandlers.remove(contextPath);
 
@@ -1259,6 +1335,13 @@ class UndertowServerWrapper implements BatchVisitor, UndertowSupport {
 		OsgiContextModel osgiModel = change.getOsgiContextModel();
 		ServletContextModel servletContextModel = change.getServletContextModel();
 
+		if (requestMetrics != null && change.getKind() == OpCode.DELETE) {
+			requestMetrics.remove(osgiModel);
+		}
+		if (filterChainTiming != null && change.getKind() == OpCode.DELETE) {
+			filterChainTiming.remove(osgiModel);
+		}
+
 		String contextPath = osgiModel.getContextPath();
 
 		if (change.getKind() == OpCode.ADD) {
@@ -1482,6 +1565,13 @@ class UndertowServerWrapper implements BatchVisitor, UndertowSupport {
 	public void visitServletModelChange(ServletModelChange change) {
 		Set<String> done = new HashSet<>();
 
+		if (requestMetrics != null && change.getKind() == OpCode.DELETE) {
+			change.getServletModels().keySet().forEach(requestMetrics::remove);
+		}
+		if (filterChainTiming != null && change.getKind() == OpCode.DELETE) {
+			change.getServletModels().keySet().forEach(filterChainTiming::remove);
+		}
+
 		if ((change.getKind() == OpCode.ADD && !change.isDisabled()) || change.getKind() == OpCode.ENABLE) {
 			ServletModel model = change.getServletModel();
 			if (change.getNewModelsInfo() == null) {
@@ -1750,6 +1840,10 @@ class UndertowServerWrapper implements BatchVisitor, UndertowSupport {
 
 	@Override
 	public void visitFilterModelChange(FilterModelChange change) {
+		if (filterChainTiming != null && change.getKind() == OpCode.DELETE) {
+			change.getFilterModels().forEach(filterChainTiming::remove);
+		}
+
 		// only handle dynamic filter registration here - filter added only as last filter
 		FilterModel model = change.getFilterModel();
 		Set<String> done = new HashSet<>();
@@ -1835,8 +1929,8 @@ class UndertowServerWrapper implements BatchVisitor, UndertowSupport {
 			// in PaxWebFilterHolders
 			List<PreprocessorFilterConfig> toInit = new LinkedList<>();
 
-			// clear to keep the order of all available preprocessors
-			preprocessorsHandler.getPreprocessors().clear();
+			// collect new list to keep the order of all available preprocessors
+			List<PreprocessorFilterConfig> preprocessors = new LinkedList<>();
 
 			for (Iterator<FilterModel> iterator = filters.iterator(); iterator.hasNext(); ) {
 				FilterModel model = iterator.next();
@@ -1857,10 +1951,11 @@ class UndertowServerWrapper implements BatchVisitor, UndertowSupport {
 							return match;
 						});
 					}
-					preprocessorsHandler.getPreprocessors().add(filterConfig);
+					preprocessors.add(filterConfig);
 					iterator.remove();
 				}
 			}
+			preprocessorsHandler.setPreprocessors(preprocessors);
 
 			if (manager != null && manager.getState() == DeploymentManager.State.STARTED) {
 				for (PreprocessorFilterConfig fc : toInit) {
@@ -1920,6 +2015,10 @@ class UndertowServerWrapper implements BatchVisitor, UndertowSupport {
 
 			List<FilterInfo> added = new LinkedList<>();
 
+			// RegEx filters are mapped to "/*", so single matcher of the context decides which of them are called
+			RegexFilterMatcher regexFilterMatcher = regexFilterMatchers.computeIfAbsent(contextPath, cp -> new RegexFilterMatcher());
+			regexFilterMatcher.update(filters);
+
 			for (FilterModel model : filters) {
 				if (model.isPreprocessor()) {
 					continue;
@@ -1945,8 +2044,9 @@ class UndertowServerWrapper implements BatchVisitor, UndertowSupport {
 				OsgiServletContext context = osgiServletContexts.get(highestRankedModel);
 
 				// filter definition
-				FilterInfo info = new PaxWebFilterInfo(model, context,
+				PaxWebFilterInfo info = new PaxWebFilterInfo(model, context,
 						"whiteboard".equalsIgnoreCase(configuration.server().getTCCLType()));
+				info.setRegexFilterMatcher(regexFilterMatcher);
 
 				if (quick) {
 					// we can operate on existing ManagedFilters object from current deployment
@@ -2024,7 +2124,7 @@ class UndertowServerWrapper implements BatchVisitor, UndertowSupport {
 				}
 				if (eventListener instanceof HttpSessionAttributeListener) {
 					// we have to store it separately to propagate OsgiHttpSession specific events
-					sessionListenerModels.add(eventListenerModel);
+					osgiSessionsBridge.addSessionListenerModel(eventListenerModel);
 				}
 
 				boolean stopped = false;
@@ -2104,7 +2204,7 @@ class UndertowServerWrapper implements BatchVisitor, UndertowSupport {
 						c.removeServletContextAttributeListener((ServletContextAttributeListener) eventListener);
 					}
 					if (eventListener instanceof HttpSessionAttributeListener) {
-						sessionListenerModels.remove(eventListenerModel);
+						osgiSessionsBridge.removeSessionListenerModel(eventListenerModel);
 					}
 
 					if (eventListenerModel.isDynamic()) {
@@ -2671,7 +2771,7 @@ class UndertowServerWrapper implements BatchVisitor, UndertowSupport {
 										} else {
 											osgiContextModel = paxWebServletInfo.getOsgiContextModel();
 										}
-										prefix = osgiContextModel == null ? null : osgiContextModel.getTemporaryLocation().replaceAll("/", "_");
+										prefix = osgiContextModel == null ? null : osgiContextModel.getSessionIdPrefix();
 									}
 								}
 							}
@@ -2694,7 +2794,12 @@ class UndertowServerWrapper implements BatchVisitor, UndertowSupport {
 					};
 				}
 			});
-			deployment.setSessionManagerFactory(new InMemorySessionManagerFactory());
+			if (sessionAttributeStorage != null) {
+				deployment.setSessionManagerFactory(OffHeapSessionManager.factory(new InMemorySessionManagerFactory(),
+						sessionAttributeStorage));
+			} else {
+				deployment.setSessionManagerFactory(new InMemorySessionManagerFactory());
+			}
 
 			// alter session configuration
 			SessionConfigurationModel session = highestRanked.getSessionConfiguration();
@@ -29,21 +29,29 @@ import javax.security.auth.callback.UnsupportedCallbackException;
 import javax.security.auth.login.LoginContext;
 import javax.security.auth.login.LoginException;
 
+import io.undertow.security.api.NotificationReceiver;
+import io.undertow.security.api.SecurityNotification;
 import io.undertow.security.idm.Account;
 import io.undertow.security.idm.Credential;
 import io.undertow.security.idm.IdentityManager;
 import io.undertow.security.idm.PasswordCredential;
 import io.undertow.security.idm.X509CertificateCredential;
+import org.ops4j.pax.web.service.spi.util.AuthenticationCache;
 
 /**
- * Implementation of {@link IdentityManager} for {@code <w:jaas>} authentication from {@code undertow.xml}.
+ * <p>Implementation of {@link IdentityManager} for {@code <w:jaas>} authentication from {@code undertow.xml}.</p>
+ *
+ * <p>When {@link AuthenticationCache} is set, successful JAAS logins with user name and password are cached, so
+ * the full login (which may involve remote LDAP/database calls) is not performed for each request.</p>
  */
-public class JaasIdentityManager implements IdentityManager {
+public class JaasIdentityManager implements IdentityManager, NotificationReceiver {
 
 	private final String realm;
 	private final String userPrincipalClassName;
 	private final Set<String> rolePrincipalClassNames;
 
+	private AuthenticationCache<Account> authenticationCache;
+
 	public JaasIdentityManager(Map<String, String> config) {
 		this.realm = config.get("realm");
 		this.userPrincipalClassName = config.get("userPrincipalClassName");
@@ -56,6 +64,23 @@ public class JaasIdentityManager implements IdentityManager {
 		this.rolePrincipalClassNames = rolePrincipalClassNames;
 	}
 
+	public void setAuthenticationCache(AuthenticationCache<Account> authenticationCache) {
+		this.authenticationCache = authenticationCache;
+	}
+
+	/**
+	 * Undertow doesn't pass logout to {@link IdentityManager}, so cached verification of the user is removed when
+	 * this manager is notified about {@link SecurityNotification.EventType#LOGGED_OUT}.
+	 * @param notification
+	 */
+	@Override
+	public void handleNotification(SecurityNotification notification) {
+		if (authenticationCache != null && notification.getEventType() == SecurityNotification.EventType.LOGGED_OUT
+				&& notification.getAccount() != null && notification.getAccount().getPrincipal() != null) {
+			authenticationCache.invalidate(realm, notification.getAccount().getPrincipal().getName());
+		}
+	}
+
 	@Override
 	public Account verify(Account account) {
 		if (!(account instanceof AccountImpl)) {
@@ -77,6 +102,14 @@ public class JaasIdentityManager implements IdentityManager {
 
 	@Override
 	public Account verify(final String id, Credential credential) {
+		if (credential instanceof PasswordCredential && authenticationCache != null) {
+			return authenticationCache.verify(realm, id, new String(((PasswordCredential) credential).getPassword()),
+					() -> login(id, credential));
+		}
+		return login(id, credential);
+	}
+
+	private Account login(final String id, Credential credential) {
 		try {
 			if (credential instanceof PasswordCredential) {
 				final char[] password = ((PasswordCredential) credential).getPassword();
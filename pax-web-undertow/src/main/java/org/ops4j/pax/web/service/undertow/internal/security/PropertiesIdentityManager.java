@@ -26,10 +26,13 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
+import io.undertow.security.api.NotificationReceiver;
+import io.undertow.security.api.SecurityNotification;
 import io.undertow.security.idm.Account;
 import io.undertow.security.idm.Credential;
 import io.undertow.security.idm.IdentityManager;
 import io.undertow.security.idm.PasswordCredential;
+import org.ops4j.pax.web.service.spi.util.AuthenticationCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,13 +40,18 @@ import org.slf4j.LoggerFactory;
  * Implementation of {@link IdentityManager} for {@code <w:properties>} and {@code <w:users>} authentication
  * from {@code undertow.xml}.
  */
-public class PropertiesIdentityManager implements IdentityManager {
+public class PropertiesIdentityManager implements IdentityManager, NotificationReceiver {
 
 	public static final Logger LOG = LoggerFactory.getLogger(PropertiesIdentityManager.class);
 
+	/** Name of the realm used as part of {@link AuthenticationCache} keys */
+	private static final String REALM = "properties";
+
 	private final Map<String, String> users = new HashMap<>();
 	private final Map<String, Set<String>> roles = new HashMap<>();
 
+	private AuthenticationCache<Account> authenticationCache;
+
 	public PropertiesIdentityManager(Map<String, String> config) {
 		config.forEach((user, credentials) -> {
 			String[] creds = credentials != null ? credentials.split("\\s*,\\s*") : new String[0];
@@ -63,6 +71,23 @@ public class PropertiesIdentityManager implements IdentityManager {
 		});
 	}
 
+	public void setAuthenticationCache(AuthenticationCache<Account> authenticationCache) {
+		this.authenticationCache = authenticationCache;
+	}
+
+	/**
+	 * Undertow doesn't pass logout to {@link IdentityManager}, so cached verification of the user is removed when
+	 * this manager is notified about {@link SecurityNotification.EventType#LOGGED_OUT}.
+	 * @param notification
+	 */
+	@Override
+	public void handleNotification(SecurityNotification notification) {
+		if (authenticationCache != null && notification.getEventType() == SecurityNotification.EventType.LOGGED_OUT
+				&& notification.getAccount() != null && notification.getAccount().getPrincipal() != null) {
+			authenticationCache.invalidate(REALM, notification.getAccount().getPrincipal().getName());
+		}
+	}
+
 	@Override
 	public Account verify(Account account) {
 		return null;
@@ -76,12 +101,21 @@ public class PropertiesIdentityManager implements IdentityManager {
 	@Override
 	public Account verify(String id, Credential credential) {
 		if (credential instanceof PasswordCredential) {
-			char[] password = ((PasswordCredential) credential).getPassword();
-			String pwd = users.get(id);
-			if (pwd != null) {
-				if (compare(pwd, new String(password))) {
-					return new AccountImpl(new SimplePrincipal(id), roles.get(id));
-				}
+			String password = new String(((PasswordCredential) credential).getPassword());
+			if (authenticationCache != null) {
+				// hashed passwords are compared using a digest, so it's worth caching as well
+				return authenticationCache.verify(REALM, id, password, () -> login(id, password));
+			}
+			return login(id, password);
+		}
+		return null;
+	}
+
+	private Account login(String id, String password) {
+		String pwd = users.get(id);
+		if (pwd != null) {
+			if (compare(pwd, password)) {
+				return new AccountImpl(new SimplePrincipal(id), roles.get(id));
 			}
 		}
 		return null;
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.undertow.internal.web;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+
+import io.undertow.io.IoCallback;
+import io.undertow.io.Sender;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.resource.RangeAwareResource;
+import io.undertow.server.handlers.resource.Resource;
+import io.undertow.util.ETag;
+import io.undertow.util.MimeMappings;
+import org.ops4j.pax.web.service.spi.model.OsgiContextModel;
+import org.ops4j.pax.web.service.spi.util.ResourceCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>{@link Resource} which serves its content from shared {@link ResourceCache}. It's used instead of Undertow's
+ * {@link io.undertow.server.handlers.cache.DirectBufferCache}, so {@link io.undertow.server.handlers.resource.CachingResourceManager}
+ * keeps only the metadata of the resources.</p>
+ */
+class CachingResource implements RangeAwareResource {
+
+	public static final Logger LOG = LoggerFactory.getLogger(CachingResource.class);
+
+	private final Resource delegate;
+	private final ResourceCache cache;
+	private final OsgiContextModel contextModel;
+	private final String servletName;
+
+	CachingResource(Resource delegate, ResourceCache cache, OsgiContextModel contextModel, String servletName) {
+		this.delegate = delegate;
+		this.cache = cache;
+		this.contextModel = contextModel;
+		this.servletName = servletName;
+	}
+
+	@Override
+	public void serve(Sender sender, HttpServerExchange exchange, IoCallback completionCallback) {
+		URL url = delegate.getUrl();
+		Long length = delegate.getContentLength();
+		if (url != null && length != null) {
+			Date lastModified = delegate.getLastModified();
+			try {
+				ByteBuffer content = cache.getContent(contextModel, servletName, url.toExternalForm(),
+						lastModified == null ? -1L : lastModified.getTime(), length, url::openStream);
+				if (content != null) {
+					sender.send(content, completionCallback);
+					return;
+				}
+			} catch (IOException e) {
+				LOG.debug("Can't cache content of {}: {}", url, e.getMessage());
+			}
+		}
+		delegate.serve(sender, exchange, completionCallback);
+	}
+
+	@Override
+	public void serveRange(Sender sender, HttpServerExchange exchange, long start, long end, IoCallback completionCallback) {
+		// ranges are not served from the cache
+		((RangeAwareResource) delegate).serveRange(sender, exchange, start, end, completionCallback);
+	}
+
+	@Override
+	public boolean isRangeSupported() {
+		return delegate instanceof RangeAwareResource && ((RangeAwareResource) delegate).isRangeSupported();
+	}
+
+	@Override
+	public String getPath() {
+		return delegate.getPath();
+	}
+
+	@Override
+	public Date getLastModified() {
+		return delegate.getLastModified();
+	}
+
+	@Override
+	public String getLastModifiedString() {
+		return delegate.getLastModifiedString();
+	}
+
+	@Override
+	public ETag getETag() {
+		return delegate.getETag();
+	}
+
+	@Override
+	public String getName() {
+		return delegate.getName();
+	}
+
+	@Override
+	public boolean isDirectory() {
+		return delegate.isDirectory();
+	}
+
+	@Override
+	public List<Resource> list() {
+		return delegate.list();
+	}
+
+	@Override
+	public String getContentType(MimeMappings mimeMappings) {
+		return delegate.getContentType(mimeMappings);
+	}
+
+	@Override
+	public Long getContentLength() {
+		return delegate.getContentLength();
+	}
+
+	@Override
+	public String getCacheKey() {
+		return delegate.getCacheKey();
+	}
+
+	@Override
+	public File getFile() {
+		return delegate.getFile();
+	}
+
+	@Override
+	public Path getFilePath() {
+		return delegate.getFilePath();
+	}
+
+	@Override
+	public File getResourceManagerRoot() {
+		return delegate.getResourceManagerRoot();
+	}
+
+	@Override
+	public Path getResourceManagerRootPath() {
+		return delegate.getResourceManagerRootPath();
+	}
+
+	@Override
+	public URL getUrl() {
+		return delegate.getUrl();
+	}
+
+}
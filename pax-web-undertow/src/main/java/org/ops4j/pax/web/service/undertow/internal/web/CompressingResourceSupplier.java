@@ -0,0 +1,287 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.undertow.internal.web;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletContext;
+
+import io.undertow.io.IoCallback;
+import io.undertow.io.Sender;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.resource.Resource;
+import io.undertow.server.handlers.resource.ResourceSupplier;
+import io.undertow.servlet.handlers.ServletRequestContext;
+import io.undertow.util.ETag;
+import io.undertow.util.HeaderValues;
+import io.undertow.util.Headers;
+import io.undertow.util.MimeMappings;
+import org.ops4j.pax.web.service.spi.util.CompressedContentCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>{@link ResourceSupplier} which returns encoded variants of resources to clients that accept them:<ul>
+ *     <li>{@code .br}/{@code .gz} siblings of the original resource (if {@code precompressed} is enabled)</li>
+ *     <li>gzipped content of compressible resources taken from {@link CompressedContentCache}</li>
+ * </ul>
+ * {@code Vary} and {@code Content-Encoding} response headers are set when the resource is resolved, so this supplier
+ * should be used only to obtain the resource actually sent in the response.</p>
+ *
+ * <p>Range and INCLUDE requests are always served from the original resource.</p>
+ */
+class CompressingResourceSupplier implements ResourceSupplier {
+
+	public static final Logger LOG = LoggerFactory.getLogger(CompressingResourceSupplier.class);
+
+	private final ResourceSupplier delegate;
+	private final CompressedContentCache compressedCache;
+	private final boolean precompressed;
+	private final ServletContext servletContext;
+
+	CompressingResourceSupplier(ResourceSupplier delegate, CompressedContentCache compressedCache,
+			boolean precompressed, ServletContext servletContext) {
+		this.delegate = delegate;
+		this.compressedCache = compressedCache;
+		this.precompressed = precompressed;
+		this.servletContext = servletContext;
+	}
+
+	@Override
+	public Resource getResource(HttpServerExchange exchange, String path) throws IOException {
+		Resource original = delegate.getResource(exchange, path);
+		if (original == null || original.isDirectory() || path.endsWith("/")
+				|| exchange.getRequestHeaders().contains(Headers.RANGE)) {
+			return original;
+		}
+		ServletRequestContext src = exchange.getAttachment(ServletRequestContext.ATTACHMENT_KEY);
+		if (src != null && src.getDispatcherType() == DispatcherType.INCLUDE) {
+			return original;
+		}
+
+		Long length = original.getContentLength();
+		boolean compressible = compressedCache != null && length != null
+				&& compressedCache.isCompressible(servletContext.getMimeType(original.getName()), length);
+		if (!precompressed && !compressible) {
+			return original;
+		}
+		exchange.getResponseHeaders().add(Headers.VARY, Headers.ACCEPT_ENCODING_STRING);
+
+		HeaderValues acceptEncoding = exchange.getRequestHeaders().get(Headers.ACCEPT_ENCODING);
+		Resource encoded = null;
+		String encoding = null;
+		if (precompressed && accepts(acceptEncoding, "br")) {
+			encoded = sibling(exchange, path, ".br", original);
+			encoding = "br";
+		}
+		if (encoded == null && accepts(acceptEncoding, "gzip")) {
+			encoding = "gzip";
+			if (precompressed) {
+				encoded = sibling(exchange, path, ".gz", original);
+			}
+			if (encoded == null && compressible) {
+				encoded = gzipped(original, length);
+			}
+		}
+		if (encoded == null) {
+			return original;
+		}
+
+		exchange.getResponseHeaders().put(Headers.CONTENT_ENCODING, encoding);
+		return encoded;
+	}
+
+	private Resource sibling(HttpServerExchange exchange, String path, String extension, Resource original) throws IOException {
+		Resource sibling = delegate.getResource(exchange, path + extension);
+		if (sibling == null || sibling.isDirectory()) {
+			return null;
+		}
+		return new EncodedResource(original, sibling, null, extension.substring(1));
+	}
+
+	private Resource gzipped(Resource original, long length) {
+		URL url = original.getUrl();
+		if (url == null) {
+			return null;
+		}
+		ETag etag = original.getETag();
+		Date lastModified = original.getLastModified();
+		String version = etag != null ? etag.toString()
+				: (lastModified == null ? "" : lastModified.getTime()) + "-" + length;
+		try {
+			byte[] gzipped = compressedCache.getGzipped(url.toExternalForm(), version, url::openStream);
+			return gzipped == null ? null : new EncodedResource(original, null, gzipped, "gzip");
+		} catch (IOException e) {
+			LOG.debug("Can't compress content of {}: {}", url, e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Checks whether {@code Accept-Encoding} values accept given encoding with non-zero quality.
+	 * @param acceptEncoding
+	 * @param encoding
+	 * @return
+	 */
+	static boolean accepts(List<String> acceptEncoding, String encoding) {
+		if (acceptEncoding == null) {
+			return false;
+		}
+		boolean accepted = false;
+		for (String header : acceptEncoding) {
+			for (String element : header.split(",")) {
+				String[] params = element.split(";");
+				String coding = params[0].trim().toLowerCase(Locale.ROOT);
+				boolean exact = coding.equals(encoding);
+				if (!exact && !"*".equals(coding)) {
+					continue;
+				}
+				boolean zero = false;
+				for (int i = 1; i < params.length; i++) {
+					String param = params[i].trim();
+					if (param.startsWith("q=") || param.startsWith("Q=")) {
+						try {
+							zero = Float.parseFloat(param.substring(2).trim()) <= 0f;
+						} catch (NumberFormatException ignored) {
+							zero = true;
+						}
+					}
+				}
+				if (exact) {
+					// explicit coding takes precedence over "*"
+					return !zero;
+				}
+				accepted = !zero;
+			}
+		}
+		return accepted;
+	}
+
+	/**
+	 * {@link Resource} with encoded content of original resource - either from a sibling resource or
+	 * from in-memory gzipped content. Name, type and last modification date are taken from the original
+	 * resource and ETag is derived from the original one.
+	 */
+	private static class EncodedResource implements Resource {
+
+		private final Resource original;
+		private final Resource sibling;
+		private final byte[] content;
+		private final String encoding;
+
+		EncodedResource(Resource original, Resource sibling, byte[] content, String encoding) {
+			this.original = original;
+			this.sibling = sibling;
+			this.content = content;
+			this.encoding = encoding;
+		}
+
+		@Override
+		public void serve(Sender sender, HttpServerExchange exchange, IoCallback completionCallback) {
+			if (sibling != null) {
+				sibling.serve(sender, exchange, completionCallback);
+			} else {
+				sender.send(ByteBuffer.wrap(content), completionCallback);
+			}
+		}
+
+		@Override
+		public String getPath() {
+			return original.getPath();
+		}
+
+		@Override
+		public Date getLastModified() {
+			return original.getLastModified();
+		}
+
+		@Override
+		public String getLastModifiedString() {
+			return original.getLastModifiedString();
+		}
+
+		@Override
+		public ETag getETag() {
+			ETag etag = original.getETag();
+			return etag == null ? null : new ETag(etag.isWeak(), etag.getTag() + "-" + encoding);
+		}
+
+		@Override
+		public String getName() {
+			// so the content type is determined using the name of the original resource
+			return original.getName();
+		}
+
+		@Override
+		public boolean isDirectory() {
+			return false;
+		}
+
+		@Override
+		public List<Resource> list() {
+			return Collections.emptyList();
+		}
+
+		@Override
+		public String getContentType(MimeMappings mimeMappings) {
+			return original.getContentType(mimeMappings);
+		}
+
+		@Override
+		public Long getContentLength() {
+			return sibling != null ? sibling.getContentLength() : Long.valueOf(content.length);
+		}
+
+		@Override
+		public String getCacheKey() {
+			return original.getCacheKey() + "-" + encoding;
+		}
+
+		@Override
+		public File getFile() {
+			return sibling != null ? sibling.getFile() : null;
+		}
+
+		@Override
+		public Path getFilePath() {
+			return sibling != null ? sibling.getFilePath() : null;
+		}
+
+		@Override
+		public File getResourceManagerRoot() {
+			return original.getResourceManagerRoot();
+		}
+
+		@Override
+		public Path getResourceManagerRootPath() {
+			return original.getResourceManagerRootPath();
+		}
+
+		@Override
+		public URL getUrl() {
+			return sibling != null ? sibling.getUrl() : original.getUrl();
+		}
+	}
+
+}
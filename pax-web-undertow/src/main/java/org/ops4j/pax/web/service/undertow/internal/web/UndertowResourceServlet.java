@@ -34,9 +34,13 @@ import io.undertow.server.handlers.resource.FileResourceManager;
 import io.undertow.server.handlers.resource.Resource;
 import io.undertow.server.handlers.resource.ResourceChangeListener;
 import io.undertow.server.handlers.resource.ResourceManager;
+import io.undertow.server.handlers.resource.ResourceSupplier;
 import io.undertow.servlet.spec.HttpServletRequestImpl;
+import org.ops4j.pax.web.service.spi.model.OsgiContextModel;
 import org.ops4j.pax.web.service.spi.servlet.OsgiScopedServletContext;
 import org.ops4j.pax.web.service.spi.servlet.OsgiServletContext;
+import org.ops4j.pax.web.service.spi.util.CompressedContentCache;
+import org.ops4j.pax.web.service.spi.util.ResourceCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -82,9 +86,36 @@ public class UndertowResourceServlet extends DefaultServlet implements ResourceM
 	private Integer maxSize;
 	private Integer maxAge;
 
+	/**
+	 * Cache shared by all resource servlets of the server. If {@code null}, Undertow's
+	 * {@link DirectBufferCache} is used.
+	 */
+	private final ResourceCache resourceCache;
+	private OsgiContextModel contextModel;
+
+	/** Cache of on-the-fly compressed variants of resources. If {@code null}, resources are not compressed. */
+	private final CompressedContentCache compressedCache;
+
+	/** Whether {@code .br}/{@code .gz} siblings of resources should be served */
+	private final boolean precompressed;
+
+	/**
+	 * {@link ResourceSupplier} that always returns original resources - used to check the existence of
+	 * resources, while {@link #resourceSupplier} may return encoded variants.
+	 */
+	private ResourceSupplier plainResourceSupplier;
+
 	public UndertowResourceServlet(File baseDirectory, String chroot) {
+		this(baseDirectory, chroot, null, null, false);
+	}
+
+	public UndertowResourceServlet(File baseDirectory, String chroot, ResourceCache resourceCache,
+			CompressedContentCache compressedCache, boolean precompressed) {
 		this.baseDirectory = baseDirectory;
 		this.chroot = chroot;
+		this.resourceCache = resourceCache;
+		this.compressedCache = compressedCache;
+		this.precompressed = precompressed;
 	}
 
 	/**
@@ -166,6 +197,17 @@ public class UndertowResourceServlet extends DefaultServlet implements ResourceM
 		pathInfoOnly = !"false".equalsIgnoreCase(getInitParameter("pathInfoOnly"));
 
 		ServletContext osgiScopedServletContext = config.getServletContext();
+
+		plainResourceSupplier = resourceSupplier;
+		if (precompressed || compressedCache != null) {
+			resourceSupplier = new CompressingResourceSupplier(plainResourceSupplier, compressedCache, precompressed,
+					osgiScopedServletContext);
+		}
+		if (osgiScopedServletContext instanceof OsgiScopedServletContext) {
+			contextModel = ((OsgiScopedServletContext) osgiScopedServletContext).getOsgiContextModel();
+		} else if (osgiScopedServletContext instanceof OsgiServletContext) {
+			contextModel = ((OsgiServletContext) osgiScopedServletContext).getOsgiContextModel();
+		}
 		if (welcomeFiles == null) {
 			if (osgiScopedServletContext instanceof OsgiScopedServletContext) {
 				welcomeFiles = ((OsgiScopedServletContext) osgiScopedServletContext).getWelcomeFiles();
@@ -194,7 +236,12 @@ public class UndertowResourceServlet extends DefaultServlet implements ResourceM
 	}
 
 	private void configureCache() {
-		if (cacheConfigurable) {
+		if (cacheConfigurable && resourceCache != null) {
+			// without DirectBufferCache, CachingResourceManager caches only the metadata and the content is
+			// served by CachingResource from shared cache
+			cachingResourceManager
+					= new CachingResourceManager(metadataCacheSize, maxEntrySize, null, this, maxAge);
+		} else if (cacheConfigurable) {
 			// io.undertow.server.handlers.file.FileHandlerStressTestCase#simpleFileStressTest uses "1024, 10, 10480"
 			// see:
 			// this.pool = new LimitedBufferSlicePool(..., sliceSize, sliceSize * slicesPerPage, maxMemory / (sliceSize * slicesPerPage));
@@ -264,7 +311,7 @@ public class UndertowResourceServlet extends DefaultServlet implements ResourceM
 		// 1) physical resources (but checked for pathInfo only):
 		for (String welcome : welcomeFiles) {
 			String path = relativePath + welcome;
-			Resource resource = resourceSupplier.getResource(exchange, path);
+			Resource resource = plainResourceSupplier.getResource(exchange, path);
 			if (resource != null) {
 				// redirect/include/forward has to be done with our context + servlet path
 				resolvedWelcome = pathInfoOnly ? servletPath + path : path;
@@ -314,7 +361,7 @@ public class UndertowResourceServlet extends DefaultServlet implements ResourceM
 
 		// last check - if resource ending with / is a file and really doesn't exist (as directory)
 		// we'll return 404, as 403 would suggest it exists
-		Resource resource = resourceSupplier.getResource(exchange, relativePath);
+		Resource resource = plainResourceSupplier.getResource(exchange, relativePath);
 		if (resource == null) {
 			if (req.getDispatcherType() == DispatcherType.ERROR) {
 				resp.sendError((Integer) req.getAttribute(RequestDispatcher.ERROR_STATUS_CODE));
@@ -363,7 +410,11 @@ public class UndertowResourceServlet extends DefaultServlet implements ResourceM
 				path = "";
 			}
 		}
-		return resourceManager.getResource(path);
+		Resource resource = resourceManager.getResource(path);
+		if (resource == null || resourceCache == null || resource.isDirectory()) {
+			return resource;
+		}
+		return new CachingResource(resource, resourceCache, contextModel, getServletName());
 	}
 
 	@Override
@@ -381,6 +432,15 @@ public class UndertowResourceServlet extends DefaultServlet implements ResourceM
 		// no op
 	}
 
+	@Override
+	public void destroy() {
+		if (resourceCache != null) {
+			// other resource servlets of the same context still use their entries
+			resourceCache.invalidate(contextModel, getServletName());
+		}
+		super.destroy();
+	}
+
 	@Override
 	public void close() throws IOException {
 		resourceManager.close();
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2022 OPS4J.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.web.service.undertow.internal;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.undertow.server.session.Session;
+import io.undertow.server.session.SessionListener;
+import org.junit.Test;
+import org.ops4j.pax.web.service.spi.session.SessionStore;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class StoreSessionPersistenceTest {
+
+	@Test
+	public void expirationOfReadOnlySessionIsRefreshed() {
+		SessionStore store = mock(SessionStore.class);
+		StoreSessionPersistence persistence = new StoreSessionPersistence(store);
+		try {
+			SessionListener listener = persistence.createSessionListener("d1");
+
+			AtomicLong lastAccessed = new AtomicLong(1_000_000L);
+			Session session = mock(Session.class);
+			when(session.getId()).thenReturn("s1");
+			when(session.getMaxInactiveInterval()).thenReturn(60);
+			when(session.getLastAccessedTime()).thenAnswer(i -> lastAccessed.get());
+
+			listener.sessionCreated(session, null);
+			long firstExpiration = 1_000_000L + 60_000L;
+			verify(store).store(eq("d1"), eq("s1"),
+					eq(firstExpiration + StoreSessionPersistence.EXPIRATION_SLACK), any());
+
+			// not accessed - nothing to refresh
+			reset(store);
+			persistence.refreshExpirations();
+			verify(store, never()).store(any(), any(), anyLong(), any());
+
+			// session is only read (no attribute changes) after its first maxInactiveInterval
+			lastAccessed.set(firstExpiration + 1_000L);
+			persistence.refreshExpirations();
+			verify(store).store(eq("d1"), eq("s1"),
+					eq(firstExpiration + 61_000L + StoreSessionPersistence.EXPIRATION_SLACK), any());
+
+			// invalidated session is skipped
+			reset(store);
+			lastAccessed.addAndGet(60_000L);
+			when(session.getLastAccessedTime()).thenThrow(new IllegalStateException("invalidated"));
+			persistence.refreshExpirations();
+			verify(store, never()).store(any(), any(), anyLong(), any());
+		} finally {
+			persistence.close();
+		}
+	}
+
+}